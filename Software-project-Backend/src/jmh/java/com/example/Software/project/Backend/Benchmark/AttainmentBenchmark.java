@@ -0,0 +1,29 @@
+package com.example.Software.project.Backend.Benchmark;
+
+import com.example.Software.project.Backend.Service.AttainmentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AttainmentService: the per-module PO rollup behind /reports/course and the LO attainment
+ * metrics used by the dashboards.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttainmentBenchmark {
+
+    @Benchmark
+    public Map<String, Double> poAttainment(OutcomeDataset data) {
+        return data.bean(AttainmentService.class).getPOAttainment(data.moduleId);
+    }
+
+    @Benchmark
+    public Map<String, Object> loAttainmentMetrics(OutcomeDataset data) {
+        return data.bean(AttainmentService.class).getLoAttainmentMetrics(data.loIds, null, 50.0, null, null);
+    }
+}
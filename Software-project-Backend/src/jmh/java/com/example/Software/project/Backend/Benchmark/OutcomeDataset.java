@@ -0,0 +1,92 @@
+package com.example.Software.project.Backend.Benchmark;
+
+import com.example.Software.project.Backend.Service.SyntheticDataGenerator;
+import com.example.Software.project.Backend.SoftwareProjectBackendApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.*;
+
+/**
+ * Shared JMH state: boots the application against a private in-memory H2 database and seeds
+ * one module at the scale given by the @Param fields. Built once per trial (fork), so the
+ * measured methods only see the service call.
+ *
+ * The attainment result cache is sized to zero so every invocation does the full calculation.
+ */
+@State(Scope.Benchmark)
+public class OutcomeDataset {
+
+    static final String MARK_TYPE = "FINAL_EXAM";
+
+    /** Students per batch */
+    @Param({"200", "2000"})
+    public int students;
+
+    @Param({"10"})
+    public int los;
+
+    @Param({"12"})
+    public int pos;
+
+    @Param({"4"})
+    public int batches;
+
+    /** compute.parallel.enabled: run with -p parallel=true,false to compare the two */
+    @Param({"true"})
+    public boolean parallel;
+
+    ConfigurableApplicationContext context;
+    String moduleId;
+    List<String> loIds;
+    String latestBatch;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(SoftwareProjectBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "spring.devtools.restart.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "import.jobs.workers=1",
+                        "attainment.cache.max-entries=0",
+                        "compute.parallel.enabled=" + parallel,
+                        "compute.parallel.min-items=1")
+                .run();
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // One module of `los` LOs mapped to `pos` POs, `students` per batch, a 2-question-per-LO final
+    // exam and one assignment per batch — see SyntheticDataGenerator for the score model
+    private void seed() {
+        SyntheticDataGenerator.Spec spec = new SyntheticDataGenerator.Spec(
+                "BENCH", 1, los, pos, batches, 20, students, 2, 1, 42L);
+        bean(SyntheticDataGenerator.class).generate(spec);
+
+        moduleId = SyntheticDataGenerator.moduleId(spec.prefix(), 1);
+        loIds = new ArrayList<>();
+        for (int l = 1; l <= los; l++) {
+            loIds.add(SyntheticDataGenerator.loId(moduleId, l));
+        }
+        latestBatch = SyntheticDataGenerator.batchName(spec, batches - 1);
+    }
+}
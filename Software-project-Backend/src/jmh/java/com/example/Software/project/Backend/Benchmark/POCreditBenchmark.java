@@ -0,0 +1,25 @@
+package com.example.Software.project.Backend.Benchmark;
+
+import com.example.Software.project.Backend.Service.POAttainmentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POAttainmentService.calculateStudentPOCredits for one batch — the per-student PO credit
+ * table behind /po-attainment and the PO attainment export.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class POCreditBenchmark {
+
+    @Benchmark
+    public Map<String, Object> studentPOCredits(OutcomeDataset data) {
+        return data.bean(POAttainmentService.class)
+                .calculateStudentPOCredits(data.loIds, OutcomeDataset.MARK_TYPE, data.latestBatch, 50);
+    }
+}
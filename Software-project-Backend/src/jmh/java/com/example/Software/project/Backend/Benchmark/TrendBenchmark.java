@@ -0,0 +1,24 @@
+package com.example.Software.project.Backend.Benchmark;
+
+import com.example.Software.project.Backend.Service.TrendService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrendService.getLoPassRate across every seeded batch — the LO pass-rate trend chart.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrendBenchmark {
+
+    @Benchmark
+    public Map<String, List<Map<String, Object>>> loPassRate(OutcomeDataset data) {
+        return data.bean(TrendService.class).getLoPassRate(data.moduleId, 50.0);
+    }
+}
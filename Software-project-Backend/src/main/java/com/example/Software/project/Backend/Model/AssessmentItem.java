@@ -4,7 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "assessment_item")
+@Table(name = "assessment_item", indexes = @Index(name = "idx_assessment_item_lo_template", columnList = "los_id, template_id"))
 public class AssessmentItem {
 
     @Id
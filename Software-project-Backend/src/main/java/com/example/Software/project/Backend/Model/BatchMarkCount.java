@@ -0,0 +1,12 @@
+package com.example.Software.project.Backend.Model;
+
+/**
+ * One row of GET /api/lospos/{loId}/batches: a batch of an LO and how many marks it holds,
+ * counted in a single GROUP BY query.
+ */
+public record BatchMarkCount(String batch, String batchLabel, long recordCount) {
+
+    public BatchMarkCount(String batch, Long recordCount) {
+        this(batch, batch + "nd Batch", recordCount != null ? recordCount : 0L); // Format: "22nd Batch"
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.Software.project.Backend.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One background CQI sweep (CqiSweepService): which module/batch pairs it finalized, how many
+// actions it opened and how long it took.
+@Entity
+@Table(name = "cqi_sweep_run", indexes = @Index(name = "idx_cqi_sweep_run_started", columnList = "started_at"))
+public class CqiSweepRun {
+
+    public enum Trigger { SCHEDULED, MANUAL }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "trigger_type", nullable = false)
+    private Trigger trigger;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    // module/batch pairs with new marks when the sweep started
+    @Column(name = "pairs_found")
+    private int pairsFound;
+
+    @Column(name = "modules_evaluated")
+    private int modulesEvaluated;
+
+    @Column(name = "los_evaluated")
+    private int losEvaluated;
+
+    @Column(name = "actions_triggered")
+    private int actionsTriggered;
+
+    @Column(name = "failures")
+    private int failures;
+
+    // First few failure messages, newline separated
+    @Column(name = "errors", columnDefinition = "TEXT")
+    private String errors;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Trigger getTrigger() { return trigger; }
+    public void setTrigger(Trigger trigger) { this.trigger = trigger; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+
+    public int getPairsFound() { return pairsFound; }
+    public void setPairsFound(int pairsFound) { this.pairsFound = pairsFound; }
+
+    public int getModulesEvaluated() { return modulesEvaluated; }
+    public void setModulesEvaluated(int modulesEvaluated) { this.modulesEvaluated = modulesEvaluated; }
+
+    public int getLosEvaluated() { return losEvaluated; }
+    public void setLosEvaluated(int losEvaluated) { this.losEvaluated = losEvaluated; }
+
+    public int getActionsTriggered() { return actionsTriggered; }
+    public void setActionsTriggered(int actionsTriggered) { this.actionsTriggered = actionsTriggered; }
+
+    public int getFailures() { return failures; }
+    public void setFailures(int failures) { this.failures = failures; }
+
+    public String getErrors() { return errors; }
+    public void setErrors(String errors) { this.errors = errors; }
+}
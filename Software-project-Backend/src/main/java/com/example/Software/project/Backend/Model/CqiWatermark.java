@@ -0,0 +1,67 @@
+package com.example.Software.project.Backend.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Per LO+batch change counter for CQI finalize. MarksChangedEvent bumps marksVersion; finalize
+// copies it into finalizedVersion, so an incremental finalize only re-evaluates LOs whose
+// marksVersion moved ahead. Plain ids, like the snapshot tables, so LO/module deletes never block.
+@Entity
+@Table(name = "cqi_watermark", uniqueConstraints = @UniqueConstraint(
+        name = "uk_cqi_watermark_key", columnNames = {"module_id", "batch", "lo_id"}))
+public class CqiWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "module_id", nullable = false)
+    private String moduleId;
+
+    @Column(name = "batch", nullable = false)
+    private String batch;
+
+    @Column(name = "lo_id", nullable = false)
+    private String loId;
+
+    @Column(name = "marks_version", nullable = false)
+    private long marksVersion;
+
+    // marksVersion as it was when this LO was last evaluated by finalize
+    @Column(name = "finalized_version", nullable = false)
+    private long finalizedVersion;
+
+    @Column(name = "marks_changed_at")
+    private LocalDateTime marksChangedAt;
+
+    @Column(name = "finalized_at")
+    private LocalDateTime finalizedAt;
+
+    public boolean isStale() {
+        return marksVersion > finalizedVersion;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getModuleId() { return moduleId; }
+    public void setModuleId(String moduleId) { this.moduleId = moduleId; }
+
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public String getLoId() { return loId; }
+    public void setLoId(String loId) { this.loId = loId; }
+
+    public long getMarksVersion() { return marksVersion; }
+    public void setMarksVersion(long marksVersion) { this.marksVersion = marksVersion; }
+
+    public long getFinalizedVersion() { return finalizedVersion; }
+    public void setFinalizedVersion(long finalizedVersion) { this.finalizedVersion = finalizedVersion; }
+
+    public LocalDateTime getMarksChangedAt() { return marksChangedAt; }
+    public void setMarksChangedAt(LocalDateTime marksChangedAt) { this.marksChangedAt = marksChangedAt; }
+
+    public LocalDateTime getFinalizedAt() { return finalizedAt; }
+    public void setFinalizedAt(LocalDateTime finalizedAt) { this.finalizedAt = finalizedAt; }
+}
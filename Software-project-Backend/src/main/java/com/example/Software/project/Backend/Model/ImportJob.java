@@ -0,0 +1,138 @@
+package com.example.Software.project.Backend.Model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A queued mark upload, processed in the background by ImportJobService. The uploaded file is
+// kept on disk (import.jobs.upload-dir) until the job finishes so QUEUED/RUNNING jobs can be
+// picked up again after a restart.
+@Entity
+@Table(name = "import_job", indexes = @Index(name = "idx_import_job_status", columnList = "status, created_at"))
+public class ImportJob {
+
+    public enum Kind { LO_BULK, QUESTION_WISE }
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private Kind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "created_by")
+    private String createdBy;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "file_path", length = 512)
+    @JsonIgnore
+    private String filePath;
+
+    // Import parameters, as resolved from the request and the template METADATA sheet
+    @Column(name = "los_ids", columnDefinition = "TEXT")
+    private String losIds;
+
+    @Column(name = "template_id")
+    private String templateId;
+
+    @Column(name = "batch")
+    private String batch;
+
+    @Column(name = "mark_type")
+    private String markType;
+
+    @Column(name = "assignment_label")
+    private String assignmentLabel;
+
+    // JSON object of LO id -> max marks
+    @Column(name = "per_lo_max_marks", columnDefinition = "TEXT")
+    private String perLoMaxMarks;
+
+    @Column(name = "rows_processed")
+    private Long rowsProcessed;
+
+    @Column(name = "rows_per_second")
+    private Long rowsPerSecond;
+
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+
+    // Row-level validation errors, one per line
+    @Column(name = "errors", columnDefinition = "TEXT")
+    private String errors;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Kind getKind() { return kind; }
+    public void setKind(Kind kind) { this.kind = kind; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getCreatedBy() { return createdBy; }
+    public void setCreatedBy(String createdBy) { this.createdBy = createdBy; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+
+    public String getLosIds() { return losIds; }
+    public void setLosIds(String losIds) { this.losIds = losIds; }
+
+    public String getTemplateId() { return templateId; }
+    public void setTemplateId(String templateId) { this.templateId = templateId; }
+
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public String getMarkType() { return markType; }
+    public void setMarkType(String markType) { this.markType = markType; }
+
+    public String getAssignmentLabel() { return assignmentLabel; }
+    public void setAssignmentLabel(String assignmentLabel) { this.assignmentLabel = assignmentLabel; }
+
+    public String getPerLoMaxMarks() { return perLoMaxMarks; }
+    public void setPerLoMaxMarks(String perLoMaxMarks) { this.perLoMaxMarks = perLoMaxMarks; }
+
+    public Long getRowsProcessed() { return rowsProcessed; }
+    public void setRowsProcessed(Long rowsProcessed) { this.rowsProcessed = rowsProcessed; }
+
+    public Long getRowsPerSecond() { return rowsPerSecond; }
+    public void setRowsPerSecond(Long rowsPerSecond) { this.rowsPerSecond = rowsPerSecond; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public String getErrors() { return errors; }
+    public void setErrors(String errors) { this.errors = errors; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
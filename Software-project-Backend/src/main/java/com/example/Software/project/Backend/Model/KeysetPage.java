@@ -0,0 +1,32 @@
+package com.example.Software.project.Backend.Model;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (cursor) paginated listing. The query asks for limit + 1 rows past the
+ * cursor; the extra row only tells whether another page exists. nextCursor is the key of the
+ * last row returned, or null on the last page.
+ */
+public record KeysetPage<T>(List<T> items, Object nextCursor) {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_LIMIT;
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, ?> keyOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, keyOf.apply(items.get(limit - 1)));
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.Software.project.Backend.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Precomputed LO attainment for one module/batch/markType, rebuilt by AttainmentSnapshotService
+// whenever marks for the LO change. Keys are plain ids so snapshots never block LO/module deletes.
+@Entity
+@Table(name = "lo_attainment_snapshot", uniqueConstraints = @UniqueConstraint(
+        name = "uk_lo_snapshot_key", columnNames = {"module_id", "batch", "mark_type", "lo_id"}))
+public class LoAttainmentSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "module_id", nullable = false)
+    private String moduleId;
+
+    @Column(name = "batch", nullable = false)
+    private String batch;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "mark_type", nullable = false)
+    private MarkType markType;
+
+    @Column(name = "lo_id", nullable = false)
+    private String loId;
+
+    @Column(name = "lo_name")
+    private String loName;
+
+    // % of the LO's max marks a student needs to count as passed
+    @Column(name = "threshold_percent")
+    private Double thresholdPercent;
+
+    @Column(name = "total_students")
+    private Integer totalStudents;
+
+    @Column(name = "students_passed")
+    private Integer studentsPassed;
+
+    @Column(name = "attainment_percent")
+    private Double attainmentPercent;
+
+    @Column(name = "average_percent")
+    private Double averagePercent;
+
+    // 0-3, same bands as AttainmentService.calculateLOLevel
+    @Column(name = "attainment_level")
+    private Integer attainmentLevel;
+
+    // Bumped on every rebuild so clients can tell whether a snapshot changed
+    @Column(name = "snapshot_version", nullable = false)
+    private long snapshotVersion;
+
+    @Column(name = "built_at")
+    private LocalDateTime builtAt;
+
+    // Set when a refresh of this module/batch failed, cleared by the next successful one;
+    // a stale snapshot is rebuilt before it is served
+    @Column(name = "stale_since")
+    private LocalDateTime staleSince;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getModuleId() { return moduleId; }
+    public void setModuleId(String moduleId) { this.moduleId = moduleId; }
+
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public MarkType getMarkType() { return markType; }
+    public void setMarkType(MarkType markType) { this.markType = markType; }
+
+    public String getLoId() { return loId; }
+    public void setLoId(String loId) { this.loId = loId; }
+
+    public String getLoName() { return loName; }
+    public void setLoName(String loName) { this.loName = loName; }
+
+    public Double getThresholdPercent() { return thresholdPercent; }
+    public void setThresholdPercent(Double thresholdPercent) { this.thresholdPercent = thresholdPercent; }
+
+    public Integer getTotalStudents() { return totalStudents; }
+    public void setTotalStudents(Integer totalStudents) { this.totalStudents = totalStudents; }
+
+    public Integer getStudentsPassed() { return studentsPassed; }
+    public void setStudentsPassed(Integer studentsPassed) { this.studentsPassed = studentsPassed; }
+
+    public Double getAttainmentPercent() { return attainmentPercent; }
+    public void setAttainmentPercent(Double attainmentPercent) { this.attainmentPercent = attainmentPercent; }
+
+    public Double getAveragePercent() { return averagePercent; }
+    public void setAveragePercent(Double averagePercent) { this.averagePercent = averagePercent; }
+
+    public Integer getAttainmentLevel() { return attainmentLevel; }
+    public void setAttainmentLevel(Integer attainmentLevel) { this.attainmentLevel = attainmentLevel; }
+
+    public long getSnapshotVersion() { return snapshotVersion; }
+    public void setSnapshotVersion(long snapshotVersion) { this.snapshotVersion = snapshotVersion; }
+
+    public LocalDateTime getBuiltAt() { return builtAt; }
+    public void setBuiltAt(LocalDateTime builtAt) { this.builtAt = builtAt; }
+
+    public LocalDateTime getStaleSince() { return staleSince; }
+    public void setStaleSince(LocalDateTime staleSince) { this.staleSince = staleSince; }
+}
@@ -0,0 +1,17 @@
+package com.example.Software.project.Backend.Model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Read model for the LO mark listings (GET /api/lospos/{loId}/marks and
+ * /{loId}/batches/{batch}/marks). Filled by a JPQL constructor expression, so only these columns
+ * are selected and no StudentMark/Student entities are loaded. batch is left null, and omitted
+ * from the JSON, by the all-batches listing.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LoMarkRow(Long id, String studentId, String studentName, Double score, String batch) {
+
+    public LoMarkRow(Long id, String studentId, String studentName, Double score) {
+        this(id, studentId, studentName, score, null);
+    }
+}
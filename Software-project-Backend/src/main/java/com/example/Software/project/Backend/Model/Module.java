@@ -31,7 +31,8 @@ public class Module {
     @JoinTable(
         name = "module_lecturers",
         joinColumns = @JoinColumn(name = "module_id"),
-        inverseJoinColumns = @JoinColumn(name = "lecturer_username")
+        inverseJoinColumns = @JoinColumn(name = "lecturer_username"),
+        indexes = @Index(name = "idx_module_lecturers_lecturer_module", columnList = "lecturer_username, module_id")
     )
     @JsonIgnore
     private List<User> assignedLecturers;
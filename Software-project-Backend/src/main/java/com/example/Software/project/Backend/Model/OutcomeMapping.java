@@ -7,7 +7,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "lo_po_mappings")
+@Table(name = "lo_po_mappings", indexes = @Index(name = "idx_lo_po_status_lo", columnList = "status, los_id"))
 public class OutcomeMapping {
 
     @Id
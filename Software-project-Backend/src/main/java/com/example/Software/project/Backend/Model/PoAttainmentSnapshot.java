@@ -0,0 +1,96 @@
+package com.example.Software.project.Backend.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Precomputed PO attainment of one module for a batch/markType, derived from the module's
+// approved LO-PO mappings. Rebuilt alongside LoAttainmentSnapshot.
+@Entity
+@Table(name = "po_attainment_snapshot", uniqueConstraints = @UniqueConstraint(
+        name = "uk_po_snapshot_key", columnNames = {"module_id", "batch", "mark_type", "po_code"}))
+public class PoAttainmentSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "module_id", nullable = false)
+    private String moduleId;
+
+    @Column(name = "batch", nullable = false)
+    private String batch;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "mark_type", nullable = false)
+    private MarkType markType;
+
+    @Column(name = "po_code", nullable = false)
+    private String poCode;
+
+    @Column(name = "po_title")
+    private String poTitle;
+
+    @Column(name = "total_students")
+    private Integer totalStudents;
+
+    // Students who passed every LO mapped to this PO
+    @Column(name = "students_achieved")
+    private Integer studentsAchieved;
+
+    @Column(name = "attainment_percent")
+    private Double attainmentPercent;
+
+    // sum(LO level * weight) / sum(weight), same as AttainmentService.getPOAttainment
+    @Column(name = "weighted_level")
+    private Double weightedLevel;
+
+    @Column(name = "snapshot_version", nullable = false)
+    private long snapshotVersion;
+
+    @Column(name = "built_at")
+    private LocalDateTime builtAt;
+
+    // Set when a refresh of this module/batch failed, cleared by the next successful one;
+    // a stale snapshot is rebuilt before it is served
+    @Column(name = "stale_since")
+    private LocalDateTime staleSince;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getModuleId() { return moduleId; }
+    public void setModuleId(String moduleId) { this.moduleId = moduleId; }
+
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public MarkType getMarkType() { return markType; }
+    public void setMarkType(MarkType markType) { this.markType = markType; }
+
+    public String getPoCode() { return poCode; }
+    public void setPoCode(String poCode) { this.poCode = poCode; }
+
+    public String getPoTitle() { return poTitle; }
+    public void setPoTitle(String poTitle) { this.poTitle = poTitle; }
+
+    public Integer getTotalStudents() { return totalStudents; }
+    public void setTotalStudents(Integer totalStudents) { this.totalStudents = totalStudents; }
+
+    public Integer getStudentsAchieved() { return studentsAchieved; }
+    public void setStudentsAchieved(Integer studentsAchieved) { this.studentsAchieved = studentsAchieved; }
+
+    public Double getAttainmentPercent() { return attainmentPercent; }
+    public void setAttainmentPercent(Double attainmentPercent) { this.attainmentPercent = attainmentPercent; }
+
+    public Double getWeightedLevel() { return weightedLevel; }
+    public void setWeightedLevel(Double weightedLevel) { this.weightedLevel = weightedLevel; }
+
+    public long getSnapshotVersion() { return snapshotVersion; }
+    public void setSnapshotVersion(long snapshotVersion) { this.snapshotVersion = snapshotVersion; }
+
+    public LocalDateTime getBuiltAt() { return builtAt; }
+    public void setBuiltAt(LocalDateTime builtAt) { this.builtAt = builtAt; }
+
+    public LocalDateTime getStaleSince() { return staleSince; }
+    public void setStaleSince(LocalDateTime staleSince) { this.staleSince = staleSince; }
+}
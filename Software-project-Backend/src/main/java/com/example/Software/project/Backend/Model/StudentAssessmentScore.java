@@ -3,7 +3,10 @@ package com.example.Software.project.Backend.Model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "student_assessment_score", uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "assessment_item_id"}))
+@Table(name = "student_assessment_score",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "assessment_item_id"}),
+       // Item-first lookups (scores of an item / of a set of items); the unique key above is student-first
+       indexes = @Index(name = "idx_sas_item_student", columnList = "assessment_item_id, student_id"))
 public class StudentAssessmentScore {
 
     @Id
@@ -4,6 +4,12 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 
 @Entity
+@Table(name = "StudentMark", indexes = {
+    // LO-scoped reads, deletes and attainment scans: (los), (los, batch), (los IN, batch, markType), per assignment
+    @Index(name = "idx_student_mark_lo_batch_type_label", columnList = "los_id, batch, mark_type, assignment_label"),
+    // A student's existing mark for an LO/batch/markType (single-mark edits and upserts)
+    @Index(name = "idx_student_mark_student_lo_batch_type", columnList = "student_id, los_id, batch, mark_type")
+})
 public class StudentMark {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
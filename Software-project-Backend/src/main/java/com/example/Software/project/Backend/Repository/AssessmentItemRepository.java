@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -37,4 +38,21 @@ public interface AssessmentItemRepository extends JpaRepository<AssessmentItem,
         @Param("losId") String losId,
         @Param("batch") String batch
     );
+
+    // Every item for a set of LOs in one round trip, with LO and template fetched eagerly so
+    // callers can group by LO / filter by template without triggering per-row lazy loads.
+    @Query("SELECT ai FROM AssessmentItem ai JOIN FETCH ai.los LEFT JOIN FETCH ai.assessmentTemplate WHERE ai.los.id IN :losIds")
+    List<AssessmentItem> findByLosIdsWithTemplate(@Param("losIds") Collection<String> losIds);
+
+    // Set-based variant of findByLos_IdAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType
+    // (same "template has submitted marks" rule) for prefetching every LO of a batch at once.
+    @Query("SELECT ai FROM AssessmentItem ai JOIN FETCH ai.los WHERE ai.los.id IN :losIds AND ai.assessmentTemplate.batch = :batch AND ai.assessmentTemplate.markType = :markType " +
+           "AND EXISTS (SELECT 1 FROM StudentMark sm WHERE sm.los.id = ai.los.id AND sm.batch = :batch AND sm.markType = :markTypeEnum " +
+           "AND (sm.assignmentLabel = ai.assessmentTemplate.assignmentLabel OR (sm.assignmentLabel IS NULL AND ai.assessmentTemplate.assignmentLabel IS NULL)))")
+    List<AssessmentItem> findByLosIdsAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(
+        @Param("losIds") Collection<String> losIds,
+        @Param("batch") String batch,
+        @Param("markType") String markType,
+        @Param("markTypeEnum") MarkType markTypeEnum
+    );
 }
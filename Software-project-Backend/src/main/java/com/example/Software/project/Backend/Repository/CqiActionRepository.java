@@ -19,5 +19,7 @@ public interface CqiActionRepository extends JpaRepository<CqiAction, Long> {
     List<CqiAction> findByStatusAndSubmittedTrue(CqiStatus status);
     List<CqiAction> findByModule_ModuleIdAndLos_Id(String moduleId, String losId);
     List<CqiAction> findByModule_ModuleIdAndLos_IdAndStatusIn(String moduleId, String losId, List<CqiStatus> statuses);
+    // Every open action of a module in one query (CQIService.finalizeModuleAttainment)
+    List<CqiAction> findByModule_ModuleIdAndStatusInOrderByIdAsc(String moduleId, List<CqiStatus> statuses);
     List<CqiAction> findByCreatedByOrderByCreatedAtDesc(String createdBy);
 }
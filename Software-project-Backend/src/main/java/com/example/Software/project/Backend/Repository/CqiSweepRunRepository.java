@@ -0,0 +1,12 @@
+package com.example.Software.project.Backend.Repository;
+
+import com.example.Software.project.Backend.Model.CqiSweepRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CqiSweepRunRepository extends JpaRepository<CqiSweepRun, Long> {
+    List<CqiSweepRun> findTop20ByOrderByStartedAtDesc();
+}
@@ -0,0 +1,41 @@
+package com.example.Software.project.Backend.Repository;
+
+import com.example.Software.project.Backend.Model.CqiWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CqiWatermarkRepository extends JpaRepository<CqiWatermark, Long> {
+    // Served by the uk_cqi_watermark_key prefix
+    List<CqiWatermark> findByModuleIdAndBatch(String moduleId, String batch);
+
+    // [moduleId, batch] pairs with marks changed since their last finalize (CqiSweepService)
+    @Query("SELECT DISTINCT w.moduleId, w.batch FROM CqiWatermark w " +
+           "WHERE w.marksVersion > w.finalizedVersion ORDER BY w.moduleId, w.batch")
+    List<Object[]> findStaleModuleBatches();
+
+    // Atomic bump for a marks change. Rows that do not exist yet are inserted by CQIService.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CqiWatermark w SET w.marksVersion = w.marksVersion + 1, w.marksChangedAt = :changedAt " +
+           "WHERE w.moduleId = :moduleId AND w.batch = :batch AND w.loId IN :loIds")
+    int bumpMarksVersion(@Param("moduleId") String moduleId, @Param("batch") String batch,
+                         @Param("loIds") Collection<String> loIds, @Param("changedAt") LocalDateTime changedAt);
+
+    // Records that finalize evaluated marksVersion = version. Matches nothing when a marks change
+    // committed after finalize read the row, which then stays stale for the next run.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CqiWatermark w SET w.finalizedVersion = :version, w.finalizedAt = :finalizedAt " +
+           "WHERE w.id = :id AND w.marksVersion = :version")
+    int markFinalized(@Param("id") Long id, @Param("version") long version,
+                      @Param("finalizedAt") LocalDateTime finalizedAt);
+}
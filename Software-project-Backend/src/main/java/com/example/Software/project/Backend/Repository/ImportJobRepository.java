@@ -0,0 +1,31 @@
+package com.example.Software.project.Backend.Repository;
+
+import com.example.Software.project.Backend.Model.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
+    // Served by idx_import_job_status; used to resume unfinished jobs on startup
+    List<ImportJob> findByStatusInOrderByCreatedAt(Collection<ImportJob.Status> statuses);
+
+    // Conditional status change: 0 rows when the job is no longer in the expected status
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = :to, j.startedAt = :startedAt WHERE j.id = :id AND j.status = :from")
+    int updateStatus(@Param("id") String id, @Param("from") ImportJob.Status from,
+                     @Param("to") ImportJob.Status to, @Param("startedAt") LocalDateTime startedAt);
+
+    // QUEUED -> RUNNING; false when another worker (e.g. a resume on another instance) took the job first
+    default boolean claimQueued(String id, LocalDateTime startedAt) {
+        return updateStatus(id, ImportJob.Status.QUEUED, ImportJob.Status.RUNNING, startedAt) == 1;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.Software.project.Backend.Repository;
+
+import com.example.Software.project.Backend.Model.LoAttainmentSnapshot;
+import com.example.Software.project.Backend.Model.MarkType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LoAttainmentSnapshotRepository extends JpaRepository<LoAttainmentSnapshot, Long> {
+    // Served by the uk_lo_snapshot_key prefix
+    List<LoAttainmentSnapshot> findByModuleIdAndBatchAndMarkTypeOrderByLoId(String moduleId, String batch, MarkType markType);
+
+    // Batches that have snapshots for a module, also served by the unique key prefix
+    @Query("SELECT DISTINCT s.batch FROM LoAttainmentSnapshot s WHERE s.moduleId = :moduleId")
+    List<String> findBatchesByModuleId(@Param("moduleId") String moduleId);
+
+    // Flags every LO snapshot of a module/batch after a failed refresh; keeps the first failure time
+    @Modifying
+    @Transactional
+    @Query("UPDATE LoAttainmentSnapshot s SET s.staleSince = :staleSince " +
+           "WHERE s.moduleId = :moduleId AND s.batch = :batch AND s.staleSince IS NULL")
+    int markStale(@Param("moduleId") String moduleId, @Param("batch") String batch,
+                  @Param("staleSince") LocalDateTime staleSince);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,4 +18,8 @@ public interface LosRepository extends JpaRepository<Los, String> {
     List<String> findIdsByModuleId(String moduleId);
 
     List<Los> findByIdEndingWith(String suffix);
+
+    // [loId, moduleId] for each existing LO, without loading the entities
+    @Query("SELECT l.id, l.module.moduleId FROM Los l WHERE l.id IN :ids")
+    List<Object[]> findModuleIdsByIds(Collection<String> ids);
 }
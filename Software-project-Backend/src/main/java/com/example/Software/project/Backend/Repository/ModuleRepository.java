@@ -2,8 +2,54 @@ package com.example.Software.project.Backend.Repository;
 
 import com.example.Software.project.Backend.Model.Module;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ModuleRepository extends JpaRepository<Module, String> {
-}
\ No newline at end of file
+
+    // ── module_lecturers join table ──────────────────────────────────────────
+    // These read and write the join rows directly instead of loading every module's
+    // assignedLecturers; lecturer-keyed lookups use idx_module_lecturers_lecturer_module.
+
+    // Modules a lecturer can see: unassigned ones plus those assigned to them
+    @Query(value = "SELECT m.* FROM modules m " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM module_lecturers ml WHERE ml.module_id = m.module_id) " +
+                   "   OR EXISTS (SELECT 1 FROM module_lecturers ml WHERE ml.module_id = m.module_id " +
+                   "              AND ml.lecturer_username = :username)",
+           nativeQuery = true)
+    List<Module> findVisibleToLecturer(@Param("username") String username);
+
+    @Query(value = "SELECT module_id FROM module_lecturers WHERE lecturer_username = :username ORDER BY module_id",
+           nativeQuery = true)
+    List<String> findModuleIdsByLecturer(@Param("username") String username);
+
+    // Every assignment as [lecturer_username, module_id], grouped by lecturer
+    @Query(value = "SELECT lecturer_username, module_id FROM module_lecturers ORDER BY lecturer_username, module_id",
+           nativeQuery = true)
+    List<Object[]> findAllLecturerAssignments();
+
+    // Adds the lecturer to the listed modules they are not on yet; unknown module IDs are skipped
+    @Modifying(clearAutomatically = true)
+    @Query(value = "INSERT INTO module_lecturers (module_id, lecturer_username) " +
+                   "SELECT m.module_id, :username FROM modules m " +
+                   "WHERE m.module_id IN (:moduleIds) " +
+                   "AND NOT EXISTS (SELECT 1 FROM module_lecturers ml " +
+                   "                WHERE ml.module_id = m.module_id AND ml.lecturer_username = :username)",
+           nativeQuery = true)
+    int assignLecturer(@Param("username") String username, @Param("moduleIds") Collection<String> moduleIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM module_lecturers WHERE lecturer_username = :username AND module_id NOT IN (:moduleIds)",
+           nativeQuery = true)
+    int unassignLecturerExcept(@Param("username") String username, @Param("moduleIds") Collection<String> moduleIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM module_lecturers WHERE lecturer_username = :username", nativeQuery = true)
+    int unassignLecturer(@Param("username") String username);
+}
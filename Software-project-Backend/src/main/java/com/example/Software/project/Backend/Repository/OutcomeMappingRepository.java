@@ -1,11 +1,18 @@
 package com.example.Software.project.Backend.Repository;
 
 import com.example.Software.project.Backend.Model.OutcomeMapping;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface OutcomeMappingRepository extends JpaRepository<OutcomeMapping, Long> {
@@ -19,6 +26,10 @@ public interface OutcomeMappingRepository extends JpaRepository<OutcomeMapping,
     // Find by Program Outcome ID
     List<OutcomeMapping> findByProgramOutcome_PoId(String poId);
     
+    // LOs mapped to any of the POs, whatever the mapping status
+    @Query("SELECT DISTINCT m.learningOutcome.id FROM OutcomeMapping m WHERE m.programOutcome.poId IN :poIds")
+    List<String> findLoIdsByProgramOutcomeIds(@Param("poIds") Collection<String> poIds);
+    
     // Find by status
     List<OutcomeMapping> findByStatus(OutcomeMapping.ApprovalStatus status);
     
@@ -77,4 +88,29 @@ public interface OutcomeMappingRepository extends JpaRepository<OutcomeMapping,
     
     // Count mappings by specific status
     long countByStatus(OutcomeMapping.ApprovalStatus status);
+
+    // Filtered mapping listing (GET /api/lo-po-mapping/all); each filter is skipped when null
+    String FILTERED_MAPPINGS = "SELECT m FROM OutcomeMapping m JOIN FETCH m.learningOutcome lo JOIN FETCH m.programOutcome " +
+           "WHERE (:status IS NULL OR m.status = :status) " +
+           "AND (:moduleId IS NULL OR lo.module.moduleId = :moduleId) " +
+           "AND (:batch IS NULL OR lo.batch = :batch) " +
+           "AND (:search IS NULL OR LOWER(lo.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+           "OR LOWER(lo.id) LIKE LOWER(CONCAT('%', :search, '%'))) ";
+
+    // Keyset page: mappings with id above afterId, oldest first (page size from Pageable)
+    @Query(FILTERED_MAPPINGS + "AND m.id > :afterId ORDER BY m.id")
+    List<OutcomeMapping> findFilteredAfter(@Param("status") OutcomeMapping.ApprovalStatus status,
+                                           @Param("moduleId") String moduleId,
+                                           @Param("batch") String batch,
+                                           @Param("search") String search,
+                                           @Param("afterId") Long afterId,
+                                           Pageable page);
+
+    // NDJSON variant: read through a cursor inside the caller's transaction
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(FILTERED_MAPPINGS + "ORDER BY m.id")
+    Stream<OutcomeMapping> streamFiltered(@Param("status") OutcomeMapping.ApprovalStatus status,
+                                          @Param("moduleId") String moduleId,
+                                          @Param("batch") String batch,
+                                          @Param("search") String search);
 }
\ No newline at end of file
@@ -1,14 +1,20 @@
 package com.example.Software.project.Backend.Repository;
 
 import com.example.Software.project.Backend.Model.ProgramOutcome;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ProgramOutcomeRepository extends JpaRepository<ProgramOutcome, String> {
@@ -73,4 +79,11 @@ public interface ProgramOutcomeRepository extends JpaRepository<ProgramOutcome,
     @Modifying
     @Query("DELETE FROM ProgramOutcome po WHERE po.isDefault = true")
     void deleteAllDefaultPOs();
+
+    // Keyset page for GET /api/obe/po/all: POs after the given id (page size from Pageable)
+    List<ProgramOutcome> findByPoIdGreaterThanOrderByPoIdAsc(String afterPoId, Pageable page);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT po FROM ProgramOutcome po ORDER BY po.poId")
+    Stream<ProgramOutcome> streamAllOrderByPoId();
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,4 +36,22 @@ public interface StudentAssessmentScoreRepository extends JpaRepository<StudentA
     List<String> findDistinctStudentIdsByTemplateId(@Param("templateId") String templateId);
 
     void deleteByAssessmentItem_AssessmentTemplate_Id(String templateId);
+
+    // Flat (itemId, studentId, score) rows for every score under a set of LOs, optionally
+    // narrowed to one template. Used by the batch attainment path instead of loading entities.
+    @Query("SELECT s.assessmentItem.id, s.student.studentId, s.score " +
+        "FROM StudentAssessmentScore s " +
+        "WHERE s.assessmentItem.los.id IN :losIds " +
+        "AND (:templateId IS NULL OR s.assessmentItem.assessmentTemplate.id = :templateId)")
+    List<Object[]> findScoreRowsByLosIds(
+         @Param("losIds") Collection<String> losIds,
+         @Param("templateId") String templateId);
+
+    // Flat (itemId, studentId, score) rows for the given items, limited to students of one batch.
+    @Query("SELECT s.assessmentItem.id, s.student.studentId, s.score " +
+        "FROM StudentAssessmentScore s " +
+        "WHERE s.assessmentItem.id IN :itemIds AND s.student.batch = :batch")
+    List<Object[]> findScoreRowsByItemIdsAndStudentBatch(
+         @Param("itemIds") Collection<Long> itemIds,
+         @Param("batch") String batch);
 }
@@ -1,16 +1,25 @@
 package com.example.Software.project.Backend.Repository;
 
+import com.example.Software.project.Backend.Model.BatchMarkCount;
+import com.example.Software.project.Backend.Model.LoMarkRow;
 import com.example.Software.project.Backend.Model.StudentMark;
 import com.example.Software.project.Backend.Model.MarkType;
 import com.example.Software.project.Backend.Model.Student;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface StudentMarkRepository extends JpaRepository<StudentMark, Long> {
@@ -25,6 +34,10 @@ public interface StudentMarkRepository extends JpaRepository<StudentMark, Long>
     @Query("SELECT sm FROM StudentMark sm WHERE sm.los.id IN :losIds AND sm.markType = :markType AND sm.batch = :batch ORDER BY sm.student.studentId ASC")
        List<StudentMark> findByLosIdsAndMarkTypeAndBatch(@Param("losIds") List<String> losIds, @Param("markType") MarkType markType, @Param("batch") String batch);
 
+    // Flat (losId, studentId, score) rows for the given LOs, batch and markType
+    @Query("SELECT sm.los.id, sm.student.studentId, sm.score FROM StudentMark sm WHERE sm.los.id IN :losIds AND sm.markType = :markType AND sm.batch = :batch")
+       List<Object[]> findScoreRowsByLosIdsAndMarkTypeAndBatch(@Param("losIds") Collection<String> losIds, @Param("markType") MarkType markType, @Param("batch") String batch);
+
     // Get all unique students for given LOs
    @Query("SELECT DISTINCT s FROM StudentMark sm JOIN sm.student s WHERE sm.los.id IN :losIds AND sm.markType = :markType AND sm.batch = :batch ORDER BY s.studentId ASC")
        List<Student> findDistinctStudentsByLosIdsAndMarkTypeAndBatch(@Param("losIds") List<String> losIds, @Param("markType") MarkType markType, @Param("batch") String batch);
@@ -43,6 +56,34 @@ public interface StudentMarkRepository extends JpaRepository<StudentMark, Long>
 
     List<StudentMark> findByLos_IdAndBatch(String losId, String batch);
 
+    // Listing read models: selected columns only, no entity (or eager Student/Los) loading
+    @Query("SELECT new com.example.Software.project.Backend.Model.LoMarkRow(" +
+           "sm.id, COALESCE(s.studentId, ''), COALESCE(s.studentName, ''), COALESCE(sm.score, 0.0)) " +
+           "FROM StudentMark sm LEFT JOIN sm.student s WHERE sm.los.id = :losId ORDER BY sm.id DESC")
+    List<LoMarkRow> findMarkRowsByLosId(@Param("losId") String losId);
+
+    // Keyset page of the same listing: rows below beforeId, newest first (page size from Pageable)
+    @Query("SELECT new com.example.Software.project.Backend.Model.LoMarkRow(" +
+           "sm.id, COALESCE(s.studentId, ''), COALESCE(s.studentName, ''), COALESCE(sm.score, 0.0)) " +
+           "FROM StudentMark sm LEFT JOIN sm.student s WHERE sm.los.id = :losId AND sm.id < :beforeId ORDER BY sm.id DESC")
+    List<LoMarkRow> findMarkRowsByLosIdBefore(@Param("losId") String losId, @Param("beforeId") Long beforeId, Pageable page);
+
+    // NDJSON variant: read through a cursor inside the caller's transaction
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.Software.project.Backend.Model.LoMarkRow(" +
+           "sm.id, COALESCE(s.studentId, ''), COALESCE(s.studentName, ''), COALESCE(sm.score, 0.0)) " +
+           "FROM StudentMark sm LEFT JOIN sm.student s WHERE sm.los.id = :losId ORDER BY sm.id DESC")
+    Stream<LoMarkRow> streamMarkRowsByLosId(@Param("losId") String losId);
+
+    @Query("SELECT new com.example.Software.project.Backend.Model.LoMarkRow(" +
+           "sm.id, COALESCE(s.studentId, ''), COALESCE(s.studentName, ''), COALESCE(sm.score, 0.0), sm.batch) " +
+           "FROM StudentMark sm LEFT JOIN sm.student s WHERE sm.los.id = :losId AND sm.batch = :batch ORDER BY sm.id")
+    List<LoMarkRow> findMarkRowsByLosIdAndBatch(@Param("losId") String losId, @Param("batch") String batch);
+
+    @Query("SELECT new com.example.Software.project.Backend.Model.BatchMarkCount(sm.batch, COUNT(sm)) " +
+           "FROM StudentMark sm WHERE sm.los.id = :losId AND sm.batch IS NOT NULL GROUP BY sm.batch ORDER BY sm.batch")
+    List<BatchMarkCount> countMarksByBatchForLosId(@Param("losId") String losId);
+
     long countByLos_IdAndBatch(String losId, String batch);
 
     @Modifying
@@ -81,6 +122,28 @@ public interface StudentMarkRepository extends JpaRepository<StudentMark, Long>
            "ORDER BY lo.id, sm.batch ASC")
     List<Object[]> findLoTrendByCourse(@Param("courseId") String courseId);
 
+    // LO pass rate per LO+batch, computed in the database: each student's scores are summed across
+    // assignments, normalized against the LO's total item max marks for that batch (raw score taken
+    // as a % when the LO has no items), and compared to the threshold.
+    // Row: [loId, loName, batch, totalStudents, passedStudents]
+    @Query(value = "SELECT t.los_id, lo.name, t.batch, COUNT(*), " +
+           "SUM(CASE WHEN (CASE WHEN mx.max_marks > 0 THEN t.total_score / mx.max_marks * 100 ELSE t.total_score END) >= :threshold THEN 1 ELSE 0 END) " +
+           "FROM (SELECT sm.los_id, sm.batch, sm.student_id, SUM(sm.score) AS total_score " +
+           "      FROM StudentMark sm JOIN los l ON l.id = sm.los_id " +
+           "      WHERE l.module_id = :courseId AND sm.batch IS NOT NULL AND sm.score IS NOT NULL " +
+           "      GROUP BY sm.los_id, sm.batch, sm.student_id) t " +
+           "JOIN los lo ON lo.id = t.los_id " +
+           "LEFT JOIN (SELECT ai.los_id, tpl.batch, SUM(ai.max_marks) AS max_marks " +
+           "           FROM assessment_item ai " +
+           "           JOIN assessment_template tpl ON tpl.id = ai.template_id " +
+           "           JOIN los l2 ON l2.id = ai.los_id " +
+           "           WHERE l2.module_id = :courseId " +
+           "           GROUP BY ai.los_id, tpl.batch) mx ON mx.los_id = t.los_id AND mx.batch = t.batch " +
+           "GROUP BY t.los_id, lo.name, t.batch " +
+           "ORDER BY t.los_id, t.batch",
+           nativeQuery = true)
+    List<Object[]> findLoPassRateByCourse(@Param("courseId") String courseId, @Param("threshold") double threshold);
+
     // Available marks summary: distinct batch + markType + assignmentLabel for a module
     @Query("SELECT DISTINCT sm.batch, sm.markType, sm.assignmentLabel, COUNT(sm.id), COUNT(DISTINCT sm.los.id) " +
            "FROM StudentMark sm " +
@@ -110,16 +173,4 @@ public interface StudentMarkRepository extends JpaRepository<StudentMark, Long>
            "FROM StudentMark sm WHERE sm.los.id = :losId AND sm.batch IS NOT NULL " +
            "GROUP BY sm.batch, sm.markType ORDER BY sm.batch, sm.markType")
     List<Object[]> findMarksSummaryByLosId(@Param("losId") String losId);
-
-    // LO-level Pass Rate (% students scoring >= threshold per LO per Batch)
-    @Query("SELECT lo.id, lo.name, sm.batch, " +
-           "COUNT(sm.id), " +
-           "SUM(CASE WHEN sm.score >= :threshold THEN 1 ELSE 0 END) " +
-           "FROM StudentMark sm " +
-           "JOIN sm.los lo " +
-           "JOIN lo.module m " +
-           "WHERE m.moduleId = :courseId " +
-           "GROUP BY lo.id, lo.name, sm.batch " +
-           "ORDER BY lo.id, sm.batch ASC")
-    List<Object[]> findLoPassRateByCourse(@Param("courseId") String courseId, @Param("threshold") double threshold);
 }
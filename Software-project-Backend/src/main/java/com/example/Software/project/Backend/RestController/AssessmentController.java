@@ -1,8 +1,10 @@
 package com.example.Software.project.Backend.RestController;
 
 import com.example.Software.project.Backend.Model.AssessmentTemplate;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.AssessmentService;
-import com.example.Software.project.Backend.Security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,30 +19,12 @@ public class AssessmentController {
 
     @Autowired
     private AssessmentService assessmentService;
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    private boolean isLecture(String token) {
-        try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && (role.equals("lecture") || role.equals("admin") || role.equals("superadmin"));
-        } catch (Exception e) {
-            return false;
-        }
-    }
 
     @PostMapping("/template")
-    public ResponseEntity<?> createTemplate(@RequestBody Map<String, Object> payload, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Lecture only"));
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> createTemplate(@RequestBody Map<String, Object> payload, AuthContext auth) {
         try {
-            String bearer = token != null && token.startsWith("Bearer ") ? token.substring(7) : token;
-            String createdBy = jwtUtil.extractUsername(bearer);
-            AssessmentTemplate t = assessmentService.createTemplate(payload, createdBy);
+            AssessmentTemplate t = assessmentService.createTemplate(payload, auth.getUsername());
             return ResponseEntity.ok(Map.of("message", "Template created", "data", t, "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "Error: " + e.getMessage(), "status", "ERROR"));
@@ -48,8 +32,8 @@ public class AssessmentController {
     }
 
     @GetMapping("/templates/{moduleId}")
-    public ResponseEntity<?> listTemplatesByModule(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Lecture only"));
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> listTemplatesByModule(@PathVariable String moduleId) {
         try {
             java.util.List<AssessmentTemplate> templates = assessmentService.listTemplatesByModule(moduleId);
             return ResponseEntity.ok(Map.of(
@@ -64,8 +48,8 @@ public class AssessmentController {
     }
 
     @GetMapping("/template/{templateId}")
-    public ResponseEntity<?> getTemplate(@PathVariable String templateId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Lecture only"));
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getTemplate(@PathVariable String templateId) {
         try {
             AssessmentTemplate template = assessmentService.getTemplate(templateId);
             if (template == null) {
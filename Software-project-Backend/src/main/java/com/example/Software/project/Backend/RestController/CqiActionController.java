@@ -2,8 +2,11 @@ package com.example.Software.project.Backend.RestController;
 
 import com.example.Software.project.Backend.Model.*;
 import com.example.Software.project.Backend.Repository.ModuleRepository;
-import com.example.Software.project.Backend.Security.JwtUtil;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.CQIService;
+import com.example.Software.project.Backend.Service.CqiSweepService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,15 +21,15 @@ import java.util.Map;
 public class CqiActionController {
 
     @Autowired private CQIService cqiService;
+    @Autowired private CqiSweepService cqiSweepService;
     @Autowired private ModuleRepository moduleRepository;
-    @Autowired private JwtUtil jwtUtil;
 
     // --- LECTURE: List own CQI actions (any status) ---
     @GetMapping("/my-plans")
-    public ResponseEntity<?> getMyPlans(@RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Lecture only", "status", "ERROR"));
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getMyPlans(AuthContext auth) {
         try {
-            List<CqiAction> plans = cqiService.getMyPlans(username(token));
+            List<CqiAction> plans = cqiService.getMyPlans(auth.getUsername());
             return ResponseEntity.ok(Map.of("message", "My CQI plans", "data", plans, "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage(), "status", "ERROR"));
@@ -35,10 +38,10 @@ public class CqiActionController {
 
     // --- LECTURE: Submit/fill in a CQI plan ---
     @PostMapping("/{id}/submit")
-    public ResponseEntity<?> submitPlan(@PathVariable Long id, @RequestBody CqiPlanDTO dto, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Lecture only", "status", "ERROR"));
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> submitPlan(@PathVariable Long id, @RequestBody CqiPlanDTO dto, AuthContext auth) {
         try {
-            CqiAction action = cqiService.submitPlan(id, username(token), dto);
+            CqiAction action = cqiService.submitPlan(id, auth.getUsername(), dto);
             return ResponseEntity.ok(Map.of("message", "CQI plan submitted", "data", action, "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage(), "status", "ERROR"));
@@ -47,8 +50,8 @@ public class CqiActionController {
 
     // --- ADMIN: Review queue ---
     @GetMapping("/pending")
-    public ResponseEntity<?> getPending(@RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> getPending() {
         try {
             return ResponseEntity.ok(Map.of("message", "Pending CQI plans", "data", cqiService.getPendingForAdmin(), "status", "SUCCESS"));
         } catch (Exception e) {
@@ -58,10 +61,10 @@ public class CqiActionController {
 
     // --- ADMIN: Approve a submitted plan ---
     @PutMapping("/{id}/approve")
-    public ResponseEntity<?> approvePlan(@PathVariable Long id, @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> approvePlan(@PathVariable Long id, AuthContext auth) {
         try {
-            CqiAction action = cqiService.approvePlan(id, username(token));
+            CqiAction action = cqiService.approvePlan(id, auth.getUsername());
             return ResponseEntity.ok(Map.of("message", "CQI plan approved", "data", action, "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage(), "status", "ERROR"));
@@ -70,11 +73,11 @@ public class CqiActionController {
 
     // --- ADMIN: Return a plan for revision ---
     @PutMapping("/{id}/return")
-    public ResponseEntity<?> returnPlan(@PathVariable Long id, @RequestBody Map<String, String> body, @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> returnPlan(@PathVariable Long id, @RequestBody Map<String, String> body, AuthContext auth) {
         try {
             String comment = body != null ? body.get("comment") : null;
-            CqiAction action = cqiService.returnPlan(id, username(token), comment);
+            CqiAction action = cqiService.returnPlan(id, auth.getUsername(), comment);
             return ResponseEntity.ok(Map.of("message", "CQI plan returned for revision", "data", action, "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage(), "status", "ERROR"));
@@ -83,8 +86,8 @@ public class CqiActionController {
 
     // --- ADMIN or owning LECTURE: Full CQI history for a module (accreditation evidence) ---
     @GetMapping("/module/{moduleId}/history")
-    public ResponseEntity<?> getModuleHistory(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token) && !ownsModule(token, moduleId)) {
+    public ResponseEntity<?> getModuleHistory(@PathVariable String moduleId, AuthContext auth) {
+        if (!auth.isAdmin() && !ownsModule(auth, moduleId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Access denied", "status", "ERROR"));
         }
         try {
@@ -96,67 +99,53 @@ public class CqiActionController {
 
     // --- LECTURE/ADMIN: Finalize a batch's LO attainment for a module — links/triggers CQI ---
     @PostMapping("/finalize/{moduleId}")
-    public ResponseEntity<?> finalize(@PathVariable String moduleId, @RequestParam String batch, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Lecture only", "status", "ERROR"));
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    // incremental=true only re-evaluates LOs whose marks changed since their last finalize
+    public ResponseEntity<?> finalize(@PathVariable String moduleId, @RequestParam String batch,
+                                      @RequestParam(defaultValue = "false") boolean incremental) {
         if (batch == null || batch.isBlank()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "batch is required", "status", "ERROR"));
         }
         try {
-            Map<String, Object> result = cqiService.finalizeModuleAttainment(moduleId, batch.trim());
+            Map<String, Object> result = cqiService.finalizeModuleAttainment(moduleId, batch.trim(), incremental);
             return ResponseEntity.ok(Map.of("message", "Attainment finalized", "data", result, "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage(), "status", "ERROR"));
         }
     }
 
-    // --- Helpers ---
-
-    private boolean ownsModule(String token, String moduleId) {
-        try {
-            if (!isLecture(token)) return false;
-            String username = username(token);
-            return moduleRepository.findById(moduleId)
-                .map(m -> {
-                    List<String> lecturers = m.getAssignedLecturerUsernames();
-                    return lecturers == null || lecturers.isEmpty() || lecturers.contains(username);
-                })
-                .orElse(false);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private String username(String token) {
-        String bearerToken = token;
-        if (token != null && token.startsWith("Bearer ")) {
-            bearerToken = token.substring(7);
+    // --- ADMIN: Start a background CQI sweep over every module/batch with new marks ---
+    @PostMapping("/sweep")
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> startSweep() {
+        if (!cqiSweepService.requestSweep()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "A CQI sweep is already running", "status", "ERROR"));
         }
-        return jwtUtil.extractUsername(bearerToken);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("message", "CQI sweep started", "status", "SUCCESS"));
     }
 
-    private boolean isAdmin(String token) {
+    // --- ADMIN: Recent sweeps with their metrics ---
+    @GetMapping("/sweeps")
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> getSweeps() {
         try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && (role.equals("admin") || role.equals("superadmin"));
+            return ResponseEntity.ok(Map.of("message", "CQI sweeps", "data", cqiSweepService.getRecentRuns(),
+                    "running", cqiSweepService.isSweeping(), "status", "SUCCESS"));
         } catch (Exception e) {
-            return false;
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage(), "status", "ERROR"));
         }
     }
 
-    private boolean isLecture(String token) {
+    // --- Helpers ---
+
+    // Lecturers own the modules they are assigned to, and every module nobody is assigned to
+    private boolean ownsModule(AuthContext auth, String moduleId) {
         try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && (role.equals("lecture") || role.equals("admin") || role.equals("superadmin"));
+            if (!auth.isLecture()) return false;
+            if (auth.isAssignedTo(moduleId)) return true;
+            return moduleRepository.findById(moduleId)
+                .map(m -> m.getAssignedLecturers() == null || m.getAssignedLecturers().isEmpty())
+                .orElse(false);
         } catch (Exception e) {
             return false;
         }
@@ -2,7 +2,9 @@ package com.example.Software.project.Backend.RestController;
 
 import com.example.Software.project.Backend.Model.Los;
 import com.example.Software.project.Backend.Model.OutcomeMapping;
-import com.example.Software.project.Backend.Security.JwtUtil;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.LosService;
 import com.example.Software.project.Backend.Service.LOPOMappingService;
 import com.example.Software.project.Backend.Service.ProgramOutcomeService;
@@ -29,41 +31,6 @@ public class IntegratedLORestController {
     @Autowired
     private ProgramOutcomeService programOutcomeService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    // Helper methods
-    private boolean isLecturer(String token) {
-        try {
-            if (token == null || !token.startsWith("Bearer ")) return false;
-            String jwt = token.substring(7);
-            String userRole = jwtUtil.extractRole(jwt);
-            return "lecture".equalsIgnoreCase(userRole) || isAdmin(token);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private boolean isAdmin(String token) {
-        try {
-            if (token == null || !token.startsWith("Bearer ")) return false;
-            String jwt = token.substring(7);
-            String userRole = jwtUtil.extractRole(jwt);
-            return "admin".equalsIgnoreCase(userRole) || "superadmin".equalsIgnoreCase(userRole);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private String extractUsername(String token) {
-        try {
-            String jwt = token.substring(7);
-            return jwtUtil.extractUsername(jwt);
-        } catch (Exception e) {
-            return "unknown";
-        }
-    }
-
     private Map<String, Object> createErrorResponse(String message) {
         Map<String, Object> response = new HashMap<>();
         response.put("status", "ERROR");
@@ -83,15 +50,12 @@ public class IntegratedLORestController {
      * Create Learning Outcome with PO mappings in one transaction
      */
     @PostMapping("/create")
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
     public ResponseEntity<?> createLOWithMappings(
             @RequestBody Map<String, Object> request,
-            @RequestHeader("Authorization") String token) {
+            AuthContext auth) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
-            String username = extractUsername(token);
+            String username = auth.getUsername();
 
             // Extract LO data
             @SuppressWarnings("unchecked")
@@ -138,12 +102,9 @@ public class IntegratedLORestController {
      * Get LO creation form data (suggestions based on module)
      */
     @GetMapping("/form-data/{moduleId}")
-    public ResponseEntity<?> getCreateFormData(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getCreateFormData(@PathVariable String moduleId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             // Get mapping suggestions for this module type
             Map<String, Integer> suggestions = mappingService.getSuggestedMappings(moduleId, null);
 
@@ -165,12 +126,9 @@ public class IntegratedLORestController {
      * Get comprehensive LO details with mappings
      */
     @GetMapping("/{loId}/details")
-    public ResponseEntity<?> getLOWithMappings(@PathVariable String loId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getLOWithMappings(@PathVariable String loId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             // Get Learning Outcome
             Los los = losService.getLosById(loId)
                 .orElseThrow(() -> new RuntimeException("Learning Outcome not found: " + loId));
@@ -196,16 +154,13 @@ public class IntegratedLORestController {
      * Update LO mappings (if not approved)
      */
     @PutMapping("/{loId}/mappings")
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
     public ResponseEntity<?> updateLOMappings(
             @PathVariable String loId,
             @RequestBody Map<String, Object> request,
-            @RequestHeader("Authorization") String token) {
+            AuthContext auth) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
-            String username = extractUsername(token);
+            String username = auth.getUsername();
 
             // Get current mappings
             List<OutcomeMapping> currentMappings = mappingService.getMappingsForLO(loId);
@@ -244,12 +199,9 @@ public class IntegratedLORestController {
      * Get module overview with all LOs and their mapping status
      */
     @GetMapping("/module/{moduleId}/overview")
-    public ResponseEntity<?> getModuleOverview(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getModuleOverview(@PathVariable String moduleId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             // Get all LOs for the module
             List<Los> los = losService.getLosByModuleId(moduleId);
 
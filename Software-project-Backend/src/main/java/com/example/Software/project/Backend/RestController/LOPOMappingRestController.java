@@ -1,13 +1,18 @@
 package com.example.Software.project.Backend.RestController;
 
+import com.example.Software.project.Backend.Model.KeysetPage;
 import com.example.Software.project.Backend.Model.OutcomeMapping;
-import com.example.Software.project.Backend.Security.JwtUtil;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.LOPOMappingService;
+import com.example.Software.project.Backend.Service.NdjsonWriter;
 import com.example.Software.project.Backend.Service.ProgramOutcomeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -24,48 +29,6 @@ public class LOPOMappingRestController {
     @Autowired
     private ProgramOutcomeService poService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    private String normalizeRole(String role) {
-        if (role == null) return "";
-        return role.trim().toLowerCase().replace("-", "").replace(" ", "");
-    }
-
-    // Helper methods for authentication
-    private boolean isLecturer(String token) {
-        try {
-            if (token == null || !token.startsWith("Bearer ")) return false;
-            String jwt = token.substring(7);
-            String userRole = normalizeRole(jwtUtil.extractRole(jwt));
-            return "lecture".equals(userRole)
-                || "lecturer".equals(userRole)
-                || isAdmin(token);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private boolean isAdmin(String token) {
-        try {
-            if (token == null || !token.startsWith("Bearer ")) return false;
-            String jwt = token.substring(7);
-            String userRole = normalizeRole(jwtUtil.extractRole(jwt));
-            return "admin".equals(userRole) || "superadmin".equals(userRole);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private String extractUsername(String token) {
-        try {
-            String jwt = token.substring(7);
-            return jwtUtil.extractUsername(jwt);
-        } catch (Exception e) {
-            return "unknown";
-        }
-    }
-
     private Map<String, Object> createErrorResponse(String message) {
         Map<String, Object> response = new HashMap<>();
         response.put("status", "ERROR");
@@ -84,16 +47,28 @@ public class LOPOMappingRestController {
     // === PUBLIC ENDPOINTS ===
 
     // Get all LO-PO mappings
+    // ?limit=N[&cursor=<nextCursor>] pages by mapping id; ?stream=true writes every mapping as NDJSON
     @GetMapping("/all")
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
     public ResponseEntity<?> getAllMappings(
             @RequestParam(required = false) String moduleId,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String batch,
             @RequestParam(required = false) String search,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
+            if (stream) {
+                StreamingResponseBody body = out -> mappingService.streamMappings(moduleId, status, batch, search, out);
+                return ResponseEntity.ok().header("Content-Type", NdjsonWriter.CONTENT_TYPE).body(body);
+            }
+            if (cursor != null || limit != null) {
+                KeysetPage<OutcomeMapping> page = mappingService.getMappingsPage(moduleId, status, batch, search, cursor, limit);
+                Map<String, Object> response = createSuccessResponse("Mappings retrieved successfully", page.items());
+                response.put("nextCursor", page.nextCursor());
+                response.put("hasMore", page.hasMore());
+                return ResponseEntity.ok(response);
             }
 
             List<OutcomeMapping> mappings = mappingService.getAllMappings(moduleId, status, batch, search);
@@ -105,12 +80,9 @@ public class LOPOMappingRestController {
 
     // Get LO-PO mapping statistics
     @GetMapping("/statistics")
-    public ResponseEntity<?> getMappingStatistics(@RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getMappingStatistics() {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             Map<String, Object> statistics = new HashMap<>();
             statistics.put("totalMappings", mappingService.getTotalMappingsCount());
             statistics.put("pendingMappings", mappingService.getPendingMappingsCount());
@@ -127,15 +99,11 @@ public class LOPOMappingRestController {
 
     // Get mapping suggestions for an LO
     @GetMapping("/suggestions")
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
     public ResponseEntity<?> getMappingSuggestions(
             @RequestParam String moduleId,
-            @RequestParam(required = false) String loDescription,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(required = false) String loDescription) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             Map<String, Integer> suggestions = mappingService.getSuggestedMappings(moduleId, loDescription);
             
             // Enrich with PO details
@@ -166,16 +134,13 @@ public class LOPOMappingRestController {
 
     // Create mappings for an LO
     @PostMapping("/create")
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
     public ResponseEntity<?> createMappings(
             @RequestParam String loId,
             @RequestBody Map<String, Object> request,
-            @RequestHeader("Authorization") String token) {
+            AuthContext auth) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
-            String username = extractUsername(token);
+            String username = auth.getUsername();
             String remarks = (String) request.getOrDefault("remarks", "");
             
             @SuppressWarnings("unchecked")
@@ -192,12 +157,9 @@ public class LOPOMappingRestController {
 
     // Get mappings for an LO
     @GetMapping("/lo/{loId}")
-    public ResponseEntity<?> getMappingsForLO(@PathVariable String loId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getMappingsForLO(@PathVariable String loId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             List<OutcomeMapping> mappings = mappingService.getMappingsForLO(loId);
             return ResponseEntity.ok(createSuccessResponse("Mappings retrieved", mappings));
         } catch (Exception e) {
@@ -207,12 +169,9 @@ public class LOPOMappingRestController {
 
     // Get mappings for a module  
     @GetMapping("/module/{moduleId}")
-    public ResponseEntity<?> getMappingsForModule(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getMappingsForModule(@PathVariable String moduleId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             List<OutcomeMapping> mappings = mappingService.getMappingsForModule(moduleId);
             return ResponseEntity.ok(createSuccessResponse("Module mappings retrieved", mappings));
         } catch (Exception e) {
@@ -222,15 +181,11 @@ public class LOPOMappingRestController {
 
     // Update mapping (if not approved)
     @PutMapping("/{mappingId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
     public ResponseEntity<?> updateMapping(
             @PathVariable Long mappingId,
-            @RequestBody Map<String, Object> request,
-            @RequestHeader("Authorization") String token) {
+            @RequestBody Map<String, Object> request) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             Integer newWeight = (Integer) request.get("weight");
             String lecturerRemarks = (String) request.getOrDefault("lecturerRemarks", "");
 
@@ -245,12 +200,9 @@ public class LOPOMappingRestController {
 
     // Delete mapping (if not approved)
     @DeleteMapping("/{mappingId}")
-    public ResponseEntity<?> deleteMapping(@PathVariable Long mappingId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> deleteMapping(@PathVariable Long mappingId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             mappingService.deleteMapping(mappingId);
             return ResponseEntity.ok(createSuccessResponse("Mapping deleted successfully", null));
         } catch (IllegalArgumentException e) {
@@ -262,12 +214,9 @@ public class LOPOMappingRestController {
 
     // Get mapping statistics for a module
     @GetMapping("/statistics/{moduleId}")
-    public ResponseEntity<?> getMappingStatistics(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access denied. Lecturer privileges required.")
+    public ResponseEntity<?> getMappingStatistics(@PathVariable String moduleId) {
         try {
-            if (!isLecturer(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Lecturer privileges required."));
-            }
-
             Map<String, Object> stats = mappingService.getMappingStatistics(moduleId);
             return ResponseEntity.ok(createSuccessResponse("Statistics retrieved", stats));
         } catch (Exception e) {
@@ -279,12 +228,9 @@ public class LOPOMappingRestController {
 
     // Get all pending mappings for review
     @GetMapping("/admin/pending")
-    public ResponseEntity<?> getPendingMappings(@RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> getPendingMappings() {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-
             List<OutcomeMapping> pendingMappings = mappingService.getPendingMappings();
             return ResponseEntity.ok(createSuccessResponse("Pending mappings retrieved", pendingMappings));
         } catch (Exception e) {
@@ -294,16 +240,13 @@ public class LOPOMappingRestController {
 
     // Approve mapping
     @PutMapping("/admin/{mappingId}/approve")
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
     public ResponseEntity<?> approveMapping(
             @PathVariable Long mappingId,
             @RequestBody(required = false) Map<String, String> request,
-            @RequestHeader("Authorization") String token) {
+            AuthContext auth) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-
-            String username = extractUsername(token);
+            String username = auth.getUsername();
             String adminRemarks = request != null ? request.getOrDefault("adminRemarks", "") : "";
 
             OutcomeMapping approvedMapping = mappingService.approveMapping(mappingId, username, adminRemarks);
@@ -315,16 +258,13 @@ public class LOPOMappingRestController {
 
     // Reject mapping
     @PutMapping("/admin/{mappingId}/reject")
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
     public ResponseEntity<?> rejectMapping(
             @PathVariable Long mappingId,
             @RequestBody Map<String, String> request,
-            @RequestHeader("Authorization") String token) {
+            AuthContext auth) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-
-            String username = extractUsername(token);
+            String username = auth.getUsername();
             String adminRemarks = request.getOrDefault("adminRemarks", "").trim();
             if (adminRemarks.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -340,16 +280,13 @@ public class LOPOMappingRestController {
 
     // Bulk approve mappings for an LO
     @PutMapping("/admin/lo/{loId}/approve-all")
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
     public ResponseEntity<?> bulkApproveMappingsForLO(
             @PathVariable String loId,
             @RequestBody(required = false) Map<String, String> request,
-            @RequestHeader("Authorization") String token) {
+            AuthContext auth) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-
-            String username = extractUsername(token);
+            String username = auth.getUsername();
             String adminRemarks = request != null ? request.getOrDefault("adminRemarks", "Bulk approved") : "Bulk approved";
 
             List<OutcomeMapping> approvedMappings = mappingService.bulkApproveMappingsForLO(loId, username, adminRemarks);
@@ -364,12 +301,9 @@ public class LOPOMappingRestController {
 
     // Get comprehensive mapping report for a module
     @GetMapping("/admin/report/{moduleId}")
-    public ResponseEntity<?> getModuleMappingReport(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> getModuleMappingReport(@PathVariable String moduleId) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-
             Map<String, Object> report = mappingService.getModuleMappingReport(moduleId);
             return ResponseEntity.ok(createSuccessResponse("Module mapping report generated", report));
         } catch (Exception e) {
@@ -1,18 +1,29 @@
 package com.example.Software.project.Backend.RestController;
 
+import com.example.Software.project.Backend.Model.BatchMarkCount;
+import com.example.Software.project.Backend.Model.KeysetPage;
+import com.example.Software.project.Backend.Model.LoMarkRow;
 import com.example.Software.project.Backend.Model.Los;
 import com.example.Software.project.Backend.Model.StudentMark;
-import com.example.Software.project.Backend.Security.JwtUtil;
 import com.example.Software.project.Backend.Repository.StudentMarkRepository;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
+import com.example.Software.project.Backend.Service.BatchRelabelService;
+import com.example.Software.project.Backend.Service.BulkDeletionService;
 import com.example.Software.project.Backend.Service.ExcelImportService;
 import com.example.Software.project.Backend.Service.LosService;
+import com.example.Software.project.Backend.Service.MarksChangedEvent;
+import com.example.Software.project.Backend.Service.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
@@ -39,21 +50,25 @@ public class LosRestController {
     private ExcelImportService excelImportService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private BulkDeletionService bulkDeletionService;
+
+    @Autowired
+    private BatchRelabelService batchRelabelService;
 
     @Autowired
     private StudentMarkRepository studentMarkRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     // Create (Lecture Only) - Add to Module
     @PostMapping("/{moduleId}/add")
-    public ResponseEntity<?> addLos(@PathVariable String moduleId, @RequestBody Los los, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecture can add Los")
+    public ResponseEntity<?> addLos(@PathVariable String moduleId, @RequestBody Los los) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "message", "Access Denied: Only Lecture can add Los",
-                    "status", "ERROR"
-                ));
-            }
             Los createdLos = losService.addLosToModule(moduleId, los);
             return ResponseEntity.ok(Map.of(
                 "message", "Learning Outcome created successfully",
@@ -118,14 +133,9 @@ public class LosRestController {
 
     // Update (Lecture Only)
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateLos(@PathVariable String id, @RequestBody Los losDetails, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecture can update Los")
+    public ResponseEntity<?> updateLos(@PathVariable String id, @RequestBody Los losDetails) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "message", "Access Denied: Only Lecture can update Los",
-                    "status", "ERROR"
-                ));
-            }
             Los updatedLos = losService.updateLos(id, losDetails);
             return ResponseEntity.ok(Map.of(
                 "message", "Learning Outcome updated successfully",
@@ -145,14 +155,9 @@ public class LosRestController {
 
     // Delete (Lecture Only)
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteLos(@PathVariable String id, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecture can delete Los")
+    public ResponseEntity<?> deleteLos(@PathVariable String id) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "message", "Access Denied: Only Lecture can delete Los",
-                    "status", "ERROR"
-                ));
-            }
             losService.deleteLos(id);
             return ResponseEntity.ok(Map.of(
                 "message", "Learning Outcome deleted successfully",
@@ -170,21 +175,13 @@ public class LosRestController {
     // Import student marks directly for a specific LO (Lecture/Admin Only)
     // Only requires Excel file and batch (batch year like 24, 25)
     @PostMapping("/{loId}/marks/import-obe")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can import student marks")
     public ResponseEntity<?> importMarksForLo(
             @PathVariable String loId,
             @RequestParam("excelFile") MultipartFile excelFile,
             @RequestParam(value = "batch", required = true) String batch,
-            @RequestParam(value = "loNumber", required = false) String loNumber,
-            @RequestHeader("Authorization") String token) {
+            @RequestParam(value = "loNumber", required = false) String loNumber) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body(Map.of(
-                            "message", "Access Denied: Only Lecturers/Admins can import student marks",
-                            "status", "ERROR"
-                        ));
-            }
-
             if (excelFile == null || excelFile.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of(
@@ -248,19 +245,11 @@ public class LosRestController {
 
     // Update batch number for existing LO marks (Lecture/Admin Only)
     @PutMapping("/{loId}/batch/update")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can update batches")
     public ResponseEntity<?> updateBatch(
             @PathVariable String loId,
-            @RequestBody Map<String, String> batchData,
-            @RequestHeader("Authorization") String token) {
+            @RequestBody Map<String, String> batchData) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body(Map.of(
-                            "message", "Access Denied: Only Lecturers/Admins can update batches",
-                            "status", "ERROR"
-                        ));
-            }
-
             String oldBatch = batchData.get("oldBatch");
             String newBatch = batchData.get("newBatch");
 
@@ -282,19 +271,18 @@ public class LosRestController {
                         ));
             }
 
-            // Update all StudentMarks with oldBatch to newBatch
-            List<StudentMark> marksToUpdate = studentMarkRepository.findByLos_IdAndBatch(loId, oldBatch);
-            for (StudentMark mark : marksToUpdate) {
-                mark.setBatch(newBatch);
-                studentMarkRepository.save(mark);
-            }
+            // Move marks, templates, CQI actions and snapshots to newBatch with set-based UPDATEs
+            Map<String, Integer> updated = batchRelabelService.relabelLo(loId, oldBatch, newBatch);
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(loId), oldBatch));
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(loId), newBatch));
 
             return ResponseEntity.ok(Map.of(
                     "message", "Batch updated successfully from " + oldBatch + " to " + newBatch,
                     "loId", loId,
                     "oldBatch", oldBatch,
                     "newBatch", newBatch,
-                    "recordsUpdated", marksToUpdate.size(),
+                    "recordsUpdated", updated.getOrDefault("StudentMark", 0),
+                    "updated", updated,
                     "status", "SUCCESS"
             ));
         } catch (Exception e) {
@@ -307,30 +295,72 @@ public class LosRestController {
         }
     }
 
-    // Delete batch marks for a specific LO (Lecture/Admin Only)
-    @DeleteMapping("/{loId}/batch/{batch}")
-    public ResponseEntity<?> deleteBatch(
-            @PathVariable String loId,
-            @PathVariable String batch,
-            @RequestHeader("Authorization") String token) {
+    // Update batch number for every LO of a module (Lecture/Admin Only)
+    @PutMapping("/module/{moduleId}/batch/update")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can update batches")
+    public ResponseEntity<?> updateModuleBatch(
+            @PathVariable String moduleId,
+            @RequestBody Map<String, String> batchData) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+            String oldBatch = batchData.get("oldBatch");
+            String newBatch = batchData.get("newBatch");
+
+            if (oldBatch == null || newBatch == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of(
-                            "message", "Access Denied: Only Lecturers/Admins can delete batches",
+                            "message", "Error: oldBatch and newBatch are required",
                             "status", "ERROR"
                         ));
             }
 
-            // Get and delete all StudentMarks with this batch
-            List<StudentMark> marksToDelete = studentMarkRepository.findByLos_IdAndBatch(loId, batch);
-            studentMarkRepository.deleteAll(marksToDelete);
+            // Check if new batch already exists in any LO of the module
+            if (batchRelabelService.countModuleMarks(moduleId, newBatch) > 0) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of(
+                            "message", "Batch " + newBatch + " already exists for this module.",
+                            "status", "ERROR"
+                        ));
+            }
+
+            Map<String, Integer> updated = batchRelabelService.relabelModule(moduleId, oldBatch, newBatch);
+            eventPublisher.publishEvent(MarksChangedEvent.forModule(moduleId, oldBatch));
+            eventPublisher.publishEvent(MarksChangedEvent.forModule(moduleId, newBatch));
+
+            return ResponseEntity.ok(Map.of(
+                    "message", "Batch updated successfully from " + oldBatch + " to " + newBatch,
+                    "moduleId", moduleId,
+                    "oldBatch", oldBatch,
+                    "newBatch", newBatch,
+                    "recordsUpdated", updated.getOrDefault("StudentMark", 0),
+                    "updated", updated,
+                    "status", "SUCCESS"
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of(
+                            "message", "Failed to update batch",
+                            "error", e.getMessage(),
+                            "status", "ERROR"
+                    ));
+        }
+    }
+
+    // Delete batch marks for a specific LO (Lecture/Admin Only)
+    @DeleteMapping("/{loId}/batch/{batch}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can delete batches")
+    public ResponseEntity<?> deleteBatch(
+            @PathVariable String loId,
+            @PathVariable String batch) {
+        try {
+            // One DELETE for every StudentMark with this batch
+            int recordsDeleted = bulkDeletionService.deleteLoBatch(loId, batch);
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(loId), batch));
 
             return ResponseEntity.ok(Map.of(
                     "message", "Batch deleted successfully",
                     "loId", loId,
                     "batch", batch,
-                    "recordsDeleted", marksToDelete.size(),
+                    "recordsDeleted", recordsDeleted,
                     "status", "SUCCESS"
             ));
         } catch (Exception e) {
@@ -356,17 +386,7 @@ public class LosRestController {
                 ));
             }
 
-            List<String> batches = studentMarkRepository.findDistinctBatchesByLosId(loId);
-            List<Map<String, Object>> batchInfo = batches.stream()
-                    .map(batch -> {
-                        long count = studentMarkRepository.countByLos_IdAndBatch(loId, batch);
-                        Map<String, Object> info = new HashMap<>();
-                        info.put("batch", batch);
-                        info.put("batchLabel", batch + "nd Batch"); // Format: "22nd Batch"
-                        info.put("recordCount", count);
-                        return info;
-                    })
-                    .toList();
+            List<BatchMarkCount> batchInfo = studentMarkRepository.countMarksByBatchForLosId(loId);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Batches retrieved successfully",
@@ -382,10 +402,14 @@ public class LosRestController {
         }
     }
 
-    // Get all uploaded marks for a specific LO (legacy - returns all marks)
+    // Get all uploaded marks for a specific LO (legacy - returns all marks), newest first
+    // ?limit=N[&cursor=<nextCursor>] pages by mark id; ?stream=true writes every mark as NDJSON
     @GetMapping("/{loId}/marks")
     public ResponseEntity<?> getMarksByLo(
             @PathVariable String loId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(value = "stream", defaultValue = "false") boolean stream,
             @RequestHeader(value = "Authorization", required = false) String token) {
         try {
             if (!losService.getLosById(loId).isPresent()) {
@@ -395,17 +419,27 @@ public class LosRestController {
                 ));
             }
 
-            List<Map<String, Object>> marks = studentMarkRepository.findByLos_IdOrderByIdDesc(loId)
-                    .stream()
-                    .map(mark -> {
-                        Map<String, Object> row = new HashMap<>();
-                        row.put("id", mark.getId());
-                        row.put("studentId", mark.getStudent() != null ? mark.getStudent().getStudentId() : "");
-                        row.put("studentName", mark.getStudent() != null ? mark.getStudent().getStudentName() : "");
-                        row.put("score", mark.getScore() != null ? mark.getScore() : 0.0);
-                        return row;
-                    })
-                    .toList();
+            if (stream) {
+                StreamingResponseBody body = out -> ndjsonWriter.write(() -> studentMarkRepository.streamMarkRowsByLosId(loId), out);
+                return ResponseEntity.ok().header("Content-Type", NdjsonWriter.CONTENT_TYPE).body(body);
+            }
+            if (cursor != null || limit != null) {
+                int pageSize = KeysetPage.clampLimit(limit);
+                KeysetPage<LoMarkRow> page = KeysetPage.of(
+                        studentMarkRepository.findMarkRowsByLosIdBefore(loId, cursor != null ? cursor : Long.MAX_VALUE,
+                                PageRequest.of(0, pageSize + 1)),
+                        pageSize, LoMarkRow::id);
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Student marks retrieved successfully");
+                response.put("data", page.items());
+                response.put("count", page.items().size());
+                response.put("nextCursor", page.nextCursor());
+                response.put("hasMore", page.hasMore());
+                response.put("status", "SUCCESS");
+                return ResponseEntity.ok(response);
+            }
+
+            List<LoMarkRow> marks = studentMarkRepository.findMarkRowsByLosId(loId);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Student marks retrieved successfully",
@@ -423,19 +457,12 @@ public class LosRestController {
 
     // Update one student mark under an LO
     @PutMapping("/{loId}/marks/{markId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can update marks")
     public ResponseEntity<?> updateMarkByLo(
             @PathVariable String loId,
             @PathVariable Long markId,
-            @RequestBody Map<String, Object> body,
-            @RequestHeader("Authorization") String token) {
+            @RequestBody Map<String, Object> body) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                        "message", "Access Denied: Only Lecturers/Admins can update marks",
-                        "status", "ERROR"
-                ));
-            }
-
             StudentMark mark = studentMarkRepository.findById(markId)
                     .orElseThrow(() -> new Exception("Mark not found"));
 
@@ -458,6 +485,7 @@ public class LosRestController {
             score = Math.max(0.0, Math.min(100.0, score));
             mark.setScore(score);
             studentMarkRepository.save(mark);
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(loId), mark.getBatch()));
 
             return ResponseEntity.ok(Map.of(
                     "message", "Mark updated successfully",
@@ -475,18 +503,11 @@ public class LosRestController {
 
     // Delete one student mark under an LO
     @DeleteMapping("/{loId}/marks/{markId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can delete marks")
     public ResponseEntity<?> deleteMarkByLo(
             @PathVariable String loId,
-            @PathVariable Long markId,
-            @RequestHeader("Authorization") String token) {
+            @PathVariable Long markId) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                        "message", "Access Denied: Only Lecturers/Admins can delete marks",
-                        "status", "ERROR"
-                ));
-            }
-
             StudentMark mark = studentMarkRepository.findById(markId)
                     .orElseThrow(() -> new Exception("Mark not found"));
 
@@ -498,6 +519,7 @@ public class LosRestController {
             }
 
             studentMarkRepository.delete(mark);
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(loId), mark.getBatch()));
             return ResponseEntity.ok(Map.of(
                     "message", "Mark deleted successfully",
                     "markId", markId,
@@ -525,18 +547,7 @@ public class LosRestController {
                 ));
             }
 
-            List<Map<String, Object>> marks = studentMarkRepository.findByLos_IdAndBatch(loId, batch)
-                    .stream()
-                    .map(mark -> {
-                        Map<String, Object> row = new HashMap<>();
-                        row.put("id", mark.getId());
-                        row.put("studentId", mark.getStudent() != null ? mark.getStudent().getStudentId() : "");
-                        row.put("studentName", mark.getStudent() != null ? mark.getStudent().getStudentName() : "");
-                        row.put("score", mark.getScore() != null ? mark.getScore() : 0.0);
-                        row.put("batch", mark.getBatch());
-                        return row;
-                    })
-                    .toList();
+            List<LoMarkRow> marks = studentMarkRepository.findMarkRowsByLosIdAndBatch(loId, batch);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Batch marks retrieved successfully",
@@ -555,18 +566,11 @@ public class LosRestController {
 
     // Delete all marks for a specific batch within an LO
     @DeleteMapping("/{loId}/batches/{batch}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can delete batch marks")
     public ResponseEntity<?> deleteBatchByLo(
             @PathVariable String loId,
-            @PathVariable String batch,
-            @RequestHeader("Authorization") String token) {
+            @PathVariable String batch) {
         try {
-            if (!isLecture(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                        "message", "Access Denied: Only Lecturers/Admins can delete batch marks",
-                        "status", "ERROR"
-                ));
-            }
-
             if (!losService.getLosById(loId).isPresent()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
                         "message", "Learning Outcome not found",
@@ -574,8 +578,8 @@ public class LosRestController {
                 ));
             }
 
-            long count = studentMarkRepository.countByLos_IdAndBatch(loId, batch);
-            studentMarkRepository.deleteByLos_IdAndBatch(loId, batch);
+            int count = bulkDeletionService.deleteLoBatch(loId, batch);
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(loId), batch));
 
             return ResponseEntity.ok(Map.of(
                     "message", "Batch deleted successfully",
@@ -692,17 +696,4 @@ public class LosRestController {
         public void setMarks(List<Double> marks) { this.marks = marks; }
     }
 
-    private boolean isLecture(String token) {
-        try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && ("lecture".equals(role) || "lecturer".equals(role) || "admin".equals(role) || "superadmin".equals(role));
-        } catch (Exception e) {
-            return false;
-        }
-    }
 }
@@ -0,0 +1,51 @@
+package com.example.Software.project.Backend.RestController;
+
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
+import com.example.Software.project.Backend.Service.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Actuator-style view of MetricsRegistry: metric names, then per-series count, total, max,
+// p50/p90/p95/p99 and cumulative histogram buckets. Filter with ?tag=uri:/api/obe/po/all
+@RestController
+@RequestMapping("/actuator/metrics")
+@CrossOrigin(origins = "http://localhost:5173", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class MetricsController {
+
+    @Autowired private MetricsRegistry metricsRegistry;
+
+    @GetMapping
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> listMetrics() {
+        return ResponseEntity.ok(Map.of("names", metricsRegistry.names()));
+    }
+
+    @GetMapping("/{name}")
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> getMetric(@PathVariable String name,
+                                       @RequestParam(required = false) List<String> tag) {
+        Map<String, String> tagFilter = new HashMap<>();
+        if (tag != null) {
+            for (String t : tag) {
+                int colon = t.indexOf(':');
+                if (colon <= 0) {
+                    return ResponseEntity.badRequest().body(Map.of("message", "tag must be key:value, got " + t, "status", "ERROR"));
+                }
+                tagFilter.put(t.substring(0, colon), t.substring(colon + 1));
+            }
+        }
+        Map<String, Object> metric = metricsRegistry.describe(name, tagFilter);
+        if (metric == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Unknown metric: " + name, "status", "ERROR"));
+        }
+        return ResponseEntity.ok(metric);
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.example.Software.project.Backend.RestController;
 
-import com.example.Software.project.Backend.Security.JwtUtil;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.ModuleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -19,19 +21,11 @@ public class ModuleRestController {
     @Autowired
     private ModuleService moduleService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
     // Create (Admin Only)
     @PostMapping("/create")
-    public ResponseEntity<?> createModule(@RequestBody com.example.Software.project.Backend.Model.Module module, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can create modules")
+    public ResponseEntity<?> createModule(@RequestBody com.example.Software.project.Backend.Model.Module module) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "message", "Access Denied: Only Admin can create modules",
-                    "status", "ERROR"
-                ));
-            }
             com.example.Software.project.Backend.Model.Module createdModule = moduleService.createModule(module);
             return ResponseEntity.ok(Map.of(
                 "message", "Module created successfully",
@@ -49,14 +43,10 @@ public class ModuleRestController {
 
     // Read All - lecturers only see modules they're assigned to (or unassigned ones); admins see everything
     @GetMapping("/all")
-    public ResponseEntity<?> getAllModules(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getAllModules(AuthContext auth) {
         try {
-            String bearerToken = token != null && token.startsWith("Bearer ") ? token.substring(7) : token;
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-
-            List<com.example.Software.project.Backend.Model.Module> modules = "lecture".equals(role)
-                ? moduleService.getModulesForLecturer(jwtUtil.extractUsername(bearerToken))
+            List<com.example.Software.project.Backend.Model.Module> modules = "lecture".equals(auth.getRole())
+                ? moduleService.getModulesForLecturer(auth.getUsername())
                 : moduleService.getAllModules();
 
             return ResponseEntity.ok(Map.of(
@@ -74,7 +64,7 @@ public class ModuleRestController {
 
     // Read One
     @GetMapping("/{id}")
-    public ResponseEntity<?> getModuleById(@PathVariable String id, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getModuleById(@PathVariable String id) {
         try {
             java.util.Optional<com.example.Software.project.Backend.Model.Module> module = moduleService.getModuleById(id);
             return module.map(m -> ResponseEntity.ok(Map.of(
@@ -96,14 +86,9 @@ public class ModuleRestController {
 
     // Update (Admin Only)
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateModule(@PathVariable String id, @RequestBody com.example.Software.project.Backend.Model.Module moduleDetails, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can update modules")
+    public ResponseEntity<?> updateModule(@PathVariable String id, @RequestBody com.example.Software.project.Backend.Model.Module moduleDetails) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "message", "Access Denied: Only Admin can update modules",
-                    "status", "ERROR"
-                ));
-            }
             com.example.Software.project.Backend.Model.Module updatedModule = moduleService.updateModule(id, moduleDetails);
             return ResponseEntity.ok(Map.of(
                 "message", "Module updated successfully",
@@ -121,18 +106,14 @@ public class ModuleRestController {
 
     // Delete (Admin Only)
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteModule(@PathVariable String id, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can delete modules")
+    public ResponseEntity<?> deleteModule(@PathVariable String id) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of(
-                    "message", "Access Denied: Only Admin can delete modules",
-                    "status", "ERROR"
-                ));
-            }
-            moduleService.deleteModule(id);
+            Map<String, Integer> deleted = moduleService.deleteModule(id);
             return ResponseEntity.ok(Map.of(
                 "message", "Module deleted successfully",
                 "moduleId", id,
+                "deleted", deleted,
                 "status", "SUCCESS"
             ));
         } catch (Exception e) {
@@ -143,17 +124,4 @@ public class ModuleRestController {
         }
     }
 
-    private boolean isAdmin(String token) {
-        try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && ("admin".equals(role) || "superadmin".equals(role));
-        } catch (Exception e) {
-            return false;
-        }
-    }
 }
\ No newline at end of file
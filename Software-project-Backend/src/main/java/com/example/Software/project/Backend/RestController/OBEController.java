@@ -2,13 +2,18 @@ package com.example.Software.project.Backend.RestController;
 
 import com.example.Software.project.Backend.Model.*;
 import com.example.Software.project.Backend.Repository.*;
-import com.example.Software.project.Backend.Security.JwtUtil;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 
@@ -25,18 +30,20 @@ public class OBEController {
     @Autowired private AttainmentService attainmentService;
     @Autowired private POAttainmentService poAttainmentService;
     @Autowired private TrendService trendService;
-    @Autowired private JwtUtil jwtUtil;
     @Autowired private AssessmentTemplateRepository assessmentTemplateRepo;
     @Autowired private AssessmentItemRepository assessmentItemRepo;
     @Autowired private ModuleRepository moduleRepo;
+    @Autowired private AttainmentSnapshotService snapshotService;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private ImportJobService importJobService;
+    @Autowired private AttainmentCache attainmentCache;
+    @Autowired private NdjsonWriter ndjsonWriter;
 
     // --- ADMIN ONLY: Create PO (Program Outcome) ---
     @PostMapping("/po/create")
-    public ResponseEntity<?> createPO(@RequestBody ProgramOutcome po, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> createPO(@RequestBody ProgramOutcome po) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
-            }
             if (po.getPoId() != null) {
                 po.setPoId(po.getPoId());
                 po.setCode(po.getPoId());
@@ -50,11 +57,29 @@ public class OBEController {
     }
 
     // --- ADMIN ONLY: Read All POs ---
+    // ?limit=N[&cursor=<nextCursor>] pages by PO id; ?stream=true writes every PO as NDJSON
     @GetMapping("/po/all")
-    public ResponseEntity<?> getAllPOs(@RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> getAllPOs(@RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
+            if (stream) {
+                StreamingResponseBody body = out -> ndjsonWriter.write(() -> poRepo.streamAllOrderByPoId(), out);
+                return ResponseEntity.ok().header("Content-Type", NdjsonWriter.CONTENT_TYPE).body(body);
+            }
+            if (cursor != null || limit != null) {
+                int pageSize = KeysetPage.clampLimit(limit);
+                KeysetPage<ProgramOutcome> page = KeysetPage.of(
+                    poRepo.findByPoIdGreaterThanOrderByPoIdAsc(cursor != null ? cursor : "", PageRequest.of(0, pageSize + 1)),
+                    pageSize, ProgramOutcome::getPoId);
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "All Program Outcomes");
+                response.put("data", page.items());
+                response.put("nextCursor", page.nextCursor());
+                response.put("hasMore", page.hasMore());
+                response.put("status", "SUCCESS");
+                return ResponseEntity.ok(response);
             }
             return ResponseEntity.ok(Map.of("message", "All Program Outcomes", "data", poRepo.findAll(), "status", "SUCCESS"));
         } catch (Exception e) {
@@ -65,11 +90,9 @@ public class OBEController {
 
     // --- ADMIN ONLY: Read One PO by ID ---
     @GetMapping("/po/{poId}")
-    public ResponseEntity<?> getPOById(@PathVariable String poId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> getPOById(@PathVariable String poId) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
-            }
             return poRepo.findById(poId)
                 .map(po -> ResponseEntity.ok(Map.of("message", "PO found", "data", po, "status", "SUCCESS")))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -82,16 +105,15 @@ public class OBEController {
 
     // --- ADMIN ONLY: Update PO ---
     @PutMapping("/po/{poId}")
-    public ResponseEntity<?> updatePO(@PathVariable String poId, @RequestBody ProgramOutcome poDetails, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> updatePO(@PathVariable String poId, @RequestBody ProgramOutcome poDetails) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
-            }
             return poRepo.findById(poId)
                 .map(po -> {
                     if (poDetails.getDescription() != null) po.setDescription(poDetails.getDescription());
                     po.setCode(po.getPoId());
                     ProgramOutcome updatedPo = poRepo.save(po);
+                    publishLosChanged(mapRepo.findLoIdsByProgramOutcomeIds(List.of(updatedPo.getPoId())));
                     return ResponseEntity.ok(Map.of("message", "PO updated successfully", "data", updatedPo, "status", "SUCCESS"));
                 })
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -104,13 +126,14 @@ public class OBEController {
 
     // --- ADMIN ONLY: Delete PO ---
     @DeleteMapping("/po/{poId}")
-    public ResponseEntity<?> deletePO(@PathVariable String poId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> deletePO(@PathVariable String poId) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Admin only", "status", "ERROR"));
-            }
             if (poRepo.existsById(poId)) {
+                // Resolved before the delete, while the mappings still join to the PO row
+                List<String> loIds = mapRepo.findLoIdsByProgramOutcomeIds(List.of(poId));
                 poRepo.deleteById(poId);
+                publishLosChanged(loIds);
                 return ResponseEntity.ok(Map.of("message", "PO deleted successfully", "status", "SUCCESS"));
             } else {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -122,11 +145,17 @@ public class OBEController {
         }
     }
 
+    // PO writes invalidate through the LOs mapped to the PO, as ProgramOutcomeService does
+    private void publishLosChanged(List<String> loIds) {
+        if (!loIds.isEmpty()) {
+            eventPublisher.publishEvent(OutcomesChangedEvent.forLos(loIds));
+        }
+    }
+
     // --- LECTURE: Bulk Save Mappings (Pending) ---
     @PostMapping("/mappings/bulk-save")
-    public ResponseEntity<?> saveMappings(@RequestBody List<OutcomeMapping> mappings, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
-
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> saveMappings(@RequestBody List<OutcomeMapping> mappings) {
         try {
             // Ensure LO and PO exist before saving
             for (OutcomeMapping m : mappings) {
@@ -150,7 +179,10 @@ public class OBEController {
                     throw new RuntimeException("Program Outcome ID is required");
                 }
             }
-            return ResponseEntity.ok(mapRepo.saveAll(mappings));
+            List<OutcomeMapping> saved = mapRepo.saveAll(mappings);
+            eventPublisher.publishEvent(OutcomesChangedEvent.forLos(
+                saved.stream().map(m -> m.getLearningOutcome().getId()).distinct().toList()));
+            return ResponseEntity.ok(saved);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error saving mappings: " + e.getMessage());
         }
@@ -158,18 +190,19 @@ public class OBEController {
 
     // --- ADMIN: Approve Mappings ---
     @PutMapping("/admin/approve-mapping/{id}")
-    public ResponseEntity<?> approveMapping(@PathVariable Long id, @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin only");
-
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> approveMapping(@PathVariable Long id) {
         OutcomeMapping mapping = mapRepo.findById(id).orElseThrow();
         mapping.setStatus(OutcomeMapping.ApprovalStatus.APPROVED);
-        return ResponseEntity.ok(mapRepo.save(mapping));
+        OutcomeMapping saved = mapRepo.save(mapping);
+        eventPublisher.publishEvent(OutcomesChangedEvent.forLos(List.of(saved.getLearningOutcome().getId())));
+        return ResponseEntity.ok(saved);
     }
 
     // --- LECTURE: Upload Marks ---
     @PostMapping("/marks/upload/{losId}")
-    public ResponseEntity<?> uploadMarks(@PathVariable String losId, @RequestParam("file") MultipartFile file, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> uploadMarks(@PathVariable String losId, @RequestParam("file") MultipartFile file) {
         try {
             excelService.importMarks(file, losId);
             return ResponseEntity.ok("Marks uploaded successfully");
@@ -180,13 +213,9 @@ public class OBEController {
 
     // --- MARKS: Unified upload — auto-detects LO-wise vs question-wise from METADATA sheet ---
     @PostMapping("/marks/upload")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied")
     public ResponseEntity<?> uploadMarksUnified(
-            @RequestParam("excelFile") MultipartFile file,
-            @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied", "status", "ERROR"));
-        }
+            @RequestParam("excelFile") MultipartFile file) {
         try {
             Map<String, String> meta = excelService.readMetadata(file);
             String templateType = meta.getOrDefault("TEMPLATE_TYPE", "LO_WISE");
@@ -243,17 +272,13 @@ public class OBEController {
 
     // --- LECTURE: Upload question-wise marks using a template ---
     @PostMapping("/marks/upload-question-wise")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can upload marks")
     public ResponseEntity<?> uploadQuestionWiseMarks(
             @RequestParam("excelFile") MultipartFile file,
             @RequestParam(value = "templateId", required = false) String templateId,
             @RequestParam(value = "batch", required = false) String batch,
             @RequestParam(value = "markType", required = false, defaultValue = "FINAL_EXAM") String markType,
-            @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can upload marks", "status", "ERROR"));
-        }
-
+            AuthContext auth) {
         try {
             // Read embedded metadata from the Excel file (batch, markType, templateId)
             Map<String, String> meta = excelService.readMetadata(file);
@@ -272,13 +297,14 @@ public class OBEController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "templateId is required (or embed it in the template METADATA sheet)", "status", "ERROR"));
             }
-            String result = excelService.importQuestionWiseMarks(file, templateId, batch, markType);
-            return ResponseEntity.ok(Map.of(
-                "message", result,
+            ImportJob job = importJobService.submitQuestionWise(file, templateId, batch, markType, null, auth.getUsername());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "message", "Import queued — poll /api/obe/import-jobs/" + job.getId() + " for progress",
                 "status", "SUCCESS",
                 "data", Map.of(
+                    "jobId", job.getId(),
                     "templateId", templateId,
-                    "batch", batch,
+                    "batch", batch != null ? batch : "",
                     "markType", markType
                 )
             ));
@@ -293,45 +319,59 @@ public class OBEController {
     }
 
     // --- REPORT: Course Attainment (Flat JSON for Charts) ---
+    // ?batch=<batch>[&markType=] reads one batch from the module's PO snapshots (same weighted LO
+    // level per PO); without a batch every batch is evaluated live, as before.
     @GetMapping("/reports/course/{moduleId}")
-    public ResponseEntity<?> getCourseReport(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
-        Map<String, Double> poScores = attainmentService.getPOAttainment(moduleId);
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getCourseReport(@PathVariable String moduleId,
+                                             @RequestParam(required = false) String batch,
+                                             @RequestParam(defaultValue = "FINAL_EXAM") String markType) {
+        if (batch == null || batch.isBlank()) {
+            Map<String, Double> poScores = attainmentService.getPOAttainment(moduleId);
+            return ResponseEntity.ok(poScores);
+        }
+        MarkType type;
+        try {
+            type = MarkType.valueOf(markType.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("message", "Error: Invalid markType. Must be FINAL_EXAM or ASSIGNMENT", "status", "ERROR"));
+        }
+        Map<String, Double> poScores = new LinkedHashMap<>();
+        for (PoAttainmentSnapshot snap : snapshotService.getCurrentPoSnapshots(moduleId, batch.trim(), type)) {
+            poScores.put(snap.getPoCode(), snap.getWeightedLevel());
+        }
         return ResponseEntity.ok(poScores);
     }
 
     // --- ANALYSIS: Module Trend ---
     @GetMapping("/analysis/trend/{moduleId}")
-    public ResponseEntity<?> getTrend(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getTrend(@PathVariable String moduleId) {
         return ResponseEntity.ok(trendService.getCourseTrend(moduleId));
     }
 
     // --- ANALYSIS: LO Trend (New) ---
     @GetMapping("/analysis/trend/lo/{moduleId}")
-    public ResponseEntity<?> getLoTrend(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getLoTrend(@PathVariable String moduleId) {
         return ResponseEntity.ok(trendService.getLoTrend(moduleId));
     }
 
     // --- ANALYSIS: LO Pass Rate by Batch ---
     @GetMapping("/analysis/pass-rate/lo/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
     public ResponseEntity<?> getLoPassRate(
             @PathVariable String moduleId,
-            @RequestParam(defaultValue = "50") double threshold,
-            @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+            @RequestParam(defaultValue = "50") double threshold) {
         return ResponseEntity.ok(trendService.getLoPassRate(moduleId, threshold));
     }
 
     // --- EXPORT: Generate Excel with selected LOs and mark type ---
     @PostMapping("/export/marks")
-    public ResponseEntity<?> exportMarks(@RequestBody Map<String, Object> request, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can export marks", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can export marks")
+    public ResponseEntity<?> exportMarks(@RequestBody Map<String, Object> request,
+                                         @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
             // Extract parameters from request body
             @SuppressWarnings("unchecked")
@@ -392,13 +432,20 @@ public class OBEController {
                     .body(Map.of("message", "Error: Invalid markType. Must be FINAL_EXAM or ASSIGNMENT", "status", "ERROR"));
             }
 
+            String fileName = "marks_report_" + batch + "_" + markType.toLowerCase() + ".xlsx";
+            if (stream) {
+                List<String> exportLoIds = losIds;
+                int exportThreshold = threshold;
+                return streamXlsx(fileName, out -> excelExportService.writeMarksExcel(exportLoIds, markType, batch, exportThreshold, out));
+            }
+
             // Generate Excel
             byte[] excelBytes = excelExportService.generateMarksExcel(losIds, markType, batch, threshold);
 
             // Return as file download
             return ResponseEntity.ok()
                 .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                .header("Content-Disposition", "attachment; filename=\"marks_report_" + batch + "_" + markType.toLowerCase() + ".xlsx\"")
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
                 .body(excelBytes);
 
         } catch (Exception e) {
@@ -414,12 +461,8 @@ public class OBEController {
 
     // --- TEMPLATE: Generate empty Excel template for mark entry ---
     @PostMapping("/template/marks")
-    public ResponseEntity<?> generateMarkTemplate(@RequestBody Map<String, Object> request, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can generate templates", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can generate templates")
+    public ResponseEntity<?> generateMarkTemplate(@RequestBody Map<String, Object> request) {
         try {
             // Extract parameters
             @SuppressWarnings("unchecked")
@@ -497,17 +540,13 @@ public class OBEController {
 
     // --- BULK UPLOAD: Upload marks — reads batch/markType from METADATA sheet if present ---
     @PostMapping("/marks/upload-bulk")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied")
     public ResponseEntity<?> uploadMarksBulk(
             @RequestParam("excelFile") MultipartFile file,
             @RequestParam(value = "losIds", required = false) String losIdsParam,
             @RequestParam(value = "batch", required = false) String batch,
             @RequestParam(value = "markType", required = false, defaultValue = "FINAL_EXAM") String markType,
-            @RequestHeader("Authorization") String token) {
-
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied", "status", "ERROR"));
-        }
+            AuthContext auth) {
 
         try {
             // Read metadata from Excel first — overrides form params if present
@@ -527,11 +566,11 @@ public class OBEController {
             }
 
             String[] losIds = losIdsParam.split(",");
-            String result = excelService.importMarksBulk(file, losIds, batch.trim(), markType);
+            ImportJob job = importJobService.submitBulk(file, losIds, batch.trim(), markType, null, null, auth.getUsername());
 
-            return ResponseEntity.ok(Map.of(
-                "message", result, "status", "SUCCESS",
-                "data", Map.of("losCount", losIds.length, "batch", batch.trim(), "markType", markType)
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "message", "Import queued — poll /api/obe/import-jobs/" + job.getId() + " for progress", "status", "SUCCESS",
+                "data", Map.of("jobId", job.getId(), "losCount", losIds.length, "batch", batch.trim(), "markType", markType)
             ));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -539,10 +578,28 @@ public class OBEController {
         }
     }
 
+    // --- IMPORT JOBS: Poll a queued mark upload (state, rows processed, rows/sec, row errors) ---
+    // Only the uploader or an admin: the row errors carry student ids and scores
+    @GetMapping("/import-jobs/{jobId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied")
+    public ResponseEntity<?> getImportJob(@PathVariable String jobId, AuthContext auth) {
+        Optional<ImportJob> found = importJobService.getJob(jobId);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("message", "Import job not found", "status", "ERROR"));
+        }
+        ImportJob job = found.get();
+        if (!auth.isAdmin() && !Objects.equals(job.getCreatedBy(), auth.getUsername())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Access denied", "status", "ERROR"));
+        }
+        return ResponseEntity.ok(Map.of(
+            "message", "Import job " + job.getStatus().name().toLowerCase(), "data", importJobService.getJobStatus(job), "status", "SUCCESS"));
+    }
+
     // --- MARKS: List available marks (batch+markType+assignmentLabel groups) for a module ---
     @GetMapping("/marks/available/module/{moduleId}")
-    public ResponseEntity<?> getAvailableMarks(@PathVariable String moduleId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getAvailableMarks(@PathVariable String moduleId) {
         try {
             List<Object[]> raw = markRepo().findMarksSummaryByModuleId(moduleId);
             List<Map<String, Object>> result = new ArrayList<>();
@@ -564,13 +621,12 @@ public class OBEController {
 
     // --- MARKS: Delete one assignment's marks for a module ---
     @DeleteMapping("/marks/assignment/module/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
     public ResponseEntity<?> deleteAssignmentMarks(
             @PathVariable String moduleId,
             @RequestParam String batch,
             @RequestParam String markType,
-            @RequestParam(required = false) String assignmentLabel,
-            @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+            @RequestParam(required = false) String assignmentLabel) {
         try {
             MarkType type = MarkType.valueOf(markType.toUpperCase().replace(" ", "_").replace("-", "_"));
             if (assignmentLabel == null || assignmentLabel.isBlank()) {
@@ -586,6 +642,7 @@ public class OBEController {
                     .filter(t -> assignmentLabel.equals(t.getAssignmentLabel()))
                     .forEach(t -> assessmentTemplateRepo.delete(t));
             }
+            eventPublisher.publishEvent(MarksChangedEvent.forModule(moduleId, batch));
             return ResponseEntity.ok(Map.of("message", "Assignment marks deleted", "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -595,14 +652,14 @@ public class OBEController {
 
     // --- MARKS: Delete all marks for a module+batch+markType ---
     @DeleteMapping("/marks/module/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
     public ResponseEntity<?> deleteMarksBatch(
             @PathVariable String moduleId,
             @RequestParam String batch,
-            @RequestParam String markType,
-            @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+            @RequestParam String markType) {
         try {
             markRepo().deleteByModuleIdAndBatchAndMarkType(moduleId, batch, MarkType.valueOf(markType.toUpperCase().replace(" ", "_").replace("-", "_")));
+            eventPublisher.publishEvent(MarksChangedEvent.forModule(moduleId, batch));
             return ResponseEntity.ok(Map.of("message", "Marks deleted", "status", "SUCCESS"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -612,21 +669,25 @@ public class OBEController {
 
     // --- MARKS: Download existing marks for a module+batch+markType as Excel ---
     @GetMapping("/marks/export/module/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
     public ResponseEntity<?> exportBatchMarks(
             @PathVariable String moduleId,
             @RequestParam String batch,
             @RequestParam String markType,
             @RequestParam(defaultValue = "50") int threshold,
-            @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+            @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
             List<String> losIds = markRepo().findLoIdsByModuleIdAndBatchAndMarkType(moduleId, batch, MarkType.valueOf(markType.toUpperCase()));
             if (losIds.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(Map.of("message", "No marks found for this batch/markType", "status", "ERROR"));
+            String fileName = "marks_" + moduleId + "_batch" + batch + "_" + markType.toLowerCase() + ".xlsx";
+            if (stream) {
+                return streamXlsx(fileName, out -> excelExportService.writeMarksExcel(losIds, markType, batch, threshold, out));
+            }
             byte[] bytes = excelExportService.generateMarksExcel(losIds, markType, batch, threshold);
             return ResponseEntity.ok()
                 .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                .header("Content-Disposition", "attachment; filename=\"marks_" + moduleId + "_batch" + batch + "_" + markType.toLowerCase() + ".xlsx\"")
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
                 .body(bytes);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -636,8 +697,8 @@ public class OBEController {
 
     // --- MARKS: List available marks for a single LO ---
     @GetMapping("/marks/available/lo/{loId}")
-    public ResponseEntity<?> getAvailableMarksForLo(@PathVariable String loId, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Lecture only");
+    @RequiresRole(value = Role.LECTURE, message = "Lecture only")
+    public ResponseEntity<?> getAvailableMarksForLo(@PathVariable String loId) {
         try {
             List<Object[]> raw = markRepo().findMarksSummaryByLosId(loId);
             List<Map<String, Object>> result = new ArrayList<>();
@@ -662,12 +723,8 @@ public class OBEController {
 
     // --- PO ATTAINMENT: Calculate per-student PO credits based on LO pass/fail ---
     @PostMapping("/po-attainment")
-    public ResponseEntity<?> getStudentPOAttainment(@RequestBody Map<String, Object> request, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can view PO attainment", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can view PO attainment")
+    public ResponseEntity<?> getStudentPOAttainment(@RequestBody Map<String, Object> request) {
         try {
             @SuppressWarnings("unchecked")
             List<String> losIds = (List<String>) request.get("losIds");
@@ -735,12 +792,9 @@ public class OBEController {
 
     // --- EXPORT: Generate Excel with per-student PO attainment credits ---
     @PostMapping("/export/po-attainment")
-    public ResponseEntity<?> exportPOAttainment(@RequestBody Map<String, Object> request, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can export PO attainment", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can export PO attainment")
+    public ResponseEntity<?> exportPOAttainment(@RequestBody Map<String, Object> request,
+                                                @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
             @SuppressWarnings("unchecked")
             List<String> losIds = (List<String>) request.get("losIds");
@@ -793,12 +847,17 @@ public class OBEController {
             // Calculate PO credits
             Map<String, Object> attainmentData = poAttainmentService.calculateStudentPOCredits(losIds, markType, batch, threshold, maxMarksPerLoExport);
 
+            String fileName = "po_attainment_" + batch + "_" + markType.toLowerCase() + ".xlsx";
+            if (stream) {
+                return streamXlsx(fileName, out -> excelExportService.writePOAttainmentExcel(attainmentData, out));
+            }
+
             // Generate Excel
             byte[] excelBytes = excelExportService.generatePOAttainmentExcel(attainmentData);
 
             return ResponseEntity.ok()
                 .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                .header("Content-Disposition", "attachment; filename=\"po_attainment_" + batch + "_" + markType.toLowerCase() + ".xlsx\"")
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
                 .body(excelBytes);
 
         } catch (Exception e) {
@@ -810,14 +869,10 @@ public class OBEController {
 
     // --- TEMPLATE: Generate question-wise Excel template for mark entry ---
     @PostMapping("/template/marks-question-wise")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can generate templates")
     public ResponseEntity<?> generateQuestionMarkTemplate(@RequestParam(value = "templateId", required = false) String templateId,
                                                           @RequestBody(required = false) Map<String, Object> request,
-                                                          @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can generate templates", "status", "ERROR"));
-        }
-
+                                                          @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
             Integer numberOfQuestions = null;
             List<Map<String, Object>> questionMappings = new ArrayList<>();
@@ -884,6 +939,7 @@ public class OBEController {
             assessmentTemplateRepo.save(tmpl);
 
             if (!questionMappings.isEmpty()) {
+                Set<String> itemLoIds = new LinkedHashSet<>();
                 int qIdx = 0;
                 for (Map<String, Object> mapping : questionMappings) {
                     qIdx++;
@@ -907,13 +963,25 @@ public class OBEController {
                     item.setLos(lo);
                     item.setAssessmentTemplate(tmpl);
                     assessmentItemRepo.save(item);
+                    itemLoIds.add(lo.getId());
+                }
+                if (!itemLoIds.isEmpty()) {
+                    eventPublisher.publishEvent(OutcomesChangedEvent.forLos(itemLoIds));
                 }
             }
 
-            byte[] templateBytes = excelExportService.generateQuestionMarkTemplate(generatedTemplateId, numberOfQuestions, questionMappings, batch, markType, assignmentLabel);
-
             String fname = "question_mark_template_" + (batch != null ? batch : "batch")
                 + (assignmentLabel != null ? "_" + assignmentLabel.replaceAll("[^a-zA-Z0-9]", "_") : "") + ".xlsx";
+            if (stream) {
+                Integer questionCount = numberOfQuestions;
+                String templateBatch = batch;
+                String templateMarkType = markType;
+                String templateLabel = assignmentLabel;
+                return streamXlsx(fname, out -> excelExportService.writeQuestionMarkTemplate(generatedTemplateId, questionCount,
+                    questionMappings, templateBatch, templateMarkType, templateLabel, out));
+            }
+
+            byte[] templateBytes = excelExportService.generateQuestionMarkTemplate(generatedTemplateId, numberOfQuestions, questionMappings, batch, markType, assignmentLabel);
             return ResponseEntity.ok()
                 .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
                 .header("Content-Disposition", "attachment; filename=\"" + fname + "\"")
@@ -931,13 +999,8 @@ public class OBEController {
 
     // --- REPORT: LO attainment with configurable thresholds (per-LO or per-item) ---
     @PostMapping("/attainment/lo")
-    public ResponseEntity<?> getLoAttainment(@RequestBody Map<String, Object> request,
-                                             @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can view LO attainment", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can view LO attainment")
+    public ResponseEntity<?> getLoAttainment(@RequestBody Map<String, Object> request) {
         try {
             @SuppressWarnings("unchecked")
             List<String> loIds = (List<String>) request.get("loIds");
@@ -987,6 +1050,34 @@ public class OBEController {
                 }
             }
 
+            // A batch at the default threshold is answered from the attainment snapshots, which
+            // normalize the batch's StudentMark totals; custom thresholds and templates need the live
+            // per-question calculation, which spans every batch, so the two can report different numbers
+            String batch = request.get("batch") != null ? request.get("batch").toString().trim() : null;
+            if (batch != null && !batch.isEmpty()) {
+                if ((templateId != null && !templateId.isEmpty()) || !loThresholds.isEmpty() || !itemThresholds.isEmpty()
+                        || defaultThreshold != AttainmentSnapshotService.DEFAULT_THRESHOLD || loIds == null) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", "batch can only be combined with loIds and the default threshold", "status", "ERROR"));
+                }
+                String markType = request.get("markType") != null ? request.get("markType").toString().trim() : "FINAL_EXAM";
+                MarkType type;
+                try {
+                    type = MarkType.valueOf(markType.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", "Error: Invalid markType. Must be FINAL_EXAM or ASSIGNMENT", "status", "ERROR"));
+                }
+                List<String> requestedLoIds = loIds.stream()
+                    .filter(Objects::nonNull)
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .distinct()
+                    .toList();
+                Map<String, Object> result = snapshotService.getLoAttainment(requestedLoIds, batch, type);
+                return ResponseEntity.ok(Map.of("message", "LO attainment calculated", "data", result, "status", "SUCCESS"));
+            }
+
             Map<String, Object> result = attainmentService.getLoAttainmentMetrics(loIds, templateId, defaultThreshold, loThresholds, itemThresholds);
             return ResponseEntity.ok(Map.of("message", "LO attainment calculated", "data", result, "status", "SUCCESS"));
 
@@ -1001,12 +1092,9 @@ public class OBEController {
 
     // --- EXPORT: Generate marks report with per-LO thresholds ---
     @PostMapping("/export/marks-per-lo-threshold")
-    public ResponseEntity<?> exportMarksWithPerLoThreshold(@RequestBody Map<String, Object> request, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can export marks", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can export marks")
+    public ResponseEntity<?> exportMarksWithPerLoThreshold(@RequestBody Map<String, Object> request,
+                                                           @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
             @SuppressWarnings("unchecked")
             List<String> losIds = (List<String>) request.get("losIds");
@@ -1059,12 +1147,19 @@ public class OBEController {
                 }
             }
 
+            String fileName = "marks_report_per_lo_" + batch + "_" + markType.toLowerCase() + ".xlsx";
+            if (stream) {
+                List<String> exportLoIds = losIds;
+                Map<String, Integer> exportThresholds = loThresholds;
+                return streamXlsx(fileName, out -> excelExportService.writeMarksExcelWithPerLoThreshold(exportLoIds, markType, batch, exportThresholds, out));
+            }
+
             // Generate Excel with per-LO thresholds
             byte[] excelBytes = excelExportService.generateMarksExcelWithPerLoThreshold(losIds, markType, batch, loThresholds);
 
             return ResponseEntity.ok()
                 .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                .header("Content-Disposition", "attachment; filename=\"marks_report_per_lo_" + batch + "_" + markType.toLowerCase() + ".xlsx\"")
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
                 .body(excelBytes);
 
         } catch (Exception e) {
@@ -1080,12 +1175,8 @@ public class OBEController {
 
     // --- REPORT: Overall PO Attainment with Benchmark ---
     @PostMapping("/po-attainment/overall")
-    public ResponseEntity<?> getOverallPOAttainment(@RequestBody Map<String, Object> request, @RequestHeader("Authorization") String token) {
-        if (!isLecture(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Lecturers/Admins can view PO attainment", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can view PO attainment")
+    public ResponseEntity<?> getOverallPOAttainment(@RequestBody Map<String, Object> request) {
         try {
             String batch = request.get("batch") != null ? request.get("batch").toString().trim() : null;
             String markType = request.get("markType") != null ? request.get("markType").toString().trim() : "FINAL_EXAM";
@@ -1106,31 +1197,67 @@ public class OBEController {
         }
     }
 
-    // Helper RBAC
-    private boolean isAdmin(String token) {
+    // --- REPORT: Precomputed LO attainment snapshots for a module/batch/markType ---
+    @GetMapping("/snapshots/lo/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can view attainment")
+    public ResponseEntity<?> getLoSnapshots(@PathVariable String moduleId,
+                                            @RequestParam String batch,
+                                            @RequestParam(defaultValue = "FINAL_EXAM") String markType) {
         try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && (role.equals("admin") || role.equals("superadmin"));
-        } catch (Exception e) {
-            return false;
+            MarkType type = MarkType.valueOf(markType.trim().toUpperCase());
+            List<LoAttainmentSnapshot> data = snapshotService.getLoSnapshots(moduleId, batch.trim(), type);
+            return ResponseEntity.ok(Map.of("message", "LO attainment snapshots", "data", data, "count", data.size(), "status", "SUCCESS"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("message", "Error: Invalid markType. Must be FINAL_EXAM or ASSIGNMENT", "status", "ERROR"));
         }
     }
-    private boolean isLecture(String token) {
+
+    // --- REPORT: Precomputed PO attainment snapshots for a module/batch/markType ---
+    @GetMapping("/snapshots/po/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can view attainment")
+    public ResponseEntity<?> getPoSnapshots(@PathVariable String moduleId,
+                                            @RequestParam String batch,
+                                            @RequestParam(defaultValue = "FINAL_EXAM") String markType) {
         try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && (role.equals("lecture") || role.equals("admin") || role.equals("superadmin"));
+            MarkType type = MarkType.valueOf(markType.trim().toUpperCase());
+            List<PoAttainmentSnapshot> data = snapshotService.getPoSnapshots(moduleId, batch.trim(), type);
+            return ResponseEntity.ok(Map.of("message", "PO attainment snapshots", "data", data, "count", data.size(), "status", "SUCCESS"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("message", "Error: Invalid markType. Must be FINAL_EXAM or ASSIGNMENT", "status", "ERROR"));
+        }
+    }
+
+    // --- REPORT: Rebuild a module's snapshots for one batch (backfill for marks uploaded earlier) ---
+    @PostMapping("/snapshots/rebuild/{moduleId}")
+    @RequiresRole(value = Role.LECTURE, message = "Access Denied: Only Lecturers/Admins can rebuild attainment")
+    public ResponseEntity<?> rebuildSnapshots(@PathVariable String moduleId,
+                                              @RequestParam String batch) {
+        try {
+            snapshotService.rebuild(moduleId, batch.trim());
+            return ResponseEntity.ok(Map.of("message", "Attainment snapshots rebuilt", "moduleId", moduleId, "batch", batch.trim(), "status", "SUCCESS"));
         } catch (Exception e) {
-            return false;
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("message", "Failed to rebuild snapshots: " + e.getMessage(), "status", "ERROR"));
         }
     }
+
+    // --- ADMIN: PO attainment cache counters ---
+    @GetMapping("/cache/attainment")
+    @RequiresRole(value = Role.ADMIN, message = "Admin only")
+    public ResponseEntity<?> getAttainmentCacheStats() {
+        return ResponseEntity.ok(Map.of("message", "Attainment cache statistics", "data", attainmentCache.getStats(), "status", "SUCCESS"));
+    }
+
+    // ?stream=true exports: the workbook is written straight to the response (see
+    // StreamingResponseBodyConverter) instead of being built into a byte[] first. Errors after the
+    // first byte can no longer become a JSON 400, so all request validation happens before this is returned.
+    private ResponseEntity<StreamingResponseBody> streamXlsx(String fileName, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+            .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+            .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+            .body(body);
+    }
+
 }
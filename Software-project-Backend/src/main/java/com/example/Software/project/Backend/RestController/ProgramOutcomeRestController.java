@@ -1,7 +1,9 @@
 package com.example.Software.project.Backend.RestController;
 
 import com.example.Software.project.Backend.Model.ProgramOutcome;
-import com.example.Software.project.Backend.Security.JwtUtil;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Service.ProgramOutcomeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -21,21 +23,6 @@ public class ProgramOutcomeRestController {
     @Autowired
     private ProgramOutcomeService poService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    // Helper method to validate admin access
-    private boolean isAdmin(String token) {
-        try {
-            if (token == null || !token.startsWith("Bearer ")) return false;
-            String jwt = token.substring(7);
-            String userRole = jwtUtil.extractRole(jwt);
-            return "admin".equalsIgnoreCase(userRole) || "superadmin".equalsIgnoreCase(userRole);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     // Helper method to create error response
     private Map<String, Object> createErrorResponse(String message) {
         Map<String, Object> response = new HashMap<>();
@@ -57,16 +44,11 @@ public class ProgramOutcomeRestController {
 
     // Create new PO (Admin only)
     @PostMapping("/create")
-    public ResponseEntity<?> createPO(@RequestBody ProgramOutcome po, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> createPO(@RequestBody ProgramOutcome po, AuthContext auth) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
-            // Set created by from token
-            String jwt = token.substring(7);
-            String username = jwtUtil.extractUsername(jwt);
-            po.setCreatedBy(username);
+            // Set created by from the authenticated user
+            po.setCreatedBy(auth.getUsername());
             
             ProgramOutcome createdPO = poService.createPO(po);
             return ResponseEntity.ok(createSuccessResponse("Program Outcome created successfully", createdPO));
@@ -79,12 +61,9 @@ public class ProgramOutcomeRestController {
 
     // Update PO (Admin only)
     @PutMapping("/{poId}")
-    public ResponseEntity<?> updatePO(@PathVariable String poId, @RequestBody ProgramOutcome poDetails, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> updatePO(@PathVariable String poId, @RequestBody ProgramOutcome poDetails) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             ProgramOutcome updatedPO = poService.updatePO(poId, poDetails);
             return ResponseEntity.ok(createSuccessResponse("Program Outcome updated successfully", updatedPO));
         } catch (IllegalArgumentException e) {
@@ -98,12 +77,9 @@ public class ProgramOutcomeRestController {
 
     // Soft delete PO (Admin only)
     @DeleteMapping("/{poId}")
-    public ResponseEntity<?> deletePO(@PathVariable String poId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> deletePO(@PathVariable String poId) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             poService.softDeletePO(poId);
             return ResponseEntity.ok(createSuccessResponse("Program Outcome deactivated successfully", null));
         } catch (IllegalArgumentException e) {
@@ -117,12 +93,9 @@ public class ProgramOutcomeRestController {
 
     // Hard delete PO (Admin only)
     @DeleteMapping("/{poId}/permanent")
-    public ResponseEntity<?> hardDeletePO(@PathVariable String poId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> hardDeletePO(@PathVariable String poId) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             poService.hardDeletePO(poId);
             return ResponseEntity.ok(createSuccessResponse("Program Outcome permanently deleted", null));
         } catch (IllegalArgumentException e) {
@@ -136,12 +109,9 @@ public class ProgramOutcomeRestController {
 
     // Restore PO (Admin only)
     @PutMapping("/{poId}/restore")
-    public ResponseEntity<?> restorePO(@PathVariable String poId, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> restorePO(@PathVariable String poId) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             ProgramOutcome restoredPO = poService.restorePO(poId);
             return ResponseEntity.ok(createSuccessResponse("Program Outcome restored successfully", restoredPO));
         } catch (RuntimeException e) {
@@ -153,12 +123,9 @@ public class ProgramOutcomeRestController {
 
     // Initialize default POs (Admin only)
     @PostMapping("/initialize-defaults")
-    public ResponseEntity<?> initializeDefaultPOs(@RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> initializeDefaultPOs() {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             poService.initializeDefaultPOs();
             List<ProgramOutcome> defaultPOs = poService.getDefaultPOs();
             return ResponseEntity.ok(createSuccessResponse("Default Washington Accord Program Outcomes initialized successfully", defaultPOs));
@@ -169,12 +136,9 @@ public class ProgramOutcomeRestController {
 
     // Reorder POs (Admin only)
     @PutMapping("/reorder")
-    public ResponseEntity<?> reorderPOs(@RequestBody List<String> poIds, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> reorderPOs(@RequestBody List<String> poIds) {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             poService.reorderPOs(poIds);
             return ResponseEntity.ok(createSuccessResponse("Program Outcomes reordered successfully", null));
         } catch (Exception e) {
@@ -197,12 +161,9 @@ public class ProgramOutcomeRestController {
 
     // Get all POs including inactive (Admin only)
     @GetMapping("/all-including-inactive")
-    public ResponseEntity<?> getAllPOs(@RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access denied. Admin privileges required.")
+    public ResponseEntity<?> getAllPOs() {
         try {
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(createErrorResponse("Access denied. Admin privileges required."));
-            }
-            
             List<ProgramOutcome> pos = poService.getAllPOs();
             return ResponseEntity.ok(createSuccessResponse("All Program Outcomes retrieved successfully", pos));
         } catch (Exception e) {
@@ -0,0 +1,55 @@
+package com.example.Software.project.Backend.RestController;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a StreamingResponseBody returned inside a ResponseEntity<?>.
+ *
+ * Spring only hands a streaming body to its async handler when the declared return type is
+ * ResponseEntity<StreamingResponseBody>. The controllers here declare ResponseEntity<?> so the
+ * same method can also answer with a JSON error, and without this converter those bodies fail
+ * with "no converter". The body is written straight to the response output on the request
+ * thread, so nothing is buffered. Spring Boot registers HttpMessageConverter beans ahead of the
+ * defaults.
+ */
+@Component
+public class StreamingResponseBodyConverter implements HttpMessageConverter<StreamingResponseBody> {
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return StreamingResponseBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.of(MediaType.ALL);
+    }
+
+    @Override
+    public StreamingResponseBody read(Class<? extends StreamingResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamingResponseBody is write-only", inputMessage);
+    }
+
+    @Override
+    public void write(StreamingResponseBody body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        if (contentType != null && outputMessage.getHeaders().getContentType() == null) {
+            outputMessage.getHeaders().setContentType(contentType);
+        }
+        body.writeTo(outputMessage.getBody());
+        outputMessage.getBody().flush();
+    }
+}
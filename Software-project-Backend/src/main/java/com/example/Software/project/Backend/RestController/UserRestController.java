@@ -1,6 +1,9 @@
 package com.example.Software.project.Backend.RestController;
 
 import com.example.Software.project.Backend.Model.User;
+import com.example.Software.project.Backend.Security.AuthContext;
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.example.Software.project.Backend.Security.RequiresRole;
 import com.example.Software.project.Backend.Security.JwtUtil;
 import com.example.Software.project.Backend.Service.ModuleService;
 import com.example.Software.project.Backend.Service.UserService;
@@ -10,7 +13,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
@@ -99,23 +101,17 @@ public class UserRestController {
     }
 
     @PostMapping("/add-admin")
-    public ResponseEntity<?> addAdmin(@RequestBody User newUser, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.SUPERADMIN, message = "Access Denied: Only Superadmin can add admins")
+    public ResponseEntity<?> addAdmin(@RequestBody User newUser, AuthContext auth) {
         try {
-            // Only superadmin can add admins
-            if (!isSuperAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access Denied: Only Superadmin can add admins", "status", "ERROR"));
-            }
-
             // Ensure new user is being created as admin
             if (newUser.getUsertype() == null || !newUser.getUsertype().toLowerCase().equals("admin")) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Error: New user must be of type 'admin'", "status", "ERROR"));
             }
 
-            // Get the currently authenticated superadmin user
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String creatorUsername = authentication.getName();
+            // The currently authenticated superadmin user
+            String creatorUsername = auth.getUsername();
 
             User createdUser = userService.addUser(newUser, creatorUsername);
             Map<String, Object> response = new HashMap<>();
@@ -134,23 +130,17 @@ public class UserRestController {
     }
 
     @PostMapping("/add-lecture")
-    public ResponseEntity<?> addLecture(@RequestBody User newUser, @RequestHeader("Authorization") String token) {
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can add lecturers")
+    public ResponseEntity<?> addLecture(@RequestBody User newUser, AuthContext auth) {
         try {
-            // Only admin/superadmin can add lectures
-            if (!isAdmin(token)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("message", "Access Denied: Only Admin can add lecturers", "status", "ERROR"));
-            }
-
             // Ensure new user is being created as lecture
             if (newUser.getUsertype() == null || !newUser.getUsertype().toLowerCase().equals("lecture")) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Error: New user must be of type 'lecture'", "status", "ERROR"));
             }
 
-            // Get the currently authenticated admin user
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String creatorUsername = authentication.getName();
+            // The currently authenticated admin user
+            String creatorUsername = auth.getUsername();
 
             User createdUser = userService.addUser(newUser, creatorUsername);
             Map<String, Object> response = new HashMap<>();
@@ -170,17 +160,14 @@ public class UserRestController {
 
     // List lecturers, with their current module assignments, for admin CRUD + the module-assignment picker
     @GetMapping("/lecturers")
-    public ResponseEntity<?> getAllLecturers(@RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Admin can view lecturers", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can view lecturers")
+    public ResponseEntity<?> getAllLecturers() {
+        Map<String, List<String>> assignments = moduleService.getAssignedModuleIdsByLecturer();
         List<Map<String, Object>> lecturers = userService.findAllLecturers().stream()
             .map(u -> Map.of(
                 "username", u.getUserID(),
                 "email", u.getEmail(),
-                "assignedModuleIds", moduleService.getModuleIdsAssignedTo(u.getUserID())
+                "assignedModuleIds", assignments.getOrDefault(u.getUserID(), List.of())
             ))
             .collect(Collectors.toList());
 
@@ -193,12 +180,8 @@ public class UserRestController {
 
     // Update a lecturer's email/password (Admin/Superadmin only)
     @PutMapping("/lecturers/{username}")
-    public ResponseEntity<?> updateLecturer(@PathVariable String username, @RequestBody Map<String, String> body,
-                                             @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Admin can update lecturers", "status", "ERROR"));
-        }
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can update lecturers")
+    public ResponseEntity<?> updateLecturer(@PathVariable String username, @RequestBody Map<String, String> body) {
         try {
             User updated = userService.updateLecturer(username, body.get("email"), body.get("password"));
             return ResponseEntity.ok(Map.of(
@@ -213,11 +196,8 @@ public class UserRestController {
 
     // Delete a lecturer (Admin/Superadmin only)
     @DeleteMapping("/lecturers/{username}")
-    public ResponseEntity<?> deleteLecturer(@PathVariable String username, @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Admin can delete lecturers", "status", "ERROR"));
-        }
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can delete lecturers")
+    public ResponseEntity<?> deleteLecturer(@PathVariable String username) {
         try {
             userService.deleteLecturer(username);
             return ResponseEntity.ok(Map.of("message", "Lecturer deleted successfully", "status", "SUCCESS"));
@@ -229,12 +209,8 @@ public class UserRestController {
     // Set exactly which modules a lecturer is assigned to (Admin/Superadmin only) -
     // the reverse direction of PUT /api/modules/{id}'s assignedLecturerUsernames.
     @PutMapping("/lecturers/{username}/modules")
-    public ResponseEntity<?> setLecturerModules(@PathVariable String username, @RequestBody Map<String, List<String>> body,
-                                                 @RequestHeader("Authorization") String token) {
-        if (!isAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Admin can assign modules", "status", "ERROR"));
-        }
+    @RequiresRole(value = Role.ADMIN, message = "Access Denied: Only Admin can assign modules")
+    public ResponseEntity<?> setLecturerModules(@PathVariable String username, @RequestBody Map<String, List<String>> body) {
         try {
             moduleService.setModulesForLecturer(username, body.get("moduleIds"));
             return ResponseEntity.ok(Map.of(
@@ -249,12 +225,8 @@ public class UserRestController {
 
     // List admins, for the superadmin's Manage Admins page (Superadmin only)
     @GetMapping("/admins")
-    public ResponseEntity<?> getAllAdmins(@RequestHeader("Authorization") String token) {
-        if (!isSuperAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Superadmin can view admins", "status", "ERROR"));
-        }
-
+    @RequiresRole(value = Role.SUPERADMIN, message = "Access Denied: Only Superadmin can view admins")
+    public ResponseEntity<?> getAllAdmins() {
         List<Map<String, Object>> admins = userService.findAllAdmins().stream()
             .map(u -> Map.<String, Object>of(
                 "username", u.getUserID(),
@@ -271,12 +243,8 @@ public class UserRestController {
 
     // Update an admin's email/password (Superadmin only)
     @PutMapping("/admins/{username}")
-    public ResponseEntity<?> updateAdmin(@PathVariable String username, @RequestBody Map<String, String> body,
-                                          @RequestHeader("Authorization") String token) {
-        if (!isSuperAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Superadmin can update admins", "status", "ERROR"));
-        }
+    @RequiresRole(value = Role.SUPERADMIN, message = "Access Denied: Only Superadmin can update admins")
+    public ResponseEntity<?> updateAdmin(@PathVariable String username, @RequestBody Map<String, String> body) {
         try {
             User updated = userService.updateAdmin(username, body.get("email"), body.get("password"));
             return ResponseEntity.ok(Map.of(
@@ -291,11 +259,8 @@ public class UserRestController {
 
     // Delete an admin (Superadmin only)
     @DeleteMapping("/admins/{username}")
-    public ResponseEntity<?> deleteAdmin(@PathVariable String username, @RequestHeader("Authorization") String token) {
-        if (!isSuperAdmin(token)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(Map.of("message", "Access Denied: Only Superadmin can delete admins", "status", "ERROR"));
-        }
+    @RequiresRole(value = Role.SUPERADMIN, message = "Access Denied: Only Superadmin can delete admins")
+    public ResponseEntity<?> deleteAdmin(@PathVariable String username) {
         try {
             userService.deleteAdmin(username);
             return ResponseEntity.ok(Map.of("message", "Admin deleted successfully", "status", "SUCCESS"));
@@ -305,16 +270,16 @@ public class UserRestController {
     }
 
     @PostMapping("/add-user")
-    public ResponseEntity<?> addUser(@RequestBody User newUser, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> addUser(@RequestBody User newUser, AuthContext auth) {
         try {
             String requestedType = newUser.getUsertype() == null ? "" : newUser.getUsertype().toLowerCase().trim();
 
-            if ("admin".equals(requestedType) && !isSuperAdmin(token)) {
+            if ("admin".equals(requestedType) && !auth.isSuperAdmin()) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("message", "Access Denied: Only Superadmin can add admins", "status", "ERROR"));
             }
 
-            if ("lecture".equals(requestedType) && !isAdmin(token)) {
+            if ("lecture".equals(requestedType) && !auth.isAdmin()) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("message", "Access Denied: Only Admin can add lecturers", "status", "ERROR"));
             }
@@ -324,9 +289,8 @@ public class UserRestController {
                     .body(Map.of("message", "Error: userType must be 'admin' or 'lecture'", "status", "ERROR"));
             }
 
-            // Get the currently authenticated user from the SecurityContext
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String creatorUsername = authentication.getName(); // This is the username from the JWT
+            // The currently authenticated user, resolved once per request from the JWT
+            String creatorUsername = auth.getUsername();
 
             User createdUser = userService.addUser(newUser, creatorUsername);
             Map<String, Object> response = new HashMap<>();
@@ -384,32 +348,4 @@ public class UserRestController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         }
     }
-
-    private boolean isSuperAdmin(String token) {
-        try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && role.equals("superadmin");
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private boolean isAdmin(String token) {
-        try {
-            String bearerToken = token;
-            if (token != null && token.startsWith("Bearer ")) {
-                bearerToken = token.substring(7);
-            }
-            String role = jwtUtil.extractRole(bearerToken);
-            role = role == null ? null : role.trim().toLowerCase();
-            return role != null && ("admin".equals(role) || "superadmin".equals(role));
-        } catch (Exception e) {
-            return false;
-        }
-    }
 }
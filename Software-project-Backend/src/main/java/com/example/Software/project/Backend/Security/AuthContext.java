@@ -0,0 +1,88 @@
+package com.example.Software.project.Backend.Security;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Who is making the current request: username, normalized role and, on first use, the ids of
+ * the modules the user is assigned to as a lecturer.
+ *
+ * Resolved once per request by AuthorizationInterceptor (from the principal JwtRequestFilter
+ * authenticated, so the token is not parsed again) and handed to controllers as a handler
+ * argument. @RequiresRole checks run against it before the handler is invoked.
+ */
+public final class AuthContext {
+
+    // Each role includes the ones before it: admins pass lecturer checks, superadmins pass both
+    public enum Role { LECTURE, ADMIN, SUPERADMIN }
+
+    static final String ATTRIBUTE = AuthContext.class.getName();
+
+    private static final AuthContext ANONYMOUS = new AuthContext(null, null, null);
+
+    private final String username;
+    private final String role;
+    private final Function<String, ? extends Collection<String>> moduleLookup;
+    private Set<String> assignedModuleIds;
+
+    AuthContext(String username, String role, Function<String, ? extends Collection<String>> moduleLookup) {
+        this.username = username;
+        this.role = normalizeRole(role);
+        this.moduleLookup = moduleLookup;
+    }
+
+    static AuthContext anonymous() {
+        return ANONYMOUS;
+    }
+
+    public String getUsername() { return username; }
+
+    /** "lecture", "admin", "superadmin", another stored usertype, or null when unauthenticated. */
+    public String getRole() { return role; }
+
+    public boolean isAuthenticated() {
+        return role != null;
+    }
+
+    public boolean isSuperAdmin() {
+        return "superadmin".equals(role);
+    }
+
+    public boolean isAdmin() {
+        return "admin".equals(role) || isSuperAdmin();
+    }
+
+    public boolean isLecture() {
+        return "lecture".equals(role) || isAdmin();
+    }
+
+    public boolean has(Role required) {
+        return switch (required) {
+            case LECTURE -> isLecture();
+            case ADMIN -> isAdmin();
+            case SUPERADMIN -> isSuperAdmin();
+        };
+    }
+
+    /** Modules this user is explicitly assigned to; loaded on first call, then reused for the request. */
+    public synchronized Set<String> getAssignedModuleIds() {
+        if (assignedModuleIds == null) {
+            assignedModuleIds = username == null || moduleLookup == null
+                    ? Set.of() : Set.copyOf(moduleLookup.apply(username));
+        }
+        return assignedModuleIds;
+    }
+
+    public boolean isAssignedTo(String moduleId) {
+        return getAssignedModuleIds().contains(moduleId);
+    }
+
+    // Accepts the spellings the controllers used to: "Lecturer", "Super Admin", "super-admin"...
+    static String normalizeRole(String role) {
+        if (role == null) return null;
+        String normalized = role.trim().toLowerCase().replace("-", "").replace(" ", "");
+        if (normalized.isEmpty()) return null;
+        return "lecturer".equals(normalized) ? "lecture" : normalized;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.Software.project.Backend.Security;
+
+import com.example.Software.project.Backend.Service.ModuleService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Registers AuthorizationInterceptor for @RequiresRole checks and AuthContext handler arguments
+@Configuration
+public class AuthorizationConfig implements WebMvcConfigurer {
+
+    // Looked up lazily: only needed once a handler asks for the user's assigned modules
+    @Autowired
+    private ObjectProvider<ModuleService> moduleService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private AuthorizationInterceptor interceptor;
+
+    private AuthorizationInterceptor interceptor() {
+        if (interceptor == null) {
+            interceptor = new AuthorizationInterceptor(
+                    username -> moduleService.getObject().getModuleIdsAssignedTo(username), objectMapper);
+        }
+        return interceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor());
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(interceptor());
+    }
+}
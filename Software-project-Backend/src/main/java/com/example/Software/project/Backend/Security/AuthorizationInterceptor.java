@@ -0,0 +1,82 @@
+package com.example.Software.project.Backend.Security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resolves the request's AuthContext once, enforces @RequiresRole, and injects the context
+ * into handler methods that declare an AuthContext parameter.
+ *
+ * The user comes only from the principal JwtRequestFilter put in the SecurityContext. No
+ * principal (missing, invalid, expired or revoked token) means an anonymous context, also on the
+ * permitAll /api/auth/** endpoints; the header is never parsed here, so a revoked token cannot
+ * pass a role check.
+ */
+public class AuthorizationInterceptor implements HandlerInterceptor, HandlerMethodArgumentResolver {
+
+    private final Function<String, ? extends Collection<String>> moduleLookup;
+    private final ObjectMapper objectMapper;
+
+    public AuthorizationInterceptor(Function<String, ? extends Collection<String>> moduleLookup, ObjectMapper objectMapper) {
+        this.moduleLookup = moduleLookup;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod method)) return true;
+
+        RequiresRole required = method.getMethodAnnotation(RequiresRole.class);
+        if (required == null) required = method.getBeanType().getAnnotation(RequiresRole.class);
+        if (required == null || resolve(request).has(required.value())) return true;
+
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", required.message(), "status", "ERROR"));
+        return false;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthContext.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        return resolve(webRequest.getNativeRequest(HttpServletRequest.class));
+    }
+
+    AuthContext resolve(HttpServletRequest request) {
+        if (request.getAttribute(AuthContext.ATTRIBUTE) instanceof AuthContext context) return context;
+        AuthContext context = fromPrincipal();
+        if (context == null) context = AuthContext.anonymous();
+        request.setAttribute(AuthContext.ATTRIBUTE, context);
+        return context;
+    }
+
+    private AuthContext fromPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails user)) return null;
+        String role = user.getAuthorities().stream().map(GrantedAuthority::getAuthority).findFirst().orElse(null);
+        return new AuthContext(user.getUsername(), role, moduleLookup);
+    }
+}
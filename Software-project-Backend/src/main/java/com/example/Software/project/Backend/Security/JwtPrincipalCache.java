@@ -0,0 +1,76 @@
+package com.example.Software.project.Backend.Security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.*;
+
+/**
+ * Principals of recently verified tokens, plus the revocation list that overrides them.
+ *
+ * Entries are keyed by the raw token string, so a hit stands for a signature that was already
+ * checked; they are LRU-bounded and expire after the TTL or with the token, whichever is first.
+ * Revoking a username rejects every token issued for it before the revocation instant (both in
+ * milliseconds, see JwtUtil.issuedAt), whether cached or not, while a token issued right after it
+ * is accepted. Revocations are only kept for the token lifetime, after which
+ * the tokens they cover have expired anyway.
+ */
+public class JwtPrincipalCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // username -> epoch millisecond of the last revocation
+    private final Map<String, Long> revokedAt = new HashMap<>();
+
+    private record Entry(UserDetails principal, long issuedAtMillis, long expiresAtMillis) { }
+
+    public JwtPrincipalCache(int maxEntries, long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /** Cached principal for the token, or null on a miss, after expiry or once revoked. */
+    public synchronized UserDetails get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) return null;
+        if (entry.expiresAtMillis <= System.currentTimeMillis()
+                || isRevoked(entry.principal.getUsername(), entry.issuedAtMillis)) {
+            entries.remove(token);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    public synchronized void put(String token, UserDetails principal, Date issuedAt, Date expiration) {
+        if (maxEntries <= 0) return;
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, expiration.getTime());
+        entries.put(token, new Entry(principal, issuedAt.getTime(), expiresAt));
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /** Rejects every token issued for this user so far, and drops its cached principals. */
+    public synchronized void revoke(String username) {
+        long now = System.currentTimeMillis();
+        revokedAt.put(username, now);
+        revokedAt.values().removeIf(revoked -> revoked + JwtUtil.TOKEN_VALIDITY_MS < now);
+        entries.values().removeIf(entry -> entry.principal.getUsername().equals(username));
+    }
+
+    public synchronized boolean isRevoked(String username, Date issuedAt) {
+        return issuedAt != null && isRevoked(username, issuedAt.getTime());
+    }
+
+    private boolean isRevoked(String username, long issuedAtMillis) {
+        Long revoked = revokedAt.get(username);
+        return revoked != null && issuedAtMillis < revoked;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
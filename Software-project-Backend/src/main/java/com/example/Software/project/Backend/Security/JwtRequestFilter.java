@@ -1,13 +1,19 @@
 package com.example.Software.project.Backend.Security;
 
-import com.example.Software.project.Backend.Service.UserService;
+import com.example.Software.project.Backend.Service.UserChangedEvent;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -15,7 +21,19 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
 
+/**
+ * Authenticates requests from their Bearer token.
+ *
+ * In stateless mode (jwt.stateless=true, the default) the principal is built from the signed
+ * username and usertype claims, so no user lookup happens per request, and verified tokens are
+ * remembered in a JwtPrincipalCache so a repeat request skips even the signature check. Users
+ * whose password changes or who are deleted are revoked there (UserChangedEvent), which rejects
+ * their outstanding tokens. Tokens issued without a usertype claim, and every token when
+ * stateless mode is off, still load the user through UserDetailsService.
+ */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
@@ -25,6 +43,27 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Value("${jwt.stateless:true}")
+    private boolean stateless = true;
+
+    @Value("${jwt.principal-cache.max-entries:10000}")
+    private int cacheMaxEntries = 10000;
+
+    @Value("${jwt.principal-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds = 300;
+
+    private JwtPrincipalCache principalCache;
+
+    @PostConstruct
+    public void init() {
+        principalCache = new JwtPrincipalCache(cacheMaxEntries, cacheTtlSeconds);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        principalCache.revoke(event.getUsername());
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
@@ -38,23 +77,16 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
         String jwt = null;
-
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
-            try {
-                username = jwtUtil.extractUsername(jwt);
-            } catch (Exception e) {
-                // Token invalid or expired
-            }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (jwt != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = authenticate(jwt);
 
-            if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+            if (userDetails != null) {
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -65,4 +97,37 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // Principal for a valid, unrevoked token; null otherwise
+    private UserDetails authenticate(String jwt) {
+        if (stateless) {
+            UserDetails cached = principalCache.get(jwt);
+            if (cached != null) return cached;
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.parseToken(jwt);
+        } catch (Exception e) {
+            // Token invalid or expired
+            return null;
+        }
+        String username = claims.getSubject();
+        Date issuedAt = JwtUtil.issuedAt(claims);
+        if (username == null || principalCache.isRevoked(username, issuedAt)) {
+            return null;
+        }
+
+        String usertype = claims.get(JwtUtil.USERTYPE_CLAIM, String.class);
+        if (!stateless || usertype == null) {
+            return userDetailsService.loadUserByUsername(username);
+        }
+
+        UserDetails principal = new User(username, "",
+                Collections.singletonList(new SimpleGrantedAuthority(usertype)));
+        if (issuedAt != null && claims.getExpiration() != null) {
+            principalCache.put(jwt, principal, issuedAt, claims.getExpiration());
+        }
+        return principal;
+    }
+}
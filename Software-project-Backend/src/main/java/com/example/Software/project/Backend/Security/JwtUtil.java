@@ -17,6 +17,15 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    public static final long TOKEN_VALIDITY_MS = 1000 * 60 * 60 * 2; // 2 hours
+
+    // Signed into every token so JwtRequestFilter can build the principal without a user lookup
+    public static final String USERTYPE_CLAIM = "usertype";
+
+    // The standard iat claim only has one-second resolution; revocation checks need the exact
+    // issue time, so a token issued right after a revocation in the same second stays valid
+    public static final String ISSUED_AT_MS_CLAIM = "iat_ms";
+
     private final Key secretKey;
 
     public JwtUtil(@Value("${jwt.secret}") String jwtSecret) {
@@ -40,6 +49,14 @@ public class JwtUtil {
         return Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token).getBody();
     }
 
+    /**
+     * Verifies the signature and expiry and returns the claims.
+     * Throws a JwtException for a tampered, malformed or expired token.
+     */
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
+    }
+
     private Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
     }
@@ -47,15 +64,27 @@ public class JwtUtil {
     public String generateToken(String username, String role) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
+        claims.put(USERTYPE_CLAIM, role);
         return createToken(claims, username);
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 2)) // 2 hours
+        long now = System.currentTimeMillis();
+        claims.put(ISSUED_AT_MS_CLAIM, now);
+        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + TOKEN_VALIDITY_MS))
                 .signWith(secretKey, SignatureAlgorithm.HS256).compact();
     }
 
+    /**
+     * Issue time in milliseconds: the signed iat_ms claim, or the second-resolution iat for
+     * tokens issued before that claim existed. Null when the token carries neither.
+     */
+    public static Date issuedAt(Claims claims) {
+        Long issuedAtMillis = claims.get(ISSUED_AT_MS_CLAIM, Long.class);
+        return issuedAtMillis != null ? new Date(issuedAtMillis) : claims.getIssuedAt();
+    }
+
     public Boolean validateToken(String token, String username) {
         final String extractedUsername = extractUsername(token);
         return (extractedUsername.equals(username) && !isTokenExpired(token));
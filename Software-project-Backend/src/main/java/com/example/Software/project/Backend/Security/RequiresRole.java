@@ -0,0 +1,18 @@
+package com.example.Software.project.Backend.Security;
+
+import java.lang.annotation.*;
+
+/**
+ * Restricts a handler method (or every handler in a controller) to users holding the given
+ * role or a higher one. Checked by AuthorizationInterceptor before the handler runs; other
+ * callers get 403 with {"message": message, "status": "ERROR"}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequiresRole {
+
+    AuthContext.Role value();
+
+    String message() default "Access denied";
+}
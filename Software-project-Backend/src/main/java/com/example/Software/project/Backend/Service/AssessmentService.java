@@ -3,6 +3,7 @@ package com.example.Software.project.Backend.Service;
 import com.example.Software.project.Backend.Model.*;
 import com.example.Software.project.Backend.Repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +23,8 @@ public class AssessmentService {
     private ModuleRepository moduleRepository;
     @Autowired
     private LosRepository losRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public AssessmentTemplate createTemplate(Map<String, Object> payload, String createdBy) {
@@ -81,6 +84,15 @@ public class AssessmentService {
             }
             if (!toSave.isEmpty()) {
                 itemRepository.saveAll(toSave);
+                // New items change the LOs' max marks, and so their attainment
+                List<String> itemLoIds = toSave.stream()
+                        .filter(ai -> ai.getLos() != null)
+                        .map(ai -> ai.getLos().getId())
+                        .distinct()
+                        .toList();
+                if (!itemLoIds.isEmpty()) {
+                    eventPublisher.publishEvent(OutcomesChangedEvent.forLos(itemLoIds));
+                }
             }
         }
 
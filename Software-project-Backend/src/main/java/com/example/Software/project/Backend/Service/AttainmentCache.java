@@ -0,0 +1,157 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.Los;
+import com.example.Software.project.Backend.Repository.LosRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Result cache for the PO attainment reads the dashboards repeat with the same inputs
+ * (AttainmentService.getPOAttainment, POAttainmentService.calculateStudentPOCredits).
+ *
+ * Entries are LRU-bounded, expire after a TTL, and are tagged with the LO and module ids they
+ * were computed from. MarksChangedEvent / OutcomesChangedEvent drop every entry sharing a tag,
+ * once when the event is published and again after the writing transaction completes, and a
+ * load that overlapped an invalidation is returned but never stored — so a result computed
+ * from pre-write data cannot be served after the write.
+ */
+@Component
+public class AttainmentCache {
+
+    @Autowired
+    private LosRepository losRepository;
+
+    @Value("${attainment.cache.max-entries:500}")
+    private int maxEntries = 500;
+
+    @Value("${attainment.cache.ttl-seconds:600}")
+    private long ttlSeconds = 600;
+
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Bumped by every invalidation; a load only stores its result if this did not move meanwhile
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private record Entry(Object value, Set<String> loIds, Set<String> moduleIds, long expiresAtNanos) { }
+
+    /**
+     * Cached value for (region, args), computed by {@code loader} on a miss.
+     * Results are shared between callers and must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String region, List<?> args, Collection<String> loIds, Collection<String> moduleIds, Supplier<T> loader) {
+        List<Object> key = new ArrayList<>(args.size() + 1);
+        key.add(region);
+        key.addAll(args);
+
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos - System.nanoTime() > 0) {
+                hits++;
+                return (T) entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        T value = loader.get();
+
+        synchronized (this) {
+            if (generation == loadGeneration && value != null) {
+                entries.put(key, new Entry(value, Set.copyOf(loIds), Set.copyOf(moduleIds),
+                        System.nanoTime() + ttlSeconds * 1_000_000_000L));
+                Iterator<List<Object>> eldest = entries.keySet().iterator();
+                while (entries.size() > maxEntries && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+        }
+        return value;
+    }
+
+    // Runs inside the writing transaction (or immediately, if there is none)...
+    @EventListener
+    public void onMarksChanged(MarksChangedEvent event) {
+        invalidate(event.getLoIds(), event.getModuleId());
+    }
+
+    // ...and again once it has committed or rolled back, clearing anything loaded in between
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterMarksChanged(MarksChangedEvent event) {
+        invalidate(event.getLoIds(), event.getModuleId());
+    }
+
+    @EventListener
+    public void onOutcomesChanged(OutcomesChangedEvent event) {
+        invalidate(event.getLoIds(), event.getModuleId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterOutcomesChanged(OutcomesChangedEvent event) {
+        invalidate(event.getLoIds(), event.getModuleId());
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    // Expands the changed LOs to their modules and a changed module to its LOs, so entries
+    // tagged either way are caught.
+    private void invalidate(Collection<String> changedLoIds, String changedModuleId) {
+        Set<String> loIds = new HashSet<>(changedLoIds);
+        Set<String> moduleIds = new HashSet<>();
+        if (changedModuleId != null) {
+            moduleIds.add(changedModuleId);
+            for (Los lo : losRepository.findByModule_ModuleId(changedModuleId)) loIds.add(lo.getId());
+        }
+        if (!changedLoIds.isEmpty()) {
+            for (Los lo : losRepository.findAllById(changedLoIds)) {
+                if (lo.getModule() != null) moduleIds.add(lo.getModule().getModuleId());
+            }
+        }
+
+        synchronized (this) {
+            generation++;
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (!Collections.disjoint(entry.loIds, loIds) || !Collections.disjoint(entry.moduleIds, moduleIds)) {
+                    it.remove();
+                    invalidations++;
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.Software.project.Backend.Service;
 
 import com.example.Software.project.Backend.Model.*;
 import com.example.Software.project.Backend.Repository.*;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -21,10 +22,19 @@ public class AttainmentService {
     private AssessmentItemRepository assessmentItemRepository;
     @Autowired
     private StudentAssessmentScoreRepository studentAssessmentScoreRepository;
+    @Autowired
+    private AttainmentCache attainmentCache;
 
     // 1. Calculate LO Attainment Level (0, 1, 2, or 3)
+    @Observed(name = "obe.attainment")
     public int calculateLOLevel(String loId) {
-        Double attainment = calculateQuestionBasedLoAttainmentPercent(loId, 50.0, null);
+        Double attainment = calculateQuestionBasedLoAttainmentPercents(List.of(loId), 50.0).get(loId);
+        return toLevel(attainment, loId);
+    }
+
+    // Maps a question-based attainment % to a level, falling back to the legacy per-LO
+    // StudentMark pass rate when the LO has no question-wise data.
+    private int toLevel(Double attainment, String loId) {
         if (attainment != null) {
             if (attainment >= 80) return 3;
             if (attainment >= 70) return 2;
@@ -46,6 +56,7 @@ public class AttainmentService {
         return 0;
     }
 
+    @Observed(name = "obe.attainment")
     public Map<String, Object> getLoAttainmentMetrics(List<String> loIds,
                                                       String templateId,
                                                       Double defaultThreshold,
@@ -54,6 +65,7 @@ public class AttainmentService {
         if (defaultThreshold == null) defaultThreshold = 50.0;
         if (loThresholds == null) loThresholds = new HashMap<>();
         if (itemThresholds == null) itemThresholds = new HashMap<>();
+        String tId = templateId != null && !templateId.trim().isEmpty() ? templateId.trim() : null;
 
         Set<String> resolvedLoIds = new LinkedHashSet<>();
         if (loIds != null) {
@@ -64,8 +76,8 @@ public class AttainmentService {
             }
         }
 
-        if (templateId != null && !templateId.trim().isEmpty()) {
-            List<AssessmentItem> templateItems = assessmentItemRepository.findByAssessmentTemplate_IdOrderByQuestionNumber(templateId.trim());
+        if (tId != null) {
+            List<AssessmentItem> templateItems = assessmentItemRepository.findByAssessmentTemplate_IdOrderByQuestionNumber(tId);
             for (AssessmentItem item : templateItems) {
                 if (item.getLos() != null && item.getLos().getId() != null) {
                     resolvedLoIds.add(item.getLos().getId());
@@ -73,19 +85,21 @@ public class AttainmentService {
             }
         }
 
+        // One query each for LO names, items and scores across every requested LO
+        Map<String, Los> losById = new HashMap<>();
+        if (!resolvedLoIds.isEmpty()) {
+            for (Los lo : losRepository.findAllById(resolvedLoIds)) {
+                losById.put(lo.getId(), lo);
+            }
+        }
+        LoScoreBatch batch = loadLoScores(resolvedLoIds, tId);
+
         List<Map<String, Object>> loResults = new ArrayList<>();
         for (String loId : resolvedLoIds) {
-            Los lo = losRepository.findById(loId).orElse(null);
+            Los lo = losById.get(loId);
             double loThreshold = loThresholds.getOrDefault(loId, defaultThreshold);
 
-            List<AssessmentItem> items = assessmentItemRepository.findByLos_Id(loId);
-            if (templateId != null && !templateId.trim().isEmpty()) {
-                String tId = templateId.trim();
-                items = items.stream()
-                    .filter(i -> i.getAssessmentTemplate() != null && tId.equals(i.getAssessmentTemplate().getId()))
-                    .toList();
-            }
-
+            List<AssessmentItem> items = batch.itemsFor(loId);
             if (items.isEmpty()) {
                 loResults.add(Map.of(
                     "loId", loId,
@@ -99,51 +113,11 @@ public class AttainmentService {
                 continue;
             }
 
-            double totalMax = items.stream().mapToDouble(i -> i.getMaxMarks() == null ? 0.0 : i.getMaxMarks()).sum();
-            boolean hasItemThreshold = false;
-            for (AssessmentItem item : items) {
-                if (itemThresholds.containsKey(item.getId())) {
-                    hasItemThreshold = true;
-                    break;
-                }
-            }
-            double requiredMarks;
-            if (hasItemThreshold) {
-                requiredMarks = 0.0;
-                for (AssessmentItem item : items) {
-                    double max = item.getMaxMarks() == null ? 0.0 : item.getMaxMarks();
-                    double itemThreshold = itemThresholds.getOrDefault(item.getId(), loThreshold);
-                    requiredMarks += (itemThreshold / 100.0) * max;
-                }
-            } else {
-                requiredMarks = (loThreshold / 100.0) * totalMax;
-            }
-
-            List<StudentAssessmentScore> scores = studentAssessmentScoreRepository.findByAssessmentItem_Los_Id(loId);
-            if (templateId != null && !templateId.trim().isEmpty()) {
-                String tId = templateId.trim();
-                scores = scores.stream()
-                    .filter(s -> s.getAssessmentItem() != null
-                        && s.getAssessmentItem().getAssessmentTemplate() != null
-                        && tId.equals(s.getAssessmentItem().getAssessmentTemplate().getId()))
-                    .toList();
-            }
-
-            Map<String, Double> studentTotals = new HashMap<>();
-            for (StudentAssessmentScore s : scores) {
-                if (s.getStudent() == null || s.getStudent().getStudentId() == null) continue;
-                String sid = s.getStudent().getStudentId();
-                double sc = s.getScore() == null ? 0.0 : s.getScore();
-                studentTotals.put(sid, studentTotals.getOrDefault(sid, 0.0) + sc);
-            }
+            double totalMax = totalMaxMarks(items);
+            double requiredMarks = requiredMarks(items, totalMax, loThreshold, itemThresholds);
 
-            int totalStudents = studentTotals.size();
-            long achieved = 0;
-            if (totalStudents > 0) {
-                for (Double total : studentTotals.values()) {
-                    if (total >= requiredMarks) achieved++;
-                }
-            }
+            int totalStudents = batch.studentCount(loId);
+            long achieved = batch.countAtOrAbove(loId, requiredMarks);
             double attainmentPercent = totalStudents == 0 ? 0.0 : ((double) achieved / totalStudents) * 100.0;
 
             Map<String, Object> result = new HashMap<>();
@@ -166,89 +140,157 @@ public class AttainmentService {
         return response;
     }
 
-    private Double calculateQuestionBasedLoAttainmentPercent(String loId, Double thresholdPercent, Map<Long, Double> itemThresholds) {
-        Los los = losRepository.findById(loId).orElse(null);
-        if (los == null) return null;
+    // Question-based attainment % for each LO, computed from one items query and one scores query.
+    // LOs that don't exist or have no assessment items are absent from the result (legacy path).
+    private Map<String, Double> calculateQuestionBasedLoAttainmentPercents(Collection<String> loIds, double thresholdPercent) {
+        Map<String, Double> result = new HashMap<>();
+        if (loIds == null || loIds.isEmpty()) return result;
 
-        List<AssessmentItem> items = assessmentItemRepository.findByLos_Id(loId);
-        if (items == null || items.isEmpty()) return null;
+        Set<String> existing = new LinkedHashSet<>();
+        for (Los lo : losRepository.findAllById(loIds)) {
+            existing.add(lo.getId());
+        }
+        if (existing.isEmpty()) return result;
 
-        double effectiveThresholdPercent = thresholdPercent != null ? thresholdPercent : 50.0;
-        Map<Long, Double> effectiveItemThresholds = itemThresholds != null ? itemThresholds : new HashMap<>();
+        LoScoreBatch batch = loadLoScores(existing, null);
+        for (String loId : existing) {
+            List<AssessmentItem> items = batch.itemsFor(loId);
+            if (items.isEmpty()) continue;
 
-        double totalMax = items.stream().mapToDouble(i -> i.getMaxMarks() == null ? 0.0 : i.getMaxMarks()).sum();
-        if (totalMax <= 0) return 0.0;
+            double totalMax = totalMaxMarks(items);
+            if (totalMax <= 0) {
+                result.put(loId, 0.0);
+                continue;
+            }
+            double requiredMarks = (thresholdPercent / 100.0) * totalMax;
+
+            int totalStudents = batch.studentCount(loId);
+            if (totalStudents == 0) {
+                result.put(loId, 0.0);
+                continue;
+            }
+            result.put(loId, (double) batch.countAtOrAbove(loId, requiredMarks) / totalStudents * 100.0);
+        }
+        return result;
+    }
 
+    private double totalMaxMarks(List<AssessmentItem> items) {
+        double totalMax = 0.0;
+        for (AssessmentItem item : items) {
+            totalMax += item.getMaxMarks() == null ? 0.0 : item.getMaxMarks();
+        }
+        return totalMax;
+    }
+
+    // Marks a student needs to reach: per-item thresholds if any item has one, else LO-wide %.
+    private double requiredMarks(List<AssessmentItem> items, double totalMax, double loThreshold, Map<Long, Double> itemThresholds) {
         boolean hasItemThreshold = false;
         for (AssessmentItem item : items) {
-            if (effectiveItemThresholds.containsKey(item.getId())) {
+            if (itemThresholds.containsKey(item.getId())) {
                 hasItemThreshold = true;
                 break;
             }
         }
-        double requiredMarks;
-        if (hasItemThreshold) {
-            requiredMarks = 0.0;
-            for (AssessmentItem item : items) {
-                double max = item.getMaxMarks() == null ? 0.0 : item.getMaxMarks();
-                double itemThreshold = effectiveItemThresholds.getOrDefault(item.getId(), effectiveThresholdPercent);
-                requiredMarks += (itemThreshold / 100.0) * max;
+        if (!hasItemThreshold) {
+            return (loThreshold / 100.0) * totalMax;
+        }
+        double required = 0.0;
+        for (AssessmentItem item : items) {
+            double max = item.getMaxMarks() == null ? 0.0 : item.getMaxMarks();
+            double itemThreshold = itemThresholds.getOrDefault(item.getId(), loThreshold);
+            required += (itemThreshold / 100.0) * max;
+        }
+        return required;
+    }
+
+    // Loads items and scores for every LO in two queries and folds the scores into a ScoreMatrix
+    // (LO columns x student rows), so per-LO counts never touch boxed maps.
+    private LoScoreBatch loadLoScores(Collection<String> loIds, String templateId) {
+        List<String> ids = new ArrayList<>(loIds);
+        ScoreMatrix totals = new ScoreMatrix(ids);
+
+        Map<String, List<AssessmentItem>> itemsByLo = new HashMap<>();
+        Map<Long, Integer> loIndexByItem = new HashMap<>();
+        if (ids.isEmpty()) {
+            return new LoScoreBatch(itemsByLo, totals);
+        }
+        for (AssessmentItem item : assessmentItemRepository.findByLosIdsWithTemplate(ids)) {
+            if (templateId != null && (item.getAssessmentTemplate() == null
+                    || !templateId.equals(item.getAssessmentTemplate().getId()))) {
+                continue;
             }
-        } else {
-            requiredMarks = (effectiveThresholdPercent / 100.0) * totalMax;
+            String loId = item.getLos().getId();
+            itemsByLo.computeIfAbsent(loId, k -> new ArrayList<>()).add(item);
+            loIndexByItem.put(item.getId(), totals.columnIndex(loId));
         }
 
-        List<StudentAssessmentScore> scores = studentAssessmentScoreRepository.findByAssessmentItem_Los_Id(loId);
-        if (scores.isEmpty()) return 0.0;
+        for (Object[] row : studentAssessmentScoreRepository.findScoreRowsByLosIds(ids, templateId)) {
+            Integer lo = loIndexByItem.get((Long) row[0]);
+            if (lo == null || row[1] == null) continue;
+            totals.add(totals.row((String) row[1]), lo, row[2] == null ? 0.0 : ((Number) row[2]).doubleValue());
+        }
+        return new LoScoreBatch(itemsByLo, totals);
+    }
+
+    private static final class LoScoreBatch {
+        private final Map<String, List<AssessmentItem>> itemsByLo;
+        private final ScoreMatrix totals;
+
+        private LoScoreBatch(Map<String, List<AssessmentItem>> itemsByLo, ScoreMatrix totals) {
+            this.itemsByLo = itemsByLo;
+            this.totals = totals;
+        }
 
-        Map<String, Double> studentTotals = new HashMap<>();
-        for (StudentAssessmentScore s : scores) {
-            if (s.getStudent() == null || s.getStudent().getStudentId() == null) continue;
-            String sid = s.getStudent().getStudentId();
-            double sc = s.getScore() == null ? 0.0 : s.getScore();
-            studentTotals.put(sid, studentTotals.getOrDefault(sid, 0.0) + sc);
+        List<AssessmentItem> itemsFor(String loId) {
+            return itemsByLo.getOrDefault(loId, Collections.emptyList());
         }
 
-        long totalStudents = studentTotals.size();
-        if (totalStudents == 0) return 0.0;
+        int studentCount(String loId) {
+            int lo = totals.columnIndex(loId);
+            return lo < 0 ? 0 : totals.columnCount(lo);
+        }
 
-        long achieved = 0;
-        for (Double total : studentTotals.values()) {
-            if (total >= requiredMarks) achieved++;
+        long countAtOrAbove(String loId, double requiredMarks) {
+            int lo = totals.columnIndex(loId);
+            return lo < 0 ? 0 : totals.countAtOrAbove(lo, requiredMarks);
         }
-        return (double) achieved / totalStudents * 100.0;
     }
 
     // Batch-scoped LO attainment %, used by CQIService to evaluate a finalized semester's results.
     // Mirrors TrendService.getLoPassRate's normalization: sums each student's marks across all
     // assignments for the LO+batch, divides by total max marks, compares to threshold.
     // Returns null if no marks exist yet for this LO+batch.
+    @Observed(name = "obe.attainment")
     public Double calculateLoAttainmentForBatch(String loId, String batch, double thresholdPercent) {
         List<StudentMark> marks = markRepository.findByLos_IdAndBatch(loId, batch);
         if (marks.isEmpty()) return null;
 
-        Map<String, Double> studentTotals = new HashMap<>();
+        ScoreMatrix studentTotals = new ScoreMatrix(List.of(loId));
         for (StudentMark m : marks) {
             if (m.getScore() == null) continue;
-            String sid = m.getStudent().getStudentId();
-            studentTotals.merge(sid, m.getScore(), Double::sum);
+            studentTotals.add(studentTotals.row(m.getStudent().getStudentId()), 0, m.getScore());
         }
-        if (studentTotals.isEmpty()) return null;
+        int total = studentTotals.columnCount(0);
+        if (total == 0) return null;
 
         List<AssessmentItem> items = assessmentItemRepository.findByLos_IdAndAssessmentTemplate_Batch(loId, batch);
         double maxMarks = items.stream().mapToDouble(i -> i.getMaxMarks() == null ? 0.0 : i.getMaxMarks()).sum();
 
-        long total = studentTotals.size();
-        long passed = studentTotals.values().stream().filter(score -> {
-            double pct = maxMarks > 0 ? (score / maxMarks) * 100.0 : score;
-            return pct >= thresholdPercent;
-        }).count();
+        // Without assessment items the raw score is already a percentage
+        if (maxMarks > 0) studentTotals.toPercent(0, maxMarks);
+        long passed = studentTotals.countAtOrAbove(0, thresholdPercent);
 
         return (double) passed / total * 100.0;
     }
 
     // 2. Calculate PO Attainment for a Course
+    @Observed(name = "obe.attainment")
     public Map<String, Double> getPOAttainment(String moduleId) {
+        return attainmentCache.get("po-attainment", List.of(moduleId), List.of(), List.of(moduleId),
+                () -> computePOAttainment(moduleId));
+    }
+
+    private Map<String, Double> computePOAttainment(String moduleId) {
         List<OutcomeMapping> mappings = mappingRepository.findByLearningOutcome_Module_ModuleId(moduleId);
 
         // Group mappings by PO Code
@@ -256,6 +298,19 @@ public class AttainmentService {
                 .filter(m -> m.getStatus() == OutcomeMapping.ApprovalStatus.APPROVED)
                 .collect(Collectors.groupingBy(m -> m.getProgramOutcome().getCode()));
 
+        // Resolve every mapped LO's level once, question-based attainment in a single batch
+        Set<String> mappedLoIds = new LinkedHashSet<>();
+        for (List<OutcomeMapping> poMappings : poGroups.values()) {
+            for (OutcomeMapping map : poMappings) {
+                mappedLoIds.add(map.getLearningOutcome().getId());
+            }
+        }
+        Map<String, Double> attainments = calculateQuestionBasedLoAttainmentPercents(mappedLoIds, 50.0);
+        Map<String, Integer> loLevels = new HashMap<>();
+        for (String loId : mappedLoIds) {
+            loLevels.put(loId, toLevel(attainments.get(loId), loId));
+        }
+
         Map<String, Double> poScores = new HashMap<>();
 
         for (Map.Entry<String, List<OutcomeMapping>> entry : poGroups.entrySet()) {
@@ -266,7 +321,7 @@ public class AttainmentService {
             double totalWeight = 0;
 
             for (OutcomeMapping map : poMappings) {
-                int loLevel = calculateLOLevel(map.getLearningOutcome().getId());
+                int loLevel = loLevels.get(map.getLearningOutcome().getId());
                 weightedSum += (loLevel * map.getWeight());
                 totalWeight += map.getWeight();
             }
@@ -0,0 +1,387 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.*;
+import com.example.Software.project.Backend.Repository.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains the lo_attainment_snapshot / po_attainment_snapshot tables.
+ *
+ * Snapshots are keyed by (module, batch, markType) and only the keys touched by a
+ * MarksChangedEvent are rebuilt, so report reads become a single indexed lookup instead of
+ * recomputing attainment from raw StudentMark rows on every call. A refresh that fails flags the
+ * module/batch rows with staleSince; the getCurrent* reads rebuild such rows before serving them.
+ *
+ * LO pass rates use the batch-scoped calculation of AttainmentService.calculateLoAttainmentForBatch:
+ * each student's StudentMark scores for the LO and batch are summed and normalized by the max marks
+ * of the batch's assessment items. The live /attainment/lo calculation instead counts per-question
+ * StudentAssessmentScore rows across every batch, so the two can differ.
+ */
+@Service
+public class AttainmentSnapshotService {
+
+    // Same default pass threshold used by /po-attainment and the overall PO report
+    public static final double DEFAULT_THRESHOLD = 50.0;
+
+    @Autowired
+    private LoAttainmentSnapshotRepository loSnapshotRepository;
+    @Autowired
+    private PoAttainmentSnapshotRepository poSnapshotRepository;
+    @Autowired
+    private LosRepository losRepository;
+    @Autowired
+    private StudentMarkRepository studentMarkRepository;
+    @Autowired
+    private AssessmentItemRepository assessmentItemRepository;
+    @Autowired
+    private OutcomeMappingRepository outcomeMappingRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Runs after the import/edit commits so the rebuild sees the new rows; fallbackExecution
+    // covers the controller endpoints that write outside a transaction. NOT_SUPPORTED suspends the
+    // committed transaction, so each module's refresh runs in a transaction of its own.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onMarksChanged(MarksChangedEvent event) {
+        if (event.getBatch() == null || event.getBatch().isBlank()) return;
+        if (event.getModuleId() != null) {
+            refreshOrMarkStale(event.getModuleId(), event.getBatch(), null);
+            return;
+        }
+        // Group the changed LOs by module; PO snapshots need the module's full LO set
+        Map<String, Set<String>> loIdsByModule = new LinkedHashMap<>();
+        try {
+            for (Los lo : losRepository.findAllById(event.getLoIds())) {
+                if (lo.getModule() == null) continue;
+                loIdsByModule.computeIfAbsent(lo.getModule().getModuleId(), k -> new HashSet<>()).add(lo.getId());
+            }
+        } catch (Exception e) {
+            System.err.println("Attainment snapshot refresh failed for batch " + event.getBatch() + ": " + e.getMessage());
+            return;
+        }
+        for (Map.Entry<String, Set<String>> entry : loIdsByModule.entrySet()) {
+            refreshOrMarkStale(entry.getKey(), event.getBatch(), entry.getValue());
+        }
+    }
+
+    // LO edits and deletes, mapping changes and item (re)definitions change attainment without
+    // touching marks, so every batch the affected modules already have snapshots for is rebuilt
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onOutcomesChanged(OutcomesChangedEvent event) {
+        Set<String> moduleIds = new LinkedHashSet<>();
+        try {
+            if (event.getModuleId() != null) {
+                moduleIds.add(event.getModuleId());
+            } else if (!event.getLoIds().isEmpty()) {
+                for (Los lo : losRepository.findAllById(event.getLoIds())) {
+                    if (lo.getModule() != null) moduleIds.add(lo.getModule().getModuleId());
+                }
+            }
+            for (String moduleId : moduleIds) {
+                Set<String> batches = new TreeSet<>(loSnapshotRepository.findBatchesByModuleId(moduleId));
+                batches.addAll(poSnapshotRepository.findBatchesByModuleId(moduleId));
+                for (String batch : batches) {
+                    refreshOrMarkStale(moduleId, batch, null);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Attainment snapshot refresh failed for modules " + moduleIds + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild every snapshot of a module for one batch (both mark types).
+     * Used to backfill snapshots for marks uploaded before the snapshot tables existed.
+     */
+    @Transactional
+    public void rebuild(String moduleId, String batch) {
+        refresh(moduleId, batch, null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LoAttainmentSnapshot> getLoSnapshots(String moduleId, String batch, MarkType markType) {
+        return loSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByLoId(moduleId, batch, markType);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PoAttainmentSnapshot> getPoSnapshots(String moduleId, String batch, MarkType markType) {
+        return poSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByPoCode(moduleId, batch, markType);
+    }
+
+    /**
+     * LO snapshots that are safe to serve as a report. Rows a failed refresh flagged stale are
+     * rebuilt first. No rows means no marks in the batch (or marks uploaded before the snapshot
+     * tables existed, which POST /snapshots/rebuild backfills), and is served as is.
+     */
+    public List<LoAttainmentSnapshot> getCurrentLoSnapshots(String moduleId, String batch, MarkType markType) {
+        List<LoAttainmentSnapshot> snapshots = getLoSnapshots(moduleId, batch, markType);
+        if (snapshots.stream().allMatch(s -> s.getStaleSince() == null)) return snapshots;
+        rebuildInNewTransaction(moduleId, batch);
+        return getLoSnapshots(moduleId, batch, markType);
+    }
+
+    // Same contract as getCurrentLoSnapshots, for the module's PO snapshots
+    public List<PoAttainmentSnapshot> getCurrentPoSnapshots(String moduleId, String batch, MarkType markType) {
+        List<PoAttainmentSnapshot> snapshots = getPoSnapshots(moduleId, batch, markType);
+        if (snapshots.stream().allMatch(s -> s.getStaleSince() == null)) return snapshots;
+        rebuildInNewTransaction(moduleId, batch);
+        return getPoSnapshots(moduleId, batch, markType);
+    }
+
+    /**
+     * LO attainment of one batch at the default threshold, read from each LO's module snapshots.
+     * Same response shape as AttainmentService.getLoAttainmentMetrics, but computed from the batch's
+     * StudentMark totals (see the class comment); LOs without marks in the batch report zero students.
+     */
+    public Map<String, Object> getLoAttainment(List<String> loIds, String batch, MarkType markType) {
+        Map<String, Los> losById = new HashMap<>();
+        Set<String> moduleIds = new LinkedHashSet<>();
+        for (Los lo : losRepository.findAllById(loIds)) {
+            losById.put(lo.getId(), lo);
+            if (lo.getModule() != null) moduleIds.add(lo.getModule().getModuleId());
+        }
+        Map<String, LoAttainmentSnapshot> snapshotsByLo = new HashMap<>();
+        for (String moduleId : moduleIds) {
+            for (LoAttainmentSnapshot snap : getCurrentLoSnapshots(moduleId, batch, markType)) {
+                snapshotsByLo.put(snap.getLoId(), snap);
+            }
+        }
+
+        List<Map<String, Object>> loResults = new ArrayList<>();
+        for (String loId : loIds) {
+            Los lo = losById.get(loId);
+            LoAttainmentSnapshot snap = snapshotsByLo.get(loId);
+            Map<String, Object> result = new HashMap<>();
+            result.put("loId", loId);
+            result.put("loName", lo != null ? lo.getName() : loId);
+            result.put("thresholdPercent", DEFAULT_THRESHOLD);
+            result.put("totalStudents", snap != null ? snap.getTotalStudents() : 0);
+            result.put("studentsAchieved", snap != null ? snap.getStudentsPassed() : 0);
+            result.put("attainmentPercent", snap != null ? snap.getAttainmentPercent() : 0.0);
+            result.put("formula", "(studentsAchieved / totalStudents) * 100");
+            loResults.add(result);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("defaultThreshold", DEFAULT_THRESHOLD);
+        response.put("batch", batch);
+        response.put("markType", markType.name());
+        response.put("loAttainment", loResults);
+        response.put("count", loResults.size());
+        return response;
+    }
+
+    // A failed refresh rolls back on its own and must not fail the upload that triggered it.
+    // The module/batch snapshots are flagged stale instead, so reads rebuild them rather than
+    // serve numbers that no longer match the marks.
+    private void refreshOrMarkStale(String moduleId, String batch, Set<String> changedLoIds) {
+        try {
+            transactionTemplate.execute(status -> {
+                refresh(moduleId, batch, changedLoIds);
+                return null;
+            });
+        } catch (Exception e) {
+            System.err.println("Attainment snapshot refresh failed for module " + moduleId + ", batch " + batch + ": " + e.getMessage());
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                loSnapshotRepository.markStale(moduleId, batch, now);
+                poSnapshotRepository.markStale(moduleId, batch, now);
+            } catch (Exception markFailure) {
+                System.err.println("Could not flag snapshots of module " + moduleId + ", batch " + batch + " as stale: " + markFailure.getMessage());
+            }
+        }
+    }
+
+    // Two reads of the same stale module/batch can rebuild concurrently; the loser hits the
+    // snapshot unique keys and rolls back, and its caller re-reads the rows the winner wrote
+    private void rebuildInNewTransaction(String moduleId, String batch) {
+        try {
+            transactionTemplate.execute(status -> {
+                refresh(moduleId, batch, null);
+                return null;
+            });
+        } catch (DataIntegrityViolationException e) {
+            System.err.println("Concurrent snapshot rebuild for module " + moduleId + ", batch " + batch + ": " + e.getMessage());
+        }
+    }
+
+    // changedLoIds == null means every LO of the module is rewritten
+    private void refresh(String moduleId, String batch, Set<String> changedLoIds) {
+        List<Los> moduleLos = losRepository.findByModule_ModuleId(moduleId);
+        List<OutcomeMapping> mappings = outcomeMappingRepository
+                .findByLearningOutcome_Module_ModuleIdAndStatus(moduleId, OutcomeMapping.ApprovalStatus.APPROVED);
+        for (MarkType type : MarkType.values()) {
+            refresh(moduleId, batch, type, moduleLos, mappings, changedLoIds);
+        }
+    }
+
+    private void refresh(String moduleId, String batch, MarkType type, List<Los> moduleLos,
+                         List<OutcomeMapping> mappings, Set<String> changedLoIds) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<String> loIds = new ArrayList<>();
+        Map<String, Integer> loIndex = new HashMap<>();
+        for (Los lo : moduleLos) {
+            loIndex.put(lo.getId(), loIds.size());
+            loIds.add(lo.getId());
+        }
+
+        // Total max marks per LO from the batch's assessment items (0 = legacy percentage marks)
+        double[] totalMaxMarks = new double[loIds.size()];
+        List<Object[]> rows = Collections.emptyList();
+        if (!loIds.isEmpty()) {
+            for (AssessmentItem item : assessmentItemRepository
+                    .findByLosIdsAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(loIds, batch, type.name(), type)) {
+                totalMaxMarks[loIndex.get(item.getLos().getId())] += item.getMaxMarks() != null ? item.getMaxMarks() : 0.0;
+            }
+            rows = studentMarkRepository.findScoreRowsByLosIdsAndMarkTypeAndBatch(loIds, type, batch);
+        }
+
+        // student x LO score matrix, summed across assignments like calculateStudentPOCredits
+        Map<String, Integer> studentIndex = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[2] != null) studentIndex.putIfAbsent((String) row[1], studentIndex.size());
+        }
+        int students = studentIndex.size();
+        double[][] scores = new double[loIds.size()][students];
+        BitSet[] hasMark = new BitSet[loIds.size()];
+        BitSet[] passed = new BitSet[loIds.size()];
+        for (int lo = 0; lo < loIds.size(); lo++) {
+            hasMark[lo] = new BitSet(students);
+            passed[lo] = new BitSet(students);
+        }
+        for (Object[] row : rows) {
+            if (row[2] == null) continue;
+            int lo = loIndex.get((String) row[0]);
+            int s = studentIndex.get((String) row[1]);
+            scores[lo][s] += ((Number) row[2]).doubleValue();
+            hasMark[lo].set(s);
+        }
+
+        // LO snapshots
+        Map<String, LoAttainmentSnapshot> existingLo = new HashMap<>();
+        for (LoAttainmentSnapshot snap : loSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByLoId(moduleId, batch, type)) {
+            existingLo.put(snap.getLoId(), snap);
+        }
+        // A partial refresh cannot clear a stale flag on the LOs it skips, so rewrite them all
+        if (changedLoIds != null && existingLo.values().stream().anyMatch(s -> s.getStaleSince() != null)) {
+            changedLoIds = null;
+        }
+        Map<String, Integer> loLevels = new HashMap<>();
+        List<LoAttainmentSnapshot> loToSave = new ArrayList<>();
+        List<LoAttainmentSnapshot> loToDelete = new ArrayList<>();
+        for (int lo = 0; lo < loIds.size(); lo++) {
+            String loId = loIds.get(lo);
+            int total = hasMark[lo].cardinality();
+            double percentSum = 0.0;
+            for (int s = hasMark[lo].nextSetBit(0); s >= 0; s = hasMark[lo].nextSetBit(s + 1)) {
+                double pct = totalMaxMarks[lo] > 0 ? (scores[lo][s] / totalMaxMarks[lo]) * 100.0 : scores[lo][s];
+                percentSum += pct;
+                if (pct >= DEFAULT_THRESHOLD) passed[lo].set(s);
+            }
+            int passedCount = passed[lo].cardinality();
+            double attainment = total > 0 ? (double) passedCount / total * 100.0 : 0.0;
+            int level = levelOf(attainment);
+            loLevels.put(loId, level);
+
+            if (changedLoIds != null && !changedLoIds.contains(loId)) continue;
+            LoAttainmentSnapshot snap = existingLo.get(loId);
+            if (total == 0) {
+                if (snap != null) loToDelete.add(snap);
+                continue;
+            }
+            if (snap == null) {
+                snap = new LoAttainmentSnapshot();
+                snap.setModuleId(moduleId);
+                snap.setBatch(batch);
+                snap.setMarkType(type);
+                snap.setLoId(loId);
+            }
+            snap.setLoName(moduleLos.get(lo).getName());
+            snap.setThresholdPercent(DEFAULT_THRESHOLD);
+            snap.setTotalStudents(total);
+            snap.setStudentsPassed(passedCount);
+            snap.setAttainmentPercent(attainment);
+            snap.setAveragePercent(percentSum / total);
+            snap.setAttainmentLevel(level);
+            snap.setSnapshotVersion(snap.getSnapshotVersion() + 1);
+            snap.setBuiltAt(now);
+            snap.setStaleSince(null);
+            loToSave.add(snap);
+        }
+        // LOs removed from the module since the last build
+        if (changedLoIds == null) {
+            for (LoAttainmentSnapshot snap : existingLo.values()) {
+                if (!loIndex.containsKey(snap.getLoId())) loToDelete.add(snap);
+            }
+        }
+        loSnapshotRepository.deleteAll(loToDelete);
+        loSnapshotRepository.saveAll(loToSave);
+
+        // PO snapshots: a student achieves the PO only by passing every mapped LO
+        Map<String, List<OutcomeMapping>> mappingsByPo = new TreeMap<>();
+        for (OutcomeMapping m : mappings) {
+            if (loIndex.containsKey(m.getLearningOutcome().getId())) {
+                mappingsByPo.computeIfAbsent(m.getProgramOutcome().getCode(), k -> new ArrayList<>()).add(m);
+            }
+        }
+        Map<String, PoAttainmentSnapshot> existingPo = new HashMap<>();
+        for (PoAttainmentSnapshot snap : poSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByPoCode(moduleId, batch, type)) {
+            existingPo.put(snap.getPoCode(), snap);
+        }
+        List<PoAttainmentSnapshot> poToSave = new ArrayList<>();
+        if (students > 0) {
+            for (Map.Entry<String, List<OutcomeMapping>> entry : mappingsByPo.entrySet()) {
+                BitSet achieved = new BitSet(students);
+                achieved.set(0, students);
+                double weightedSum = 0;
+                double totalWeight = 0;
+                for (OutcomeMapping m : entry.getValue()) {
+                    String loId = m.getLearningOutcome().getId();
+                    achieved.and(passed[loIndex.get(loId)]);
+                    weightedSum += loLevels.get(loId) * m.getWeight();
+                    totalWeight += m.getWeight();
+                }
+
+                PoAttainmentSnapshot snap = existingPo.remove(entry.getKey());
+                if (snap == null) {
+                    snap = new PoAttainmentSnapshot();
+                    snap.setModuleId(moduleId);
+                    snap.setBatch(batch);
+                    snap.setMarkType(type);
+                    snap.setPoCode(entry.getKey());
+                }
+                snap.setPoTitle(entry.getValue().get(0).getProgramOutcome().getTitle());
+                snap.setTotalStudents(students);
+                snap.setStudentsAchieved(achieved.cardinality());
+                snap.setAttainmentPercent((double) achieved.cardinality() / students * 100.0);
+                snap.setWeightedLevel(totalWeight > 0 ? weightedSum / totalWeight : 0.0);
+                snap.setSnapshotVersion(snap.getSnapshotVersion() + 1);
+                snap.setBuiltAt(now);
+                snap.setStaleSince(null);
+                poToSave.add(snap);
+            }
+        }
+        // Whatever is left no longer has mappings or marks
+        poSnapshotRepository.deleteAll(existingPo.values());
+        poSnapshotRepository.saveAll(poToSave);
+    }
+
+    private int levelOf(double attainment) {
+        if (attainment >= 80) return 3;
+        if (attainment >= 70) return 2;
+        if (attainment >= 60) return 1;
+        return 0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.Software.project.Backend.Service;
+
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renames a batch label (e.g. "24" to "25") for one LO or a whole module.
+ *
+ * Marks, assessment templates, CQI actions and the derived snapshot / watermark rows move with
+ * set-based UPDATEs, a fixed number of statements however large the cohort, in one transaction.
+ * Derived rows already stored under the new label are dropped first so the unique snapshot keys
+ * cannot collide; relabeling a batch to itself is a no-op. Callers check that no marks exist
+ * under the new label, and publish MarksChangedEvents for both labels so caches and PO snapshots
+ * are rebuilt.
+ */
+@Service
+public class BatchRelabelService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // One LO. Templates move only when every item in them belongs to this LO; PO snapshots
+    // span the module's LOs, so they are left to the rebuild the MarksChangedEvents trigger.
+    @Transactional
+    @Observed(name = "obe.batch.relabel")
+    public Map<String, Integer> relabelLo(String losId, String oldBatch, String newBatch) {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        if (oldBatch.equals(newBatch)) return updated;
+        updated.put("StudentMark", jdbcTemplate.update(
+                "UPDATE StudentMark SET batch = ? WHERE los_id = ? AND batch = ?", newBatch, losId, oldBatch));
+        updated.put("assessment_template", jdbcTemplate.update(
+                "UPDATE assessment_template SET batch = ? WHERE batch = ? " +
+                "AND id IN (SELECT ai.template_id FROM assessment_item ai WHERE ai.los_id = ?) " +
+                "AND NOT EXISTS (SELECT 1 FROM assessment_item other " +
+                "                WHERE other.template_id = assessment_template.id AND other.los_id <> ?)",
+                newBatch, oldBatch, losId, losId));
+        updated.put("cqi_action", jdbcTemplate.update(
+                "UPDATE cqi_action SET batch = ? WHERE los_id = ? AND batch = ?", newBatch, losId, oldBatch));
+        updated.put("lo_attainment_snapshot", move("lo_attainment_snapshot", "lo_id", losId, oldBatch, newBatch));
+        updated.put("cqi_watermark", move("cqi_watermark", "lo_id", losId, oldBatch, newBatch));
+        return updated;
+    }
+
+    // Every LO of the module, plus its templates and module-level snapshots
+    @Transactional
+    @Observed(name = "obe.batch.relabel")
+    public Map<String, Integer> relabelModule(String moduleId, String oldBatch, String newBatch) {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        if (oldBatch.equals(newBatch)) return updated;
+        updated.put("StudentMark", jdbcTemplate.update(
+                "UPDATE StudentMark SET batch = ? WHERE batch = ? AND los_id IN (SELECT id FROM los WHERE module_id = ?)",
+                newBatch, oldBatch, moduleId));
+        updated.put("assessment_template", jdbcTemplate.update(
+                "UPDATE assessment_template SET batch = ? WHERE module_id = ? AND batch = ?", newBatch, moduleId, oldBatch));
+        updated.put("cqi_action", jdbcTemplate.update(
+                "UPDATE cqi_action SET batch = ? WHERE module_id = ? AND batch = ?", newBatch, moduleId, oldBatch));
+        updated.put("lo_attainment_snapshot", move("lo_attainment_snapshot", "module_id", moduleId, oldBatch, newBatch));
+        updated.put("po_attainment_snapshot", move("po_attainment_snapshot", "module_id", moduleId, oldBatch, newBatch));
+        updated.put("cqi_watermark", move("cqi_watermark", "module_id", moduleId, oldBatch, newBatch));
+        return updated;
+    }
+
+    public long countModuleMarks(String moduleId, String batch) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM StudentMark WHERE batch = ? AND los_id IN (SELECT id FROM los WHERE module_id = ?)",
+                Long.class, batch, moduleId);
+        return count != null ? count : 0;
+    }
+
+    // Derived rows keyed by batch: drop stale ones under the new label, then move the old ones
+    private int move(String table, String keyColumn, String key, String oldBatch, String newBatch) {
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE " + keyColumn + " = ? AND batch = ?", key, newBatch);
+        return jdbcTemplate.update("UPDATE " + table + " SET batch = ? WHERE " + keyColumn + " = ? AND batch = ?",
+                newBatch, key, oldBatch);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.Software.project.Backend.Service;
+
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Deletes modules, LOs and LO batches with set-based DELETE statements.
+ *
+ * The ids in scope (LOs, templates, assessment items) are resolved first; then every child
+ * table is cleared child-first with one statement per table, keyed on those ids, so no entity is
+ * loaded and each statement is an index range delete instead of one delete per row. Each call
+ * runs in one transaction and returns the rows removed per table, in deletion order. Change
+ * events are left to the caller, which knows which LOs and batches the caches should drop.
+ */
+@Service
+public class BulkDeletionService {
+
+    // Keeps IN lists well below driver / database parameter limits
+    static final int IN_CHUNK = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Module with all its LOs, marks, scores, items, templates, mappings, CQI actions,
+    // snapshots and lecturer assignments. Returns an empty map when the module does not exist.
+    @Transactional
+    @Observed(name = "obe.bulk.delete")
+    public Map<String, Integer> deleteModule(String moduleId) {
+        Map<String, Integer> deleted = new LinkedHashMap<>();
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM modules WHERE module_id = ?", Integer.class, moduleId);
+        if (exists == null || exists == 0) return deleted;
+
+        List<String> loIds = jdbcTemplate.queryForList("SELECT id FROM los WHERE module_id = ?", String.class, moduleId);
+        List<String> templateIds = jdbcTemplate.queryForList("SELECT id FROM assessment_template WHERE module_id = ?", String.class, moduleId);
+        Set<String> itemIds = new LinkedHashSet<>(selectIn("SELECT id FROM assessment_item WHERE los_id", loIds));
+        itemIds.addAll(selectIn("SELECT id FROM assessment_item WHERE template_id", templateIds));
+
+        // CQI actions reference both module_id and los_id, so they go before the LOs
+        count(deleted, "cqi_action", jdbcTemplate.update("DELETE FROM cqi_action WHERE module_id = ?", moduleId));
+        deleteLoChildren(deleted, loIds, itemIds);
+        count(deleted, "assessment_template", jdbcTemplate.update("DELETE FROM assessment_template WHERE module_id = ?", moduleId));
+
+        // Snapshot tables hold plain ids; without this they would resurface for a re-created module
+        count(deleted, "lo_attainment_snapshot", jdbcTemplate.update("DELETE FROM lo_attainment_snapshot WHERE module_id = ?", moduleId));
+        count(deleted, "po_attainment_snapshot", jdbcTemplate.update("DELETE FROM po_attainment_snapshot WHERE module_id = ?", moduleId));
+        count(deleted, "cqi_watermark", jdbcTemplate.update("DELETE FROM cqi_watermark WHERE module_id = ?", moduleId));
+
+        count(deleted, "module_lecturers", jdbcTemplate.update("DELETE FROM module_lecturers WHERE module_id = ?", moduleId));
+        count(deleted, "los", jdbcTemplate.update("DELETE FROM los WHERE module_id = ?", moduleId));
+        count(deleted, "modules", jdbcTemplate.update("DELETE FROM modules WHERE module_id = ?", moduleId));
+        return deleted;
+    }
+
+    // One LO with its marks, scores, items, mappings, CQI actions, LO snapshots and watermarks
+    @Transactional
+    @Observed(name = "obe.bulk.delete")
+    public Map<String, Integer> deleteLos(String losId) {
+        Map<String, Integer> deleted = new LinkedHashMap<>();
+        List<String> loIds = List.of(losId);
+        List<String> itemIds = jdbcTemplate.queryForList("SELECT id FROM assessment_item WHERE los_id = ?", String.class, losId);
+
+        count(deleted, "cqi_action", jdbcTemplate.update("DELETE FROM cqi_action WHERE los_id = ?", losId));
+        deleteLoChildren(deleted, loIds, itemIds);
+        // Left behind, the watermark would keep the module/batch in the CQI sweep forever. The
+        // module's PO snapshots are rebuilt once the caller's OutcomesChangedEvent is delivered.
+        count(deleted, "lo_attainment_snapshot", jdbcTemplate.update("DELETE FROM lo_attainment_snapshot WHERE lo_id = ?", losId));
+        count(deleted, "cqi_watermark", jdbcTemplate.update("DELETE FROM cqi_watermark WHERE lo_id = ?", losId));
+        count(deleted, "los", jdbcTemplate.update("DELETE FROM los WHERE id = ?", losId));
+        return deleted;
+    }
+
+    // Marks of one batch of an LO; uses idx_student_mark_lo_batch_type_label
+    @Transactional
+    @Observed(name = "obe.bulk.delete")
+    public int deleteLoBatch(String losId, String batch) {
+        return jdbcTemplate.update("DELETE FROM StudentMark WHERE los_id = ? AND batch = ?", losId, batch);
+    }
+
+    // Everything below an LO row except CQI actions, child-first so no FK blocks a statement
+    private void deleteLoChildren(Map<String, Integer> deleted, Collection<String> loIds, Collection<String> itemIds) {
+        count(deleted, "student_assessment_score", deleteIn("student_assessment_score", "assessment_item_id", itemIds));
+        count(deleted, "assessment_item", deleteIn("assessment_item", "id", itemIds));
+        count(deleted, "StudentMark", deleteIn("StudentMark", "los_id", loIds));
+        count(deleted, "lo_po_mappings", deleteIn("lo_po_mappings", "los_id", loIds));
+        // Legacy column and table; absent on schemas created after the rename
+        try { count(deleted, "lo_po_mappings", deleteIn("lo_po_mappings", "lospos_id", loIds)); } catch (Exception ignored) {}
+        try { count(deleted, "assignments", deleteIn("assignments", "los_pos_id", loIds)); } catch (Exception ignored) {}
+    }
+
+    private int deleteIn(String table, String column, Collection<String> ids) {
+        int rows = 0;
+        for (List<String> chunk : chunks(ids)) {
+            rows += jdbcTemplate.update("DELETE FROM " + table + " WHERE " + column + " IN (" + placeholders(chunk.size()) + ")",
+                    chunk.toArray());
+        }
+        return rows;
+    }
+
+    // selectWhereColumn is "SELECT ... WHERE column"; the IN list is appended per chunk
+    private List<String> selectIn(String selectWhereColumn, Collection<String> ids) {
+        List<String> result = new ArrayList<>();
+        for (List<String> chunk : chunks(ids)) {
+            result.addAll(jdbcTemplate.queryForList(selectWhereColumn + " IN (" + placeholders(chunk.size()) + ")",
+                    String.class, chunk.toArray()));
+        }
+        return result;
+    }
+
+    private static List<List<String>> chunks(Collection<String> ids) {
+        List<String> all = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK) {
+            chunks.add(all.subList(from, Math.min(from + IN_CHUNK, all.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static void count(Map<String, Integer> deleted, String table, int rows) {
+        deleted.merge(table, rows, Integer::sum);
+    }
+}
@@ -3,9 +3,16 @@ package com.example.Software.project.Backend.Service;
 import com.example.Software.project.Backend.Model.*;
 import com.example.Software.project.Backend.Model.Module;
 import com.example.Software.project.Backend.Repository.*;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
@@ -17,6 +24,8 @@ public class CQIService {
     @Autowired private LosRepository losRepository;
     @Autowired private ModuleRepository moduleRepository;
     @Autowired private AttainmentService attainmentService;
+    @Autowired private CqiWatermarkRepository watermarkRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
 
     // Triggers a new CQI action for every LO in the module whose batch attainment fell below
     // its stored threshold, unless one is already open (PLANNED or IN_PROGRESS) for that LO.
@@ -36,23 +45,27 @@ public class CQIService {
                 .isEmpty();
             if (alreadyOpen) continue;
 
-            CqiAction action = new CqiAction();
-            action.setModule(module);
-            action.setLos(los);
-            action.setBatch(batch);
-            action.setAttainmentScore(attainment);
-            action.setTargetScore(threshold);
-            action.setStatus(CqiStatus.PLANNED);
-            action.setSubmitted(false);
-            List<String> lecturers = module.getAssignedLecturerUsernames();
-            if (lecturers != null && !lecturers.isEmpty()) {
-                action.setCreatedBy(lecturers.get(0));
-            }
-            triggered.add(cqiActionRepository.save(action));
+            triggered.add(cqiActionRepository.save(newAction(module, los, batch, attainment, threshold)));
         }
         return triggered;
     }
 
+    private CqiAction newAction(Module module, Los los, String batch, double attainment, double threshold) {
+        CqiAction action = new CqiAction();
+        action.setModule(module);
+        action.setLos(los);
+        action.setBatch(batch);
+        action.setAttainmentScore(attainment);
+        action.setTargetScore(threshold);
+        action.setStatus(CqiStatus.PLANNED);
+        action.setSubmitted(false);
+        List<String> lecturers = module.getAssignedLecturerUsernames();
+        if (lecturers != null && !lecturers.isEmpty()) {
+            action.setCreatedBy(lecturers.get(0));
+        }
+        return action;
+    }
+
     public CqiAction submitPlan(Long cqiActionId, String lecturerUsername, CqiPlanDTO dto) {
         CqiAction action = cqiActionRepository.findById(cqiActionId)
             .orElseThrow(() -> new RuntimeException("CQI action not found: " + cqiActionId));
@@ -127,24 +140,144 @@ public class CQIService {
         return cqiActionRepository.findByCreatedByOrderByCreatedAtDesc(lecturerUsername);
     }
 
-    // Entry point for POST /api/cqi/finalize/{moduleId}: for every LO in the module, links this
-    // batch's result to any open CQI cycle, then checks whether a new cycle should be triggered.
-    public Map<String, Object> finalizeModuleAttainment(String moduleId, String batch) {
-        moduleRepository.findById(moduleId)
+    // Entry point for POST /api/cqi/finalize/{moduleId} and the CQI sweep: for every LO in the
+    // module, links this batch's result to any open CQI cycle, then checks whether a new cycle
+    // should be triggered.
+    // Same outcome as linkNextSemesterResult + checkAndTriggerCQI per LO, in one pass: each LO's
+    // attainment is computed once, the module's open actions come from one query and all changes
+    // are saved in two batches. With incremental=true only LOs whose marks changed since their
+    // last finalize (per CqiWatermark) are evaluated; LOs with no watermark yet are always evaluated.
+    @Transactional
+    @Observed(name = "obe.cqi.finalize")
+    public Map<String, Object> finalizeModuleAttainment(String moduleId, String batch, boolean incremental) {
+        Module module = moduleRepository.findById(moduleId)
             .orElseThrow(() -> new RuntimeException("Module not found: " + moduleId));
         List<Los> losList = losRepository.findByModule_ModuleId(moduleId);
 
+        Map<String, CqiWatermark> watermarks = new HashMap<>();
+        for (CqiWatermark watermark : watermarkRepository.findByModuleIdAndBatch(moduleId, batch)) {
+            watermarks.put(watermark.getLoId(), watermark);
+        }
+
+        // Open actions per LO, oldest first (linkNextSemesterResult links the first IN_PROGRESS one)
+        Map<String, List<CqiAction>> openByLo = new HashMap<>();
+        for (CqiAction action : cqiActionRepository.findByModule_ModuleIdAndStatusInOrderByIdAsc(moduleId, OPEN_STATUSES)) {
+            if (action.getLos() == null) continue;
+            openByLo.computeIfAbsent(action.getLos().getId(), k -> new ArrayList<>()).add(action);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<CqiAction> linked = new ArrayList<>();
+        List<CqiAction> toCreate = new ArrayList<>();
+        int evaluated = 0;
         for (Los los : losList) {
+            CqiWatermark watermark = watermarks.get(los.getId());
+            if (incremental && watermark != null && !watermark.isStale()) continue;
+            evaluated++;
+
             double threshold = los.getAttainmentThreshold() != null ? los.getAttainmentThreshold() : 50.0;
             Double attainment = attainmentService.calculateLoAttainmentForBatch(los.getId(), batch, threshold);
+            markFinalized(watermark, moduleId, batch, los.getId(), now);
             if (attainment == null) continue;
-            linkNextSemesterResult(moduleId, los.getId(), batch, attainment);
+
+            List<CqiAction> open = openByLo.getOrDefault(los.getId(), Collections.emptyList());
+            CqiAction inProgress = open.stream()
+                .filter(a -> a.getStatus() == CqiStatus.IN_PROGRESS)
+                .findFirst()
+                .orElse(null);
+            if (inProgress != null) {
+                inProgress.setNextSemAttainment(attainment);
+                if (inProgress.getTargetScore() != null && attainment >= inProgress.getTargetScore()) {
+                    inProgress.setStatus(CqiStatus.COMPLETED);
+                }
+                linked.add(inProgress);
+            }
+
+            if (attainment >= threshold) continue;
+            boolean alreadyOpen = open.stream().anyMatch(a -> OPEN_STATUSES.contains(a.getStatus()));
+            if (alreadyOpen) continue;
+            toCreate.add(newAction(module, los, batch, attainment, threshold));
         }
 
-        List<CqiAction> triggered = checkAndTriggerCQI(moduleId, batch);
+        cqiActionRepository.saveAll(linked);
+        List<CqiAction> triggered = cqiActionRepository.saveAll(toCreate);
+
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("triggered", triggered);
         result.put("triggeredCount", triggered.size());
+        result.put("incremental", incremental);
+        result.put("evaluatedLoCount", evaluated);
+        result.put("skippedLoCount", losList.size() - evaluated);
         return result;
     }
+
+    // Bumps marksVersion for every LO+batch the change touched, so the next incremental finalize
+    // picks those LOs up. Runs after the write commits, like the attainment snapshot refresh.
+    // NOT_SUPPORTED suspends the committed transaction (its resources are still bound after commit),
+    // so each bump and insert runs and commits on its own; a failure cannot turn into a rollback of
+    // the others or surface in the upload.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onMarksChanged(MarksChangedEvent event) {
+        if (event.getBatch() == null || event.getBatch().isBlank()) return;
+        try {
+            Map<String, Set<String>> loIdsByModule = new LinkedHashMap<>();
+            if (event.getModuleId() != null) {
+                loIdsByModule.put(event.getModuleId(), new HashSet<>(losRepository.findIdsByModuleId(event.getModuleId())));
+            } else if (!event.getLoIds().isEmpty()) {
+                for (Object[] row : losRepository.findModuleIdsByIds(event.getLoIds())) {
+                    if (row[1] == null) continue;
+                    loIdsByModule.computeIfAbsent((String) row[1], k -> new HashSet<>()).add((String) row[0]);
+                }
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            for (Map.Entry<String, Set<String>> entry : loIdsByModule.entrySet()) {
+                String moduleId = entry.getKey();
+                Set<String> missing = new HashSet<>(entry.getValue());
+                for (CqiWatermark watermark : watermarkRepository.findByModuleIdAndBatch(moduleId, event.getBatch())) {
+                    missing.remove(watermark.getLoId());
+                }
+                Set<String> existing = new HashSet<>(entry.getValue());
+                existing.removeAll(missing);
+                if (!existing.isEmpty()) {
+                    watermarkRepository.bumpMarksVersion(moduleId, event.getBatch(), existing, now);
+                }
+                for (String loId : missing) {
+                    // Another change may have created the row since it was read; bump that one instead
+                    if (!insertWatermark(moduleId, event.getBatch(), loId, 1, now, null)) {
+                        watermarkRepository.bumpMarksVersion(moduleId, event.getBatch(), List.of(loId), now);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Must not fail the upload; a full (non-incremental) finalize still evaluates every LO
+            System.err.println("CQI watermark update failed for batch " + event.getBatch() + ": " + e.getMessage());
+        }
+    }
+
+    // Only advances finalizedVersion to the marksVersion this finalize read; a bump that committed
+    // in between makes the update miss, so the LO stays stale instead of being skipped for good.
+    private void markFinalized(CqiWatermark watermark, String moduleId, String batch, String loId, LocalDateTime now) {
+        if (watermark != null) {
+            watermarkRepository.markFinalized(watermark.getId(), watermark.getMarksVersion(), now);
+        } else {
+            // If a marks change inserted the row first, it is stale and is left that way
+            insertWatermark(moduleId, batch, loId, 0, null, now);
+        }
+    }
+
+    // Plain JDBC so a duplicate key (a concurrent first insert) neither marks the caller's
+    // transaction rollback-only nor aborts it; returns false when the row already exists.
+    private boolean insertWatermark(String moduleId, String batch, String loId, long marksVersion,
+                                    LocalDateTime marksChangedAt, LocalDateTime finalizedAt) {
+        try {
+            jdbcTemplate.update("INSERT INTO cqi_watermark (module_id, batch, lo_id, marks_version, finalized_version, " +
+                            "marks_changed_at, finalized_at) VALUES (?, ?, ?, ?, 0, ?, ?)",
+                    moduleId, batch, loId, marksVersion, marksChangedAt, finalizedAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,187 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.CqiSweepRun;
+import com.example.Software.project.Backend.Repository.CqiSweepRunRepository;
+import com.example.Software.project.Backend.Repository.CqiWatermarkRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background CQI sweep: finalizes every module/batch whose marks changed since it was last
+ * finalized, so CQI actions appear without someone calling POST /api/cqi/finalize per module.
+ *
+ * Changed pairs come from the CqiWatermark rows kept by CQIService, and each pair goes through
+ * the same CQIService.finalizeModuleAttainment(moduleId, batch, incremental=true) as the endpoint,
+ * in its own transaction. Pairs run on a small low-priority worker pool, and starts are spaced to
+ * cqi.sweep.max-modules-per-minute so a large sweep cannot crowd out request traffic on the
+ * connection pool. Only one sweep runs at a time; every run is recorded in cqi_sweep_run.
+ */
+@Service
+public class CqiSweepService {
+
+    // Failure messages kept on the run row
+    static final int MAX_RECORDED_ERRORS = 10;
+
+    @Autowired
+    private CQIService cqiService;
+    @Autowired
+    private CqiWatermarkRepository watermarkRepository;
+    @Autowired
+    private CqiSweepRunRepository sweepRunRepository;
+
+    @Value("${cqi.sweep.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cqi.sweep.workers:2}")
+    private int workers;
+
+    // 0 = no limit
+    @Value("${cqi.sweep.max-modules-per-minute:60}")
+    private int maxModulesPerMinute;
+
+    private ThreadPoolExecutor executor;
+    private ExecutorService coordinator;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private long nextStartNanos;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNo = new AtomicInteger();
+        int size = Math.max(1, workers);
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "cqi-sweep-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "cqi-sweep-manual");
+            t.setDaemon(true);
+            return t;
+        });
+        nextStartNanos = System.nanoTime();
+    }
+
+    @PreDestroy
+    public void stop() {
+        coordinator.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${cqi.sweep.interval-ms:3600000}",
+               initialDelayString = "${cqi.sweep.initial-delay-ms:300000}")
+    public void scheduledSweep() {
+        if (!enabled) return;
+        sweep(CqiSweepRun.Trigger.SCHEDULED);
+    }
+
+    /** Starts a sweep in the background; false when one is already running. */
+    public boolean requestSweep() {
+        if (sweeping.get()) return false;
+        coordinator.execute(() -> sweep(CqiSweepRun.Trigger.MANUAL));
+        return true;
+    }
+
+    public boolean isSweeping() {
+        return sweeping.get();
+    }
+
+    public List<CqiSweepRun> getRecentRuns() {
+        return sweepRunRepository.findTop20ByOrderByStartedAtDesc();
+    }
+
+    /** Runs one sweep on the calling thread; empty when another sweep is in progress. */
+    public Optional<CqiSweepRun> sweep(CqiSweepRun.Trigger trigger) {
+        if (!sweeping.compareAndSet(false, true)) {
+            System.out.println("CQI sweep skipped: previous sweep still running");
+            return Optional.empty();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            CqiSweepRun run = new CqiSweepRun();
+            run.setTrigger(trigger);
+            run.setStartedAt(LocalDateTime.now());
+
+            List<Object[]> pairs = watermarkRepository.findStaleModuleBatches();
+            run.setPairsFound(pairs.size());
+            run = sweepRunRepository.save(run);
+
+            List<Future<Map<String, Object>>> results = new ArrayList<>();
+            for (Object[] pair : pairs) {
+                String moduleId = (String) pair[0];
+                String batch = (String) pair[1];
+                results.add(executor.submit(() -> {
+                    throttle();
+                    return cqiService.finalizeModuleAttainment(moduleId, batch, true);
+                }));
+            }
+
+            Set<String> modules = new HashSet<>();
+            List<String> errors = new ArrayList<>();
+            int los = 0;
+            int triggered = 0;
+            for (int i = 0; i < results.size(); i++) {
+                String moduleId = (String) pairs.get(i)[0];
+                try {
+                    Map<String, Object> result = results.get(i).get();
+                    modules.add(moduleId);
+                    los += count(result.get("evaluatedLoCount"));
+                    triggered += count(result.get("triggeredCount"));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errors.add("Sweep interrupted");
+                    break;
+                } catch (ExecutionException e) {
+                    String message = moduleId + "/" + pairs.get(i)[1] + ": " + e.getCause().getMessage();
+                    System.err.println("CQI sweep failed for " + message);
+                    errors.add(message);
+                }
+            }
+
+            long elapsed = System.currentTimeMillis() - start;
+            run.setModulesEvaluated(modules.size());
+            run.setLosEvaluated(los);
+            run.setActionsTriggered(triggered);
+            run.setFailures(errors.size());
+            run.setErrors(errors.isEmpty() ? null
+                    : String.join("\n", errors.subList(0, Math.min(errors.size(), MAX_RECORDED_ERRORS))));
+            run.setFinishedAt(LocalDateTime.now());
+            run.setDurationMs(elapsed);
+            run = sweepRunRepository.save(run);
+            System.out.println("CQI sweep (" + trigger + "): " + pairs.size() + " module/batch pairs, "
+                    + modules.size() + " modules, " + triggered + " actions triggered, "
+                    + errors.size() + " failures in " + elapsed + " ms");
+            return Optional.of(run);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    // Spaces finalize starts evenly across the minute
+    private void throttle() throws InterruptedException {
+        if (maxModulesPerMinute <= 0) return;
+        long interval = TimeUnit.MINUTES.toNanos(1) / maxModulesPerMinute;
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextStartNanos);
+            nextStartNanos = slot + interval;
+            wait = slot - now;
+        }
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    private static int count(Object value) {
+        return value instanceof Number n ? n.intValue() : 0;
+    }
+}
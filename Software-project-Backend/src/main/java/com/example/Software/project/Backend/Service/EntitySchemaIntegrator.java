@@ -0,0 +1,100 @@
+package com.example.Software.project.Backend.Service;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.TargetType;
+import org.hibernate.tool.schema.internal.ExceptionHandlerHaltImpl;
+import org.hibernate.tool.schema.spi.*;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Hands the Hibernate entity mapping to SchemaMigrationService, which replaces ddl-auto=update.
+ *
+ * Registered as a Hibernate integrator so it sees the boot Metadata. fingerprint() hashes the
+ * mapped tables, columns and indexes; the entity schema step only runs Hibernate's schema update
+ * (which reads the whole live schema) when that hash has not been recorded yet.
+ */
+@Component
+public class EntitySchemaIntegrator implements Integrator, HibernatePropertiesCustomizer {
+
+    private volatile Metadata metadata;
+    private volatile ServiceRegistry serviceRegistry;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(this));
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.serviceRegistry = sessionFactory.getServiceRegistry();
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = null;
+        this.serviceRegistry = null;
+    }
+
+    public boolean isAvailable() {
+        return metadata != null;
+    }
+
+    public String fingerprint() {
+        List<String> tables = new ArrayList<>();
+        for (Table table : metadata.collectTableMappings()) {
+            StringBuilder line = new StringBuilder(table.getName());
+            for (Column column : table.getColumns()) {
+                line.append('|').append(column.getName())
+                    .append(':').append(column.getSqlType(metadata))
+                    .append(column.isNullable() ? "" : " not null");
+            }
+            for (String index : new TreeSet<>(table.getIndexes().keySet())) {
+                line.append("|index:").append(index);
+            }
+            tables.add(line.toString());
+        }
+        Collections.sort(tables);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\n", tables).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Adds missing tables, columns, foreign keys and @Index indexes, like ddl-auto=update
+    public void updateSchema() {
+        Map<String, Object> settings = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+        ExecutionOptions options = SchemaManagementToolCoordinator.buildExecutionOptions(settings, ExceptionHandlerHaltImpl.INSTANCE);
+        serviceRegistry.requireService(SchemaManagementTool.class)
+                .getSchemaMigrator(settings)
+                .doMigration(metadata, options, ContributableMatcher.ALL, new TargetDescriptor() {
+                    @Override
+                    public EnumSet<TargetType> getTargetTypes() {
+                        return EnumSet.of(TargetType.DATABASE);
+                    }
+
+                    @Override
+                    public ScriptTargetOutput getScriptTargetOutput() {
+                        return null;
+                    }
+                });
+    }
+}
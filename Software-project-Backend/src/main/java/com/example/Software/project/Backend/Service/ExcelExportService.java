@@ -10,7 +10,9 @@ import com.example.Software.project.Backend.Repository.LosRepository;
 import com.example.Software.project.Backend.Repository.StudentMarkRepository;
 import com.example.Software.project.Backend.Repository.AssessmentItemRepository;
 import com.example.Software.project.Backend.Repository.AssessmentTemplateRepository;
+import io.micrometer.observation.annotation.Observed;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,6 +39,9 @@ public class ExcelExportService {
     @Autowired
     private AssessmentTemplateRepository assessmentTemplateRepository;
 
+    // Rows kept in memory per sheet by the report writers; older rows are flushed to a temp file
+    static final int ROW_ACCESS_WINDOW = 100;
+
     /**
      * Generate Excel file with student marks for selected LOs
      * @param losIds List of LO IDs to include
@@ -45,7 +51,17 @@ public class ExcelExportService {
      * @return byte array of Excel file
      */
     @Transactional(readOnly = true)
+    @Observed(name = "obe.excel.export")
     public byte[] generateMarksExcel(List<String> losIds, String markType, String batch, Integer threshold) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeMarksExcel(losIds, markType, batch, threshold, output);
+        return output.toByteArray();
+    }
+
+    /** Streaming variant: writes the workbook to {@code out} without buffering it. */
+    @Transactional(readOnly = true)
+    @Observed(name = "obe.excel.export")
+    public void writeMarksExcel(List<String> losIds, String markType, String batch, Integer threshold, OutputStream out) throws IOException {
         if (threshold == null) {
             threshold = 50;
         }
@@ -67,18 +83,12 @@ public class ExcelExportService {
         List<StudentMark> allMarks = studentMarkRepository
             .findByLosIdsAndMarkTypeAndBatch(losIds, type, batch);
 
-        // Group marks by student and LO for quick lookup
-        Map<String, Map<String, StudentMark>> marksByStudentAndLo = new HashMap<>();
-        for (StudentMark mark : allMarks) {
-            String studentId = mark.getStudent().getStudentId();
-            String losId = mark.getLos().getId();
-
-            marksByStudentAndLo.computeIfAbsent(studentId, k -> new HashMap<>())
-                .put(losId, mark);
-        }
+        // Student x LO score matrix for quick lookup
+        ScoreMatrix marks = scoreMatrix(losIds, allMarks);
 
         // Create workbook
-        try (Workbook workbook = new XSSFWorkbook()) {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        try {
             Sheet sheet = workbook.createSheet("Marks Report");
 
             // Define styles
@@ -108,6 +118,7 @@ public class ExcelExportService {
             }
 
             // Add student data rows
+            Map<String, Double> maxMarksByLo = new HashMap<>();
             int rowIndex = 1;
             for (Student student : students) {
                 Row dataRow = sheet.createRow(rowIndex);
@@ -122,15 +133,14 @@ public class ExcelExportService {
                 for (String losId : losIds) {
                     Cell markCell = dataRow.createCell(colIdx);
 
-                    StudentMark mark = marksByStudentAndLo
-                        .getOrDefault(student.getStudentId(), new HashMap<>())
-                        .get(losId);
+                    int row = marks.rowIndex(student.getStudentId());
+                    int column = marks.columnIndex(losId);
 
-                    if (mark != null && mark.getScore() != null) {
-                        double score = mark.getScore();
+                    if (row >= 0 && column >= 0 && marks.has(row, column)) {
+                        double score = marks.get(row, column);
 
                         // Normalize score to percentage before comparing to threshold
-                        double totalMaxMarks = getTotalMaxMarksForLO(losId, batch, markType);
+                        double totalMaxMarks = maxMarksByLo.computeIfAbsent(losId, id -> getTotalMaxMarksForLO(id, batch, markType));
                         double scorePercentage;
                         if (totalMaxMarks > 0) {
                             scorePercentage = (score / totalMaxMarks) * 100.0;
@@ -153,10 +163,9 @@ public class ExcelExportService {
                 rowIndex++;
             }
 
-            // Convert to byte array
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            workbook.write(output);
-            return output.toByteArray();
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
         }
     }
 
@@ -232,15 +241,18 @@ public class ExcelExportService {
      * @param losIds List of LO IDs to include in template
      * @return byte array of Excel template file
      */
+    @Observed(name = "obe.excel.export")
     public byte[] generateMarkTemplate(List<String> losIds) throws IOException {
         return generateMarkTemplate(losIds, null, null, 50, 100, null);
     }
 
+    @Observed(name = "obe.excel.export")
     public byte[] generateMarkTemplate(List<String> losIds, String batch, String markType,
                                        double threshold, double maxMarksPerLo, String moduleId) throws IOException {
         return generateMarkTemplate(losIds, batch, markType, threshold, maxMarksPerLo, moduleId, null);
     }
 
+    @Observed(name = "obe.excel.export")
     public byte[] generateMarkTemplate(List<String> losIds, String batch, String markType,
                                        double threshold, double maxMarksPerLo, String moduleId,
                                        String assignmentLabel) throws IOException {
@@ -250,6 +262,7 @@ public class ExcelExportService {
         return generateMarkTemplate(losIds, batch, markType, threshold, perLoMaxMarks, moduleId, assignmentLabel);
     }
 
+    @Observed(name = "obe.excel.export")
     public byte[] generateMarkTemplate(List<String> losIds, String batch, String markType,
                                        double threshold, Map<String, Double> perLoMaxMarks, String moduleId,
                                        String assignmentLabel) throws IOException {
@@ -414,8 +427,17 @@ public class ExcelExportService {
      * @param attainmentData Data from POAttainmentService.calculateStudentPOCredits()
      * @return byte array of Excel file
      */
-    @SuppressWarnings("unchecked")
+    @Observed(name = "obe.excel.export")
     public byte[] generatePOAttainmentExcel(Map<String, Object> attainmentData) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writePOAttainmentExcel(attainmentData, output);
+        return output.toByteArray();
+    }
+
+    /** Streaming variant: writes the workbook to {@code out} without buffering it. */
+    @SuppressWarnings("unchecked")
+    @Observed(name = "obe.excel.export")
+    public void writePOAttainmentExcel(Map<String, Object> attainmentData, OutputStream out) throws IOException {
         List<String> poList = (List<String>) attainmentData.get("poList");
         List<Map<String, String>> loList = (List<Map<String, String>>) attainmentData.get("loList");
         if (loList == null) loList = new ArrayList<>();
@@ -425,7 +447,8 @@ public class ExcelExportService {
         int threshold = (int) attainmentData.get("threshold");
         List<Map<String, Object>> students = (List<Map<String, Object>>) attainmentData.get("students");
 
-        try (Workbook workbook = new XSSFWorkbook()) {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        try {
             Sheet sheet = workbook.createSheet("PO Attainment");
 
             // Styles
@@ -544,9 +567,9 @@ public class ExcelExportService {
                 rowIndex++;
             }
 
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            workbook.write(output);
-            return output.toByteArray();
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
         }
     }
 
@@ -571,6 +594,7 @@ public class ExcelExportService {
      * @param templateId Assessment template ID (or null if creating new)
      * @return byte array of Excel template file
      */
+    @Observed(name = "obe.excel.export")
     public byte[] generateQuestionMarkTemplate(String templateId) throws IOException {
         return generateQuestionMarkTemplate(templateId, null, null);
     }
@@ -584,6 +608,7 @@ public class ExcelExportService {
      * @param questionMappings Optional list of question mapping objects
      * @return byte array of Excel template file
      */
+    @Observed(name = "obe.excel.export")
     public byte[] generateQuestionMarkTemplate(String templateId, Integer numberOfQuestions,
                                                List<Map<String, Object>> questionMappings) throws IOException {
         return generateQuestionMarkTemplate(templateId, numberOfQuestions, questionMappings, null, null, null);
@@ -594,10 +619,22 @@ public class ExcelExportService {
      * Layout: Student ID (col 0) | Q1 (col 1) | Q2 (col 2) | ...
      * No "Student Name" column — keeps the sheet lean and avoids LO-name confusion.
      */
+    @Observed(name = "obe.excel.export")
     public byte[] generateQuestionMarkTemplate(String templateId, Integer numberOfQuestions,
                                                List<Map<String, Object>> questionMappings,
                                                String batch, String markType, String assignmentLabel) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeQuestionMarkTemplate(templateId, numberOfQuestions, questionMappings, batch, markType, assignmentLabel, output);
+        return output.toByteArray();
+    }
+
+    /** Streaming variant: writes the workbook to {@code out} without buffering it. */
+    @Observed(name = "obe.excel.export")
+    public void writeQuestionMarkTemplate(String templateId, Integer numberOfQuestions,
+                                          List<Map<String, Object>> questionMappings,
+                                          String batch, String markType, String assignmentLabel, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        try {
             Sheet sheet = workbook.createSheet("Question Mark Template");
             CellStyle headerStyle = createHeaderStyle(workbook);
             CellStyle inputStyle = createInputStyle(workbook);
@@ -774,13 +811,14 @@ public class ExcelExportService {
                 row.createCell(1).setCellValue(entries[i][1]);
             }
 
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            workbook.write(output);
-            return output.toByteArray();
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
         }
     }
 
     /** Backward-compat overload — delegates to the full method. */
+    @Observed(name = "obe.excel.export")
     public byte[] generateQuestionMarkTemplate(String templateId, Integer numberOfQuestions,
                                                List<Map<String, Object>> questionMappings,
                                                String batch, String markType) throws IOException {
@@ -795,8 +833,18 @@ public class ExcelExportService {
      * @param loThresholds Map of loId -> threshold (overrides default)
      * @return byte array of Excel file
      */
+    @Observed(name = "obe.excel.export")
     public byte[] generateMarksExcelWithPerLoThreshold(List<String> losIds, String markType, String batch,
                                                        Map<String, Integer> loThresholds) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeMarksExcelWithPerLoThreshold(losIds, markType, batch, loThresholds, output);
+        return output.toByteArray();
+    }
+
+    /** Streaming variant: writes the workbook to {@code out} without buffering it. */
+    @Observed(name = "obe.excel.export")
+    public void writeMarksExcelWithPerLoThreshold(List<String> losIds, String markType, String batch,
+                                                  Map<String, Integer> loThresholds, OutputStream out) throws IOException {
         if (loThresholds == null) {
             loThresholds = new HashMap<>();
         }
@@ -820,16 +868,11 @@ public class ExcelExportService {
         List<StudentMark> allMarks = studentMarkRepository
             .findByLosIdsAndMarkTypeAndBatch(losIds, type, batch);
 
-        // Group marks by student and LO
-        Map<String, Map<String, StudentMark>> marksByStudentAndLo = new HashMap<>();
-        for (StudentMark mark : allMarks) {
-            String studentId = mark.getStudent().getStudentId();
-            String losId = mark.getLos().getId();
-            marksByStudentAndLo.computeIfAbsent(studentId, k -> new HashMap<>())
-                .put(losId, mark);
-        }
+        // Student x LO score matrix for quick lookup
+        ScoreMatrix marks = scoreMatrix(losIds, allMarks);
 
-        try (Workbook workbook = new XSSFWorkbook()) {
+        SXSSFWorkbook workbook = newStreamingWorkbook();
+        try {
             Sheet sheet = workbook.createSheet("Marks Report - Per LO Threshold");
 
             CellStyle headerStyle = createHeaderStyle(workbook);
@@ -881,6 +924,7 @@ public class ExcelExportService {
             }
 
             // Data rows
+            Map<String, Double> maxMarksByLo = new HashMap<>();
             int rowIndex = 4;
             for (Student student : students) {
                 Row dataRow = sheet.createRow(rowIndex);
@@ -893,17 +937,16 @@ public class ExcelExportService {
                 for (String losId : losIds) {
                     Cell markCell = dataRow.createCell(colIdx);
 
-                    StudentMark mark = marksByStudentAndLo
-                        .getOrDefault(student.getStudentId(), new HashMap<>())
-                        .get(losId);
+                    int row = marks.rowIndex(student.getStudentId());
+                    int column = marks.columnIndex(losId);
 
                     int threshold = loThresholds.getOrDefault(losId, DEFAULT_THRESHOLD);
 
-                    if (mark != null && mark.getScore() != null) {
-                        double score = mark.getScore();
+                    if (row >= 0 && column >= 0 && marks.has(row, column)) {
+                        double score = marks.get(row, column);
 
                         // Normalize score to percentage before comparing to threshold
-                        double totalMaxMarks = getTotalMaxMarksForLO(losId, batch, markType);
+                        double totalMaxMarks = maxMarksByLo.computeIfAbsent(losId, id -> getTotalMaxMarksForLO(id, batch, markType));
                         double scorePercentage;
                         if (totalMaxMarks > 0) {
                             scorePercentage = (score / totalMaxMarks) * 100.0;
@@ -926,12 +969,31 @@ public class ExcelExportService {
                 rowIndex++;
             }
 
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            workbook.write(output);
-            return output.toByteArray();
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
         }
     }
 
+    // One cell per student and LO; as before, a later mark for the same cell replaces an earlier one
+    private static ScoreMatrix scoreMatrix(List<String> losIds, List<StudentMark> allMarks) {
+        ScoreMatrix marks = new ScoreMatrix(losIds);
+        for (StudentMark mark : allMarks) {
+            if (mark.getScore() == null) continue;
+            int column = marks.columnIndex(mark.getLos().getId());
+            if (column < 0) continue;
+            marks.set(marks.row(mark.getStudent().getStudentId()), column, mark.getScore());
+        }
+        return marks;
+    }
+
+    // Report writers only ever append rows, so a windowed workbook keeps memory flat for any sheet size
+    private static SXSSFWorkbook newStreamingWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
     /**
      * Helper method to get total max marks for an LO
      * Sums up all maxMarks from assessment items for a given LO
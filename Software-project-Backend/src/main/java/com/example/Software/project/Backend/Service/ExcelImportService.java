@@ -13,19 +13,24 @@ import com.example.Software.project.Backend.Repository.AssessmentItemRepository;
 import com.example.Software.project.Backend.Repository.StudentAssessmentScoreRepository;
 import com.example.Software.project.Backend.Repository.StudentMarkRepository;
 import com.example.Software.project.Backend.Repository.StudentRepository;
-import org.apache.poi.ss.usermodel.*;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -47,8 +52,13 @@ public class ExcelImportService {
     private StudentAssessmentScoreRepository studentAssessmentScoreRepository;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MarkBulkWriter markBulkWriter;
 
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importMarksOBEFormat(String losId, MultipartFile file, String batch, String markType) {
         try {
             Los los = losRepository.findById(losId)
@@ -64,32 +74,28 @@ public class ExcelImportService {
                 }
             }
 
-            try (InputStream is = file.getInputStream(); Workbook workbook = WorkbookFactory.create(is)) {
-                Sheet sheet = workbook.getSheetAt(0);
-                int count = 0;
-                for (Row row : sheet) {
-                    if (row.getRowNum() == 0) continue; // Skip header
+            final MarkType finalType = type;
+            int[] count = {0};
+            try (InputStream is = file.getInputStream()) {
+                SpreadsheetRowReader.readSheet(is, name -> true, (rowNum, cells) -> {
+                    if (rowNum == 0) return; // Skip header
 
-                    Cell indexCell = row.getCell(0);
-                    Cell markCell = row.getCell(1);
+                    String indexCell = cellAt(cells, 0);
+                    String markCell = cellAt(cells, 1);
 
-                    if (indexCell == null || markCell == null) continue;
+                    if (indexCell == null || markCell == null) return;
 
-                    String studentIndex = indexCell.toString();
+                    String studentIndex = indexCell;
                     double score = 0.0;
 
-                    if (markCell.getCellType() == CellType.NUMERIC) {
-                        score = markCell.getNumericCellValue();
+                    String val = markCell.trim().toUpperCase();
+                    if (val.equals("AB") || val.equals("MC")) {
+                        score = 0.0;
                     } else {
-                        String val = markCell.toString().trim().toUpperCase();
-                        if (val.equals("AB") || val.equals("MC")) {
+                        try {
+                            score = Double.parseDouble(val);
+                        } catch (NumberFormatException e) {
                             score = 0.0;
-                        } else {
-                            try {
-                                score = Double.parseDouble(val);
-                            } catch (NumberFormatException e) {
-                                score = 0.0;
-                            }
                         }
                     }
 
@@ -110,11 +116,12 @@ public class ExcelImportService {
                     mark.setScore(score);
                     mark.setLos(los);
                     mark.setBatch(batch); // Store batch with each mark
-                    mark.setMarkType(type); // Store mark type
+                    mark.setMarkType(finalType); // Store mark type
                     markRepository.save(mark);
-                    count++;
-                }
-                return "Successfully imported " + count + " marks.";
+                    count[0]++;
+                });
+                eventPublisher.publishEvent(MarksChangedEvent.forLos(List.of(losId), batch));
+                return "Successfully imported " + count[0] + " marks.";
             }
         } catch (Exception e) {
             throw new RuntimeException("Error importing marks: " + e.getMessage());
@@ -133,36 +140,51 @@ public class ExcelImportService {
     /** Read the METADATA sheet from an uploaded Excel and return key→value map. */
     public Map<String, String> readMetadata(MultipartFile file) {
         Map<String, String> meta = new HashMap<>();
-        try (InputStream is = file.getInputStream(); Workbook wb = WorkbookFactory.create(is)) {
-            Sheet sheet = wb.getSheet("METADATA");
-            if (sheet == null) return meta;
-            for (Row row : sheet) {
-                Cell key = row.getCell(0);
-                Cell val = row.getCell(1);
+        try (InputStream is = file.getInputStream()) {
+            SpreadsheetRowReader.readSheet(is, "METADATA"::equals, (rowNum, cells) -> {
+                String key = cellAt(cells, 0);
+                String val = cellAt(cells, 1);
                 if (key != null && val != null) {
-                    meta.put(key.toString().trim(), val.toString().trim());
+                    meta.put(key.trim(), val.trim());
                 }
-            }
+            });
         } catch (Exception ignored) {}
         return meta;
     }
 
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importMarksBulk(MultipartFile file, String[] losIds, String batch, String markType) {
         return importMarksBulk(file, losIds, batch, markType, null, null);
     }
 
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importMarksBulk(MultipartFile file, String[] losIds, String batch, String markType, String assignmentLabel) {
         return importMarksBulk(file, losIds, batch, markType, assignmentLabel, null);
     }
 
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importMarksBulk(MultipartFile file, String[] losIds, String batch, String markType,
                                   String assignmentLabel, Map<String, Double> perLoMaxMarks) {
+        return importMarksBulk(file, losIds, batch, markType, assignmentLabel, perLoMaxMarks, new ImportProgress());
+    }
+
+    /** Same as above, reporting rows written and validation errors to {@code progress} as it goes. */
+    @Transactional
+    @Observed(name = "obe.excel.import")
+    public String importMarksBulk(MultipartFile file, String[] losIds, String batch, String markType,
+                                  String assignmentLabel, Map<String, Double> perLoMaxMarks, ImportProgress progress) {
         try {
+            long started = System.nanoTime();
+            // All LOs in one query
+            Map<String, Los> losById = new HashMap<>();
+            for (Los los : losRepository.findAllById(Arrays.asList(losIds))) {
+                losById.put(los.getId(), los);
+            }
             for (String losId : losIds) {
-                if (!losRepository.existsById(losId)) throw new Exception("Learning Outcome not found: " + losId);
+                if (!losById.containsKey(losId)) throw new Exception("Learning Outcome not found: " + losId);
             }
 
             MarkType tempType = MarkType.FINAL_EXAM;
@@ -171,161 +193,165 @@ public class ExcelImportService {
             }
             final MarkType finalType = tempType;
 
-            try (InputStream is = file.getInputStream(); Workbook workbook = WorkbookFactory.create(is)) {
-                // Find the data sheet (skip METADATA, Instructions)
-                Sheet sheet = null;
-                for (int si = 0; si < workbook.getNumberOfSheets(); si++) {
-                    String sname = workbook.getSheetName(si).toUpperCase();
-                    if (!sname.equals("METADATA") && !sname.equals("INSTRUCTIONS")) { sheet = workbook.getSheetAt(si); break; }
+            // Pass 1 (streamed): locate the header, derive per-LO max marks and validate every row.
+            // Nothing is written until the whole file has been checked.
+            BulkSheetLayout layout = new BulkSheetLayout();
+            List<String> errors = new java.util.ArrayList<>();
+            Set<String> studentIds = new LinkedHashSet<>();
+            SpreadsheetRowReader.RowHandler validator = (rowNum, cells) -> {
+                if (layout.headerRowIdx < 0) {
+                    if (rowNum != 0) throw new Exception("Excel file must have a header row");
+                    // Header may be row 0 (old) or row 1 (new with title).
+                    // If row 0 col 0 looks like a title (not "Student Index"), shift to row 1
+                    String firstCell = cellAt(cells, 0) != null ? cellAt(cells, 0).trim() : "";
+                    layout.headerRowIdx = (!firstCell.toLowerCase().contains("student") && !firstCell.toLowerCase().contains("index")) ? 1 : 0;
+                    if (layout.headerRowIdx == 0) layout.loMax = buildLoMax(cells, losIds, perLoMaxMarks);
+                    return;
                 }
-                if (sheet == null) sheet = workbook.getSheetAt(0);
-
-                // Find header row — may be row 0 (old) or row 1 (new with title)
-                Row headerRow = sheet.getRow(0);
-                if (headerRow == null) throw new Exception("Excel file must have a header row");
-                // If row 0 col 0 looks like a title (not "Student Index"), shift to row 1
-                int headerRowIdx = 0;
-                String firstCell = headerRow.getCell(0) != null ? headerRow.getCell(0).toString().trim() : "";
-                if (!firstCell.toLowerCase().contains("student") && !firstCell.toLowerCase().contains("index")) {
-                    headerRowIdx = 1;
-                    headerRow = sheet.getRow(1);
+                if (rowNum < layout.headerRowIdx) return;
+                if (rowNum == layout.headerRowIdx) {
+                    layout.loMax = buildLoMax(cells, losIds, perLoMaxMarks);
+                    return;
                 }
-                if (headerRow == null) throw new Exception("Could not find header row in Excel file");
-
-                // Build per-LO max marks from header if not provided
-                Map<String, Double> effectiveLoMax = new java.util.LinkedHashMap<>();
-                if (perLoMaxMarks != null && !perLoMaxMarks.isEmpty()) {
-                    effectiveLoMax.putAll(perLoMaxMarks);
-                } else {
-                    // Try to parse max from header: "LO1 (max=50)"
-                    for (int i = 0; i < losIds.length; i++) {
-                        Cell hCell = headerRow.getCell(i + 1);
-                        double mx = 100.0;
-                        if (hCell != null) {
-                            String hVal = hCell.toString();
-                            java.util.regex.Matcher m = java.util.regex.Pattern.compile("max=([0-9.]+)").matcher(hVal);
-                            if (m.find()) { try { mx = Double.parseDouble(m.group(1)); } catch (Exception ignored) {} }
-                        }
-                        effectiveLoMax.put(losIds[i], mx);
+                if (layout.loMax == null) throw new Exception("Could not find header row in Excel file");
+
+                String idxCell = cellAt(cells, 0);
+                if (idxCell == null || idxCell.trim().isEmpty()) return;
+                String studentIndex = idxCell.trim();
+                studentIds.add(studentIndex);
+                for (int i = 0; i < losIds.length; i++) {
+                    Double score = parseScore(cellAt(cells, i + 1));
+                    if (score == null) continue;
+                    double maxMark = layout.loMax.getOrDefault(losIds[i], 100.0);
+                    if (score < 0 || score > maxMark) {
+                        errors.add("Row " + (rowNum + 1) + ", Student " + studentIndex +
+                                   ", " + losIds[i] + ": score " + score + " out of range [0, " + (int)maxMark + "]");
                     }
                 }
-
-                // Validate all marks first (collect errors, reject whole file if any)
-                List<String> errors = new java.util.ArrayList<>();
-                for (Row row : sheet) {
-                    if (row.getRowNum() <= headerRowIdx) continue;
-                    Cell idxCell = row.getCell(0);
-                    if (idxCell == null || idxCell.toString().trim().isEmpty()) continue;
-                    String studentIndex = idxCell.toString().trim();
-                    for (int i = 0; i < losIds.length; i++) {
-                        Cell markCell = row.getCell(i + 1);
-                        if (markCell == null || markCell.toString().trim().isEmpty()) continue;
-                        String raw = markCell.toString().trim().toUpperCase();
-                        if (raw.equals("AB") || raw.equals("MC") || raw.equals("N/A")) continue;
-                        double score;
-                        try { score = Double.parseDouble(raw); } catch (NumberFormatException e) { continue; }
-                        double maxMark = effectiveLoMax.getOrDefault(losIds[i], 100.0);
-                        if (score < 0 || score > maxMark) {
-                            errors.add("Row " + (row.getRowNum() + 1) + ", Student " + studentIndex +
-                                       ", " + losIds[i] + ": score " + score + " out of range [0, " + (int)maxMark + "]");
-                        }
+            };
+            // Data sheet is the first one that isn't METADATA/Instructions, else the first sheet
+            java.util.function.Predicate<String> dataSheet = name -> {
+                String sname = name.toUpperCase();
+                return !sname.equals("METADATA") && !sname.equals("INSTRUCTIONS");
+            };
+            try (InputStream is = file.getInputStream()) {
+                if (!SpreadsheetRowReader.readSheet(is, dataSheet, validator)) {
+                    dataSheet = name -> true;
+                    try (InputStream again = file.getInputStream()) {
+                        SpreadsheetRowReader.readSheet(again, dataSheet, validator);
                     }
                 }
-                if (!errors.isEmpty()) {
-                    throw new Exception("Validation failed — " + errors.size() + " error(s):\n" + String.join("\n", errors));
-                }
+            }
+            if (layout.headerRowIdx < 0) throw new Exception("Excel file must have a header row");
+            if (layout.loMax == null) throw new Exception("Could not find header row in Excel file");
+            if (!errors.isEmpty()) {
+                progress.setErrors(errors);
+                throw new Exception("Validation failed — " + errors.size() + " error(s):\n" + String.join("\n", errors));
+            }
+            Map<String, Double> effectiveLoMax = layout.loMax;
 
-                // Delete existing marks for this exact assignment
-                for (String losId : losIds) {
-                    if (assignmentLabel != null && !assignmentLabel.isBlank()) {
-                        markRepository.deleteByLos_IdAndBatchAndMarkTypeAndAssignmentLabel(losId, batch, finalType, assignmentLabel);
-                    } else {
-                        markRepository.deleteByLos_IdAndBatch(losId, batch);
-                    }
-                }
+            // All students in one query; unknown ones are created in one batch
+            Map<String, Student> studentsById = resolveStudents(studentIds, Collections.emptyMap());
 
-                // Create/update AssessmentTemplate + AssessmentItems for per-LO max marks
-                if (!effectiveLoMax.isEmpty()) {
-                    String tmplBatch = batch != null ? batch : "batch";
-                    String tmplType = markType != null ? markType.toUpperCase() : "FINAL_EXAM";
-                    String tmplLabel = assignmentLabel != null ? assignmentLabel : "";
-                    String tmplId = "lo_" + tmplBatch + "_" + tmplType + (tmplLabel.isEmpty() ? "" : "_" + tmplLabel.replaceAll("[^a-zA-Z0-9]", "_"));
-                    // Delete old template+items for this id if re-uploading
-                    if (assessmentTemplateRepository.existsById(tmplId)) {
-                        assessmentTemplateRepository.deleteById(tmplId);
-                    }
-                    AssessmentTemplate tmpl = new AssessmentTemplate();
-                    tmpl.setId(tmplId);
-                    tmpl.setBatch(tmplBatch);
-                    tmpl.setMarkType(tmplType);
-                    tmpl.setAssignmentLabel(tmplLabel.isEmpty() ? null : tmplLabel);
-                    tmpl.setName(tmplBatch + "_" + tmplType + (tmplLabel.isEmpty() ? "" : "_" + tmplLabel) + "_lo_wise");
-                    tmpl = assessmentTemplateRepository.save(tmpl);
-                    for (int i = 0; i < losIds.length; i++) {
-                        String losId = losIds[i];
-                        Los los = losRepository.findById(losId).orElse(null);
-                        if (los == null) continue;
-                        double mx = effectiveLoMax.getOrDefault(losId, 100.0);
-                        AssessmentItem item = new AssessmentItem();
-                        item.setAssessmentTemplate(tmpl);
-                        item.setLos(los);
-                        item.setQuestionNumber(1);
-                        item.setQuestionLabel("LO" + (i + 1));
-                        item.setMaxMarks(mx);
-                        assessmentItemRepository.save(item);
-                    }
+            // Delete existing marks for this exact assignment
+            for (String losId : losIds) {
+                if (assignmentLabel != null && !assignmentLabel.isBlank()) {
+                    markRepository.deleteByLos_IdAndBatchAndMarkTypeAndAssignmentLabel(losId, batch, finalType, assignmentLabel);
+                } else {
+                    markRepository.deleteByLos_IdAndBatch(losId, batch);
+                }
+            }
+            // The batch inserts below bypass Hibernate, so pending deletes must hit the DB first
+            markRepository.flush();
+
+            // Create/update AssessmentTemplate + AssessmentItems for per-LO max marks
+            if (!effectiveLoMax.isEmpty()) {
+                String tmplBatch = batch != null ? batch : "batch";
+                String tmplType = markType != null ? markType.toUpperCase() : "FINAL_EXAM";
+                String tmplLabel = assignmentLabel != null ? assignmentLabel : "";
+                String tmplId = "lo_" + tmplBatch + "_" + tmplType + (tmplLabel.isEmpty() ? "" : "_" + tmplLabel.replaceAll("[^a-zA-Z0-9]", "_"));
+                // Delete old template+items for this id if re-uploading
+                if (assessmentTemplateRepository.existsById(tmplId)) {
+                    assessmentTemplateRepository.deleteById(tmplId);
+                }
+                AssessmentTemplate tmpl = new AssessmentTemplate();
+                tmpl.setId(tmplId);
+                tmpl.setBatch(tmplBatch);
+                tmpl.setMarkType(tmplType);
+                tmpl.setAssignmentLabel(tmplLabel.isEmpty() ? null : tmplLabel);
+                tmpl.setName(tmplBatch + "_" + tmplType + (tmplLabel.isEmpty() ? "" : "_" + tmplLabel) + "_lo_wise");
+                tmpl = assessmentTemplateRepository.save(tmpl);
+                for (int i = 0; i < losIds.length; i++) {
+                    String losId = losIds[i];
+                    Los los = losById.get(losId);
+                    if (los == null) continue;
+                    double mx = effectiveLoMax.getOrDefault(losId, 100.0);
+                    AssessmentItem item = new AssessmentItem();
+                    item.setAssessmentTemplate(tmpl);
+                    item.setLos(los);
+                    item.setQuestionNumber(1);
+                    item.setQuestionLabel("LO" + (i + 1));
+                    item.setMaxMarks(mx);
+                    assessmentItemRepository.save(item);
                 }
+            }
 
-                // Import marks
-                int totalImported = 0;
-                for (Row row : sheet) {
-                    if (row.getRowNum() <= headerRowIdx) continue;
-                    Cell idxCell = row.getCell(0);
-                    if (idxCell == null || idxCell.toString().trim().isEmpty()) continue;
-                    String studentIndex = idxCell.toString().trim();
-                    final Student student = studentRepository.findById(studentIndex).orElseGet(() -> {
-                        Student s = new Student(); s.setStudentId(studentIndex); s.setStudentName("Unknown");
-                        return studentRepository.save(s);
-                    });
+            // Pass 2 (streamed): build marks row by row and write them in JDBC batches
+            int[] totalImported = {0};
+            final int headerRowIdx = layout.headerRowIdx;
+            List<StudentMark> pending = new ArrayList<>(MarkBulkWriter.BATCH_SIZE);
+            try (InputStream is = file.getInputStream()) {
+                SpreadsheetRowReader.readSheet(is, dataSheet, (rowNum, cells) -> {
+                    if (rowNum <= headerRowIdx) return;
+                    String idxCell = cellAt(cells, 0);
+                    if (idxCell == null || idxCell.trim().isEmpty()) return;
+                    Student student = studentsById.get(idxCell.trim());
                     for (int i = 0; i < losIds.length; i++) {
-                        final String losId = losIds[i];
-                        Cell markCell = row.getCell(i + 1);
-                        if (markCell == null || markCell.toString().trim().isEmpty()) continue;
-                        String raw = markCell.toString().trim().toUpperCase();
-                        if (raw.equals("AB") || raw.equals("MC") || raw.equals("N/A")) continue;
-                        double score;
-                        try { score = Double.parseDouble(raw); } catch (NumberFormatException e) { continue; }
-                        Los los = losRepository.findById(losId).orElseThrow(() -> new Exception("LO not found: " + losId));
+                        Double score = parseScore(cellAt(cells, i + 1));
+                        if (score == null) continue;
                         StudentMark mark = new StudentMark();
-                        mark.setStudent(student); mark.setScore(score); mark.setLos(los);
+                        mark.setStudent(student); mark.setScore(score); mark.setLos(losById.get(losIds[i]));
                         mark.setBatch(batch); mark.setMarkType(finalType); mark.setAssignmentLabel(assignmentLabel);
-                        markRepository.save(mark);
-                        totalImported++;
+                        pending.add(mark);
+                        totalImported[0]++;
                     }
-                }
-                return "Successfully imported " + totalImported + " LO marks from " + losIds.length + " LOs"
-                    + (assignmentLabel != null ? " for " + assignmentLabel : "");
+                    if (pending.size() >= MarkBulkWriter.BATCH_SIZE) {
+                        markBulkWriter.insertStudentMarks(pending);
+                        progress.addRows(pending.size());
+                        pending.clear();
+                    }
+                });
             }
+            markBulkWriter.insertStudentMarks(pending);
+            progress.addRows(pending.size());
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(Arrays.asList(losIds), batch));
+            return "Successfully imported " + totalImported[0] + " LO marks from " + losIds.length + " LOs"
+                + (assignmentLabel != null ? " for " + assignmentLabel : "")
+                + " (" + rowsPerSecond(totalImported[0], started) + " rows/sec)";
         } catch (RuntimeException e) { throw e; }
           catch (Exception e) { throw new RuntimeException(e.getMessage(), e); }
     }
 
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importMarksOBEFormat(String losId, MultipartFile file, String batch) {
         return importMarksOBEFormat(losId, file, batch, "FINAL_EXAM");
     }
 
     // Backward compatibility - defaults to null batch
+    @Observed(name = "obe.excel.import")
     public String importMarksOBEFormat(String losId, MultipartFile file) {
         return importMarksOBEFormat(losId, file, null);
     }
 
     // Alias for standard import if needed, or different logic
+    @Observed(name = "obe.excel.import")
     public String importStudentMarksFromExcel(String losId, MultipartFile file) {
         return importMarksOBEFormat(losId, file, null);
     }
 
     // Backward compatibility
+    @Observed(name = "obe.excel.import")
     public void importMarks(MultipartFile file, String losId) throws Exception {
         importMarksOBEFormat(losId, file, null);
     }
@@ -335,12 +361,22 @@ public class ExcelImportService {
      * Expected Excel layout: Student ID | Student Name | Q1 | Q2 | ...
      */
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importQuestionWiseMarks(MultipartFile file, String templateId, String batch, String markType) {
         return importQuestionWiseMarks(file, templateId, batch, markType, null);
     }
 
     @Transactional
+    @Observed(name = "obe.excel.import")
     public String importQuestionWiseMarks(MultipartFile file, String templateId, String batch, String markType, String assignmentLabel) {
+        return importQuestionWiseMarks(file, templateId, batch, markType, assignmentLabel, new ImportProgress());
+    }
+
+    /** Same as above, reporting rows written and validation errors to {@code progress} as it goes. */
+    @Transactional
+    @Observed(name = "obe.excel.import")
+    public String importQuestionWiseMarks(MultipartFile file, String templateId, String batch, String markType,
+                                          String assignmentLabel, ImportProgress progress) {
         try {
             if (templateId == null || templateId.trim().isEmpty()) {
                 throw new Exception("templateId is required for question-wise import");
@@ -359,82 +395,92 @@ public class ExcelImportService {
             // Detect column layout from header row: new templates have Student ID at col 0, Q1 at col 1.
             // Old templates (with Student Name) have Q1 at col 2. Detect by reading header.
             final int[] qColOffset = {1}; // default: Q1 at col 1
+            long started = System.nanoTime();
+            int dataStartRow = 3;
 
-            studentAssessmentScoreRepository.deleteByAssessmentItem_AssessmentTemplate_Id(templateId.trim());
-
-            Map<String, Double> totalsByStudentAndLo = new HashMap<>();
-            Map<String, Student> studentsById = new HashMap<>();
+            // Pass 1 (streamed): detect the layout, collect students and validate every score
+            Map<String, String> namesById = new java.util.LinkedHashMap<>();
             List<String> validationErrors = new ArrayList<>();
-            int questionScoresSaved = 0;
-
-            try (InputStream is = file.getInputStream(); Workbook workbook = WorkbookFactory.create(is)) {
-                Sheet sheet = workbook.getSheetAt(0);
-
-                // Detect layout from row 2 (header row) col 1
-                Row headerRow = sheet.getRow(2);
-                if (headerRow != null) {
-                    Cell col1Header = headerRow.getCell(1);
-                    if (col1Header != null) {
-                        String col1Val = col1Header.toString().trim().toLowerCase();
-                        if (col1Val.startsWith("student name") || col1Val.equals("name")) {
-                            qColOffset[0] = 2; // old format: Student ID | Student Name | Q1...
+            try (InputStream is = file.getInputStream()) {
+                SpreadsheetRowReader.readSheet(is, name -> true, (rowNum, cells) -> {
+                    // Detect layout from row 2 (header row) col 1
+                    if (rowNum == 2) {
+                        String col1Header = cellAt(cells, 1);
+                        if (col1Header != null) {
+                            String col1Val = col1Header.trim().toLowerCase();
+                            if (col1Val.startsWith("student name") || col1Val.equals("name")) {
+                                qColOffset[0] = 2; // old format: Student ID | Student Name | Q1...
+                            }
                         }
                     }
-                }
-
-                int dataStartRow = 3;
-                for (Row row : sheet) {
-                    if (row.getRowNum() < dataStartRow) continue;
+                    if (rowNum < dataStartRow) return;
 
-                    Cell studentIdCell = row.getCell(0);
-                    if (studentIdCell == null || studentIdCell.toString().trim().isEmpty()) continue;
+                    String studentIdCell = cellAt(cells, 0);
+                    if (studentIdCell == null || studentIdCell.trim().isEmpty()) return;
 
-                    String studentId = studentIdCell.toString().trim();
+                    String studentId = studentIdCell.trim();
 
                     // If old format, read student name from col 1
                     String studentName = "Unknown";
                     if (qColOffset[0] == 2) {
-                        Cell nameCell = row.getCell(1);
-                        if (nameCell != null && !nameCell.toString().trim().isEmpty()) {
-                            studentName = nameCell.toString().trim();
+                        String nameCell = cellAt(cells, 1);
+                        if (nameCell != null && !nameCell.trim().isEmpty()) {
+                            studentName = nameCell.trim();
                         }
                     }
-
-                    final String finalStudentName = studentName;
-                    Student student = studentRepository.findById(studentId).orElseGet(() -> {
-                        Student s = new Student();
-                        s.setStudentId(studentId);
-                        s.setStudentName(finalStudentName.isEmpty() ? "Unknown" : finalStudentName);
-                        return studentRepository.save(s);
-                    });
-                    if ((student.getStudentName() == null || student.getStudentName().equals("Unknown")) && !finalStudentName.isEmpty()) {
-                        student.setStudentName(finalStudentName);
-                        studentRepository.save(student);
-                    }
-                    studentsById.put(studentId, student);
+                    namesById.put(studentId, studentName);
 
                     for (int i = 0; i < items.size(); i++) {
                         AssessmentItem item = items.get(i);
-                        Cell markCell = row.getCell(i + qColOffset[0]);
-                        if (markCell == null || markCell.toString().trim().isEmpty()) continue;
-
-                        Double score = parseScore(markCell);
+                        Double score = parseScore(cellAt(cells, i + qColOffset[0]));
                         if (score == null) continue;
 
                         double maxForItem = item.getMaxMarks() != null ? item.getMaxMarks() : 100.0;
                         // Validate range — collect all errors before rejecting
                         if (score < 0 || score > maxForItem) {
-                            validationErrors.add("Row " + (row.getRowNum() + 1) + ", Student " + studentId +
+                            validationErrors.add("Row " + (rowNum + 1) + ", Student " + studentId +
                                 ", Q" + (i + 1) + ": score " + score + " is out of range [0, " + maxForItem + "]");
-                            continue;
                         }
+                    }
+                });
+            }
+
+            // Reject entire upload if any score was out of range
+            if (!validationErrors.isEmpty()) {
+                progress.setErrors(validationErrors);
+                throw new Exception("Upload rejected — invalid marks found:\n" + String.join("\n", validationErrors));
+            }
+
+            // All students in one query; unknown ones are created in one batch
+            Map<String, Student> studentsById = resolveStudents(namesById.keySet(), namesById);
+
+            studentAssessmentScoreRepository.deleteByAssessmentItem_AssessmentTemplate_Id(templateId.trim());
+            // The batch inserts below bypass Hibernate, so pending deletes must hit the DB first
+            studentAssessmentScoreRepository.flush();
+
+            // Pass 2 (streamed): write question scores in JDBC batches and total them per student/LO
+            Map<String, Double> totalsByStudentAndLo = new HashMap<>();
+            int[] questionScoresSaved = {0};
+            List<StudentAssessmentScore> pending = new ArrayList<>(MarkBulkWriter.BATCH_SIZE);
+            try (InputStream is = file.getInputStream()) {
+                SpreadsheetRowReader.readSheet(is, name -> true, (rowNum, cells) -> {
+                    if (rowNum < dataStartRow) return;
+                    String studentIdCell = cellAt(cells, 0);
+                    if (studentIdCell == null || studentIdCell.trim().isEmpty()) return;
+                    String studentId = studentIdCell.trim();
+                    Student student = studentsById.get(studentId);
+
+                    for (int i = 0; i < items.size(); i++) {
+                        AssessmentItem item = items.get(i);
+                        Double score = parseScore(cellAt(cells, i + qColOffset[0]));
+                        if (score == null) continue;
 
                         StudentAssessmentScore assessmentScore = new StudentAssessmentScore();
                         assessmentScore.setStudent(student);
                         assessmentScore.setAssessmentItem(item);
                         assessmentScore.setScore(score);
-                        studentAssessmentScoreRepository.save(assessmentScore);
-                        questionScoresSaved++;
+                        pending.add(assessmentScore);
+                        questionScoresSaved[0]++;
 
                         String loId = item.getLos() != null ? item.getLos().getId() : null;
                         if (loId != null) {
@@ -442,13 +488,15 @@ public class ExcelImportService {
                             totalsByStudentAndLo.put(key, totalsByStudentAndLo.getOrDefault(key, 0.0) + score);
                         }
                     }
-                }
-            }
-
-            // Reject entire upload if any score was out of range
-            if (!validationErrors.isEmpty()) {
-                throw new Exception("Upload rejected — invalid marks found:\n" + String.join("\n", validationErrors));
+                    if (pending.size() >= MarkBulkWriter.BATCH_SIZE) {
+                        markBulkWriter.insertAssessmentScores(pending);
+                        progress.addRows(pending.size());
+                        pending.clear();
+                    }
+                });
             }
+            markBulkWriter.insertAssessmentScores(pending);
+            progress.addRows(pending.size());
 
             // Delete only this assignment's LO marks (preserve other assignments)
             List<String> affectedLoIds = new ArrayList<>();
@@ -467,16 +515,19 @@ public class ExcelImportService {
                 }
             }
 
-            int aggregatedMarksSaved = 0;
+            markRepository.flush();
+
+            Map<String, Los> losById = new HashMap<>();
+            for (AssessmentItem item : items) {
+                if (item.getLos() != null) losById.put(item.getLos().getId(), item.getLos());
+            }
+            List<StudentMark> aggregated = new ArrayList<>();
             for (Map.Entry<String, Double> entry : totalsByStudentAndLo.entrySet()) {
                 String[] parts = entry.getKey().split("::", 2);
                 if (parts.length != 2) continue;
-                String studentId = parts[0];
-                String loId = parts[1];
 
-                Student student = studentsById.get(studentId);
-                if (student == null) student = studentRepository.findById(studentId).orElse(null);
-                Los los = losRepository.findById(loId).orElse(null);
+                Student student = studentsById.get(parts[0]);
+                Los los = losById.get(parts[1]);
                 if (student == null || los == null) continue;
 
                 StudentMark mark = new StudentMark();
@@ -486,22 +537,86 @@ public class ExcelImportService {
                 mark.setBatch(batch);
                 mark.setMarkType(type);
                 mark.setAssignmentLabel(assignmentLabel);
-                markRepository.save(mark);
-                aggregatedMarksSaved++;
+                aggregated.add(mark);
             }
+            markBulkWriter.insertStudentMarks(aggregated);
+            int aggregatedMarksSaved = aggregated.size();
+            progress.addRows(aggregatedMarksSaved);
+            eventPublisher.publishEvent(MarksChangedEvent.forLos(affectedLoIds, batch != null ? batch.trim() : null));
 
-            return "Successfully imported " + questionScoresSaved + " question scores and " + aggregatedMarksSaved + " LO marks for " + (assignmentLabel != null ? assignmentLabel : templateId);
+            return "Successfully imported " + questionScoresSaved[0] + " question scores and " + aggregatedMarksSaved + " LO marks for " + (assignmentLabel != null ? assignmentLabel : templateId)
+                + " (" + rowsPerSecond(questionScoresSaved[0] + aggregatedMarksSaved, started) + " rows/sec)";
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
-    private Double parseScore(Cell cell) {
-        if (cell == null) return null;
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return cell.getNumericCellValue();
+    /**
+     * Load every referenced student in one query and batch-insert the ones that don't exist yet.
+     * @param names optional display names from the sheet, used for new students and to replace "Unknown"
+     */
+    private Map<String, Student> resolveStudents(Set<String> studentIds, Map<String, String> names) {
+        Map<String, Student> studentsById = new HashMap<>();
+        if (studentIds.isEmpty()) return studentsById;
+        for (Student s : studentRepository.findAllById(studentIds)) {
+            studentsById.put(s.getStudentId(), s);
+            String name = names.get(s.getStudentId());
+            if ((s.getStudentName() == null || s.getStudentName().equals("Unknown")) && name != null && !name.isEmpty()) {
+                s.setStudentName(name); // managed entity: flushed with the transaction
+            }
+        }
+        List<Student> missing = new ArrayList<>();
+        for (String id : studentIds) {
+            if (studentsById.containsKey(id)) continue;
+            String name = names.get(id);
+            Student s = new Student();
+            s.setStudentId(id);
+            s.setStudentName(name == null || name.isEmpty() ? "Unknown" : name);
+            missing.add(s);
+            studentsById.put(id, s);
         }
-        String val = cell.toString().trim().toUpperCase();
+        markBulkWriter.insertStudents(missing);
+        return studentsById;
+    }
+
+    private static long rowsPerSecond(int rows, long startedNanos) {
+        double seconds = (System.nanoTime() - startedNanos) / 1_000_000_000.0;
+        return seconds > 0 ? Math.round(rows / seconds) : rows;
+    }
+
+    // Header/max-marks state discovered while streaming the bulk sheet
+    private static final class BulkSheetLayout {
+        int headerRowIdx = -1;
+        Map<String, Double> loMax;
+    }
+
+    // Per-LO max marks: explicit overrides win, else parse "LO1 (max=50)" from the header
+    private Map<String, Double> buildLoMax(List<String> headerCells, String[] losIds, Map<String, Double> perLoMaxMarks) {
+        Map<String, Double> effectiveLoMax = new java.util.LinkedHashMap<>();
+        if (perLoMaxMarks != null && !perLoMaxMarks.isEmpty()) {
+            effectiveLoMax.putAll(perLoMaxMarks);
+            return effectiveLoMax;
+        }
+        for (int i = 0; i < losIds.length; i++) {
+            String hVal = cellAt(headerCells, i + 1);
+            double mx = 100.0;
+            if (hVal != null) {
+                java.util.regex.Matcher m = java.util.regex.Pattern.compile("max=([0-9.]+)").matcher(hVal);
+                if (m.find()) { try { mx = Double.parseDouble(m.group(1)); } catch (Exception ignored) {} }
+            }
+            effectiveLoMax.put(losIds[i], mx);
+        }
+        return effectiveLoMax;
+    }
+
+    private static String cellAt(List<String> cells, int index) {
+        return index < cells.size() ? cells.get(index) : null;
+    }
+
+    // Mark cell: blank, N/A, AB, MC and non-numeric text mean "no score"
+    private Double parseScore(String cell) {
+        if (cell == null) return null;
+        String val = cell.trim().toUpperCase();
         if (val.isEmpty() || val.equals("N/A") || val.equals("AB") || val.equals("MC")) {
             return null;
         }
@@ -0,0 +1,248 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.ImportJob;
+import com.example.Software.project.Backend.Repository.ImportJobRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs mark uploads off the request thread.
+ *
+ * An upload is persisted as an import_job row, its file streamed to import.jobs.upload-dir, and
+ * handed to a fixed-size worker pool, so a burst of end-of-semester uploads queues up instead of
+ * tying up Tomcat threads.
+ * Each job runs one ExcelImportService call in its own transaction; jobs left QUEUED or RUNNING
+ * by a shutdown are started again on the next boot (a RUNNING job's transaction was rolled back).
+ */
+@Service
+public class ImportJobService {
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+    @Autowired
+    private ExcelImportService excelImportService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${import.jobs.workers:2}")
+    private int workers;
+
+    // Must be shared storage when several instances resume each other's jobs
+    @Value("${import.jobs.upload-dir:${java.io.tmpdir}/mark-imports}")
+    private String uploadDir;
+
+    private ThreadPoolExecutor executor;
+
+    // Progress of the jobs currently on a worker, read by getJobStatus while they run
+    private final Map<String, ImportProgress> running = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNo = new AtomicInteger();
+        int size = Math.max(1, workers);
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "mark-import-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<ImportJob> unfinished = importJobRepository.findByStatusInOrderByCreatedAt(
+                List.of(ImportJob.Status.QUEUED, ImportJob.Status.RUNNING));
+        for (ImportJob job : unfinished) {
+            if (job.getStatus() == ImportJob.Status.RUNNING) {
+                job.setStatus(ImportJob.Status.QUEUED);
+                importJobRepository.save(job);
+            }
+            System.out.println("Resuming mark import job " + job.getId());
+            executor.execute(() -> run(job.getId()));
+        }
+    }
+
+    public ImportJob submitBulk(MultipartFile file, String[] losIds, String batch, String markType,
+                                String assignmentLabel, Map<String, Double> perLoMaxMarks, String createdBy) throws IOException {
+        ImportJob job = newJob(ImportJob.Kind.LO_BULK, file, batch, markType, assignmentLabel, createdBy);
+        job.setLosIds(String.join(",", losIds));
+        if (perLoMaxMarks != null && !perLoMaxMarks.isEmpty()) {
+            job.setPerLoMaxMarks(objectMapper.writeValueAsString(perLoMaxMarks));
+        }
+        return enqueue(job);
+    }
+
+    public ImportJob submitQuestionWise(MultipartFile file, String templateId, String batch, String markType,
+                                        String assignmentLabel, String createdBy) throws IOException {
+        ImportJob job = newJob(ImportJob.Kind.QUESTION_WISE, file, batch, markType, assignmentLabel, createdBy);
+        job.setTemplateId(templateId);
+        return enqueue(job);
+    }
+
+    public Optional<ImportJob> getJob(String jobId) {
+        return importJobRepository.findById(jobId);
+    }
+
+    /** Poll view of a job; rows and rate come from the live counters while it is running. */
+    public Map<String, Object> getJobStatus(ImportJob job) {
+        ImportProgress live = running.get(job.getId());
+        String errors = job.getErrors();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", job.getId());
+        status.put("kind", job.getKind());
+        status.put("state", job.getStatus());
+        status.put("batch", job.getBatch());
+        status.put("markType", job.getMarkType());
+        status.put("rowsProcessed", live != null ? live.getRowsProcessed() : Objects.requireNonNullElse(job.getRowsProcessed(), 0L));
+        status.put("rowsPerSecond", live != null ? live.getRowsPerSecond() : Objects.requireNonNullElse(job.getRowsPerSecond(), 0L));
+        status.put("errors", errors == null || errors.isEmpty() ? List.of() : Arrays.asList(errors.split("\n")));
+        status.put("result", job.getMessage());
+        status.put("createdBy", job.getCreatedBy());
+        status.put("createdAt", job.getCreatedAt());
+        status.put("startedAt", job.getStartedAt());
+        status.put("finishedAt", job.getFinishedAt());
+        return status;
+    }
+
+    private ImportJob newJob(ImportJob.Kind kind, MultipartFile file, String batch, String markType,
+                             String assignmentLabel, String createdBy) throws IOException {
+        ImportJob job = new ImportJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setKind(kind);
+        job.setStatus(ImportJob.Status.QUEUED);
+        job.setFileName(file.getOriginalFilename());
+        job.setFilePath(store(job.getId(), file).toString());
+        job.setBatch(batch);
+        job.setMarkType(markType);
+        job.setAssignmentLabel(assignmentLabel);
+        job.setCreatedBy(createdBy);
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    // Streams the upload to disk instead of holding it in memory and in a BLOB column
+    private Path store(String jobId, MultipartFile file) throws IOException {
+        Path dir = Path.of(uploadDir);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(jobId + ".upload");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private ImportJob enqueue(ImportJob job) {
+        // Saved (and committed) before a worker can look it up
+        ImportJob saved = importJobRepository.save(job);
+        executor.execute(() -> run(saved.getId()));
+        return saved;
+    }
+
+    void run(String jobId) {
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != ImportJob.Status.QUEUED) return;
+
+        // A resume and the original enqueue (or two instances) can both see the job QUEUED;
+        // only the worker whose conditional update moves it to RUNNING imports it
+        LocalDateTime startedAt = LocalDateTime.now();
+        if (!importJobRepository.claimQueued(jobId, startedAt)) return;
+        job.setStatus(ImportJob.Status.RUNNING);
+        job.setStartedAt(startedAt);
+
+        ImportProgress progress = new ImportProgress();
+        running.put(jobId, progress);
+        try {
+            MultipartFile file = new StoredUpload(job.getFileName(), job.getFilePath());
+            String result;
+            if (job.getKind() == ImportJob.Kind.QUESTION_WISE) {
+                result = excelImportService.importQuestionWiseMarks(file, job.getTemplateId(), job.getBatch(),
+                        job.getMarkType(), job.getAssignmentLabel(), progress);
+            } else {
+                result = excelImportService.importMarksBulk(file, job.getLosIds().split(","), job.getBatch(),
+                        job.getMarkType(), job.getAssignmentLabel(), perLoMaxMarks(job), progress);
+            }
+            job.setStatus(ImportJob.Status.SUCCEEDED);
+            job.setMessage(result);
+        } catch (Exception e) {
+            job.setStatus(ImportJob.Status.FAILED);
+            job.setMessage(e.getMessage());
+            System.err.println("Mark import job " + jobId + " failed: " + e.getMessage());
+        } finally {
+            running.remove(jobId);
+            // A failed import rolled back, so none of the rows it got through were kept
+            boolean succeeded = job.getStatus() == ImportJob.Status.SUCCEEDED;
+            job.setRowsProcessed(succeeded ? progress.getRowsProcessed() : 0L);
+            job.setRowsPerSecond(succeeded ? progress.getRowsPerSecond() : 0L);
+            job.setErrors(progress.getErrors().isEmpty() ? null : String.join("\n", progress.getErrors()));
+            job.setFinishedAt(LocalDateTime.now());
+            // The upload is no longer needed once the job has an outcome
+            deleteUpload(job);
+            importJobRepository.save(job);
+        }
+    }
+
+    private void deleteUpload(ImportJob job) {
+        if (job.getFilePath() == null) return;
+        try {
+            Files.deleteIfExists(Path.of(job.getFilePath()));
+        } catch (IOException e) {
+            System.err.println("Could not delete upload of mark import job " + job.getId() + ": " + e.getMessage());
+        }
+        job.setFilePath(null);
+    }
+
+    private Map<String, Double> perLoMaxMarks(ImportJob job) throws IOException {
+        if (job.getPerLoMaxMarks() == null || job.getPerLoMaxMarks().isBlank()) return null;
+        return objectMapper.readValue(job.getPerLoMaxMarks(), new TypeReference<Map<String, Double>>() {});
+    }
+
+    // The stored upload, presented to ExcelImportService the way the original request was.
+    // A missing file (e.g. upload-dir not shared with the instance that queued the job) fails the job.
+    private static final class StoredUpload implements MultipartFile {
+        private final String fileName;
+        private final Path path;
+
+        StoredUpload(String fileName, String path) throws IOException {
+            if (path == null || !Files.isRegularFile(Path.of(path))) {
+                throw new IOException("Uploaded file for " + fileName + " is no longer available");
+            }
+            this.fileName = fileName;
+            this.path = Path.of(path);
+        }
+
+        @Override public String getName() { return "excelFile"; }
+        @Override public String getOriginalFilename() { return fileName; }
+        @Override public String getContentType() { return null; }
+        @Override public boolean isEmpty() { return getSize() == 0; }
+        @Override public long getSize() { return path.toFile().length(); }
+        @Override public byte[] getBytes() throws IOException { return Files.readAllBytes(path); }
+        @Override public InputStream getInputStream() throws IOException { return Files.newInputStream(path); }
+        @Override public void transferTo(File dest) throws IOException { Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING); }
+    }
+}
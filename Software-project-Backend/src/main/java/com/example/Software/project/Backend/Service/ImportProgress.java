@@ -0,0 +1,35 @@
+package com.example.Software.project.Backend.Service;
+
+import java.util.List;
+
+/**
+ * Live counters for one running mark import. ExcelImportService updates it from the import
+ * thread after every JDBC batch; ImportJobService reads it when a job is polled.
+ */
+public class ImportProgress {
+
+    private final long startedNanos = System.nanoTime();
+    private volatile long rowsProcessed;
+    private volatile List<String> errors = List.of();
+
+    void addRows(int rows) {
+        rowsProcessed += rows;
+    }
+
+    void setErrors(List<String> errors) {
+        this.errors = List.copyOf(errors);
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public long getRowsPerSecond() {
+        double seconds = (System.nanoTime() - startedNanos) / 1_000_000_000.0;
+        return seconds > 0 ? Math.round(rowsProcessed / seconds) : rowsProcessed;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
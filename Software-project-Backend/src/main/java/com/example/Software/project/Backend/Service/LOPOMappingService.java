@@ -1,5 +1,6 @@
 package com.example.Software.project.Backend.Service;
 
+import com.example.Software.project.Backend.Model.KeysetPage;
 import com.example.Software.project.Backend.Model.OutcomeMapping;
 import com.example.Software.project.Backend.Model.ProgramOutcome;
 import com.example.Software.project.Backend.Model.Los;
@@ -7,9 +8,14 @@ import com.example.Software.project.Backend.Repository.OutcomeMappingRepository;
 import com.example.Software.project.Backend.Repository.ProgramOutcomeRepository;
 import com.example.Software.project.Backend.Repository.LosRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,6 +33,12 @@ public class LOPOMappingService {
     @Autowired
     private LosRepository losRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     // Module-based mapping templates for smart suggestions
     private final Map<String, Map<String, Integer>> MODULE_TEMPLATES = new HashMap<String, Map<String, Integer>>() {{
         // Software Engineering Modules
@@ -227,6 +239,7 @@ public class LOPOMappingService {
             }
         }
         
+        eventPublisher.publishEvent(OutcomesChangedEvent.forLo(loId, los.getModule() != null ? los.getModule().getModuleId() : null));
         return savedMappings;
     }
 
@@ -294,7 +307,9 @@ public class LOPOMappingService {
         mapping.setAdminRemarks(adminRemarks);
         mapping.setReviewedAt(LocalDateTime.now());
         
-        return mappingRepository.save(mapping);
+        OutcomeMapping saved = mappingRepository.save(mapping);
+        publishOutcomesChanged(mapping);
+        return saved;
     }
 
     /**
@@ -309,7 +324,9 @@ public class LOPOMappingService {
         mapping.setAdminRemarks(adminRemarks);
         mapping.setReviewedAt(LocalDateTime.now());
         
-        return mappingRepository.save(mapping);
+        OutcomeMapping saved = mappingRepository.save(mapping);
+        publishOutcomesChanged(mapping);
+        return saved;
     }
 
     /**
@@ -329,6 +346,9 @@ public class LOPOMappingService {
             mappingRepository.save(mapping);
         }
         
+        if (!pendingMappings.isEmpty()) {
+            eventPublisher.publishEvent(OutcomesChangedEvent.forLos(List.of(loId)));
+        }
         return pendingMappings;
     }
 
@@ -356,7 +376,9 @@ public class LOPOMappingService {
 
         mapping.setUpdatedAt(LocalDateTime.now());
         
-        return mappingRepository.save(mapping);
+        OutcomeMapping saved = mappingRepository.save(mapping);
+        publishOutcomesChanged(mapping);
+        return saved;
     }
 
     /**
@@ -371,6 +393,15 @@ public class LOPOMappingService {
         }
         
         mappingRepository.delete(mapping);
+        publishOutcomesChanged(mapping);
+    }
+
+    // Pending mappings count towards per-student PO credits, so every mapping write drops cached attainment
+    private void publishOutcomesChanged(OutcomeMapping mapping) {
+        Los los = mapping.getLearningOutcome();
+        if (los == null) return;
+        eventPublisher.publishEvent(OutcomesChangedEvent.forLo(los.getId(),
+                los.getModule() != null ? los.getModule().getModuleId() : null));
     }
 
     /**
@@ -438,40 +469,49 @@ public class LOPOMappingService {
      * Get all mappings with optional filtering
      */
     public List<OutcomeMapping> getAllMappings(String moduleId, String status, String batch, String search) {
-        List<OutcomeMapping> mappings = mappingRepository.findAll();
-        
-        // Filter by status if provided
-        if (status != null && !status.isEmpty()) {
-            mappings = mappings.stream()
-                .filter(m -> m.getStatus().toString().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
-        }
-        
-        // Filter by module if provided
-        if (moduleId != null && !moduleId.isEmpty()) {
-            mappings = mappings.stream()
-                .filter(m -> m.getLearningOutcome().getModule().getModuleId().equals(moduleId))
-                .collect(Collectors.toList());
-        }
-        
-        // Filter by batch if provided
-        if (batch != null && !batch.isEmpty()) {
-            mappings = mappings.stream()
-                .filter(m -> m.getLearningOutcome().getBatch() != null && 
-                            m.getLearningOutcome().getBatch().equals(batch))
-                .collect(Collectors.toList());
-        }
-        
-        // Search by LO name if provided
-        if (search != null && !search.isEmpty()) {
-            String searchLower = search.toLowerCase();
-            mappings = mappings.stream()
-                .filter(m -> m.getLearningOutcome().getName().toLowerCase().contains(searchLower) ||
-                            m.getLearningOutcome().getId().toLowerCase().contains(searchLower))
-                .collect(Collectors.toList());
+        if (isUnknownStatus(status)) return new ArrayList<>();
+        return mappingRepository.findFilteredAfter(statusFilter(status), blankToNull(moduleId), blankToNull(batch),
+                blankToNull(search), 0L, Pageable.unpaged());
+    }
+
+    /**
+     * One keyset page of the filtered mappings, in id order, starting after afterId (null = first page)
+     */
+    public KeysetPage<OutcomeMapping> getMappingsPage(String moduleId, String status, String batch, String search,
+                                                      Long afterId, Integer limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        if (isUnknownStatus(status)) return new KeysetPage<>(new ArrayList<>(), null);
+        List<OutcomeMapping> rows = mappingRepository.findFilteredAfter(statusFilter(status), blankToNull(moduleId),
+                blankToNull(batch), blankToNull(search), afterId != null ? afterId : 0L, PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, OutcomeMapping::getId);
+    }
+
+    /**
+     * Writes every filtered mapping to out as NDJSON, reading through a database cursor
+     */
+    public long streamMappings(String moduleId, String status, String batch, String search, OutputStream out) throws IOException {
+        if (isUnknownStatus(status)) return 0;
+        return ndjsonWriter.write(() -> mappingRepository.streamFiltered(statusFilter(status), blankToNull(moduleId),
+                blankToNull(batch), blankToNull(search)), out);
+    }
+
+    // Blank filters are ignored; an unknown status matches nothing
+    private boolean isUnknownStatus(String status) {
+        if (status == null || status.isEmpty()) return false;
+        try {
+            OutcomeMapping.ApprovalStatus.valueOf(status.toUpperCase());
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
         }
-        
-        return mappings;
+    }
+
+    private OutcomeMapping.ApprovalStatus statusFilter(String status) {
+        return status == null || status.isEmpty() ? null : OutcomeMapping.ApprovalStatus.valueOf(status.toUpperCase());
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
     }
 
     /**
@@ -1,17 +1,13 @@
 package com.example.Software.project.Backend.Service;
 
-import com.example.Software.project.Backend.Model.AssessmentItem;
 import com.example.Software.project.Backend.Model.Los;
 import com.example.Software.project.Backend.Model.Module;
-import com.example.Software.project.Backend.Repository.AssessmentItemRepository;
 import com.example.Software.project.Backend.Repository.LosRepository;
 import com.example.Software.project.Backend.Repository.ModuleRepository;
-import com.example.Software.project.Backend.Repository.StudentAssessmentScoreRepository;
-import com.example.Software.project.Backend.Repository.StudentMarkRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,16 +22,10 @@ public class LosService {
     private ModuleRepository moduleRepository;
 
     @Autowired
-    private StudentMarkRepository studentMarkRepository;
+    private BulkDeletionService bulkDeletionService;
 
     @Autowired
-    private AssessmentItemRepository assessmentItemRepository;
-
-    @Autowired
-    private StudentAssessmentScoreRepository studentAssessmentScoreRepository;
-
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
 
     private String normalizeLoId(String id) {
         return id == null ? null : id.trim().toUpperCase();
@@ -122,38 +112,25 @@ public class LosService {
         if (losDetails.getFileName() != null) {
             los.setFileName(losDetails.getFileName());
         }
-        return losRepository.save(los);
+        Los saved = losRepository.save(los);
+        eventPublisher.publishEvent(OutcomesChangedEvent.forLo(storedLosId, moduleIdOf(los)));
+        return saved;
     }
 
-    // Delete Los (Lecture or as part of module delete)
+    // Delete Los (Lecture)
     @Transactional
     public void deleteLos(String id) throws Exception {
         String storedLosId = resolveStoredLosId(id);
+        // Resolved up front — the cache listeners can no longer look the LO up once it is gone
+        String moduleId = losRepository.findById(storedLosId).map(this::moduleIdOf).orElse(null);
 
-        // 1. Delete student marks for this LO
-        studentMarkRepository.deleteByLos_Id(storedLosId);
+        // Marks, scores, items, mappings, CQI actions and the LO itself, as set-based deletes
+        bulkDeletionService.deleteLos(storedLosId);
 
-        // 2. Delete student_assessment_score rows — FK assessment_item_id blocks AssessmentItem deletion
-        List<AssessmentItem> items = assessmentItemRepository.findByLos_Id(storedLosId);
-        for (AssessmentItem item : items) {
-            studentAssessmentScoreRepository.deleteAll(
-                studentAssessmentScoreRepository.findByAssessmentItem_Id(item.getId())
-            );
-        }
-
-        // 3. Delete assessment items for this LO
-        assessmentItemRepository.deleteAll(items);
-
-        // 4. Delete CqiAction rows that reference this LO (nullable FK los_id blocks LO deletion)
-        try { jdbcTemplate.update("DELETE FROM cqi_action WHERE los_id = ?", storedLosId); } catch (Exception ignored) {}
-
-        // 5. Delete LO-PO mappings
-        try { jdbcTemplate.update("DELETE FROM lo_po_mappings WHERE los_id = ? OR lospos_id = ?", storedLosId, storedLosId); } catch (Exception ignored) {}
-
-        // 6. Delete legacy assignments table if present
-        try { jdbcTemplate.update("DELETE FROM assignments WHERE los_pos_id = ?", storedLosId); } catch (Exception ignored) {}
+        eventPublisher.publishEvent(OutcomesChangedEvent.forLo(storedLosId, moduleId));
+    }
 
-        // 7. Delete the LO
-        losRepository.deleteById(storedLosId);
+    private String moduleIdOf(Los los) {
+        return los.getModule() != null ? los.getModule().getModuleId() : null;
     }
 }
@@ -0,0 +1,68 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.Student;
+import com.example.Software.project.Backend.Model.StudentAssessmentScore;
+import com.example.Software.project.Backend.Model.StudentMark;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC batch writer for mark imports. Runs on the caller's transaction (JdbcTemplate joins the
+ * JPA transaction's connection), so callers must flush pending JPA deletes for the same rows
+ * before writing. Only ids are read from the passed entities; nothing is attached to the
+ * persistence context.
+ */
+@Component
+public class MarkBulkWriter {
+
+    // Rows per JDBC batch; with rewriteBatchedStatements MySQL sends each batch as one multi-row INSERT
+    static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void insertStudents(Collection<Student> students) {
+        if (students.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO students (student_id, student_name, created_at, updated_at) VALUES (?, ?, ?, ?)",
+                List.copyOf(students), BATCH_SIZE, (ps, s) -> {
+                    ps.setString(1, s.getStudentId());
+                    ps.setString(2, s.getStudentName());
+                    ps.setTimestamp(3, now);
+                    ps.setTimestamp(4, now);
+                });
+    }
+
+    public void insertStudentMarks(List<StudentMark> marks) {
+        if (marks.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO StudentMark (student_id, los_id, score, batch, mark_type, assignment_label) VALUES (?, ?, ?, ?, ?, ?)",
+                marks, BATCH_SIZE, (ps, m) -> {
+                    ps.setString(1, m.getStudent().getStudentId());
+                    ps.setString(2, m.getLos().getId());
+                    if (m.getScore() != null) ps.setDouble(3, m.getScore()); else ps.setNull(3, Types.DOUBLE);
+                    ps.setString(4, m.getBatch());
+                    ps.setString(5, m.getMarkType() != null ? m.getMarkType().name() : null);
+                    ps.setString(6, m.getAssignmentLabel());
+                });
+    }
+
+    public void insertAssessmentScores(List<StudentAssessmentScore> scores) {
+        if (scores.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO student_assessment_score (student_id, assessment_item_id, score) VALUES (?, ?, ?)",
+                scores, BATCH_SIZE, (ps, s) -> {
+                    ps.setString(1, s.getStudent().getStudentId());
+                    ps.setLong(2, s.getAssessmentItem().getId());
+                    if (s.getScore() != null) ps.setDouble(3, s.getScore()); else ps.setNull(3, Types.DOUBLE);
+                });
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.Software.project.Backend.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever StudentMark / StudentAssessmentScore rows are written or deleted.
+ * Either names the LOs that changed, or a whole module when the change was module-wide.
+ * Marks uploaded without a batch are not snapshotted, so events with a null batch are ignored.
+ */
+public class MarksChangedEvent {
+
+    private final String moduleId;
+    private final List<String> loIds;
+    private final String batch;
+
+    private MarksChangedEvent(String moduleId, Collection<String> loIds, String batch) {
+        this.moduleId = moduleId;
+        this.loIds = loIds != null ? List.copyOf(loIds) : List.of();
+        this.batch = batch;
+    }
+
+    public static MarksChangedEvent forLos(Collection<String> loIds, String batch) {
+        return new MarksChangedEvent(null, loIds, batch);
+    }
+
+    public static MarksChangedEvent forModule(String moduleId, String batch) {
+        return new MarksChangedEvent(moduleId, null, batch);
+    }
+
+    public String getModuleId() { return moduleId; }
+    public List<String> getLoIds() { return loIds; }
+    public String getBatch() { return batch; }
+}
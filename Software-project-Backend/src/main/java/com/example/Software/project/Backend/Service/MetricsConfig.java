@@ -0,0 +1,46 @@
+package com.example.Software.project.Backend.Service;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+/**
+ * Micrometer observation wiring for the metrics in MetricsRegistry.
+ *
+ * - every HTTP request is observed as "http.server.requests" (tags: method, uri pattern, status,
+ *   outcome, exception) by ServerHttpObservationFilter, which wraps the security chain too
+ * - service methods annotated with @Observed are observed by ObservedAspect
+ * - repository calls are timed and counted per request by RepositoryMetrics
+ *
+ * Spring Security's own filter-chain observations are switched off; they would double every
+ * request without adding anything the request timer does not show.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ObservationRegistry observationRegistry(MetricsRegistry metricsRegistry) {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig()
+                .observationPredicate((name, context) -> !name.startsWith("spring.security."))
+                .observationHandler(metricsRegistry);
+        return registry;
+    }
+
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ServerHttpObservationFilter> httpObservationFilter(ObservationRegistry observationRegistry) {
+        FilterRegistrationBean<ServerHttpObservationFilter> registration =
+                new FilterRegistrationBean<>(new ServerHttpObservationFilter(observationRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
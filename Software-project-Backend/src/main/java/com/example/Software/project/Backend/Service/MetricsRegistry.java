@@ -0,0 +1,207 @@
+package com.example.Software.project.Backend.Service;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process metrics store behind /actuator/metrics.
+ *
+ * Every Micrometer observation that stops here (HTTP requests, @Observed service methods, the
+ * repository timings from RepositoryMetrics) is recorded as a latency histogram keyed by name and
+ * low-cardinality tags. Histograms use fixed bucket bounds, so they are lock-free to record and
+ * percentiles (p50/p90/p95/p99) can be estimated from them for SLOs. Values are cumulative since
+ * startup.
+ */
+@Component
+public class MetricsRegistry implements ObservationHandler<Observation.Context> {
+
+    public static final String REQUEST_QUERIES = "http.server.requests.queries";
+
+    // Bucket upper bounds: latencies in milliseconds, query counts per request
+    static final double[] LATENCY_BUCKETS_MS = {1, 2, 5, 10, 25, 50, 75, 100, 150, 250, 500, 750,
+            1000, 1500, 2500, 5000, 10000, 30000, 60000};
+    static final double[] COUNT_BUCKETS = {0, 1, 2, 3, 5, 10, 20, 50, 100, 200, 500, 1000};
+    static final double[] PERCENTILES = {0.5, 0.9, 0.95, 0.99};
+
+    private final ConcurrentMap<String, Meter> meters = new ConcurrentHashMap<>();
+
+    // ── Recording ────────────────────────────────────────────────────────────
+
+    public void recordTime(String name, Map<String, String> tags, long nanos) {
+        meter(name, "milliseconds", LATENCY_BUCKETS_MS).series(tags).record(nanos / 1_000_000.0);
+    }
+
+    public void recordCount(String name, Map<String, String> tags, long value) {
+        meter(name, "queries", COUNT_BUCKETS).series(tags).record(value);
+    }
+
+    private Meter meter(String name, String baseUnit, double[] bounds) {
+        return meters.computeIfAbsent(name, k -> new Meter(baseUnit, bounds));
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(StartTime.class, new StartTime(System.nanoTime()));
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        StartTime start = context.get(StartTime.class);
+        if (start == null || context.getName() == null) return;
+        Map<String, String> tags = new TreeMap<>();
+        for (KeyValue keyValue : context.getLowCardinalityKeyValues()) {
+            tags.put(keyValue.getKey(), keyValue.getValue());
+        }
+        recordTime(context.getName(), tags, System.nanoTime() - start.nanos());
+
+        if (context instanceof ServerRequestObservationContext) {
+            // Requests that never touched a repository count as 0
+            RepositoryMetrics.QueryCounts queries = context.get(RepositoryMetrics.QueryCounts.class);
+            String uri = tags.getOrDefault("uri", "UNKNOWN");
+            recordCount(REQUEST_QUERIES, Map.of("uri", uri), queries != null ? queries.total() : 0);
+            if (queries != null) {
+                queries.byRepository().forEach((repository, count) -> recordCount(REQUEST_QUERIES + ".by.repository",
+                        Map.of("uri", uri, "repository", repository), count.sum()));
+            }
+        }
+    }
+
+    private record StartTime(long nanos) { }
+
+    // ── Reading ──────────────────────────────────────────────────────────────
+
+    public Set<String> names() {
+        return new TreeSet<>(meters.keySet());
+    }
+
+    /** All series of a metric whose tags contain every entry of tagFilter; null if unknown. */
+    public Map<String, Object> describe(String name, Map<String, String> tagFilter) {
+        Meter meter = meters.get(name);
+        if (meter == null) return null;
+        List<Map<String, Object>> series = new ArrayList<>();
+        meter.series.forEach((tags, histogram) -> {
+            if (tags.entrySet().containsAll(tagFilter.entrySet())) {
+                Map<String, Object> entry = histogram.describe();
+                entry.put("tags", tags);
+                series.add(entry);
+            }
+        });
+        series.sort(Comparator.comparing(s -> s.get("tags").toString()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("baseUnit", meter.baseUnit);
+        result.put("series", series);
+        return result;
+    }
+
+    private static final class Meter {
+        private final String baseUnit;
+        private final double[] bounds;
+        private final ConcurrentMap<Map<String, String>, Histogram> series = new ConcurrentHashMap<>();
+
+        private Meter(String baseUnit, double[] bounds) {
+            this.baseUnit = baseUnit;
+            this.bounds = bounds;
+        }
+
+        Histogram series(Map<String, String> tags) {
+            Histogram histogram = series.get(tags);
+            return histogram != null ? histogram
+                    : series.computeIfAbsent(Map.copyOf(tags), k -> new Histogram(bounds));
+        }
+    }
+
+    static final class Histogram {
+        private final double[] bounds;
+        // One slot per bound plus an overflow slot
+        private final AtomicLongArray buckets;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder total = new DoubleAdder();
+        private final DoubleAccumulator max = new DoubleAccumulator(Math::max, 0.0);
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        void record(double value) {
+            int i = Arrays.binarySearch(bounds, value);
+            buckets.incrementAndGet(i >= 0 ? i : -i - 1);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        /** Estimated value at quantile q (0-1), interpolating linearly inside the bucket. */
+        double percentile(double q) {
+            long[] counts = new long[buckets.length()];
+            long n = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            if (n == 0) return 0.0;
+            double target = Math.max(1.0, Math.ceil(q * n));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0 || cumulative + counts[i] < target) {
+                    cumulative += counts[i];
+                    continue;
+                }
+                double lower = i == 0 ? 0.0 : bounds[i - 1];
+                double upper = i < bounds.length ? bounds[i] : max.get();
+                double estimate = lower + (upper - lower) * ((target - cumulative) / counts[i]);
+                return Math.min(estimate, max.get());
+            }
+            return max.get();
+        }
+
+        Map<String, Object> describe() {
+            long n = count();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", n);
+            result.put("total", round(total.sum()));
+            result.put("mean", n == 0 ? 0.0 : round(total.sum() / n));
+            result.put("max", round(max.get()));
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (double q : PERCENTILES) {
+                percentiles.put("p" + Math.round(q * 100), round(percentile(q)));
+            }
+            result.put("percentiles", percentiles);
+            // Cumulative counts per upper bound, Prometheus style
+            List<Map<String, Object>> histogram = new ArrayList<>();
+            long cumulative = 0;
+            for (int i = 0; i <= bounds.length; i++) {
+                cumulative += buckets.get(i);
+                histogram.add(Map.of("le", i < bounds.length ? (Object) bounds[i] : "+Inf", "count", cumulative));
+            }
+            result.put("histogram", histogram);
+            return result;
+        }
+
+        private static double round(double v) {
+            return Math.round(v * 1000.0) / 1000.0;
+        }
+    }
+}
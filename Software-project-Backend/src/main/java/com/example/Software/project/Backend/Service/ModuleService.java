@@ -2,19 +2,21 @@ package com.example.Software.project.Backend.Service;
 
 import com.example.Software.project.Backend.Model.Module;
 import com.example.Software.project.Backend.Model.User;
-import com.example.Software.project.Backend.Repository.AssessmentTemplateRepository;
 import com.example.Software.project.Backend.Repository.LosRepository;
 import com.example.Software.project.Backend.Repository.ModuleRepository;
 import com.example.Software.project.Backend.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class ModuleService {
@@ -26,16 +28,13 @@ public class ModuleService {
     private LosRepository losRepository;
 
     @Autowired
-    private LosService losService;
+    private UserRepository userRepository;
 
     @Autowired
-    private AssessmentTemplateRepository assessmentTemplateRepository;
+    private BulkDeletionService bulkDeletionService;
 
     @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
 
     // Create (Admin)
     public Module createModule(Module module) throws Exception {
@@ -60,61 +59,50 @@ public class ModuleService {
     // (so modules created before this feature existed don't suddenly disappear);
     // assigning at least one lecturer scopes that module to just them.
     public List<Module> getModulesForLecturer(String username) {
-        return moduleRepository.findAll().stream()
-                .filter(m -> m.getAssignedLecturers() == null || m.getAssignedLecturers().isEmpty()
-                        || m.getAssignedLecturers().stream().anyMatch(u -> u.getUserID().equals(username)))
-                .collect(Collectors.toList());
+        return moduleRepository.findVisibleToLecturer(username);
     }
 
     // Module IDs this lecturer is explicitly assigned to (not the "also sees open
     // modules" superset from getModulesForLecturer - used to pre-fill the admin's
     // per-lecturer module picker with exactly what's actually assigned).
     public List<String> getModuleIdsAssignedTo(String username) {
-        return moduleRepository.findAll().stream()
-                .filter(m -> m.getAssignedLecturers() != null
-                        && m.getAssignedLecturers().stream().anyMatch(u -> u.getUserID().equals(username)))
-                .map(Module::getModuleId)
-                .collect(Collectors.toList());
+        return moduleRepository.findModuleIdsByLecturer(username);
+    }
+
+    // Explicit assignments of every lecturer, keyed by username, from one query over
+    // module_lecturers. Lecturers without assignments are absent from the map.
+    public Map<String, List<String>> getAssignedModuleIdsByLecturer() {
+        Map<String, List<String>> byLecturer = new HashMap<>();
+        for (Object[] row : moduleRepository.findAllLecturerAssignments()) {
+            byLecturer.computeIfAbsent((String) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        return byLecturer;
     }
 
     // Reverse-direction assignment: from a lecturer's record, set exactly which modules
-    // they're assigned to. Diffs against current state so other lecturers already on
-    // those modules are left untouched.
+    // they're assigned to. Only this lecturer's join rows are inserted or deleted, so
+    // other lecturers already on those modules are left untouched.
+    @Transactional
     public void setModulesForLecturer(String username, List<String> moduleIds) throws Exception {
         User lecturer = userRepository.findByUsername(username)
                 .orElseThrow(() -> new Exception("Lecturer not found: " + username));
         if (!"lecture".equalsIgnoreCase(lecturer.getUsertype())) {
             throw new Exception(username + " is not a lecturer");
         }
-        List<String> targetIds = moduleIds == null ? new ArrayList<>() : moduleIds;
-        for (Module module : moduleRepository.findAll()) {
-            List<User> current = module.getAssignedLecturers() == null ? new ArrayList<>() : new ArrayList<>(module.getAssignedLecturers());
-            boolean isCurrentlyAssigned = current.stream().anyMatch(u -> u.getUserID().equals(username));
-            boolean shouldBeAssigned = targetIds.contains(module.getModuleId());
-            if (shouldBeAssigned && !isCurrentlyAssigned) {
-                current.add(lecturer);
-                module.setAssignedLecturers(current);
-                moduleRepository.save(module);
-            } else if (!shouldBeAssigned && isCurrentlyAssigned) {
-                current.removeIf(u -> u.getUserID().equals(username));
-                module.setAssignedLecturers(current);
-                moduleRepository.save(module);
-            }
+        Set<String> targetIds = moduleIds == null ? new HashSet<>() : new HashSet<>(moduleIds);
+        if (targetIds.isEmpty()) {
+            moduleRepository.unassignLecturer(username);
+            return;
         }
+        moduleRepository.unassignLecturerExcept(username, targetIds);
+        moduleRepository.assignLecturer(username, targetIds);
     }
 
     // Used when deleting a lecturer: drop their join-table rows first so the FK on
     // module_lecturers.lecturer_username doesn't block the user delete.
+    @Transactional
     public void removeLecturerFromAllModules(String username) {
-        for (Module module : moduleRepository.findAll()) {
-            List<User> current = module.getAssignedLecturers();
-            if (current != null && current.stream().anyMatch(u -> u.getUserID().equals(username))) {
-                List<User> updated = new ArrayList<>(current);
-                updated.removeIf(u -> u.getUserID().equals(username));
-                module.setAssignedLecturers(updated);
-                moduleRepository.save(module);
-            }
-        }
+        moduleRepository.unassignLecturer(username);
     }
 
     // Resolves submitted lecturer usernames into User entities for the ManyToMany relation.
@@ -160,31 +148,19 @@ public class ModuleService {
         return moduleRepository.save(module);
     }
 
-    // Delete (Admin)
+    // Delete (Admin): the module and everything under it, as set-based deletes in one
+    // transaction (see BulkDeletionService). Returns the rows removed per table.
     @Transactional
-    public void deleteModule(String id) throws Exception {
+    public Map<String, Integer> deleteModule(String id) throws Exception {
         if (!moduleRepository.existsById(id)) {
             throw new Exception("Module not found");
         }
-
-        // 1. Delete CqiAction records FIRST — they reference BOTH module_id (NOT NULL) and los_id (nullable).
-        //    Must run before LO deletions, otherwise los_id FK blocks each LO delete.
-        try { jdbcTemplate.update("DELETE FROM cqi_action WHERE module_id = ?", id); } catch (Exception ignored) {}
-
-        // 2. Nullify AssessmentTemplate.module_id — nullable FK still enforced by MySQL
-        try {
-            jdbcTemplate.update("UPDATE assessment_template SET module_id = NULL WHERE module_id = ?", id);
-        } catch (Exception e) {
-            try { assessmentTemplateRepository.deleteAll(assessmentTemplateRepository.findByModule_ModuleId(id)); } catch (Exception ignored) {}
-        }
-
-        // 3. Delete each LO — handles StudentMark, StudentAssessmentScore, AssessmentItem, LO-PO mappings
+        // Resolved up front — the cache listeners can no longer look the LOs up once they are gone
         List<String> losIds = losRepository.findIdsByModuleId(id);
-        for (String losId : losIds) {
-            losService.deleteLos(losId);
-        }
 
-        // 4. Delete the module
-        moduleRepository.deleteById(id);
+        Map<String, Integer> deleted = bulkDeletionService.deleteModule(id);
+
+        eventPublisher.publishEvent(OutcomesChangedEvent.forModule(id, losIds));
+        return deleted;
     }
 }
@@ -0,0 +1,37 @@
+package com.example.Software.project.Backend.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published when something attainment is derived from changes without touching marks:
+ * an LO is edited or deleted, its LO-PO mappings are created, re-weighted, approved or
+ * rejected, or the assessment items that define its max marks are (re)defined.
+ */
+public class OutcomesChangedEvent {
+
+    private final String moduleId;
+    private final List<String> loIds;
+
+    private OutcomesChangedEvent(String moduleId, Collection<String> loIds) {
+        this.moduleId = moduleId;
+        this.loIds = List.copyOf(loIds);
+    }
+
+    public static OutcomesChangedEvent forLos(Collection<String> loIds) {
+        return new OutcomesChangedEvent(null, loIds);
+    }
+
+    // Names the module explicitly, for LOs that may no longer exist once listeners run
+    public static OutcomesChangedEvent forLo(String loId, String moduleId) {
+        return new OutcomesChangedEvent(moduleId, List.of(loId));
+    }
+
+    // Whole module removed: every LO in it, named up front for the same reason
+    public static OutcomesChangedEvent forModule(String moduleId, Collection<String> loIds) {
+        return new OutcomesChangedEvent(moduleId, loIds);
+    }
+
+    public String getModuleId() { return moduleId; }
+    public List<String> getLoIds() { return loIds; }
+}
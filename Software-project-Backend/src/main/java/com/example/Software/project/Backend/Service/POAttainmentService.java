@@ -2,6 +2,7 @@ package com.example.Software.project.Backend.Service;
 
 import com.example.Software.project.Backend.Model.*;
 import com.example.Software.project.Backend.Repository.*;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,6 +31,15 @@ public class POAttainmentService {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private AttainmentCache attainmentCache;
+
+    @Autowired
+    private ParallelCompute parallelCompute;
+
+    // An approved or pending LO→PO mapping, resolved to plain values before the per-student step
+    private record PoWeight(String poCode, int weight) { }
+
     /**
      * Calculate per-student PO credits based on LO pass/fail and LO-PO mappings.
      *
@@ -45,12 +55,20 @@ public class POAttainmentService {
      * @return Map with keys: "students", "poList", "credits", "maxCredits", "loPoMappings"
      */
     @Transactional(readOnly = true)
+    @Observed(name = "obe.attainment")
     public Map<String, Object> calculateStudentPOCredits(List<String> losIds, String markType, String batch, int threshold) {
         return calculateStudentPOCredits(losIds, markType, batch, threshold, 0.0);
     }
 
     @Transactional(readOnly = true)
+    @Observed(name = "obe.attainment")
     public Map<String, Object> calculateStudentPOCredits(List<String> losIds, String markType, String batch, int threshold, double maxMarksPerLo) {
+        // Shared with other callers through the cache, so the result is read-only
+        return attainmentCache.get("po-credits", List.of(List.copyOf(losIds), markType.toUpperCase(), String.valueOf(batch), threshold, maxMarksPerLo),
+                losIds, List.of(), () -> computeStudentPOCredits(losIds, markType, batch, threshold, maxMarksPerLo));
+    }
+
+    private Map<String, Object> computeStudentPOCredits(List<String> losIds, String markType, String batch, int threshold, double maxMarksPerLo) {
         MarkType type = MarkType.valueOf(markType.toUpperCase());
 
         // 1. Get all distinct students for these LOs, markType, and batch
@@ -88,15 +106,15 @@ public class POAttainmentService {
         }
         List<String> poList = new ArrayList<>(poCodeSet);
 
-        // 6. Build marks lookup: studentId -> loId -> total score (SUM across all assignments)
-        Map<String, Map<String, Double>> marksByStudentAndLo = new HashMap<>();
+        // 6. Build marks matrix: student row x LO column -> total score (SUM across all assignments).
+        // Rows are interned in student order first, so row i is students.get(i).
+        ScoreMatrix marks = new ScoreMatrix(losIds);
+        for (Student student : students) {
+            marks.row(student.getStudentId());
+        }
         for (StudentMark mark : allMarks) {
-            String studentId = mark.getStudent().getStudentId();
-            String losId = mark.getLos().getId();
             if (mark.getScore() == null) continue;
-            marksByStudentAndLo
-                    .computeIfAbsent(studentId, k -> new HashMap<>())
-                    .merge(losId, mark.getScore(), Double::sum);
+            marks.add(mark.getStudent().getStudentId(), mark.getLos().getId(), mark.getScore());
         }
 
         // 7. Calculate max possible credit per PO (sum of all LO weights mapped to that PO)
@@ -112,80 +130,25 @@ public class POAttainmentService {
         }
 
         // 8. Calculate per-student PO credits
-        // credits: { studentId: { poCode: creditValue } }
-        Map<String, Map<String, Integer>> credits = new LinkedHashMap<>();
-        // Also track per-student LO pass/fail detail
-        List<Map<String, Object>> studentDetails = new ArrayList<>();
-
-        for (Student student : students) {
-            String studentId = student.getStudentId();
-            Map<String, Integer> studentCredits = new LinkedHashMap<>();
-
-            // Initialize all POs to 0
-            for (String poCode : poList) {
-                studentCredits.put(poCode, 0);
-            }
-
-            Map<String, Double> studentMarks = marksByStudentAndLo.getOrDefault(studentId, new HashMap<>());
-            Map<String, String> loScoresMap = new LinkedHashMap<>();
-
-            for (String losId : losIds) {
-                Double score = studentMarks.get(losId);
-
-                // Compute LO percentage: if assessment items exist with max marks, use (score / totalMaxMarks) * 100
-                // Otherwise, assume score is already a percentage (legacy behavior)
-                double loPercentage = 0.0;
-                boolean hasAssessmentItems = false;
-
-                if (score != null) {
-                    double totalMaxMarks = getTotalMaxMarksForLO(losId, batch, markType);
-                    if (totalMaxMarks > 0) {
-                        // Normalize: score is aggregated from question-wise imports
-                        loPercentage = (score / totalMaxMarks) * 100.0;
-                        hasAssessmentItems = true;
-                    } else if (maxMarksPerLo > 0) {
-                        // Bulk upload with known max marks per LO
-                        loPercentage = (score / maxMarksPerLo) * 100.0;
-                    } else {
-                        // Legacy: assume score is already a percentage (0-100)
-                        loPercentage = score;
-                    }
-                }
-
-                boolean passed = score != null && loPercentage >= threshold;
-
-                if (score != null) {
-                    loScoresMap.put(losId, (passed ? "Pass" : "Fail") + " (" + String.format("%.2f", score) + (hasAssessmentItems ? "%, " : ", ") + String.format("%.1f", loPercentage) + ")");
-                } else {
-                    loScoresMap.put(losId, "N/A");
-                }
-
-                if (passed) {
-                    // Add 100% of each mapping weight for this LO to the corresponding PO
-                    List<OutcomeMapping> loMappings = mappingsByLo.getOrDefault(losId, Collections.emptyList());
-                    for (OutcomeMapping mapping : loMappings) {
-                        String poCode = mapping.getProgramOutcome().getCode();
-                        studentCredits.merge(poCode, mapping.getWeight(), Integer::sum);
-                    }
-                }
+        // Everything the per-student step reads is resolved here first (max marks per LO, PO code and
+        // weight per mapping), so each student is pure in-memory work that ParallelCompute can spread
+        // across cores; results come back in student order.
+        Map<String, Double> maxMarksByLo = new HashMap<>();
+        Map<String, List<PoWeight>> poWeightsByLo = new HashMap<>();
+        for (String losId : losIds) {
+            maxMarksByLo.put(losId, getTotalMaxMarksForLO(losId, batch, markType));
+            List<PoWeight> weights = new ArrayList<>();
+            for (OutcomeMapping mapping : mappingsByLo.getOrDefault(losId, Collections.emptyList())) {
+                weights.add(new PoWeight(mapping.getProgramOutcome().getCode(), mapping.getWeight()));
             }
-
-            credits.put(studentId, studentCredits);
-
-            // Build student detail object
-            Map<String, Object> detail = new LinkedHashMap<>();
-            detail.put("studentId", studentId);
-            detail.put("studentName", student.getStudentName());
-            detail.put("poCredits", studentCredits);
-            detail.put("loScores", loScoresMap);
-
-            // Calculate total credit for this student
-            int totalCredit = studentCredits.values().stream().mapToInt(Integer::intValue).sum();
-            detail.put("totalCredit", totalCredit);
-
-            studentDetails.add(detail);
+            poWeightsByLo.put(losId, weights);
         }
 
+        List<Map<String, Object>> studentDetails = parallelCompute.map(students, student ->
+                studentCreditDetail(student.getStudentId(), student.getStudentName(), losIds, poList,
+                        marks, marks.rowIndex(student.getStudentId()),
+                        maxMarksByLo, poWeightsByLo, threshold, maxMarksPerLo));
+
         // 9. Calculate total max credit
         int totalMaxCredit = maxCredits.values().stream().mapToInt(Integer::intValue).sum();
 
@@ -219,6 +182,75 @@ public class POAttainmentService {
         return result;
     }
 
+    // One student's row: LO pass/fail detail and PO credits. Runs on ParallelCompute workers, so it
+    // only reads the prefetched matrix and maps passed in.
+    private Map<String, Object> studentCreditDetail(String studentId, String studentName, List<String> losIds, List<String> poList,
+                                                    ScoreMatrix marks, int row, Map<String, Double> maxMarksByLo,
+                                                    Map<String, List<PoWeight>> poWeightsByLo, int threshold, double maxMarksPerLo) {
+        Map<String, Integer> studentCredits = new LinkedHashMap<>();
+
+        // Initialize all POs to 0
+        for (String poCode : poList) {
+            studentCredits.put(poCode, 0);
+        }
+
+        Map<String, String> loScoresMap = new LinkedHashMap<>();
+
+        for (String losId : losIds) {
+            int column = marks.columnIndex(losId);
+            boolean hasScore = column >= 0 && marks.has(row, column);
+            double score = hasScore ? marks.get(row, column) : 0.0;
+
+            // Compute LO percentage: if assessment items exist with max marks, use (score / totalMaxMarks) * 100
+            // Otherwise, assume score is already a percentage (legacy behavior)
+            double loPercentage = 0.0;
+            boolean hasAssessmentItems = false;
+
+            if (hasScore) {
+                double totalMaxMarks = maxMarksByLo.getOrDefault(losId, 0.0);
+                if (totalMaxMarks > 0) {
+                    // Normalize: score is aggregated from question-wise imports
+                    loPercentage = (score / totalMaxMarks) * 100.0;
+                    hasAssessmentItems = true;
+                } else if (maxMarksPerLo > 0) {
+                    // Bulk upload with known max marks per LO
+                    loPercentage = (score / maxMarksPerLo) * 100.0;
+                } else {
+                    // Legacy: assume score is already a percentage (0-100)
+                    loPercentage = score;
+                }
+            }
+
+            boolean passed = hasScore && loPercentage >= threshold;
+
+            if (hasScore) {
+                loScoresMap.put(losId, (passed ? "Pass" : "Fail") + " (" + String.format("%.2f", score) + (hasAssessmentItems ? "%, " : ", ") + String.format("%.1f", loPercentage) + ")");
+            } else {
+                loScoresMap.put(losId, "N/A");
+            }
+
+            if (passed) {
+                // Add 100% of each mapping weight for this LO to the corresponding PO
+                for (PoWeight poWeight : poWeightsByLo.getOrDefault(losId, Collections.emptyList())) {
+                    studentCredits.merge(poWeight.poCode(), poWeight.weight(), Integer::sum);
+                }
+            }
+        }
+
+        // Build student detail object
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("studentId", studentId);
+        detail.put("studentName", studentName);
+        detail.put("poCredits", studentCredits);
+        detail.put("loScores", loScoresMap);
+
+        // Calculate total credit for this student
+        int totalCredit = studentCredits.values().stream().mapToInt(Integer::intValue).sum();
+        detail.put("totalCredit", totalCredit);
+
+        return detail;
+    }
+
     /**
      * Helper: Get total max marks for an LO across all assessment items in a batch/markType.
      * @param loId Learning Outcome ID
@@ -233,6 +265,7 @@ public class POAttainmentService {
     }
 
     @Transactional(readOnly = true)
+    @Observed(name = "obe.attainment")
     public Map<String, Object> calculateOverallPOAttainment(String batch, String markType, Double poThreshold) {
         if (poThreshold == null) poThreshold = 60.0; // Default PO attainment benchmark
 
@@ -253,23 +286,23 @@ public class POAttainmentService {
         }
         long totalStudents = students.size();
 
+        // 4. Prefetch every LO's pass/fail for the whole batch, then intersect per PO
+        Map<String, BitSet> passedByLo = loadLoPassMatrix(students, approvedMappings, batch, markType, 50.0);
+
         List<Map<String, Object>> poResults = new ArrayList<>();
 
-        // 4. For each PO, calculate its attainment
         for (Map.Entry<ProgramOutcome, List<OutcomeMapping>> entry : mappingsByPo.entrySet()) {
             ProgramOutcome po = entry.getKey();
             List<OutcomeMapping> loMappingsForPo = entry.getValue();
             Set<String> loIdsForPo = loMappingsForPo.stream().map(m -> m.getLearningOutcome().getId()).collect(Collectors.toSet());
 
-            long studentsAchievingPo = 0;
-
-            // 5. For each student, check if they achieved this PO
-            for (Student student : students) {
-                boolean studentAchievedPo = checkStudentPoAchievement(student, loIdsForPo, batch, markType);
-                if (studentAchievedPo) {
-                    studentsAchievingPo++;
-                }
+            // 5. A student achieves the PO only if they passed every LO mapped to it
+            BitSet achieved = new BitSet(students.size());
+            achieved.set(0, students.size());
+            for (String loId : loIdsForPo) {
+                achieved.and(passedByLo.get(loId));
             }
+            long studentsAchievingPo = achieved.cardinality();
 
             // 6. Calculate PO attainment percentage
             double attainmentPercent = (totalStudents > 0) ? ((double) studentsAchievingPo / totalStudents) * 100.0 : 0.0;
@@ -299,56 +332,97 @@ public class POAttainmentService {
         return finalResult;
     }
 
-    private boolean checkStudentPoAchievement(Student student, Set<String> loIdsForPo, String batch, String markType) {
-        return checkStudentPoAchievement(student, loIdsForPo, batch, markType, 50.0);
-    }
-
     /**
-     * Check if a student achieves a PO (passes all LOs mapped to it).
+     * Build the student x LO pass matrix for a batch in a fixed number of queries.
      * Uses normalized percentage thresholds: if assessment items exist, compute (score / maxMarks) * 100;
-     * otherwise assume StudentMark.score is already a percentage.
-     * @param student Student entity
-     * @param loIdsForPo Set of LO IDs mapped to the PO
+     * otherwise fall back to the legacy StudentMark score, which is assumed to already be a percentage.
+     * @param students Students of the batch; bit i of each BitSet refers to students.get(i)
+     * @param mappings Approved LO-PO mappings whose LOs should be evaluated
      * @param batch Batch identifier
      * @param markType Mark type
      * @param loThreshold LO pass threshold (percentage, 0-100)
-     * @return true if student passed all LOs, false otherwise
+     * @return LO ID -> set of student indices that passed the LO
      */
-    private boolean checkStudentPoAchievement(Student student, Set<String> loIdsForPo, String batch, String markType, double loThreshold) {
-        // A student achieves a PO if they pass ALL LOs mapped to it.
-        for (String loId : loIdsForPo) {
-            // Check question-based scores first
-            List<AssessmentItem> items = assessmentItemRepository.findByLos_IdAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(loId, batch, markType, MarkType.valueOf(markType.toUpperCase()));
-            if (!items.isEmpty()) {
-                double totalScore = 0;
-                double totalMaxMarks = 0;
-                for (AssessmentItem item : items) {
-                    Optional<StudentAssessmentScore> scoreOpt = studentAssessmentScoreRepository.findByStudentAndAssessmentItem(student, item);
-                    if (scoreOpt.isPresent()) {
-                        totalScore += scoreOpt.get().getScore();
-                    }
-                    totalMaxMarks += item.getMaxMarks();
-                }
-                // Normalize: compute percentage and compare to threshold
-                if (totalMaxMarks > 0) {
-                    double loPercentage = (totalScore / totalMaxMarks) * 100.0;
-                    if (loPercentage < loThreshold) {
-                        return false; // Failed this LO, so cannot achieve the PO
-                    }
-                } else {
+    private Map<String, BitSet> loadLoPassMatrix(List<Student> students, List<OutcomeMapping> mappings,
+                                                 String batch, String markType, double loThreshold) {
+        MarkType type = MarkType.valueOf(markType.toUpperCase());
+
+        Map<String, Integer> studentIndex = new HashMap<>();
+        for (int i = 0; i < students.size(); i++) {
+            studentIndex.put(students.get(i).getStudentId(), i);
+        }
+
+        List<String> loIds = new ArrayList<>();
+        Map<String, Integer> loIndex = new HashMap<>();
+        for (OutcomeMapping m : mappings) {
+            String loId = m.getLearningOutcome().getId();
+            if (!loIndex.containsKey(loId)) {
+                loIndex.put(loId, loIds.size());
+                loIds.add(loId);
+            }
+        }
+
+        // Question-based items (and their total max marks) per LO
+        double[] totalMaxMarks = new double[loIds.size()];
+        boolean[] hasItems = new boolean[loIds.size()];
+        Map<Long, Integer> loIndexByItem = new HashMap<>();
+        for (AssessmentItem item : assessmentItemRepository
+                .findByLosIdsAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(loIds, batch, markType, type)) {
+            int lo = loIndex.get(item.getLos().getId());
+            hasItems[lo] = true;
+            totalMaxMarks[lo] += item.getMaxMarks() != null ? item.getMaxMarks() : 0.0;
+            loIndexByItem.put(item.getId(), lo);
+        }
+
+        // Dense score matrix: question-based LOs sum item scores (missing = 0), legacy LOs take the StudentMark
+        double[][] scores = new double[loIds.size()][students.size()];
+        BitSet[] hasLegacyMark = new BitSet[loIds.size()];
+        for (int lo = 0; lo < loIds.size(); lo++) {
+            hasLegacyMark[lo] = new BitSet(students.size());
+        }
+
+        if (!loIndexByItem.isEmpty()) {
+            for (Object[] row : studentAssessmentScoreRepository.findScoreRowsByItemIdsAndStudentBatch(loIndexByItem.keySet(), batch)) {
+                Integer lo = loIndexByItem.get((Long) row[0]);
+                Integer s = studentIndex.get((String) row[1]);
+                if (lo == null || s == null || row[2] == null) continue;
+                scores[lo][s] += ((Number) row[2]).doubleValue();
+            }
+        }
+
+        List<String> legacyLoIds = new ArrayList<>();
+        for (String loId : loIds) {
+            if (!hasItems[loIndex.get(loId)]) legacyLoIds.add(loId);
+        }
+        if (!legacyLoIds.isEmpty()) {
+            for (Object[] row : studentMarkRepository.findScoreRowsByLosIdsAndMarkTypeAndBatch(legacyLoIds, type, batch)) {
+                int lo = loIndex.get((String) row[0]);
+                Integer s = studentIndex.get((String) row[1]);
+                if (s == null || row[2] == null) continue;
+                double score = ((Number) row[2]).doubleValue();
+                // Several labelled marks for one student/LO: the lowest one decides, so a pass is never overstated
+                scores[lo][s] = hasLegacyMark[lo].get(s) ? Math.min(scores[lo][s], score) : score;
+                hasLegacyMark[lo].set(s);
+            }
+        }
+
+        Map<String, BitSet> passedByLo = new HashMap<>();
+        for (int lo = 0; lo < loIds.size(); lo++) {
+            BitSet passed = new BitSet(students.size());
+            double[] row = scores[lo];
+            for (int s = 0; s < students.size(); s++) {
+                boolean pass;
+                if (hasItems[lo]) {
                     // No max marks found; assume score is percentage and compare directly
-                    if (totalScore < loThreshold) {
-                        return false;
-                    }
-                }
-            } else {
-                // Fallback to legacy StudentMark (assume score is already percentage)
-                Optional<StudentMark> markOpt = studentMarkRepository.findByStudentAndLos_IdAndBatchAndMarkType(student, loId, batch, MarkType.valueOf(markType));
-                if (markOpt.isEmpty() || markOpt.get().getScore() < loThreshold) {
-                    return false; // Failed this LO
+                    double loPercentage = totalMaxMarks[lo] > 0 ? (row[s] / totalMaxMarks[lo]) * 100.0 : row[s];
+                    pass = loPercentage >= loThreshold;
+                } else {
+                    pass = hasLegacyMark[lo].get(s) && row[s] >= loThreshold;
                 }
+                if (pass) passed.set(s);
             }
+            passedByLo.put(loIds.get(lo), passed);
         }
-        return true; // Passed all required LOs for this PO
+        return passedByLo;
     }
 }
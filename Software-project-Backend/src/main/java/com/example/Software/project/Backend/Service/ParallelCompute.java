@@ -0,0 +1,89 @@
+package com.example.Software.project.Backend.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bounded fork-join pool for CPU-bound, in-memory calculation steps (per-student PO credits).
+ *
+ * map() keeps the input order, so results are identical to a sequential run. Small inputs and
+ * compute.parallel.enabled=false run on the caller's thread, which is also the switch for
+ * comparing sequential and parallel timings. The mapped function must only touch data that is
+ * already loaded: worker threads have no Hibernate session.
+ */
+@Component
+public class ParallelCompute {
+
+    @Value("${compute.parallel.enabled:true}")
+    private boolean enabled;
+
+    // 0 = one worker per available core
+    @Value("${compute.parallel.threads:0}")
+    private int threads;
+
+    // Below this many items the fork/join overhead outweighs the gain
+    @Value("${compute.parallel.min-items:256}")
+    private int minItems;
+
+    private ForkJoinPool pool;
+
+    public ParallelCompute() {
+    }
+
+    /** Pre-configured instance for unit tests and benchmarks (already started) */
+    public ParallelCompute(boolean enabled, int threads, int minItems) {
+        this.enabled = enabled;
+        this.threads = threads;
+        this.minItems = minItems;
+        start();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNo = new AtomicInteger();
+        pool = new ForkJoinPool(size, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("compute-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        System.out.println("Parallel compute pool started with " + size + " workers");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /** Applies fn to every item and returns the results in input order. */
+    public <T, R> List<R> map(List<T> items, Function<T, R> fn) {
+        if (pool == null || items.size() < Math.max(2, minItems)) {
+            return items.stream().map(fn).toList();
+        }
+        try {
+            // A parallel stream started inside the pool runs on the pool's workers
+            return pool.submit(() -> items.parallelStream().map(fn).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel calculation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Parallel calculation failed", e.getCause());
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.Software.project.Backend.Service;
 
 import com.example.Software.project.Backend.Model.ProgramOutcome;
+import com.example.Software.project.Backend.Repository.OutcomeMappingRepository;
 import com.example.Software.project.Backend.Repository.ProgramOutcomeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +21,12 @@ public class ProgramOutcomeService {
     @Autowired
     private ProgramOutcomeRepository poRepository;
 
+    @Autowired
+    private OutcomeMappingRepository outcomeMappingRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private String normalizePoId(String poId) {
         return poId == null ? null : poId.trim().toUpperCase();
     }
@@ -102,7 +112,9 @@ public class ProgramOutcomeService {
         syncCodeWithPoId(existingPO);
 
         existingPO.setUpdatedAt(LocalDateTime.now());
-        return poRepository.save(existingPO);
+        ProgramOutcome saved = poRepository.save(existingPO);
+        publishOutcomesChanged(List.of(saved.getPoId()));
+        return saved;
     }
 
     // Soft delete PO (set inactive)
@@ -117,6 +129,7 @@ public class ProgramOutcomeService {
         po.setIsActive(false);
         po.setUpdatedAt(LocalDateTime.now());
         poRepository.save(po);
+        publishOutcomesChanged(List.of(po.getPoId()));
     }
 
     // Hard delete PO (only for custom POs)
@@ -128,7 +141,12 @@ public class ProgramOutcomeService {
             throw new IllegalArgumentException("Cannot delete default Washington Accord Program Outcomes");
         }
         
+        // Resolved before the delete, while the mappings still join to the PO row
+        List<String> loIds = outcomeMappingRepository.findLoIdsByProgramOutcomeIds(List.of(po.getPoId()));
         poRepository.delete(po);
+        if (!loIds.isEmpty()) {
+            eventPublisher.publishEvent(OutcomesChangedEvent.forLos(loIds));
+        }
     }
 
     // Restore soft-deleted PO
@@ -138,7 +156,9 @@ public class ProgramOutcomeService {
         
         po.setIsActive(true);
         po.setUpdatedAt(LocalDateTime.now());
-        return poRepository.save(po);
+        ProgramOutcome saved = poRepository.save(po);
+        publishOutcomesChanged(List.of(saved.getPoId()));
+        return saved;
     }
 
     // Initialize default Washington Accord POs
@@ -205,6 +225,7 @@ public class ProgramOutcomeService {
 
     // Reorder POs
     public void reorderPOs(List<String> poIds) {
+        List<String> reordered = new ArrayList<>();
         for (int i = 0; i < poIds.size(); i++) {
             String poId = normalizePoId(poIds.get(i));
             Optional<ProgramOutcome> poOpt = poRepository.findById(poId);
@@ -213,7 +234,19 @@ public class ProgramOutcomeService {
                 po.setDisplayOrder(i + 1);
                 po.setUpdatedAt(LocalDateTime.now());
                 poRepository.save(po);
+                reordered.add(poId);
             }
         }
+        publishOutcomesChanged(reordered);
+    }
+
+    // Cached attainment results and PO snapshots carry PO codes and titles, so every PO write
+    // names the LOs mapped to the POs it touched; listeners map those to their modules
+    private void publishOutcomesChanged(Collection<String> poIds) {
+        if (poIds.isEmpty()) return;
+        List<String> loIds = outcomeMappingRepository.findLoIdsByProgramOutcomeIds(poIds);
+        if (!loIds.isEmpty()) {
+            eventPublisher.publishEvent(OutcomesChangedEvent.forLos(loIds));
+        }
     }
 }
\ No newline at end of file
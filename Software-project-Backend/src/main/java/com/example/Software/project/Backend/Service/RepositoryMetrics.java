@@ -0,0 +1,97 @@
+package com.example.Software.project.Backend.Service;
+
+import io.micrometer.observation.ObservationView;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times every Spring Data repository call ("repository.invocations", tagged by repository and
+ * method) and counts the calls made while serving each HTTP request. The per-request counts ride
+ * on the request's observation context and are recorded by MetricsRegistry when it stops, as
+ * "http.server.requests.queries" per URI and per URI and repository.
+ */
+@Aspect
+@Component
+public class RepositoryMetrics {
+
+    public static final String REPOSITORY_INVOCATIONS = "repository.invocations";
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    private final ConcurrentMap<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(),
+                k -> repositoryName(joinPoint.getThis()));
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        String outcome = "SUCCESS";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = "ERROR";
+            throw e;
+        } finally {
+            metricsRegistry.recordTime(REPOSITORY_INVOCATIONS,
+                    Map.of("repository", repository, "method", method, "outcome", outcome), System.nanoTime() - start);
+            QueryCounts counts = currentRequestCounts();
+            if (counts != null) counts.add(repository);
+        }
+    }
+
+    // The HTTP request observation is the outermost one; @Observed service calls nest inside it
+    private QueryCounts currentRequestCounts() {
+        ObservationView observation = observationRegistry.getCurrentObservation();
+        while (observation != null) {
+            if (observation.getContextView() instanceof ServerRequestObservationContext context) {
+                return context.computeIfAbsent(QueryCounts.class, k -> new QueryCounts());
+            }
+            observation = observation.getContextView().getParentObservation();
+        }
+        return null;
+    }
+
+    private static String repositoryName(Object proxy) {
+        for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(proxy)) {
+            if (type.getName().startsWith("com.example.Software.project.Backend.")) {
+                return type.getSimpleName();
+            }
+        }
+        return proxy.getClass().getSimpleName();
+    }
+
+    /** Repository calls made while serving one request. */
+    public static final class QueryCounts {
+        private final LongAdder total = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> byRepository = new ConcurrentHashMap<>();
+
+        void add(String repository) {
+            total.increment();
+            byRepository.computeIfAbsent(repository, k -> new LongAdder()).increment();
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        Map<String, LongAdder> byRepository() {
+            return byRepository;
+        }
+    }
+}
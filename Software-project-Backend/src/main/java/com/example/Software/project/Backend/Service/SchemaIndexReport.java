@@ -0,0 +1,142 @@
+package com.example.Software.project.Backend.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Checks the live schema for the composite indexes the hot mark / score / mapping queries and
+ * the lecturer-assignment lookups rely on, and logs any that are missing.
+ *
+ * The indexes are declared with @Index on the entities; this list is the versioned copy of that
+ * scheme (bump INDEX_SCHEME_VERSION when it changes). SchemaMigrationService builds each one as
+ * its own migration step and runs this report afterwards; set schema.index-report.on-startup=true
+ * to also check on every boot. An index counts as present when any index on the table starts
+ * with the expected columns in order, whatever its name, since a DBA-built or wider index serves
+ * the same queries.
+ */
+@Component
+public class SchemaIndexReport {
+
+    public static final int INDEX_SCHEME_VERSION = 2;
+
+    public record IndexSpec(String table, String name, List<String> columns) { }
+
+    public static final List<IndexSpec> EXPECTED_INDEXES = List.of(
+        new IndexSpec("StudentMark", "idx_student_mark_lo_batch_type_label", List.of("los_id", "batch", "mark_type", "assignment_label")),
+        new IndexSpec("StudentMark", "idx_student_mark_student_lo_batch_type", List.of("student_id", "los_id", "batch", "mark_type")),
+        new IndexSpec("student_assessment_score", "idx_sas_item_student", List.of("assessment_item_id", "student_id")),
+        new IndexSpec("lo_po_mappings", "idx_lo_po_status_lo", List.of("status", "los_id")),
+        new IndexSpec("assessment_item", "idx_assessment_item_lo_template", List.of("los_id", "template_id")),
+        new IndexSpec("module_lecturers", "idx_module_lecturers_lecturer_module", List.of("lecturer_username", "module_id"))
+    );
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${schema.index-report.on-startup:false}")
+    private boolean reportOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (reportOnStartup) {
+            reportMissingIndexes();
+        }
+    }
+
+    public void reportMissingIndexes() {
+        try {
+            List<IndexSpec> missing = findMissingIndexes();
+            if (missing.isEmpty()) {
+                System.out.println("Index scheme v" + INDEX_SCHEME_VERSION + ": all " + EXPECTED_INDEXES.size() + " indexes present");
+                return;
+            }
+            System.err.println("Index scheme v" + INDEX_SCHEME_VERSION + ": " + missing.size() + " of " + EXPECTED_INDEXES.size() + " indexes missing");
+            for (IndexSpec spec : missing) {
+                System.err.println("  missing " + spec.name() + " ON " + spec.table() + " (" + String.join(", ", spec.columns()) + ")");
+            }
+        } catch (SQLException e) {
+            System.err.println("Index report skipped: " + e.getMessage());
+        }
+    }
+
+    public List<IndexSpec> findMissingIndexes() throws SQLException {
+        List<IndexSpec> missing = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, Collection<List<String>>> indexesByTable = new HashMap<>();
+            for (IndexSpec spec : EXPECTED_INDEXES) {
+                Collection<List<String>> indexes = indexesByTable.get(spec.table());
+                if (indexes == null) {
+                    indexes = readIndexColumns(metaData, connection.getCatalog(), connection.getSchema(), spec.table());
+                    indexesByTable.put(spec.table(), indexes);
+                }
+                if (indexes.stream().noneMatch(columns -> startsWith(columns, spec.columns()))) {
+                    missing.add(spec);
+                }
+            }
+        }
+        return missing;
+    }
+
+    public boolean hasIndex(IndexSpec spec) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return readIndexColumns(connection.getMetaData(), connection.getCatalog(), connection.getSchema(), spec.table())
+                    .stream().anyMatch(columns -> startsWith(columns, spec.columns()));
+        }
+    }
+
+    public boolean tableExists(String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new LinkedHashSet<>(List.of(table, table.toUpperCase(), table.toLowerCase()))) {
+                try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), name, new String[]{"TABLE"})) {
+                    if (rs.next()) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Column lists (lower-case, in key order) of every index on the table. The table name is
+    // tried as declared and then upper/lower-cased, since H2 folds unquoted names to upper case.
+    private Collection<List<String>> readIndexColumns(DatabaseMetaData metaData, String catalog, String schema, String table) throws SQLException {
+        for (String name : new LinkedHashSet<>(List.of(table, table.toUpperCase(), table.toLowerCase()))) {
+            Map<String, SortedMap<Integer, String>> columnsByIndex = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(catalog, schema, name, false, true)) {
+                while (rs.next()) {
+                    String indexName = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (indexName == null || column == null) continue;
+                    columnsByIndex.computeIfAbsent(indexName, k -> new TreeMap<>())
+                            .put((int) rs.getShort("ORDINAL_POSITION"), column.toLowerCase());
+                }
+            }
+            if (!columnsByIndex.isEmpty()) {
+                List<List<String>> indexes = new ArrayList<>();
+                for (SortedMap<Integer, String> columns : columnsByIndex.values()) {
+                    indexes.add(new ArrayList<>(columns.values()));
+                }
+                return indexes;
+            }
+        }
+        return List.of();
+    }
+
+    private boolean startsWith(List<String> indexColumns, List<String> expected) {
+        if (indexColumns.size() < expected.size()) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!indexColumns.get(i).equalsIgnoreCase(expected.get(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.Software.project.Backend.Service;
+
+import org.springframework.boot.autoconfigure.AbstractDependsOnBeanFactoryPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes every Spring Data repository depend on SchemaMigrationService, so the migrations have run
+ * before any bean can reach the database through a repository (including from its @PostConstruct).
+ *
+ * The migration service itself only needs the entityManagerFactory, the DataSource and
+ * JdbcTemplate. Beans that use JdbcTemplate directly during startup need their own
+ * @DependsOn("schemaMigrationService").
+ */
+@Component
+public class SchemaMigrationDependsOnPostProcessor extends AbstractDependsOnBeanFactoryPostProcessor {
+
+    public SchemaMigrationDependsOnPostProcessor() {
+        super(Repository.class, "schemaMigrationService");
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.Software.project.Backend.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Versioned schema migrations, applied once at startup and recorded in the schema_migration table.
+ *
+ * Steps run in list order and each is recorded with its outcome and duration, so a normal boot
+ * only reads the history table and never inspects the live schema. A failed step is logged and
+ * left unrecorded, so it is retried on the next boot; the remaining steps still run.
+ *
+ *   SCHEMA   - one-off fixes for databases created by older builds (formerly LegacySchemaFixService)
+ *   INDEX    - one index per step, from SchemaIndexReport.EXPECTED_INDEXES; skipped when an
+ *              equivalent index already exists
+ *   ENTITIES - Hibernate's schema update (what ddl-auto=update did on every boot); re-runs only
+ *              when the entity mapping fingerprint changes
+ *
+ * Add new steps at the end with the next version number; never renumber or edit an applied one.
+ * Index steps run before the entity step so large index builds are timed and tracked on their own
+ * instead of happening inside Hibernate's update.
+ *
+ * With ddl-auto=none the entity step is the only thing that creates tables, so startup fails when
+ * the Hibernate mapping was not handed over. SchemaMigrationDependsOnPostProcessor makes every
+ * repository wait for this bean, so no other bean reaches the database before the migrations ran.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaMigrationService {
+
+    public static final String HISTORY_TABLE = "schema_migration";
+
+    public enum Kind { SCHEMA, INDEX, ENTITIES }
+
+    @FunctionalInterface
+    interface Step {
+        /** Performs the change and returns the outcome to record, e.g. "APPLIED" or "SKIPPED: ..." */
+        String apply() throws Exception;
+    }
+
+    record Migration(String script, Kind kind, String description, Step step) { }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntitySchemaIntegrator entitySchema;
+
+    @Autowired
+    private SchemaIndexReport indexReport;
+
+    @Value("${schema.migrations.enabled:true}")
+    private boolean enabled = true;
+
+    private boolean mysql;
+
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            System.out.println("Schema migrations disabled (schema.migrations.enabled=false)");
+            return;
+        }
+        if (!entitySchema.isAvailable()) {
+            throw new IllegalStateException("Hibernate entity mapping not available to the schema migrations; "
+                    + "EntitySchemaIntegrator must be registered (hibernate.integrator_provider), "
+                    + "otherwise a fresh database gets no tables");
+        }
+        long start = System.currentTimeMillis();
+        Set<String> applied = readHistory();
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : migrations()) {
+            if (!applied.contains(migration.script())) pending.add(migration);
+        }
+        if (pending.isEmpty()) {
+            System.out.println("Schema up to date: " + applied.size() + " migrations recorded ("
+                    + (System.currentTimeMillis() - start) + " ms)");
+            return;
+        }
+
+        mysql = isMySql();
+        System.out.println("Applying " + pending.size() + " schema migration(s)");
+        boolean indexesTouched = false;
+        for (Migration migration : pending) {
+            run(migration);
+            indexesTouched |= migration.kind() == Kind.INDEX;
+        }
+        if (indexesTouched) {
+            indexReport.reportMissingIndexes();
+        }
+        System.out.println("Schema migrations finished in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public List<Map<String, Object>> getHistory() {
+        return jdbcTemplate.queryForList(
+                "SELECT script, kind, description, outcome, installed_at, execution_ms FROM " + HISTORY_TABLE
+                        + " ORDER BY installed_at, script");
+    }
+
+    List<Migration> migrations() {
+        List<Migration> migrations = new ArrayList<>();
+        migrations.add(new Migration("V1__student_mark_assessment_id_nullable", Kind.SCHEMA,
+                "Drop legacy FK on StudentMark.assessment_id and make it nullable",
+                () -> relaxLegacyColumn("StudentMark", "assessment_id", "VARCHAR(255) NULL")));
+        migrations.add(new Migration("V2__lo_po_program_outcome_id_varchar", Kind.SCHEMA,
+                "Drop FK on lo_po_mappings.program_outcome_id and store the PO code as VARCHAR",
+                () -> relaxLegacyColumn("lo_po_mappings", "program_outcome_id", "VARCHAR(255) NOT NULL")));
+        // Keep legacy column for compatibility, but do not enforce obsolete FK to `los_pos`.
+        migrations.add(new Migration("V3__lo_po_lospos_id_nullable", Kind.SCHEMA,
+                "Drop obsolete FK on lo_po_mappings.lospos_id and make it nullable",
+                () -> relaxLegacyColumn("lo_po_mappings", "lospos_id", "VARCHAR(255) NULL")));
+        migrations.add(index(4, "idx_student_mark_lo_batch_type_label"));
+        migrations.add(index(5, "idx_student_mark_student_lo_batch_type"));
+        migrations.add(index(6, "idx_sas_item_student"));
+        migrations.add(index(7, "idx_lo_po_status_lo"));
+        migrations.add(index(8, "idx_assessment_item_lo_template"));
+        migrations.add(index(9, "idx_module_lecturers_lecturer_module"));
+        migrations.add(new Migration("R__entity_schema_" + entitySchema.fingerprint(), Kind.ENTITIES,
+                "Hibernate schema update for the current entity mapping",
+                () -> {
+                    entitySchema.updateSchema();
+                    return "APPLIED";
+                }));
+        return migrations;
+    }
+
+    private Migration index(int version, String name) {
+        SchemaIndexReport.IndexSpec spec = SchemaIndexReport.EXPECTED_INDEXES.stream()
+                .filter(s -> s.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown index " + name));
+        return new Migration("V" + version + "__" + name, Kind.INDEX,
+                "CREATE INDEX " + name + " ON " + spec.table() + " (" + String.join(", ", spec.columns()) + ")",
+                () -> createIndex(spec));
+    }
+
+    private void run(Migration migration) {
+        long start = System.currentTimeMillis();
+        try {
+            String outcome = migration.step().apply();
+            long elapsed = System.currentTimeMillis() - start;
+            record(migration, outcome, elapsed);
+            System.out.println("  " + migration.script() + ": " + outcome + " (" + elapsed + " ms)");
+        } catch (Exception e) {
+            System.err.println("  " + migration.script() + " failed, will retry on next start: " + e.getMessage());
+        }
+    }
+
+    private String createIndex(SchemaIndexReport.IndexSpec spec) throws Exception {
+        if (!indexReport.tableExists(spec.table())) {
+            // Fresh database: the entity step creates the table together with its @Index indexes
+            return "SKIPPED: table " + spec.table() + " not created yet";
+        }
+        if (indexReport.hasIndex(spec)) {
+            return "SKIPPED: equivalent index present";
+        }
+        jdbcTemplate.execute("CREATE INDEX " + spec.name() + " ON " + spec.table()
+                + " (" + String.join(", ", spec.columns()) + ")");
+        return "APPLIED";
+    }
+
+    // Older MySQL schemas carry foreign keys and column definitions the entities no longer use.
+    // Databases created by the current entities (and H2) never had them.
+    private String relaxLegacyColumn(String table, String column, String definition) {
+        if (!mysql) {
+            return "SKIPPED: MySQL only";
+        }
+        try {
+            List<String> fkNames = jdbcTemplate.queryForList(
+                    "SELECT CONSTRAINT_NAME FROM information_schema.KEY_COLUMN_USAGE " +
+                            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? " +
+                            "AND COLUMN_NAME = ? AND REFERENCED_TABLE_NAME IS NOT NULL",
+                    String.class, table, column
+            );
+
+            for (String fkName : fkNames) {
+                try {
+                    jdbcTemplate.execute("ALTER TABLE " + table + " DROP FOREIGN KEY " + fkName);
+                } catch (Exception ignored) {
+                }
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY COLUMN " + column + " " + definition);
+            return fkNames.isEmpty() ? "APPLIED" : "APPLIED: dropped " + String.join(", ", fkNames);
+        } catch (Exception e) {
+            // Table or column absent: nothing to fix on this database
+            return "SKIPPED: " + e.getMessage();
+        }
+    }
+
+    private Set<String> readHistory() {
+        try {
+            return new HashSet<>(jdbcTemplate.queryForList("SELECT script FROM " + HISTORY_TABLE, String.class));
+        } catch (DataAccessException e) {
+            jdbcTemplate.execute("CREATE TABLE " + HISTORY_TABLE + " (" +
+                    "script VARCHAR(120) NOT NULL PRIMARY KEY, " +
+                    "kind VARCHAR(20) NOT NULL, " +
+                    "description VARCHAR(255), " +
+                    "outcome VARCHAR(255), " +
+                    "installed_at TIMESTAMP NOT NULL, " +
+                    "execution_ms BIGINT NOT NULL)");
+            return new HashSet<>();
+        }
+    }
+
+    private void record(Migration migration, String outcome, long elapsedMs) {
+        jdbcTemplate.update(
+                "INSERT INTO " + HISTORY_TABLE + " (script, kind, description, outcome, installed_at, execution_ms) VALUES (?, ?, ?, ?, ?, ?)",
+                migration.script(), migration.kind().name(), truncate(migration.description()),
+                truncate(outcome), new Timestamp(System.currentTimeMillis()), elapsedMs);
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > 255 ? value.substring(0, 255) : value;
+    }
+}
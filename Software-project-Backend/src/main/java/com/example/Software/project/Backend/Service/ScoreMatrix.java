@@ -0,0 +1,194 @@
+package com.example.Software.project.Backend.Service;
+
+import java.util.*;
+
+/**
+ * Dense student x LO score table used by the attainment calculations and mark reports.
+ *
+ * Row (student) and column (LO) ids are interned to int indices once; scores live in one
+ * double[] per column with a BitSet marking which cells hold a value. Missing cells are stored as
+ * 0.0, so column sums run straight over the array, and counts take the same branch-free loop
+ * when a column has no gaps. Per-cell reads and writes never box or allocate.
+ *
+ * Columns are fixed when the matrix is created; rows are interned as scores arrive. Not thread
+ * safe while being filled, but a filled matrix can be read from any number of threads.
+ */
+public final class ScoreMatrix {
+
+    private static final int INITIAL_ROWS = 64;
+
+    private final List<String> columnIds;
+    private final Map<String, Integer> columnIndex;
+    private final List<String> rowIds = new ArrayList<>();
+    private final Map<String, Integer> rowIndex = new HashMap<>();
+    private final double[][] values;
+    private final BitSet[] present;
+    private int capacity = INITIAL_ROWS;
+
+    public ScoreMatrix(Collection<String> columnIds) {
+        this.columnIds = new ArrayList<>(new LinkedHashSet<>(columnIds));
+        this.columnIndex = new HashMap<>();
+        for (int c = 0; c < this.columnIds.size(); c++) {
+            columnIndex.put(this.columnIds.get(c), c);
+        }
+        values = new double[this.columnIds.size()][INITIAL_ROWS];
+        present = new BitSet[this.columnIds.size()];
+        for (int c = 0; c < present.length; c++) {
+            present[c] = new BitSet(INITIAL_ROWS);
+        }
+    }
+
+    public int rows() {
+        return rowIds.size();
+    }
+
+    public int columns() {
+        return columnIds.size();
+    }
+
+    public String rowId(int row) {
+        return rowIds.get(row);
+    }
+
+    public String columnId(int column) {
+        return columnIds.get(column);
+    }
+
+    /** Index of the row for this id, adding an empty row if it is new. */
+    public int row(String id) {
+        Integer r = rowIndex.get(id);
+        if (r != null) return r;
+        int next = rowIds.size();
+        if (next == capacity) {
+            capacity *= 2;
+            for (int c = 0; c < values.length; c++) {
+                values[c] = Arrays.copyOf(values[c], capacity);
+            }
+        }
+        rowIds.add(id);
+        rowIndex.put(id, next);
+        return next;
+    }
+
+    /** Index of an existing row, or -1. */
+    public int rowIndex(String id) {
+        Integer r = rowIndex.get(id);
+        return r == null ? -1 : r;
+    }
+
+    /** Index of a column, or -1 when the id was not given at construction. */
+    public int columnIndex(String id) {
+        Integer c = columnIndex.get(id);
+        return c == null ? -1 : c;
+    }
+
+    public boolean has(int row, int column) {
+        return present[column].get(row);
+    }
+
+    /** The score in a cell; 0.0 when the cell is missing (check has() first where that matters). */
+    public double get(int row, int column) {
+        return values[column][row];
+    }
+
+    public void set(int row, int column, double score) {
+        values[column][row] = score;
+        present[column].set(row);
+    }
+
+    /** Adds to a cell, e.g. summing one student's marks across several assignments. */
+    public void add(int row, int column, double score) {
+        values[column][row] += score;
+        present[column].set(row);
+    }
+
+    /** Convenience for loaders: interns the row and adds the score. Unknown columns are ignored. */
+    public void add(String rowId, String columnId, double score) {
+        int c = columnIndex(columnId);
+        if (c < 0) return;
+        add(row(rowId), c, score);
+    }
+
+    /** Rewrites a column of raw totals as percentages of maxMarks: (score / maxMarks) * 100. */
+    public void toPercent(int column, double maxMarks) {
+        double[] col = values[column];
+        int n = rows();
+        for (int r = 0; r < n; r++) {
+            col[r] = (col[r] / maxMarks) * 100.0;
+        }
+    }
+
+    // ── Column aggregates (one LO across all students) ───────────────────────
+
+    /** Number of students with a score in this column. */
+    public int columnCount(int column) {
+        return present[column].cardinality();
+    }
+
+    public double columnSum(int column) {
+        // Missing cells hold 0.0, so no mask is needed
+        double[] col = values[column];
+        int n = rows();
+        double sum = 0.0;
+        for (int r = 0; r < n; r++) {
+            sum += col[r];
+        }
+        return sum;
+    }
+
+    /** Students in this column whose score is >= min. */
+    public int countAtOrAbove(int column, double min) {
+        double[] col = values[column];
+        BitSet mask = present[column];
+        int n = rows();
+        int count = 0;
+        if (mask.cardinality() == n) {
+            for (int r = 0; r < n; r++) {
+                count += col[r] >= min ? 1 : 0;
+            }
+        } else {
+            for (int r = mask.nextSetBit(0); r >= 0; r = mask.nextSetBit(r + 1)) {
+                if (col[r] >= min) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Percentile (0-100) of the scores present in this column, interpolating linearly between
+     * the two nearest ranks. NaN when the column is empty.
+     */
+    public double columnPercentile(int column, double percentile) {
+        BitSet mask = present[column];
+        double[] sorted = new double[mask.cardinality()];
+        if (sorted.length == 0) return Double.NaN;
+        int i = 0;
+        for (int r = mask.nextSetBit(0); r >= 0; r = mask.nextSetBit(r + 1)) {
+            sorted[i++] = values[column][r];
+        }
+        Arrays.sort(sorted);
+        double rank = Math.max(0.0, Math.min(100.0, percentile)) / 100.0 * (sorted.length - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+    }
+
+    // ── Row aggregates (one student across all LOs) ──────────────────────────
+
+    public double rowSum(int row) {
+        double sum = 0.0;
+        for (double[] col : values) {
+            sum += col[row];
+        }
+        return sum;
+    }
+
+    /** LOs in which this student has a score >= min. */
+    public int rowCountAtOrAbove(int row, double min) {
+        int count = 0;
+        for (int c = 0; c < values.length; c++) {
+            if (present[c].get(row) && values[c][row] >= min) count++;
+        }
+        return count;
+    }
+}
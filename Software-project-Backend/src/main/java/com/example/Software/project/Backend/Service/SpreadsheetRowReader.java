@@ -0,0 +1,198 @@
+package com.example.Software.project.Backend.Service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Row-by-row spreadsheet reader used by ExcelImportService.
+ *
+ * .xlsx uploads are parsed with POI's SAX event API, so only the current row is ever held in
+ * memory; legacy .xls files fall back to the in-memory HSSF model. Cell values are handed out
+ * as the same strings Cell.toString() produced (numbers as "55.0"), so existing student ids
+ * and score parsing behave exactly as with the DOM-based import. Absent cells are null.
+ */
+public final class SpreadsheetRowReader {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(int rowNum, List<String> cells) throws Exception;
+    }
+
+    private SpreadsheetRowReader() {
+    }
+
+    /**
+     * Streams the first sheet whose name matches the filter.
+     * @return false if no sheet matched (the handler was never called)
+     */
+    public static boolean readSheet(InputStream in, Predicate<String> sheetName, RowHandler handler) throws Exception {
+        InputStream is = FileMagic.prepareToCheckMagic(in);
+        if (FileMagic.valueOf(is) != FileMagic.OOXML) {
+            return readWithWorkbook(is, sheetName, handler);
+        }
+        // Spool to a temp file: OPCPackage.open(InputStream) would inflate every zip entry into heap
+        File spool = Files.createTempFile("marks-upload", ".xlsx").toFile();
+        try {
+            Files.copy(is, spool.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return readXlsx(spool, sheetName, handler);
+        } finally {
+            Files.deleteIfExists(spool.toPath());
+        }
+    }
+
+    private static boolean readXlsx(File file, Predicate<String> sheetName, RowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (!sheetName.test(sheets.getSheetName())) continue;
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new SheetHandler(strings, handler));
+                    try {
+                        parser.parse(new InputSource(sheet));
+                    } catch (HandlerException e) {
+                        throw e.cause;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean readWithWorkbook(InputStream is, Predicate<String> sheetName, RowHandler handler) throws Exception {
+        try (Workbook workbook = WorkbookFactory.create(is)) {
+            for (int si = 0; si < workbook.getNumberOfSheets(); si++) {
+                if (!sheetName.test(workbook.getSheetName(si))) continue;
+                Sheet sheet = workbook.getSheetAt(si);
+                for (Row row : sheet) {
+                    List<String> cells = new ArrayList<>();
+                    for (int c = 0; c < Math.max(row.getLastCellNum(), 0); c++) {
+                        cells.add(row.getCell(c) != null ? row.getCell(c).toString() : null);
+                    }
+                    handler.row(row.getRowNum(), cells);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Carries a RowHandler failure through the SAX parser untouched
+    private static final class HandlerException extends SAXException {
+        private final Exception cause;
+
+        HandlerException(Exception cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final RowHandler handler;
+
+        private List<String> cells;
+        private int rowNum;
+        private int column;
+        private String cellType;
+        private boolean inValue;
+        private final StringBuilder value = new StringBuilder();
+
+        SheetHandler(ReadOnlySharedStringsTable strings, RowHandler handler) {
+            this.strings = strings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attrs.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                    cells = new ArrayList<>();
+                }
+                case "c" -> {
+                    String ref = attrs.getValue("r");
+                    column = ref != null ? columnIndex(ref) : cells.size();
+                    cellType = attrs.getValue("t");
+                    value.setLength(0);
+                }
+                case "v", "t" -> inValue = true;
+                default -> { }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) value.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v", "t" -> inValue = false;
+                case "c" -> {
+                    while (cells.size() <= column) cells.add(null);
+                    cells.set(column, cellText());
+                }
+                case "row" -> {
+                    try {
+                        handler.row(rowNum, cells);
+                    } catch (Exception e) {
+                        throw new HandlerException(e);
+                    }
+                }
+                default -> { }
+            }
+        }
+
+        private String cellText() {
+            String raw = value.toString();
+            if (cellType == null || cellType.equals("n")) {
+                if (raw.isEmpty()) return "";
+                try {
+                    return String.valueOf(Double.parseDouble(raw));
+                } catch (NumberFormatException e) {
+                    return raw;
+                }
+            }
+            return switch (cellType) {
+                case "s" -> strings.getItemAt(Integer.parseInt(raw)).getString();
+                case "b" -> "1".equals(raw) ? "TRUE" : "FALSE";
+                default -> raw; // inlineStr, str (formula result), e (error code)
+            };
+        }
+
+        private static int columnIndex(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++) {
+                col = col * 26 + (Character.toUpperCase(ref.charAt(i)) - 'A' + 1);
+            }
+            return col - 1;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.Software.project.Backend.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Generates a synthetic OBE dataset at a chosen scale for load testing, the JMH benchmarks and
+ * integration tests: modules with LOs, POs, approved LO-PO mappings, one FINAL_EXAM and
+ * {@code assignments} ASSIGNMENT templates per module and batch, students, question scores and
+ * the per-LO aggregated marks a question-wise import would have written.
+ *
+ * Everything goes through plain batched JDBC INSERTs (no JPA, no MySQL-only syntax), so it runs
+ * on MySQL and H2 alike and millions of score rows load in minutes. Modules that already exist
+ * are skipped, so re-running with the same prefix is harmless.
+ *
+ * Scores: each student has an ability and each LO a difficulty, both normal; a question score
+ * is ability - difficulty plus noise, centred on ~65% with a long lower tail, and about 3% of
+ * students miss each assessment.
+ */
+@Component
+public class SyntheticDataGenerator {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final double FINAL_QUESTION_MAX = 10.0;
+    private static final double ASSIGNMENT_MAX = 20.0;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * @param prefix            id prefix for modules and students (capital letters/digits)
+     * @param modules           number of modules
+     * @param losPerModule      LOs per module
+     * @param programOutcomes   POs PO1..POn (existing ones are reused)
+     * @param batches           number of batches, named firstBatch, firstBatch+1, ...
+     * @param firstBatch        first batch number, e.g. 20
+     * @param studentsPerBatch  students per batch, each taking every module
+     * @param questionsPerLo    final-exam questions per LO
+     * @param assignments       assignments per module and batch (one item per LO each)
+     * @param seed              random seed, so a spec always produces the same data
+     */
+    public record Spec(String prefix, int modules, int losPerModule, int programOutcomes, int batches, int firstBatch,
+                       int studentsPerBatch, int questionsPerLo, int assignments, long seed) { }
+
+    public static String moduleId(String prefix, int moduleNo) {
+        return String.format("%s%02d", prefix, moduleNo);
+    }
+
+    public static String loId(String moduleId, int loNo) {
+        return moduleId + " LO" + loNo;
+    }
+
+    public static String batchName(Spec spec, int batchNo) {
+        return String.valueOf(spec.firstBatch() + batchNo);
+    }
+
+    public Map<String, Object> generate(Spec spec) {
+        long started = System.nanoTime();
+        Random random = new Random(spec.seed());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        List<String> poIds = ensureProgramOutcomes(spec.programOutcomes(), now, counts);
+
+        // Students are shared by every module of their batch
+        List<List<String>> studentsByBatch = new ArrayList<>();
+        List<double[]> abilityByBatch = new ArrayList<>();
+        for (int b = 0; b < spec.batches(); b++) {
+            String batch = batchName(spec, b);
+            List<String> studentIds = new ArrayList<>(spec.studentsPerBatch());
+            double[] ability = new double[spec.studentsPerBatch()];
+            for (int s = 0; s < spec.studentsPerBatch(); s++) {
+                studentIds.add(String.format("%s%s%05d", spec.prefix(), batch, s + 1));
+                ability[s] = random.nextGaussian();
+            }
+            insertStudents(studentIds, batch, now, counts);
+            studentsByBatch.add(studentIds);
+            abilityByBatch.add(ability);
+        }
+
+        List<String> generatedModules = new ArrayList<>();
+        for (int m = 1; m <= spec.modules(); m++) {
+            String moduleId = moduleId(spec.prefix(), m);
+            Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM modules WHERE module_id = ?", Integer.class, moduleId);
+            if (existing != null && existing > 0) {
+                System.out.println("Synthetic data: module " + moduleId + " already exists, skipping");
+                continue;
+            }
+            generateModule(spec, moduleId, poIds, studentsByBatch, abilityByBatch, random, now, counts);
+            generatedModules.add(moduleId);
+        }
+
+        // Attainment caches and snapshots were built without these rows
+        for (String moduleId : generatedModules) {
+            for (int b = 0; b < spec.batches(); b++) {
+                eventPublisher.publishEvent(MarksChangedEvent.forModule(moduleId, batchName(spec, b)));
+            }
+        }
+
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+        long rows = counts.values().stream().mapToLong(Long::longValue).sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("modules", generatedModules);
+        result.put("rows", counts);
+        result.put("seconds", Math.round(seconds * 10) / 10.0);
+        result.put("rowsPerSecond", seconds > 0 ? Math.round(rows / seconds) : rows);
+        System.out.println("Synthetic data generated: " + result);
+        return result;
+    }
+
+    private void generateModule(Spec spec, String moduleId, List<String> poIds, List<List<String>> studentsByBatch,
+                                List<double[]> abilityByBatch, Random random, Timestamp now, Map<String, Long> counts) {
+        jdbcTemplate.update("INSERT INTO modules (module_id, module_name) VALUES (?, ?)", moduleId, "Synthetic Module " + moduleId);
+        count(counts, "modules", 1);
+
+        List<String> loIds = new ArrayList<>();
+        double[] difficulty = new double[spec.losPerModule()];
+        List<Object[]> loRows = new ArrayList<>();
+        for (int l = 1; l <= spec.losPerModule(); l++) {
+            String loId = loId(moduleId, l);
+            loIds.add(loId);
+            difficulty[l - 1] = random.nextGaussian() * 0.5;
+            loRows.add(new Object[]{loId, "LO " + l, "Synthetic learning outcome " + l + " of " + moduleId, 50.0, "datagen", now, now, moduleId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO los (id, name, description, attainment_threshold, created_by, created_at, updated_at, module_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", loRows);
+        count(counts, "los", loRows.size());
+
+        // 2-4 approved mappings per LO, the first one a primary (weight 3) focus
+        List<Object[]> mappingRows = new ArrayList<>();
+        for (String loId : loIds) {
+            int mapped = Math.min(poIds.size(), 2 + random.nextInt(3));
+            int start = random.nextInt(poIds.size());
+            for (int k = 0; k < mapped; k++) {
+                int weight = k == 0 ? 3 : 1 + random.nextInt(3);
+                mappingRows.add(new Object[]{loId, loId, poIds.get((start + k) % poIds.size()), weight, "APPROVED", "datagen", "datagen", now, now, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO lo_po_mappings (los_id, lospos_id, program_outcome_id, weight, status, mapped_by, reviewed_by, " +
+                "mapped_at, reviewed_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", mappingRows);
+        count(counts, "loPoMappings", mappingRows.size());
+
+        for (int b = 0; b < spec.batches(); b++) {
+            String batch = batchName(spec, b);
+            List<String> studentIds = studentsByBatch.get(b);
+            double[] ability = abilityByBatch.get(b);
+
+            generateAssessment(moduleId, batch, "FINAL_EXAM", null, spec.questionsPerLo(), FINAL_QUESTION_MAX,
+                    loIds, difficulty, studentIds, ability, random, now, counts);
+            for (int a = 1; a <= spec.assignments(); a++) {
+                generateAssessment(moduleId, batch, "ASSIGNMENT", "Assignment " + a, 1, ASSIGNMENT_MAX,
+                        loIds, difficulty, studentIds, ability, random, now, counts);
+            }
+        }
+    }
+
+    // One template with `questionsPerLo` items per LO, a score per student per item, and the
+    // per-LO raw totals as StudentMark rows (what ExcelImportService.importQuestionWiseMarks writes)
+    private void generateAssessment(String moduleId, String batch, String markType, String assignmentLabel,
+                                    int questionsPerLo, double maxMarks, List<String> loIds, double[] difficulty,
+                                    List<String> studentIds, double[] ability, Random random, Timestamp now,
+                                    Map<String, Long> counts) {
+        String templateId = moduleId + "_" + batch + "_" + markType + (assignmentLabel != null ? "_" + assignmentLabel.replace(' ', '_') : "");
+        jdbcTemplate.update("INSERT INTO assessment_template (id, name, batch, mark_type, assignment_label, created_by, created_at, updated_at, module_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", templateId, templateId, batch, markType, assignmentLabel, "datagen", now, now, moduleId);
+        count(counts, "assessmentTemplates", 1);
+
+        List<Object[]> itemRows = new ArrayList<>();
+        int questionNo = 0;
+        for (String loId : loIds) {
+            for (int q = 0; q < questionsPerLo; q++) {
+                questionNo++;
+                itemRows.add(new Object[]{"Q" + questionNo, questionNo, maxMarks, loId, templateId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO assessment_item (question_label, question_number, max_marks, los_id, template_id) " +
+                "VALUES (?, ?, ?, ?, ?)", itemRows);
+        count(counts, "assessmentItems", itemRows.size());
+
+        // Generated ids, in question order; question N belongs to LO (N-1) / questionsPerLo
+        List<Long> itemIds = jdbcTemplate.queryForList(
+                "SELECT id FROM assessment_item WHERE template_id = ? ORDER BY question_number", Long.class, templateId);
+
+        RowBuffer scores = new RowBuffer("INSERT INTO student_assessment_score (student_id, assessment_item_id, score) VALUES (?, ?, ?)");
+        RowBuffer marks = new RowBuffer("INSERT INTO StudentMark (student_id, los_id, score, batch, mark_type, assignment_label) VALUES (?, ?, ?, ?, ?, ?)");
+        for (int s = 0; s < studentIds.size(); s++) {
+            if (random.nextDouble() < 0.03) continue; // absent
+            String studentId = studentIds.get(s);
+            for (int l = 0; l < loIds.size(); l++) {
+                double total = 0;
+                for (int q = 0; q < questionsPerLo; q++) {
+                    double pct = 0.65 + 0.15 * (ability[s] - difficulty[l]) + random.nextGaussian() * 0.08;
+                    double score = Math.round(Math.max(0.0, Math.min(1.0, pct)) * maxMarks * 2) / 2.0;
+                    scores.add(studentId, itemIds.get(l * questionsPerLo + q), score);
+                    total += score;
+                }
+                marks.add(studentId, loIds.get(l), total, batch, markType, assignmentLabel);
+            }
+        }
+        count(counts, "studentAssessmentScores", scores.flush());
+        count(counts, "studentMarks", marks.flush());
+    }
+
+    private List<String> ensureProgramOutcomes(int programOutcomes, Timestamp now, Map<String, Long> counts) {
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT po_id FROM program_outcomes", String.class));
+        List<String> poIds = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int p = 1; p <= programOutcomes; p++) {
+            String poId = "PO" + p;
+            poIds.add(poId);
+            if (!existing.contains(poId)) {
+                rows.add(new Object[]{poId, poId, "Program Outcome " + p, true, "datagen", now, now, p});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO program_outcomes (po_id, po_code, title, is_active, created_by, created_at, updated_at, display_order) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+        count(counts, "programOutcomes", rows.size());
+        return poIds;
+    }
+
+    private void insertStudents(List<String> studentIds, String batch, Timestamp now, Map<String, Long> counts) {
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT student_id FROM students WHERE batch = ?", String.class, batch));
+        RowBuffer rows = new RowBuffer("INSERT INTO students (student_id, student_name, email, batch, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)");
+        for (String studentId : studentIds) {
+            if (existing.contains(studentId)) continue;
+            rows.add(studentId, "Student " + studentId, studentId.toLowerCase() + "@example.edu", batch, now, now);
+        }
+        count(counts, "students", rows.flush());
+    }
+
+    private static void count(Map<String, Long> counts, String table, long rows) {
+        counts.merge(table, rows, Long::sum);
+    }
+
+    // Buffers rows and sends them BATCH_SIZE at a time, so a large assessment is never held in memory whole
+    private final class RowBuffer {
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        private long written;
+
+        RowBuffer(String sql) {
+            this.sql = sql;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= BATCH_SIZE) send();
+        }
+
+        long flush() {
+            send();
+            return written;
+        }
+
+        private void send() {
+            if (rows.isEmpty()) return;
+            jdbcTemplate.batchUpdate(sql, rows);
+            written += rows.size();
+            rows.clear();
+        }
+    }
+}
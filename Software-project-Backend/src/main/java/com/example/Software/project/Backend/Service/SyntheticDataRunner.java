@@ -0,0 +1,50 @@
+package com.example.Software.project.Backend.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads a synthetic dataset on startup when the "datagen" profile is active, e.g.
+ *   mvnw spring-boot:run -Dspring-boot.run.profiles=dev,datagen -Dspring-boot.run.arguments=--datagen.students-per-batch=2000
+ * Sizes come from the datagen.* properties (application-datagen.properties).
+ */
+@Service
+@Profile("datagen")
+@Order(2) // After DataInitializationService
+public class SyntheticDataRunner implements CommandLineRunner {
+
+    @Autowired
+    private SyntheticDataGenerator generator;
+
+    @Value("${datagen.prefix:SYN}")
+    private String prefix;
+    @Value("${datagen.modules:5}")
+    private int modules;
+    @Value("${datagen.los-per-module:8}")
+    private int losPerModule;
+    @Value("${datagen.program-outcomes:12}")
+    private int programOutcomes;
+    @Value("${datagen.batches:4}")
+    private int batches;
+    @Value("${datagen.first-batch:20}")
+    private int firstBatch;
+    @Value("${datagen.students-per-batch:200}")
+    private int studentsPerBatch;
+    @Value("${datagen.questions-per-lo:3}")
+    private int questionsPerLo;
+    @Value("${datagen.assignments:2}")
+    private int assignments;
+    @Value("${datagen.seed:42}")
+    private long seed;
+
+    @Override
+    public void run(String... args) {
+        System.out.println("=== Synthetic data generation (profile 'datagen') ===");
+        generator.generate(new SyntheticDataGenerator.Spec(prefix.trim().toUpperCase(), modules, losPerModule, programOutcomes,
+                batches, firstBatch, studentsPerBatch, questionsPerLo, assignments, seed));
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.Software.project.Backend.Service;
 
 import com.example.Software.project.Backend.Model.AssessmentItem;
-import com.example.Software.project.Backend.Model.StudentMark;
 import com.example.Software.project.Backend.Repository.AssessmentItemRepository;
 import com.example.Software.project.Backend.Repository.StudentMarkRepository;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -19,6 +19,7 @@ public class TrendService {
     private AssessmentItemRepository assessmentItemRepository;
 
     // Original Module-level trend (kept for backward compat)
+    @Observed(name = "obe.attainment")
     public List<Map<String, Object>> getCourseTrend(String courseId) {
         List<Object[]> rawData = markRepository.findYearlyAverageByCourse(courseId);
         return processTrendData(rawData, false);
@@ -30,6 +31,7 @@ public class TrendService {
      * normalized to % using total max marks from AssessmentItem.
      * If no AssessmentItems exist (legacy data), raw score used as-is (assumed 0-100).
      */
+    @Observed(name = "obe.attainment")
     public Map<String, List<Map<String, Object>>> getLoTrend(String courseId) {
         List<Object[]> rawData = markRepository.findLoTrendByCourse(courseId);
 
@@ -91,67 +93,33 @@ public class TrendService {
      * For each student, sums raw marks across all assignments for the LO+batch,
      * divides by total max marks, and compares to threshold (as %).
      * Falls back to treating raw score as % when no AssessmentItems exist.
+     * The per-student sums, normalization and pass count all run in
+     * StudentMarkRepository.findLoPassRateByCourse.
      */
+    @Observed(name = "obe.attainment")
     public Map<String, List<Map<String, Object>>> getLoPassRate(String courseId, double threshold) {
-        // Get unique LO+batch combinations from trend data
-        List<Object[]> trendData = markRepository.findLoTrendByCourse(courseId);
+        // One grouped query: a row per LO+batch point, however many marks sit behind it
+        List<Object[]> rows = markRepository.findLoPassRateByCourse(courseId, threshold);
 
-        // Build: loKey -> loId, loName; and loId -> Set<batch>
-        Map<String, String[]> loMeta = new LinkedHashMap<>(); // loId -> [loId, loName]
-        Map<String, Set<String>> loBatches = new LinkedHashMap<>(); // loId -> batches
-        for (Object[] row : trendData) {
-            if (row == null || row.length < 4) continue;
+        Map<String, List<Map<String, Object>>> result = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row == null || row.length < 5) continue;
             String loId   = toSafeString(row[0]);
             String loName = toSafeString(row[1]);
             String batch  = toSafeString(row[2]);
-            loMeta.put(loId, new String[]{loId, loName});
-            loBatches.computeIfAbsent(loId, k -> new LinkedHashSet<>()).add(batch);
-        }
-
-        Map<String, List<Map<String, Object>>> result = new LinkedHashMap<>();
-
-        for (Map.Entry<String, String[]> metaEntry : loMeta.entrySet()) {
-            String loId   = metaEntry.getValue()[0];
-            String loName = metaEntry.getValue()[1];
-            String key    = loId + " - " + loName;
-            Set<String> batches = loBatches.getOrDefault(loId, Collections.emptySet());
-
-            List<Map<String, Object>> loRates = new ArrayList<>();
-
-            for (String batch : batches) {
-                // Get all marks for this LO+batch (across all assignments & markTypes)
-                List<StudentMark> marks = markRepository.findByLos_IdAndBatch(loId, batch);
-                if (marks.isEmpty()) continue;
-
-                // Sum scores per student (cross-assignment)
-                Map<String, Double> studentScores = new LinkedHashMap<>();
-                for (StudentMark m : marks) {
-                    if (m.getScore() == null) continue;
-                    String sid = m.getStudent().getStudentId();
-                    studentScores.merge(sid, m.getScore(), Double::sum);
-                }
-                if (studentScores.isEmpty()) continue;
-
-                double maxMarks = getTotalMaxMarksBatch(loId, batch);
-
-                long total  = studentScores.size();
-                long passed = studentScores.values().stream().filter(score -> {
-                    double pct = maxMarks > 0 ? (score / maxMarks) * 100.0 : score;
-                    return pct >= threshold;
-                }).count();
-
-                double passRate = (double) passed / total * 100.0;
-
-                Map<String, Object> point = new LinkedHashMap<>();
-                point.put("batch",          batch);
-                point.put("year",           batch + "nd Batch");
-                point.put("totalStudents",  total);
-                point.put("passedStudents", passed);
-                point.put("passRate",       round1(passRate));
-                loRates.add(point);
-            }
-
-            if (!loRates.isEmpty()) result.put(key, loRates);
+            long total  = row[3] instanceof Number n ? n.longValue() : 0L;
+            long passed = row[4] instanceof Number n ? n.longValue() : 0L;
+            if (total == 0) continue;
+
+            double passRate = (double) passed / total * 100.0;
+
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("batch",          batch);
+            point.put("year",           batch + "nd Batch");
+            point.put("totalStudents",  total);
+            point.put("passedStudents", passed);
+            point.put("passRate",       round1(passRate));
+            result.computeIfAbsent(loId + " - " + loName, k -> new ArrayList<>()).add(point);
         }
 
         return result;
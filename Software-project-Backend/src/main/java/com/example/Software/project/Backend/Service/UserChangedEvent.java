@@ -0,0 +1,16 @@
+package com.example.Software.project.Backend.Service;
+
+/**
+ * Published when a user's password changes or the user is deleted, so tokens already issued
+ * to them stop being accepted (see JwtRequestFilter).
+ */
+public class UserChangedEvent {
+
+    private final String username;
+
+    public UserChangedEvent(String username) {
+        this.username = username;
+    }
+
+    public String getUsername() { return username; }
+}
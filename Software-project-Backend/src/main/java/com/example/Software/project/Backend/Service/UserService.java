@@ -3,6 +3,7 @@ package com.example.Software.project.Backend.Service;
 import com.example.Software.project.Backend.Model.User;
 import com.example.Software.project.Backend.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -23,6 +24,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Authenticates a user using their username and password.
      * This is the core logic used by the /api/auth/login endpoint.
@@ -72,6 +76,7 @@ public class UserService {
 
     /**
      * Updates a lecturer's email (and password, if provided). Username/usertype are fixed.
+     * A password change revokes the lecturer's outstanding tokens.
      */
     public User updateLecturer(String username, String email, String password) throws Exception {
         User user = userRepository.findByUsername(username)
@@ -84,6 +89,8 @@ public class UserService {
         }
         if (password != null && !password.isBlank()) {
             user.setPassword(password);
+            // Tokens issued under the old password stop working
+            eventPublisher.publishEvent(new UserChangedEvent(username));
         }
         return userRepository.save(user);
     }
@@ -100,6 +107,7 @@ public class UserService {
         }
         moduleService.removeLecturerFromAllModules(username);
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
     }
 
     /**
@@ -111,6 +119,7 @@ public class UserService {
 
     /**
      * Updates an admin's email (and password, if provided). Username/usertype are fixed.
+     * A password change revokes the admin's outstanding tokens.
      */
     public User updateAdmin(String username, String email, String password) throws Exception {
         User user = userRepository.findByUsername(username)
@@ -123,6 +132,8 @@ public class UserService {
         }
         if (password != null && !password.isBlank()) {
             user.setPassword(password);
+            // Tokens issued under the old password stop working
+            eventPublisher.publishEvent(new UserChangedEvent(username));
         }
         return userRepository.save(user);
     }
@@ -137,6 +148,7 @@ public class UserService {
             throw new Exception(username + " is not an admin");
         }
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
     }
 
     /**
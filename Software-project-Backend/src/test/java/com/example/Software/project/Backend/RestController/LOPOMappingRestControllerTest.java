@@ -10,21 +10,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 
 import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
  * MockMvc tests for LOPOMappingRestController's admin-only endpoints.
  *
- * The controller does NOT use Spring Security's @PreAuthorize/hasRole — it manually
- * decodes the "Authorization" header via JwtUtil and gates access with isAdmin()/isLecturer()
- * helpers (see LOPOMappingRestController lines 36-58). These tests exercise that gate
+ * The controller does NOT use Spring Security's @PreAuthorize/hasRole — its handlers carry
+ * @RequiresRole, which AuthorizationInterceptor checks against the role read from the
+ * "Authorization" header via JwtUtil. These tests exercise that gate
  * directly through HTTP, with the Spring Security filter chain disabled (addFilters = false)
  * so the controller's own role check — the thing actually protecting these endpoints in
  * production — is what's under test, not the servlet filter chain.
@@ -37,6 +40,11 @@ class LOPOMappingRestControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    // The principal JwtRequestFilter authenticates from a valid token; filters are off here
+    private static RequestPostProcessor principal(String username, String role) {
+        return user(username).authorities(new SimpleGrantedAuthority(role));
+    }
+
     @MockBean
     private LOPOMappingService mappingService;
 
@@ -49,10 +57,9 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("GET /admin/pending is rejected with 403 for a lecturer token")
     void adminPending_rejectsLecturerToken() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
         mockMvc.perform(get("/api/lo-po-mapping/admin/pending")
-                .header("Authorization", "Bearer lecturer.jwt"))
+                .with(principal("lecturer1", "lecture")))
             .andExpect(status().isForbidden())
             .andExpect(jsonPath("$.status").value("ERROR"));
     }
@@ -60,11 +67,10 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("GET /admin/pending succeeds with 200 for an admin token")
     void adminPending_allowsAdminToken() throws Exception {
-        when(jwtUtil.extractRole("admin.jwt")).thenReturn("admin");
         when(mappingService.getPendingMappings()).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/api/lo-po-mapping/admin/pending")
-                .header("Authorization", "Bearer admin.jwt"))
+                .with(principal("admin1", "admin")))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.status").value("SUCCESS"));
     }
@@ -72,7 +78,6 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("GET /admin/pending is rejected with 403 when the token has no valid role")
     void adminPending_rejectsUnparseableToken() throws Exception {
-        when(jwtUtil.extractRole("garbage.jwt")).thenThrow(new RuntimeException("malformed JWT"));
 
         mockMvc.perform(get("/api/lo-po-mapping/admin/pending")
                 .header("Authorization", "Bearer garbage.jwt"))
@@ -82,10 +87,9 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("PUT /admin/{id}/approve is rejected with 403 for a lecturer token")
     void approve_rejectsLecturerToken() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
         mockMvc.perform(put("/api/lo-po-mapping/admin/1/approve")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{}"))
             .andExpect(status().isForbidden());
@@ -94,10 +98,9 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("PUT /admin/{id}/reject requires non-blank rejection remarks even for an admin")
     void reject_requiresRemarks() throws Exception {
-        when(jwtUtil.extractRole("admin.jwt")).thenReturn("admin");
 
         mockMvc.perform(put("/api/lo-po-mapping/admin/1/reject")
-                .header("Authorization", "Bearer admin.jwt")
+                .with(principal("admin1", "admin"))
                 .contentType("application/json")
                 .content("{\"adminRemarks\": \"   \"}"))
             .andExpect(status().isBadRequest())
@@ -107,8 +110,6 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("PUT /admin/{id}/reject succeeds for an admin token with remarks supplied")
     void reject_succeedsWithRemarks() throws Exception {
-        when(jwtUtil.extractRole("admin.jwt")).thenReturn("admin");
-        when(jwtUtil.extractUsername("admin.jwt")).thenReturn("admin1");
         OutcomeMapping rejected = new OutcomeMapping();
         rejected.setId(1L);
         rejected.setWeight(2);
@@ -116,7 +117,7 @@ class LOPOMappingRestControllerTest {
         when(mappingService.rejectMapping(1L, "admin1", "not sufficient")).thenReturn(rejected);
 
         mockMvc.perform(put("/api/lo-po-mapping/admin/1/reject")
-                .header("Authorization", "Bearer admin.jwt")
+                .with(principal("admin1", "admin"))
                 .contentType("application/json")
                 .content("{\"adminRemarks\": \"not sufficient\"}"))
             .andExpect(status().isOk())
@@ -126,11 +127,10 @@ class LOPOMappingRestControllerTest {
     @Test
     @DisplayName("POST /create is rejected with 403 without a valid lecturer/admin token")
     void create_rejectsWithoutValidToken() throws Exception {
-        when(jwtUtil.extractRole("student.jwt")).thenReturn("student");
 
         mockMvc.perform(post("/api/lo-po-mapping/create")
                 .param("loId", "LO001")
-                .header("Authorization", "Bearer student.jwt")
+                .with(principal("student1", "student"))
                 .contentType("application/json")
                 .content("{\"mappings\": {\"PO1\": 3, \"PO2\": 1}}"))
             .andExpect(status().isForbidden());
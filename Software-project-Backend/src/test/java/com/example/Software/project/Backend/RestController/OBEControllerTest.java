@@ -1,5 +1,8 @@
 package com.example.Software.project.Backend.RestController;
 
+import com.example.Software.project.Backend.Model.ImportJob;
+import com.example.Software.project.Backend.Model.MarkType;
+import com.example.Software.project.Backend.Model.PoAttainmentSnapshot;
 import com.example.Software.project.Backend.Repository.*;
 import com.example.Software.project.Backend.Security.JwtUtil;
 import com.example.Software.project.Backend.Service.*;
@@ -9,23 +12,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
- * MockMvc tests for OBEController's role gate (isLecture/isAdmin, lines 1109-1135) and the
+ * MockMvc tests for OBEController's role gate (@RequiresRole on each handler) and the
  * request validation on the two endpoints the Marks Workbench workflow depends on directly:
  * exporting a marks report and calculating PO attainment (see Project _init.md's
- * "Current End-to-End Workflow"). Like LOPOMappingRestController, this controller checks roles
- * manually rather than via @PreAuthorize, so the Spring Security filter chain is disabled
- * (addFilters = false) to test the controller's own gate.
+ * "Current End-to-End Workflow"). Like LOPOMappingRestController, this controller's roles are
+ * checked by AuthorizationInterceptor rather than @PreAuthorize, so the Spring Security filter
+ * chain is disabled (addFilters = false) to test that gate.
  */
 @WebMvcTest(controllers = OBEController.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -35,6 +43,11 @@ class OBEControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    // The principal JwtRequestFilter authenticates from a valid token; filters are off here
+    private static RequestPostProcessor principal(String username, String role) {
+        return user(username).authorities(new SimpleGrantedAuthority(role));
+    }
+
     @MockBean private ProgramOutcomeRepository poRepo;
     @MockBean private OutcomeMappingRepository mapRepo;
     @MockBean private LosRepository losRepo;
@@ -48,16 +61,19 @@ class OBEControllerTest {
     @MockBean private AssessmentItemRepository assessmentItemRepo;
     @MockBean private ModuleRepository moduleRepo;
     @MockBean private StudentMarkRepository studentMarkRepository;
+    @MockBean private AttainmentSnapshotService snapshotService;
+    @MockBean private ImportJobService importJobService;
+    @MockBean private AttainmentCache attainmentCache;
+    @MockBean private NdjsonWriter ndjsonWriter;
 
     // ---- role gate ----
 
     @Test
     @DisplayName("POST /po/create is rejected with 403 for a lecturer token (admin-only endpoint)")
     void createPO_rejectsLecturerToken() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
         mockMvc.perform(post("/api/obe/po/create")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{\"poId\": \"PO1\"}"))
             .andExpect(status().isForbidden());
@@ -66,10 +82,9 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /export/marks is rejected with 403 without a lecturer/admin token")
     void exportMarks_rejectsUnauthorizedToken() throws Exception {
-        when(jwtUtil.extractRole("student.jwt")).thenReturn("student");
 
         mockMvc.perform(post("/api/obe/export/marks")
-                .header("Authorization", "Bearer student.jwt")
+                .with(principal("student1", "student"))
                 .contentType("application/json")
                 .content("{\"losIds\": [\"LO001\"], \"markType\": \"FINAL_EXAM\", \"batch\": \"20\"}"))
             .andExpect(status().isForbidden());
@@ -80,10 +95,9 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /export/marks rejects an empty losIds list with 400")
     void exportMarks_rejectsEmptyLosIds() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
         mockMvc.perform(post("/api/obe/export/marks")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{\"losIds\": [], \"markType\": \"FINAL_EXAM\", \"batch\": \"20\"}"))
             .andExpect(status().isBadRequest())
@@ -93,10 +107,9 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /export/marks rejects a threshold outside 0-100 with 400")
     void exportMarks_rejectsOutOfRangeThreshold() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
         mockMvc.perform(post("/api/obe/export/marks")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{\"losIds\": [\"LO001\"], \"markType\": \"FINAL_EXAM\", \"batch\": \"20\", \"threshold\": 150}"))
             .andExpect(status().isBadRequest())
@@ -106,10 +119,9 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /export/marks rejects an invalid markType with 400")
     void exportMarks_rejectsInvalidMarkType() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
         mockMvc.perform(post("/api/obe/export/marks")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{\"losIds\": [\"LO001\"], \"markType\": \"MIDTERM\", \"batch\": \"20\"}"))
             .andExpect(status().isBadRequest())
@@ -119,12 +131,11 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /export/marks returns the generated workbook as a downloadable file for a valid request")
     void exportMarks_returnsWorkbookForValidRequest() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
         when(excelExportService.generateMarksExcel(anyList(), eq("FINAL_EXAM"), eq("20"), eq(50)))
             .thenReturn(new byte[]{1, 2, 3});
 
         mockMvc.perform(post("/api/obe/export/marks")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{\"losIds\": [\"LO001\"], \"markType\": \"FINAL_EXAM\", \"batch\": \"20\"}"))
             .andExpect(status().isOk())
@@ -136,10 +147,9 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /po-attainment is rejected with 403 for a non-lecturer token")
     void poAttainment_rejectsUnauthorizedToken() throws Exception {
-        when(jwtUtil.extractRole("student.jwt")).thenReturn("student");
 
         mockMvc.perform(post("/api/obe/po-attainment")
-                .header("Authorization", "Bearer student.jwt")
+                .with(principal("student1", "student"))
                 .contentType("application/json")
                 .content("{\"losIds\": [\"LO001\"], \"markType\": \"FINAL_EXAM\", \"batch\": \"20\"}"))
             .andExpect(status().isForbidden());
@@ -148,12 +158,11 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /po-attainment returns 200 with the calculated credits for a lecturer token")
     void poAttainment_succeedsForLecturer() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
         when(poAttainmentService.calculateStudentPOCredits(anyList(), eq("FINAL_EXAM"), eq("20"), eq(50), eq(0.0)))
             .thenReturn(Map.of("students", Collections.emptyList()));
 
         mockMvc.perform(post("/api/obe/po-attainment")
-                .header("Authorization", "Bearer lecturer.jwt")
+                .with(principal("lecturer1", "lecture"))
                 .contentType("application/json")
                 .content("{\"losIds\": [\"LO001\"], \"markType\": \"FINAL_EXAM\", \"batch\": \"20\"}"))
             .andExpect(status().isOk())
@@ -165,28 +174,97 @@ class OBEControllerTest {
     @Test
     @DisplayName("POST /marks/upload-bulk is rejected with 403 without a lecturer/admin token")
     void uploadBulk_rejectsUnauthorizedToken() throws Exception {
-        when(jwtUtil.extractRole("student.jwt")).thenReturn("student");
 
         mockMvc.perform(multipart("/api/obe/marks/upload-bulk")
                 .file("excelFile", "content".getBytes())
                 .param("losIds", "LO001")
                 .param("batch", "20")
-                .header("Authorization", "Bearer student.jwt"))
+                .with(principal("student1", "student")))
             .andExpect(status().isForbidden());
     }
 
     @Test
     @DisplayName("POST /marks/upload-bulk rejects the request with 400 when losIds cannot be determined")
     void uploadBulk_rejectsWhenLosIdsMissing() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
         when(excelService.readMetadata(any())).thenReturn(Collections.emptyMap());
 
         mockMvc.perform(multipart("/api/obe/marks/upload-bulk")
                 .file("excelFile", "content".getBytes())
                 .param("batch", "20")
-                .header("Authorization", "Bearer lecturer.jwt"))
+                .with(principal("lecturer1", "lecture")))
             .andExpect(status().isBadRequest())
             .andExpect(jsonPath("$.message").value(
                 "Error: losIds cannot be determined. Use a template downloaded from this system."));
     }
+
+    @Test
+    @DisplayName("POST /marks/upload-bulk queues the import and answers 202 with the job id")
+    void uploadBulk_queuesImportJob() throws Exception {
+        when(excelService.readMetadata(any())).thenReturn(Collections.emptyMap());
+        ImportJob job = new ImportJob();
+        job.setId("job-1");
+        when(importJobService.submitBulk(any(), any(), eq("20"), eq("FINAL_EXAM"), isNull(), isNull(), any())).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/obe/marks/upload-bulk")
+                .file("excelFile", "content".getBytes())
+                .param("losIds", "LO001,LO002")
+                .param("batch", "20")
+                .with(principal("lecturer1", "lecture")))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.data.jobId").value("job-1"))
+            .andExpect(jsonPath("$.data.losCount").value(2));
+        verify(excelService, never()).importMarksBulk(any(), any(), any(), any());
+    }
+
+    // ---- import-jobs ----
+
+    @Test
+    @DisplayName("GET /import-jobs/{id} returns 404 for an unknown job")
+    void getImportJob_returns404WhenMissing() throws Exception {
+        when(importJobService.getJob("nope")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/obe/import-jobs/nope")
+                .with(principal("lecturer1", "lecture")))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /import-jobs/{id} is limited to the uploader and admins")
+    void getImportJob_onlyOwnerOrAdmin() throws Exception {
+        ImportJob job = new ImportJob();
+        job.setId("job-1");
+        job.setStatus(ImportJob.Status.RUNNING);
+        job.setCreatedBy("lecturer1");
+        when(importJobService.getJob("job-1")).thenReturn(Optional.of(job));
+        when(importJobService.getJobStatus(job)).thenReturn(Map.of("jobId", "job-1"));
+
+        mockMvc.perform(get("/api/obe/import-jobs/job-1")
+                .with(principal("lecturer2", "lecture")))
+            .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/obe/import-jobs/job-1")
+                .with(principal("lecturer1", "lecture")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.data.jobId").value("job-1"));
+        mockMvc.perform(get("/api/obe/import-jobs/job-1")
+                .with(principal("admin1", "admin")))
+            .andExpect(status().isOk());
+    }
+
+    // ---- reports/course ----
+
+    @Test
+    @DisplayName("GET /reports/course/{moduleId}?batch= is served from the PO snapshots")
+    void courseReport_withBatch_readsSnapshots() throws Exception {
+        PoAttainmentSnapshot snap = new PoAttainmentSnapshot();
+        snap.setPoCode("PO1");
+        snap.setWeightedLevel(2.5);
+        when(snapshotService.getCurrentPoSnapshots("CS101", "20", MarkType.FINAL_EXAM)).thenReturn(List.of(snap));
+
+        mockMvc.perform(get("/api/obe/reports/course/CS101")
+                .param("batch", "20")
+                .with(principal("lecturer1", "lecture")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.PO1").value(2.5));
+        verify(attainmentService, never()).getPOAttainment(anyString());
+    }
 }
@@ -15,28 +15,29 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
  * MockMvc tests for UserRestController: login's role validation (a user with no/invalid
  * usertype must not get a token), and the role gate on the admin/superadmin-only user
- * management endpoints. Like the other controllers here, roles are checked manually via
- * JwtUtil rather than @PreAuthorize, so the Spring Security filter chain is disabled
- * (addFilters = false) and the endpoints are hit directly.
+ * management endpoints. Like the other controllers here, roles are checked by @RequiresRole
+ * in the MVC interceptor rather than @PreAuthorize, so the Spring Security filter chain is
+ * disabled (addFilters = false) and the interceptor reads the role from the mocked JwtUtil.
  *
- * add-admin/add-lecture's *success* paths are intentionally not covered here: they read
- * the creator's username from SecurityContextHolder, which nothing populates once the
- * filter chain is disabled. Their 403/400 rejection paths run before that line, so those
- * are covered instead.
+ * add-admin/add-lecture's *success* paths are not covered here; their 403/400 rejection
+ * paths are.
  */
 @WebMvcTest(controllers = UserRestController.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -46,6 +47,11 @@ class UserRestControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    // The principal JwtRequestFilter authenticates from a valid token; filters are off here
+    private static RequestPostProcessor principal(String username, String role) {
+        return user(username).authorities(new SimpleGrantedAuthority(role));
+    }
+
     @MockBean private UserService userService;
     @MockBean private ModuleService moduleService;
     @MockBean private AuthenticationManager authenticationManager;
@@ -129,42 +135,39 @@ class UserRestControllerTest {
     @Test
     @DisplayName("GET /lecturers is rejected with 403 for a lecturer token")
     void getLecturers_rejectsLecturerToken() throws Exception {
-        when(jwtUtil.extractRole("lecturer.jwt")).thenReturn("lecture");
 
-        mockMvc.perform(get("/api/auth/lecturers").header("Authorization", "Bearer lecturer.jwt"))
+        mockMvc.perform(get("/api/auth/lecturers").with(principal("lecturer1", "lecture")))
             .andExpect(status().isForbidden());
     }
 
     @Test
     @DisplayName("GET /lecturers succeeds for an admin token")
     void getLecturers_allowsAdminToken() throws Exception {
-        when(jwtUtil.extractRole("admin.jwt")).thenReturn("admin");
         User lecturer = new User("lect1", "lect1@example.com", "hashed", "lecture");
         when(userService.findAllLecturers()).thenReturn(List.of(lecturer));
-        when(moduleService.getModuleIdsAssignedTo("lect1")).thenReturn(Collections.emptyList());
+        when(moduleService.getAssignedModuleIdsByLecturer()).thenReturn(Map.of("lect1", List.of("SE101")));
 
-        mockMvc.perform(get("/api/auth/lecturers").header("Authorization", "Bearer admin.jwt"))
+        mockMvc.perform(get("/api/auth/lecturers").with(principal("admin1", "admin")))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.status").value("SUCCESS"))
-            .andExpect(jsonPath("$.data[0].username").value("lect1"));
+            .andExpect(jsonPath("$.data[0].username").value("lect1"))
+            .andExpect(jsonPath("$.data[0].assignedModuleIds[0]").value("SE101"));
     }
 
     @Test
     @DisplayName("GET /admins is rejected with 403 for a plain admin token (superadmin-only)")
     void getAdmins_rejectsAdminToken() throws Exception {
-        when(jwtUtil.extractRole("admin.jwt")).thenReturn("admin");
 
-        mockMvc.perform(get("/api/auth/admins").header("Authorization", "Bearer admin.jwt"))
+        mockMvc.perform(get("/api/auth/admins").with(principal("admin1", "admin")))
             .andExpect(status().isForbidden());
     }
 
     @Test
     @DisplayName("GET /admins succeeds for a superadmin token")
     void getAdmins_allowsSuperAdminToken() throws Exception {
-        when(jwtUtil.extractRole("superadmin.jwt")).thenReturn("superadmin");
         when(userService.findAllAdmins()).thenReturn(Collections.emptyList());
 
-        mockMvc.perform(get("/api/auth/admins").header("Authorization", "Bearer superadmin.jwt"))
+        mockMvc.perform(get("/api/auth/admins").with(principal("superadmin1", "superadmin")))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.status").value("SUCCESS"));
     }
@@ -172,10 +175,9 @@ class UserRestControllerTest {
     @Test
     @DisplayName("POST /add-admin is rejected with 403 for a plain admin token (superadmin-only)")
     void addAdmin_rejectsAdminToken() throws Exception {
-        when(jwtUtil.extractRole("admin.jwt")).thenReturn("admin");
 
         mockMvc.perform(post("/api/auth/add-admin")
-                .header("Authorization", "Bearer admin.jwt")
+                .with(principal("admin1", "admin"))
                 .contentType("application/json")
                 .content("{\"userID\": \"newadmin\", \"usertype\": \"admin\"}"))
             .andExpect(status().isForbidden());
@@ -184,10 +186,9 @@ class UserRestControllerTest {
     @Test
     @DisplayName("POST /add-admin rejects with 400 when the payload's usertype isn't 'admin'")
     void addAdmin_rejectsWrongUserType() throws Exception {
-        when(jwtUtil.extractRole("superadmin.jwt")).thenReturn("superadmin");
 
         mockMvc.perform(post("/api/auth/add-admin")
-                .header("Authorization", "Bearer superadmin.jwt")
+                .with(principal("superadmin1", "superadmin"))
                 .contentType("application/json")
                 .content("{\"userID\": \"newlecture\", \"usertype\": \"lecture\"}"))
             .andExpect(status().isBadRequest())
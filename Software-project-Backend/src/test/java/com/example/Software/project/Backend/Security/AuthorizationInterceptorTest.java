@@ -0,0 +1,122 @@
+package com.example.Software.project.Backend.Security;
+
+import com.example.Software.project.Backend.Security.AuthContext.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AuthorizationInterceptor: @RequiresRole is enforced against the role of the
+ * principal JwtRequestFilter authenticated, with admins passing lecturer checks; without a
+ * principal the Authorization header is ignored. The AuthContext (including the
+ * assigned-module lookup) is resolved only once per request.
+ */
+@DisplayName("AuthorizationInterceptor Tests")
+class AuthorizationInterceptorTest {
+
+    private static final String SECRET = "test-secret-key-for-ci-cd-must-be-at-least-32-characters-long";
+
+    private JwtUtil jwtUtil;
+    private AtomicInteger moduleLookups;
+    private AuthorizationInterceptor interceptor;
+
+    static class Endpoints {
+        @RequiresRole(value = Role.ADMIN, message = "Admin only")
+        public void adminOnly() { }
+
+        @RequiresRole(Role.LECTURE)
+        public void lectureOnly() { }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(SECRET);
+        moduleLookups = new AtomicInteger();
+        interceptor = new AuthorizationInterceptor(username -> {
+            moduleLookups.incrementAndGet();
+            return List.of("CS1010");
+        }, new ObjectMapper());
+    }
+
+    @AfterEach
+    void clearPrincipal() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // What JwtRequestFilter leaves behind for a valid, unrevoked token
+    private MockHttpServletRequest request(String role) {
+        UserDetails principal = new User("user1", "", List.of(new SimpleGrantedAuthority(role)));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken("user1", role));
+        return request;
+    }
+
+    private HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getMethod(method));
+    }
+
+    @Test
+    @DisplayName("a lecturer is rejected from an admin endpoint with a 403 JSON body")
+    void adminEndpoint_rejectsLecturer() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request("lecture"), response, handler("adminOnly")));
+        assertEquals(403, response.getStatus());
+        assertTrue(response.getContentAsString().contains("\"message\":\"Admin only\""));
+        assertTrue(response.getContentAsString().contains("\"status\":\"ERROR\""));
+    }
+
+    @Test
+    @DisplayName("admins pass lecturer checks; a missing or garbage token passes neither")
+    void roleHierarchy() throws Exception {
+        assertTrue(interceptor.preHandle(request("admin"), new MockHttpServletResponse(), handler("lectureOnly")));
+        assertTrue(interceptor.preHandle(request("superadmin"), new MockHttpServletResponse(), handler("adminOnly")));
+
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest garbage = new MockHttpServletRequest();
+        garbage.addHeader("Authorization", "Bearer not.a.jwt");
+        assertFalse(interceptor.preHandle(garbage, new MockHttpServletResponse(), handler("lectureOnly")));
+        assertFalse(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler("lectureOnly")));
+    }
+
+    @Test
+    @DisplayName("a well-signed token the filter did not authenticate (e.g. revoked) passes no check")
+    void tokenWithoutPrincipal_isAnonymous() throws Exception {
+        MockHttpServletRequest revoked = new MockHttpServletRequest();
+        revoked.addHeader("Authorization", "Bearer " + jwtUtil.generateToken("admin1", "admin"));
+
+        assertFalse(interceptor.preHandle(revoked, new MockHttpServletResponse(), handler("adminOnly")));
+        assertFalse(interceptor.resolve(revoked).isAuthenticated());
+    }
+
+    @Test
+    @DisplayName("the context is resolved once per request and assigned modules are loaded once")
+    void context_resolvedOncePerRequest() throws Exception {
+        MockHttpServletRequest request = request("lecture");
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler("lectureOnly"));
+
+        AuthContext first = interceptor.resolve(request);
+        assertSame(first, interceptor.resolve(request));
+        assertEquals("user1", first.getUsername());
+        assertTrue(first.isAssignedTo("CS1010"));
+        assertFalse(first.isAssignedTo("CS2020"));
+        assertEquals(1, moduleLookups.get());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.Software.project.Backend.Security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the stateless JWT path: the claims JwtRequestFilter builds principals from,
+ * and JwtPrincipalCache's bounds and revocation. A revoked user's token must be rejected even
+ * while its principal is still cached.
+ */
+@DisplayName("JwtPrincipalCache Tests")
+class JwtPrincipalCacheTest {
+
+    private static final String SECRET = "test-secret-key-for-ci-cd-must-be-at-least-32-characters-long";
+
+    private static UserDetails principal(String username) {
+        return new User(username, "", List.of(new SimpleGrantedAuthority("lecture")));
+    }
+
+    private static Date inMinutes(int minutes) {
+        return new Date(System.currentTimeMillis() + minutes * 60_000L);
+    }
+
+    @Test
+    @DisplayName("generated tokens carry the signed usertype claim")
+    void generateToken_signsUsertype() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET);
+        String token = jwtUtil.generateToken("lecturer1", "lecture");
+
+        Claims claims = jwtUtil.parseToken(token);
+        assertEquals("lecturer1", claims.getSubject());
+        assertEquals("lecture", claims.get(JwtUtil.USERTYPE_CLAIM, String.class));
+        assertNotNull(claims.getIssuedAt());
+        assertEquals(claims.getIssuedAt().getTime() / 1000, JwtUtil.issuedAt(claims).getTime() / 1000);
+        assertThrows(Exception.class, () -> new JwtUtil(SECRET.replace('t', 'x')).parseToken(token));
+    }
+
+    @Test
+    @DisplayName("revoking a user rejects tokens issued before the revocation, cached or not")
+    void revoke_rejectsEarlierTokens() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, 300);
+        Date issuedEarlier = new Date(System.currentTimeMillis() - 5_000);
+        cache.put("token-a", principal("lecturer1"), issuedEarlier, inMinutes(60));
+        cache.put("token-b", principal("lecturer2"), issuedEarlier, inMinutes(60));
+        assertNotNull(cache.get("token-a"));
+
+        cache.revoke("lecturer1");
+
+        assertNull(cache.get("token-a"));
+        assertTrue(cache.isRevoked("lecturer1", issuedEarlier));
+        assertFalse(cache.isRevoked("lecturer1", inMinutes(1)));
+        assertNotNull(cache.get("token-b"));
+    }
+
+    @Test
+    @DisplayName("a token issued right after the revocation, in the same second, is accepted")
+    void revoke_acceptsTokenFromSameSecond() throws InterruptedException {
+        JwtPrincipalCache cache = new JwtPrincipalCache(100, 300);
+        Date before = new Date();
+        Thread.sleep(2);
+        cache.revoke("lecturer1");
+        Thread.sleep(2);
+        Date after = new Date();
+
+        assertTrue(cache.isRevoked("lecturer1", before));
+        assertFalse(cache.isRevoked("lecturer1", after));
+
+        JwtUtil jwtUtil = new JwtUtil(SECRET);
+        Claims claims = jwtUtil.parseToken(jwtUtil.generateToken("lecturer1", "lecture"));
+        assertFalse(cache.isRevoked("lecturer1", JwtUtil.issuedAt(claims)));
+    }
+
+    @Test
+    @DisplayName("entries are LRU-bounded and never outlive their token")
+    void put_boundedAndExpiring() {
+        JwtPrincipalCache cache = new JwtPrincipalCache(2, 300);
+        Date now = new Date();
+        cache.put("t1", principal("u1"), now, inMinutes(60));
+        cache.put("t2", principal("u2"), now, inMinutes(60));
+        cache.get("t1");
+        cache.put("t3", principal("u3"), now, inMinutes(60));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("t1"));
+        assertNull(cache.get("t2"));
+
+        cache.put("expired", principal("u4"), now, new Date(System.currentTimeMillis() - 1));
+        assertNull(cache.get("expired"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.Los;
+import com.example.Software.project.Backend.Model.Module;
+import com.example.Software.project.Backend.Repository.LosRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for AttainmentCache — hit/miss accounting, LRU bound, and invalidation by the
+ * mark / outcome events so a result computed before a write is never served after it.
+ */
+@DisplayName("AttainmentCache Tests")
+class AttainmentCacheTest {
+
+    @Mock
+    private LosRepository losRepository;
+
+    @InjectMocks
+    private AttainmentCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        Module module = new Module();
+        module.setModuleId("MOD1");
+        Los lo = new Los();
+        lo.setId("LO001");
+        lo.setModule(module);
+        when(losRepository.findAllById(any())).thenReturn(List.of(lo));
+        when(losRepository.findByModule_ModuleId("MOD1")).thenReturn(List.of(lo));
+    }
+
+    private Map<String, Double> poAttainment(String moduleId) {
+        return cache.get("po-attainment", List.of(moduleId), List.of(), List.of(moduleId), () -> {
+            loads.incrementAndGet();
+            return Map.of("PO1", 2.5);
+        });
+    }
+
+    @Test
+    @DisplayName("repeat reads with the same inputs are served from the cache")
+    void repeatReadsHitTheCache() {
+        poAttainment("MOD1");
+        poAttainment("MOD1");
+        poAttainment("MOD1");
+
+        assertEquals(1, loads.get());
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    @DisplayName("a mark change on one of the module's LOs drops the module-level entry")
+    void marksChangedInvalidatesByModule() {
+        poAttainment("MOD1");
+
+        cache.onMarksChanged(MarksChangedEvent.forLos(List.of("LO001"), "20"));
+        poAttainment("MOD1");
+
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    @DisplayName("a load that overlaps an invalidation is returned but not stored")
+    void loadOverlappingInvalidationIsNotStored() {
+        cache.get("po-attainment", List.of("MOD1"), List.of(), List.of("MOD1"), () -> {
+            loads.incrementAndGet();
+            cache.onOutcomesChanged(OutcomesChangedEvent.forLo("LO001", "MOD1"));
+            return Map.of("PO1", 1.0);
+        });
+        poAttainment("MOD1");
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("the least recently used entry is evicted once max-entries is exceeded")
+    void evictsLeastRecentlyUsed() {
+        int max = (int) cache.getStats().get("maxEntries");
+        for (int i = 0; i <= max; i++) {
+            poAttainment("MOD" + i);
+        }
+
+        assertEquals(max, cache.getStats().get("size"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+        poAttainment("MOD0");
+        assertEquals(max + 2, loads.get());
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 import java.util.*;
 
@@ -36,6 +37,9 @@ class AttainmentServiceTest {
     @Mock
     private StudentAssessmentScoreRepository studentAssessmentScoreRepository;
 
+    @Spy
+    private AttainmentCache attainmentCache = new AttainmentCache();
+
     @InjectMocks
     private AttainmentService attainmentService;
 
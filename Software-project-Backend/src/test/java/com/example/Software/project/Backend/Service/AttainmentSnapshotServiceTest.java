@@ -0,0 +1,276 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.*;
+import com.example.Software.project.Backend.Model.Module;
+import com.example.Software.project.Backend.Repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AttainmentSnapshotService — the LO/PO snapshot rebuild that runs after
+ * every mark upload or edit. Uses legacy percentage marks (no assessment items) so the
+ * expected numbers can be worked out by hand.
+ */
+@DisplayName("AttainmentSnapshotService Tests")
+class AttainmentSnapshotServiceTest {
+
+    @Mock
+    private LoAttainmentSnapshotRepository loSnapshotRepository;
+    @Mock
+    private PoAttainmentSnapshotRepository poSnapshotRepository;
+    @Mock
+    private LosRepository losRepository;
+    @Mock
+    private StudentMarkRepository studentMarkRepository;
+    @Mock
+    private AssessmentItemRepository assessmentItemRepository;
+    @Mock
+    private OutcomeMappingRepository outcomeMappingRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private AttainmentSnapshotService snapshotService;
+    // Shares the StudentMark/AssessmentItem mocks, to compare against the batch-scoped calculation
+    @InjectMocks
+    private AttainmentService attainmentService;
+
+    private Los los1;
+    private Los los2;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        Module module = new Module();
+        module.setModuleId("MOD1");
+
+        los1 = new Los();
+        los1.setId("LO001");
+        los1.setModule(module);
+        los2 = new Los();
+        los2.setId("LO002");
+        los2.setModule(module);
+
+        ProgramOutcome po1 = new ProgramOutcome();
+        po1.setCode("PO1");
+
+        when(losRepository.findByModule_ModuleId("MOD1")).thenReturn(List.of(los1, los2));
+        when(outcomeMappingRepository.findByLearningOutcome_Module_ModuleIdAndStatus("MOD1", OutcomeMapping.ApprovalStatus.APPROVED))
+            .thenReturn(List.of(mapping(los1, po1, 2), mapping(los2, po1, 1)));
+        // EN001 passes both LOs, EN002 only LO002
+        when(studentMarkRepository.findScoreRowsByLosIdsAndMarkTypeAndBatch(List.of("LO001", "LO002"), MarkType.FINAL_EXAM, "20"))
+            .thenReturn(List.of(
+                new Object[]{"LO001", "EN001", 70.0},
+                new Object[]{"LO001", "EN002", 40.0},
+                new Object[]{"LO002", "EN001", 80.0},
+                new Object[]{"LO002", "EN002", 90.0}));
+    }
+
+    private static OutcomeMapping mapping(Los los, ProgramOutcome po, int weight) {
+        OutcomeMapping m = new OutcomeMapping();
+        m.setLearningOutcome(los);
+        m.setProgramOutcome(po);
+        m.setWeight(weight);
+        m.setStatus(OutcomeMapping.ApprovalStatus.APPROVED);
+        return m;
+    }
+
+    @Test
+    @DisplayName("rebuild writes LO pass rates and PO attainment from the student x LO matrix")
+    void rebuildComputesLoAndPoSnapshots() {
+        snapshotService.rebuild("MOD1", "20");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LoAttainmentSnapshot>> loCaptor = ArgumentCaptor.forClass(List.class);
+        verify(loSnapshotRepository, times(2)).saveAll(loCaptor.capture());
+        List<LoAttainmentSnapshot> loSnapshots = loCaptor.getAllValues().get(0);
+        assertEquals(2, loSnapshots.size());
+        assertEquals(50.0, loSnapshots.get(0).getAttainmentPercent(), 0.001);
+        assertEquals(0, loSnapshots.get(0).getAttainmentLevel());
+        assertEquals(100.0, loSnapshots.get(1).getAttainmentPercent(), 0.001);
+        assertEquals(3, loSnapshots.get(1).getAttainmentLevel());
+        assertEquals(1L, loSnapshots.get(0).getSnapshotVersion());
+        assertNotNull(loSnapshots.get(0).getBuiltAt());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PoAttainmentSnapshot>> poCaptor = ArgumentCaptor.forClass(List.class);
+        verify(poSnapshotRepository, times(2)).saveAll(poCaptor.capture());
+        List<PoAttainmentSnapshot> poSnapshots = poCaptor.getAllValues().get(0);
+        assertEquals(1, poSnapshots.size());
+        assertEquals(1, poSnapshots.get(0).getStudentsAchieved());
+        assertEquals(50.0, poSnapshots.get(0).getAttainmentPercent(), 0.001);
+        // (0 * 2 + 3 * 1) / 3
+        assertEquals(1.0, poSnapshots.get(0).getWeightedLevel(), 0.001);
+
+        // No ASSIGNMENT marks: nothing written for that mark type
+        assertTrue(loCaptor.getAllValues().get(1).isEmpty());
+        assertTrue(poCaptor.getAllValues().get(1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("a marks-changed event only rewrites the changed LO and bumps its version")
+    void eventRefreshesOnlyChangedLo() {
+        LoAttainmentSnapshot existing = new LoAttainmentSnapshot();
+        existing.setLoId("LO001");
+        existing.setSnapshotVersion(3);
+        when(losRepository.findAllById(List.of("LO001"))).thenReturn(List.of(los1));
+        when(loSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByLoId("MOD1", "20", MarkType.FINAL_EXAM))
+            .thenReturn(List.of(existing));
+
+        snapshotService.onMarksChanged(MarksChangedEvent.forLos(List.of("LO001"), "20"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LoAttainmentSnapshot>> loCaptor = ArgumentCaptor.forClass(List.class);
+        verify(loSnapshotRepository, times(2)).saveAll(loCaptor.capture());
+        List<LoAttainmentSnapshot> saved = loCaptor.getAllValues().get(0);
+        assertEquals(1, saved.size());
+        assertSame(existing, saved.get(0));
+        assertEquals(4L, existing.getSnapshotVersion());
+    }
+
+    @Test
+    @DisplayName("events without a batch are ignored")
+    void ignoresEventsWithoutBatch() {
+        snapshotService.onMarksChanged(MarksChangedEvent.forLos(List.of("LO001"), null));
+
+        verifyNoInteractions(loSnapshotRepository, poSnapshotRepository);
+    }
+
+    @Test
+    @DisplayName("a failed refresh flags the module/batch snapshots stale instead of failing the caller")
+    void failedRefreshMarksSnapshotsStale() {
+        when(losRepository.findByModule_ModuleId("MOD1")).thenThrow(new RuntimeException("db down"));
+
+        assertDoesNotThrow(() -> snapshotService.onMarksChanged(MarksChangedEvent.forModule("MOD1", "20")));
+
+        verify(loSnapshotRepository).markStale(eq("MOD1"), eq("20"), any(LocalDateTime.class));
+        verify(poSnapshotRepository).markStale(eq("MOD1"), eq("20"), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("current PO snapshots are served without a rebuild")
+    void currentSnapshotsServedAsIs() {
+        PoAttainmentSnapshot current = new PoAttainmentSnapshot();
+        current.setPoCode("PO1");
+        when(poSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByPoCode("MOD1", "20", MarkType.FINAL_EXAM))
+            .thenReturn(List.of(current));
+
+        assertEquals(List.of(current), snapshotService.getCurrentPoSnapshots("MOD1", "20", MarkType.FINAL_EXAM));
+        verify(transactionTemplate, never()).execute(any());
+        verify(studentMarkRepository, never()).findScoreRowsByLosIdsAndMarkTypeAndBatch(anyList(), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("no snapshot rows is a built state: served empty without a rebuild on every read")
+    void emptySnapshotsServedWithoutRebuild() {
+        assertTrue(snapshotService.getCurrentLoSnapshots("MOD1", "20", MarkType.ASSIGNMENT).isEmpty());
+        assertTrue(snapshotService.getCurrentPoSnapshots("MOD1", "20", MarkType.ASSIGNMENT).isEmpty());
+
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    @DisplayName("stale snapshots are rebuilt, clearing the flag, before they are served")
+    void staleSnapshotsRebuiltBeforeServing() {
+        PoAttainmentSnapshot stale = new PoAttainmentSnapshot();
+        stale.setPoCode("PO1");
+        stale.setStaleSince(LocalDateTime.now());
+        when(poSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByPoCode("MOD1", "20", MarkType.FINAL_EXAM))
+            .thenReturn(List.of(stale));
+
+        snapshotService.getCurrentPoSnapshots("MOD1", "20", MarkType.FINAL_EXAM);
+
+        verify(transactionTemplate).execute(any());
+        assertNull(stale.getStaleSince());
+        assertEquals(1.0, stale.getWeightedLevel(), 0.001);
+    }
+
+    @Test
+    @DisplayName("an outcomes change rebuilds every batch the module has snapshots for")
+    void outcomesChangeRebuildsSnapshottedBatches() {
+        PoAttainmentSnapshot orphan = new PoAttainmentSnapshot();
+        orphan.setPoCode("PO9");
+        when(loSnapshotRepository.findBatchesByModuleId("MOD1")).thenReturn(List.of());
+        when(poSnapshotRepository.findBatchesByModuleId("MOD1")).thenReturn(List.of("20"));
+        when(poSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByPoCode("MOD1", "20", MarkType.FINAL_EXAM))
+            .thenReturn(List.of(orphan));
+
+        // A deleted LO cannot be looked up any more; the event names its module
+        snapshotService.onOutcomesChanged(OutcomesChangedEvent.forLo("LO009", "MOD1"));
+
+        verify(studentMarkRepository).findScoreRowsByLosIdsAndMarkTypeAndBatch(List.of("LO001", "LO002"), MarkType.FINAL_EXAM, "20");
+        // PO9 is no longer mapped in the module, so its snapshot is dropped
+        verify(poSnapshotRepository).deleteAll(argThat(rows -> rows.iterator().hasNext() && rows.iterator().next() == orphan));
+    }
+
+    @Test
+    @DisplayName("a rebuild that loses a race on the snapshot unique key re-reads the winner's rows")
+    void concurrentRebuildReReads() {
+        PoAttainmentSnapshot stale = new PoAttainmentSnapshot();
+        stale.setPoCode("PO1");
+        stale.setStaleSince(LocalDateTime.now());
+        PoAttainmentSnapshot rebuilt = new PoAttainmentSnapshot();
+        rebuilt.setPoCode("PO1");
+        when(poSnapshotRepository.findByModuleIdAndBatchAndMarkTypeOrderByPoCode("MOD1", "20", MarkType.FINAL_EXAM))
+            .thenReturn(List.of(stale), List.of(rebuilt));
+        when(transactionTemplate.execute(any())).thenThrow(new DataIntegrityViolationException("uk_po_snapshot_key"));
+
+        assertEquals(List.of(rebuilt), snapshotService.getCurrentPoSnapshots("MOD1", "20", MarkType.FINAL_EXAM));
+    }
+
+    @Test
+    @DisplayName("LO pass rates normalize the batch's marks by item max marks, like calculateLoAttainmentForBatch")
+    void loPassRateMatchesBatchCalculation() {
+        AssessmentItem q1 = new AssessmentItem();
+        q1.setLos(los1);
+        q1.setMaxMarks(40.0);
+        AssessmentItem q2 = new AssessmentItem();
+        q2.setLos(los1);
+        q2.setMaxMarks(40.0);
+        when(assessmentItemRepository.findByLosIdsAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(
+            List.of("LO001", "LO002"), "20", "FINAL_EXAM", MarkType.FINAL_EXAM)).thenReturn(List.of(q1, q2));
+        when(assessmentItemRepository.findByLos_IdAndAssessmentTemplate_Batch("LO001", "20")).thenReturn(List.of(q1, q2));
+        when(studentMarkRepository.findByLos_IdAndBatch("LO001", "20"))
+            .thenReturn(List.of(mark("EN001", 70.0), mark("EN002", 40.0)));
+
+        snapshotService.rebuild("MOD1", "20");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LoAttainmentSnapshot>> loCaptor = ArgumentCaptor.forClass(List.class);
+        verify(loSnapshotRepository, times(2)).saveAll(loCaptor.capture());
+        LoAttainmentSnapshot lo1 = loCaptor.getAllValues().get(0).get(0);
+        // 70/80 and 40/80 both reach 50%; the raw scores alone would give 50%
+        assertEquals(100.0, lo1.getAttainmentPercent(), 0.001);
+        assertEquals(attainmentService.calculateLoAttainmentForBatch("LO001", "20", 50.0), lo1.getAttainmentPercent(), 0.001);
+    }
+
+    private StudentMark mark(String studentId, double score) {
+        Student student = new Student();
+        student.setStudentId(studentId);
+        StudentMark mark = new StudentMark();
+        mark.setStudent(student);
+        mark.setLos(los1);
+        mark.setBatch("20");
+        mark.setMarkType(MarkType.FINAL_EXAM);
+        mark.setScore(score);
+        return mark;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.Software.project.Backend.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BatchRelabelService — a fixed set of UPDATE statements per scope, and stale
+ * derived rows under the new label cleared before the move. The JDBC layer is mocked.
+ */
+@DisplayName("BatchRelabelService Tests")
+class BatchRelabelServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private BatchRelabelService batchRelabelService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+    }
+
+    @Test
+    @DisplayName("relabelModule moves every table with one statement each, whatever the cohort size")
+    void relabelModule_usesConstantStatements() {
+        when(jdbcTemplate.update(startsWith("UPDATE StudentMark"), any(Object[].class))).thenReturn(100_000);
+
+        Map<String, Integer> updated = batchRelabelService.relabelModule("SE101", "24", "25");
+
+        assertEquals(100_000, updated.get("StudentMark"));
+        verify(jdbcTemplate).update("UPDATE assessment_template SET batch = ? WHERE module_id = ? AND batch = ?", "25", "SE101", "24");
+        verify(jdbcTemplate).update("UPDATE cqi_action SET batch = ? WHERE module_id = ? AND batch = ?", "25", "SE101", "24");
+        // 3 moves + 3 derived tables x (delete + update)
+        verify(jdbcTemplate, times(9)).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("relabelLo clears snapshot rows under the new label before moving the old ones")
+    void relabelLo_dropsStaleSnapshotsFirst() {
+        batchRelabelService.relabelLo("SE101 LO1", "24", "25");
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("DELETE FROM lo_attainment_snapshot WHERE lo_id = ? AND batch = ?", "SE101 LO1", "25");
+        order.verify(jdbcTemplate).update("UPDATE lo_attainment_snapshot SET batch = ? WHERE lo_id = ? AND batch = ?", "25", "SE101 LO1", "24");
+        verify(jdbcTemplate).update("UPDATE StudentMark SET batch = ? WHERE los_id = ? AND batch = ?", "25", "SE101 LO1", "24");
+        verify(jdbcTemplate, never()).update(contains("po_attainment_snapshot"), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("relabeling a batch to itself changes nothing")
+    void relabel_sameBatch_isNoOp() {
+        assertTrue(batchRelabelService.relabelModule("SE101", "24", "24").isEmpty());
+        assertTrue(batchRelabelService.relabelLo("SE101 LO1", "24", "24").isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.Software.project.Backend.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BulkDeletionService — child-first statement order, per-table row counts and
+ * IN-list chunking. The JDBC layer is mocked.
+ */
+@DisplayName("BulkDeletionService Tests")
+class BulkDeletionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private BulkDeletionService bulkDeletionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(2);
+    }
+
+    @Test
+    @DisplayName("deleteModule removes children before parents and reports rows per table")
+    void deleteModule_deletesChildFirst() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM modules"), eq(Integer.class), any(Object[].class))).thenReturn(1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM los"), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("SE101 LO1", "SE101 LO2"));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM assessment_template"), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("T1"));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM assessment_item WHERE los_id"), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("I1"));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM assessment_item WHERE template_id"), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("I1", "I2"));
+
+        Map<String, Integer> deleted = bulkDeletionService.deleteModule("SE101");
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("DELETE FROM cqi_action WHERE module_id = ?", "SE101");
+        order.verify(jdbcTemplate).update("DELETE FROM student_assessment_score WHERE assessment_item_id IN (?, ?)", "I1", "I2");
+        order.verify(jdbcTemplate).update("DELETE FROM assessment_item WHERE id IN (?, ?)", "I1", "I2");
+        order.verify(jdbcTemplate).update("DELETE FROM StudentMark WHERE los_id IN (?, ?)", "SE101 LO1", "SE101 LO2");
+        order.verify(jdbcTemplate).update("DELETE FROM assessment_template WHERE module_id = ?", "SE101");
+        order.verify(jdbcTemplate).update("DELETE FROM los WHERE module_id = ?", "SE101");
+        order.verify(jdbcTemplate).update("DELETE FROM modules WHERE module_id = ?", "SE101");
+
+        assertEquals("cqi_action", deleted.keySet().iterator().next());
+        assertEquals(2, deleted.get("StudentMark"));
+        // los_id and legacy lospos_id statements are summed under one table
+        assertEquals(4, deleted.get("lo_po_mappings"));
+        assertEquals(2, deleted.get("modules"));
+    }
+
+    @Test
+    @DisplayName("deleteModule on an unknown module deletes nothing")
+    void deleteModule_unknownModule_isNoOp() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM modules"), eq(Integer.class), any(Object[].class))).thenReturn(0);
+
+        assertTrue(bulkDeletionService.deleteModule("NOPE").isEmpty());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("deleteLos splits large IN lists into chunks")
+    void deleteLos_chunksLargeInLists() {
+        List<String> itemIds = new ArrayList<>();
+        for (int i = 0; i < BulkDeletionService.IN_CHUNK + 1; i++) itemIds.add("I" + i);
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM assessment_item"), eq(String.class), any(Object[].class)))
+                .thenReturn(itemIds);
+
+        Map<String, Integer> deleted = bulkDeletionService.deleteLos("SE101 LO1");
+
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM student_assessment_score"), any(Object[].class));
+        assertEquals(4, deleted.get("student_assessment_score"));
+        verify(jdbcTemplate).update("DELETE FROM los WHERE id = ?", "SE101 LO1");
+    }
+
+    @Test
+    @DisplayName("deleteLos removes the LO's snapshot and watermark rows before the LO")
+    void deleteLos_removesDerivedRows() {
+        Map<String, Integer> deleted = bulkDeletionService.deleteLos("SE101 LO1");
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("DELETE FROM lo_attainment_snapshot WHERE lo_id = ?", "SE101 LO1");
+        order.verify(jdbcTemplate).update("DELETE FROM cqi_watermark WHERE lo_id = ?", "SE101 LO1");
+        order.verify(jdbcTemplate).update("DELETE FROM los WHERE id = ?", "SE101 LO1");
+        assertEquals(2, deleted.get("lo_attainment_snapshot"));
+        assertEquals(2, deleted.get("cqi_watermark"));
+    }
+}
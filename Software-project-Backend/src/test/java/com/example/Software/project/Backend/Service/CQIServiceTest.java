@@ -9,6 +9,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.*;
 
@@ -32,6 +34,10 @@ class CQIServiceTest {
     private ModuleRepository moduleRepository;
     @Mock
     private AttainmentService attainmentService;
+    @Mock
+    private CqiWatermarkRepository watermarkRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
 
     @InjectMocks
     private CQIService cqiService;
@@ -51,6 +57,7 @@ class CQIServiceTest {
 
         when(moduleRepository.findById("MOD1")).thenReturn(Optional.of(module));
         when(cqiActionRepository.save(any(CqiAction.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(cqiActionRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
     }
 
     @Test
@@ -187,4 +194,125 @@ class CQIServiceTest {
 
         verify(cqiActionRepository, never()).save(any());
     }
+
+    // ---- finalizeModuleAttainment ----
+
+    @Test
+    @DisplayName("finalize computes each LO once, reads open actions in one query and links/triggers in batches")
+    void finalize_singlePassOverModule() {
+        los1.setAttainmentThreshold(60.0);
+        Los los2 = new Los();
+        los2.setId("LO002");
+        los2.setAttainmentThreshold(50.0);
+        when(losRepository.findByModule_ModuleId("MOD1")).thenReturn(List.of(los1, los2));
+        when(attainmentService.calculateLoAttainmentForBatch("LO001", "21", 60.0)).thenReturn(65.0);
+        when(attainmentService.calculateLoAttainmentForBatch("LO002", "21", 50.0)).thenReturn(40.0);
+
+        CqiAction inProgress = new CqiAction();
+        inProgress.setLos(los1);
+        inProgress.setStatus(CqiStatus.IN_PROGRESS);
+        inProgress.setTargetScore(60.0);
+        when(cqiActionRepository.findByModule_ModuleIdAndStatusInOrderByIdAsc(eq("MOD1"), anyList()))
+            .thenReturn(List.of(inProgress));
+
+        Map<String, Object> result = cqiService.finalizeModuleAttainment("MOD1", "21", false);
+
+        assertEquals(CqiStatus.COMPLETED, inProgress.getStatus());
+        assertEquals(65.0, inProgress.getNextSemAttainment());
+        assertEquals(1, result.get("triggeredCount"));
+        assertEquals(2, result.get("evaluatedLoCount"));
+        verify(attainmentService, times(1)).calculateLoAttainmentForBatch("LO001", "21", 60.0);
+        verify(attainmentService, times(1)).calculateLoAttainmentForBatch("LO002", "21", 50.0);
+        verify(cqiActionRepository, never()).findByModule_ModuleIdAndLos_IdAndStatusIn(anyString(), anyString(), anyList());
+        verify(cqiActionRepository, never()).save(any());
+        // Neither LO had a watermark yet, so one is inserted for each
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO cqi_watermark"), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("incremental finalize skips LOs whose marks have not changed since the last finalize")
+    void finalize_incrementalSkipsUnchangedLos() {
+        los1.setAttainmentThreshold(50.0);
+        Los los2 = new Los();
+        los2.setId("LO002");
+        los2.setAttainmentThreshold(50.0);
+        when(losRepository.findByModule_ModuleId("MOD1")).thenReturn(List.of(los1, los2));
+        when(attainmentService.calculateLoAttainmentForBatch("LO002", "21", 50.0)).thenReturn(30.0);
+        when(cqiActionRepository.findByModule_ModuleIdAndStatusInOrderByIdAsc(eq("MOD1"), anyList()))
+            .thenReturn(Collections.emptyList());
+
+        CqiWatermark unchanged = watermark("LO001", 3, 3);
+        unchanged.setId(1L);
+        CqiWatermark changed = watermark("LO002", 4, 3);
+        changed.setId(2L);
+        when(watermarkRepository.findByModuleIdAndBatch("MOD1", "21")).thenReturn(List.of(unchanged, changed));
+
+        Map<String, Object> result = cqiService.finalizeModuleAttainment("MOD1", "21", true);
+
+        verify(attainmentService, never()).calculateLoAttainmentForBatch(eq("LO001"), anyString(), anyDouble());
+        assertEquals(1, result.get("evaluatedLoCount"));
+        assertEquals(1, result.get("skippedLoCount"));
+        assertEquals(1, result.get("triggeredCount"));
+        verify(watermarkRepository).markFinalized(eq(2L), eq(4L), any());
+        verify(watermarkRepository, never()).markFinalized(eq(1L), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("finalize only records the marks version it read, never writing back the whole watermark")
+    void finalize_conditionallyMarksFinalized() {
+        los1.setAttainmentThreshold(50.0);
+        when(losRepository.findByModule_ModuleId("MOD1")).thenReturn(List.of(los1));
+        when(attainmentService.calculateLoAttainmentForBatch("LO001", "21", 50.0)).thenReturn(80.0);
+        when(cqiActionRepository.findByModule_ModuleIdAndStatusInOrderByIdAsc(eq("MOD1"), anyList()))
+            .thenReturn(Collections.emptyList());
+        CqiWatermark read = watermark("LO001", 5, 4);
+        read.setId(7L);
+        when(watermarkRepository.findByModuleIdAndBatch("MOD1", "21")).thenReturn(List.of(read));
+        // A marks change committing during finalize makes the conditional update match no row
+        when(watermarkRepository.markFinalized(eq(7L), eq(5L), any())).thenReturn(0);
+
+        cqiService.finalizeModuleAttainment("MOD1", "21", true);
+
+        verify(watermarkRepository).markFinalized(eq(7L), eq(5L), any());
+        verify(watermarkRepository, never()).saveAll(any());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("a marks change bumps the watermark of every LO it names")
+    void onMarksChanged_bumpsWatermarks() {
+        CqiWatermark existing = watermark("LO001", 2, 2);
+        when(losRepository.findModuleIdsByIds(List.of("LO001"))).thenReturn(List.<Object[]>of(new Object[]{"LO001", "MOD1"}));
+        when(watermarkRepository.findByModuleIdAndBatch("MOD1", "21")).thenReturn(List.of(existing));
+
+        cqiService.onMarksChanged(MarksChangedEvent.forLos(List.of("LO001"), "21"));
+
+        // In-database increment, so a concurrent finalize cannot overwrite it with a stale copy
+        verify(watermarkRepository).bumpMarksVersion(eq("MOD1"), eq("21"), eq(Set.of("LO001")), any());
+        verify(watermarkRepository, never()).saveAll(any());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("a marks change that loses the race to create a watermark bumps the winner's row")
+    void onMarksChanged_duplicateInsertFallsBackToBump() {
+        when(losRepository.findModuleIdsByIds(List.of("LO002"))).thenReturn(List.<Object[]>of(new Object[]{"LO002", "MOD1"}));
+        when(watermarkRepository.findByModuleIdAndBatch("MOD1", "21")).thenReturn(Collections.emptyList());
+        when(jdbcTemplate.update(startsWith("INSERT INTO cqi_watermark"), any(Object[].class)))
+            .thenThrow(new DuplicateKeyException("uk_cqi_watermark_key"));
+
+        cqiService.onMarksChanged(MarksChangedEvent.forLos(List.of("LO002"), "21"));
+
+        verify(watermarkRepository).bumpMarksVersion(eq("MOD1"), eq("21"), eq(List.of("LO002")), any());
+    }
+
+    private CqiWatermark watermark(String loId, long marksVersion, long finalizedVersion) {
+        CqiWatermark watermark = new CqiWatermark();
+        watermark.setModuleId("MOD1");
+        watermark.setBatch("21");
+        watermark.setLoId(loId);
+        watermark.setMarksVersion(marksVersion);
+        watermark.setFinalizedVersion(finalizedVersion);
+        return watermark;
+    }
 }
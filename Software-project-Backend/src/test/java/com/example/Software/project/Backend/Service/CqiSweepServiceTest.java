@@ -0,0 +1,97 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.CqiSweepRun;
+import com.example.Software.project.Backend.Repository.CqiSweepRunRepository;
+import com.example.Software.project.Backend.Repository.CqiWatermarkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CqiSweepService.sweep — pair selection, reuse of the incremental finalize and
+ * the metrics recorded per run. Rate limiting is off (max-modules-per-minute defaults to 0 here).
+ */
+@DisplayName("CqiSweepService Tests")
+class CqiSweepServiceTest {
+
+    @Mock
+    private CQIService cqiService;
+    @Mock
+    private CqiWatermarkRepository watermarkRepository;
+    @Mock
+    private CqiSweepRunRepository sweepRunRepository;
+
+    @InjectMocks
+    private CqiSweepService sweepService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sweepService.start();
+        when(sweepRunRepository.save(any(CqiSweepRun.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweepService.stop();
+    }
+
+    @Test
+    @DisplayName("sweep finalizes each changed module/batch incrementally and records the totals")
+    void sweep_finalizesStalePairsAndRecordsMetrics() {
+        when(watermarkRepository.findStaleModuleBatches()).thenReturn(List.of(
+                new Object[]{"MOD1", "21"}, new Object[]{"MOD1", "22"}, new Object[]{"MOD2", "21"}));
+        when(cqiService.finalizeModuleAttainment("MOD1", "21", true))
+                .thenReturn(Map.of("triggeredCount", 2, "evaluatedLoCount", 3));
+        when(cqiService.finalizeModuleAttainment("MOD1", "22", true))
+                .thenReturn(Map.of("triggeredCount", 0, "evaluatedLoCount", 1));
+        when(cqiService.finalizeModuleAttainment("MOD2", "21", true))
+                .thenThrow(new RuntimeException("Module not found: MOD2"));
+
+        Optional<CqiSweepRun> result = sweepService.sweep(CqiSweepRun.Trigger.MANUAL);
+
+        assertTrue(result.isPresent());
+        CqiSweepRun run = result.get();
+        assertEquals(3, run.getPairsFound());
+        assertEquals(1, run.getModulesEvaluated());
+        assertEquals(4, run.getLosEvaluated());
+        assertEquals(2, run.getActionsTriggered());
+        assertEquals(1, run.getFailures());
+        assertTrue(run.getErrors().contains("MOD2/21"));
+        assertNotNull(run.getFinishedAt());
+        assertFalse(sweepService.isSweeping());
+        verify(cqiService, never()).finalizeModuleAttainment(anyString(), anyString(), eq(false));
+    }
+
+    @Test
+    @DisplayName("sweep with nothing changed records an empty run")
+    void sweep_nothingChanged() {
+        when(watermarkRepository.findStaleModuleBatches()).thenReturn(List.of());
+
+        CqiSweepRun run = sweepService.sweep(CqiSweepRun.Trigger.SCHEDULED).orElseThrow();
+
+        assertEquals(0, run.getPairsFound());
+        assertEquals(0, run.getActionsTriggered());
+        verifyNoInteractions(cqiService);
+    }
+
+    @Test
+    @DisplayName("the scheduled sweep does nothing while cqi.sweep.enabled is false")
+    void scheduledSweep_disabled() {
+        sweepService.scheduledSweep();
+
+        verifyNoInteractions(watermarkRepository, cqiService, sweepRunRepository);
+    }
+}
@@ -14,10 +14,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for ExcelExportService.generateMarksExcel — the pass/fail report download
@@ -197,4 +198,40 @@ class ExcelExportServiceTest {
 
         assertEquals("Pass (50.00)", cellText);
     }
+
+    @Test
+    @DisplayName("writeMarksExcel streams every student row and looks up each LO's max marks once")
+    void writeMarksExcel_streamsLargeSheet() throws Exception {
+        List<Student> students = new ArrayList<>();
+        List<StudentMark> marks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Student s = new Student();
+            s.setStudentId(String.format("EN%04d", i));
+            students.add(s);
+            StudentMark mark = new StudentMark();
+            mark.setStudent(s);
+            mark.setLos(los1);
+            mark.setScore(i % 2 == 0 ? 8.0 : 2.0);
+            marks.add(mark);
+        }
+        when(studentMarkRepository.findDistinctStudentsByLosIdsAndMarkTypeAndBatch(
+            List.of("LO001"), MarkType.FINAL_EXAM, "20")).thenReturn(students);
+        when(studentMarkRepository.findByLosIdsAndMarkTypeAndBatch(
+            List.of("LO001"), MarkType.FINAL_EXAM, "20")).thenReturn(marks);
+        AssessmentItem item = new AssessmentItem();
+        item.setMaxMarks(10.0);
+        when(assessmentItemRepository.findByLos_IdAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(
+            "LO001", "20", "FINAL_EXAM", MarkType.FINAL_EXAM)).thenReturn(List.of(item));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        excelExportService.writeMarksExcel(List.of("LO001"), "FINAL_EXAM", "20", 50, out);
+        Sheet sheet = readGeneratedSheet(out.toByteArray());
+
+        // Rows well past the in-memory window still made it into the file
+        assertEquals(1000, sheet.getLastRowNum());
+        assertEquals("EN0999", sheet.getRow(1000).getCell(0).getStringCellValue());
+        assertEquals("Fail (2.00)", sheet.getRow(1000).getCell(1).getStringCellValue());
+        verify(assessmentItemRepository, times(1)).findByLos_IdAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(
+            "LO001", "20", "FINAL_EXAM", MarkType.FINAL_EXAM);
+    }
 }
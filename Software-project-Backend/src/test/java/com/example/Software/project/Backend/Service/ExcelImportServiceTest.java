@@ -12,10 +12,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.ByteArrayOutputStream;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,6 +44,10 @@ class ExcelImportServiceTest {
     private AssessmentTemplateRepository assessmentTemplateRepository;
     @Mock
     private StudentAssessmentScoreRepository studentAssessmentScoreRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private MarkBulkWriter markBulkWriter;
 
     @InjectMocks
     private ExcelImportService excelImportService;
@@ -51,14 +57,8 @@ class ExcelImportServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        when(losRepository.existsById("LO001")).thenReturn(true);
-        when(losRepository.findById("LO001")).thenReturn(Optional.of(los("LO001")));
-        when(studentRepository.findById(anyString())).thenAnswer(invocation -> {
-            Student s = new Student();
-            s.setStudentId(invocation.getArgument(0));
-            s.setStudentName("Unknown");
-            return Optional.of(s);
-        });
+        // LOs are resolved in one findAllById; students are unknown, so all get batch-created
+        when(losRepository.findAllById(List.of("LO001"))).thenReturn(List.of(los("LO001")));
     }
 
     private static Los los(String id) {
@@ -67,6 +67,16 @@ class ExcelImportServiceTest {
         return l;
     }
 
+    // Every StudentMark handed to the JDBC batch writer, across all batches
+    private List<StudentMark> insertedMarks() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StudentMark>> captor = ArgumentCaptor.forClass(List.class);
+        verify(markBulkWriter, atLeastOnce()).insertStudentMarks(captor.capture());
+        List<StudentMark> all = new ArrayList<>();
+        captor.getAllValues().forEach(all::addAll);
+        return all;
+    }
+
     private MockMultipartFile workbookOf(String... rows) throws Exception {
         try (XSSFWorkbook wb = new XSSFWorkbook()) {
             Sheet sheet = wb.createSheet("Marks");
@@ -87,14 +97,13 @@ class ExcelImportServiceTest {
     @Test
     @DisplayName("rejects the whole file when an unknown LO id is passed")
     void rejectsUnknownLo() throws Exception {
-        when(losRepository.existsById("LO999")).thenReturn(false);
         MockMultipartFile file = workbookOf("Student Index|LO1", "EN001|55");
 
         RuntimeException ex = assertThrows(RuntimeException.class,
             () -> excelImportService.importMarksBulk(file, new String[]{"LO999"}, "20", "FINAL_EXAM"));
 
         assertTrue(ex.getMessage().contains("LO999"));
-        verify(markRepository, never()).save(any());
+        verify(markBulkWriter, never()).insertStudentMarks(anyList());
     }
 
     @Test
@@ -105,10 +114,13 @@ class ExcelImportServiceTest {
         String result = excelImportService.importMarksBulk(file, LOS_IDS, "20", "FINAL_EXAM");
 
         assertTrue(result.contains("1"), "expected 1 mark imported: " + result);
-        ArgumentCaptor<StudentMark> captor = ArgumentCaptor.forClass(StudentMark.class);
-        verify(markRepository, times(1)).save(captor.capture());
-        assertEquals(55.0, captor.getValue().getScore());
-        assertEquals("EN001", captor.getValue().getStudent().getStudentId());
+        assertTrue(result.contains("rows/sec"), result);
+        List<StudentMark> marks = insertedMarks();
+        assertEquals(1, marks.size());
+        assertEquals(55.0, marks.get(0).getScore());
+        assertEquals("EN001", marks.get(0).getStudent().getStudentId());
+        verify(markBulkWriter, times(1)).insertStudents(anyCollection());
+        verify(eventPublisher, times(1)).publishEvent(any(MarksChangedEvent.class));
     }
 
     @Test
@@ -119,7 +131,7 @@ class ExcelImportServiceTest {
         String result = excelImportService.importMarksBulk(file, LOS_IDS, "20", "FINAL_EXAM");
 
         assertTrue(result.contains("1"), "blank-index row must not be imported: " + result);
-        verify(markRepository, times(1)).save(any());
+        assertEquals(1, insertedMarks().size());
     }
 
     @Test
@@ -130,7 +142,7 @@ class ExcelImportServiceTest {
         String result = excelImportService.importMarksBulk(file, LOS_IDS, "20", "FINAL_EXAM");
 
         assertTrue(result.contains("1"), "only the numeric row should be imported: " + result);
-        verify(markRepository, times(1)).save(any());
+        assertEquals(1, insertedMarks().size());
     }
 
     @Test
@@ -143,7 +155,7 @@ class ExcelImportServiceTest {
             () -> excelImportService.importMarksBulk(file, LOS_IDS, "20", "FINAL_EXAM"));
 
         assertTrue(ex.getMessage().contains("out of range"), ex.getMessage());
-        verify(markRepository, never()).save(any());
+        verify(markBulkWriter, never()).insertStudentMarks(anyList());
     }
 
     @Test
@@ -165,7 +177,7 @@ class ExcelImportServiceTest {
         String result = excelImportService.importMarksBulk(file, LOS_IDS, "20", "FINAL_EXAM");
 
         assertTrue(result.contains("1"), "expected the single data row below the shifted header to import: " + result);
-        verify(markRepository, times(1)).save(any());
+        assertEquals(1, insertedMarks().size());
     }
 
     @Test
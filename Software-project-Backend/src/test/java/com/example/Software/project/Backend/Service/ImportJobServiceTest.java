@@ -0,0 +1,146 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.ImportJob;
+import com.example.Software.project.Backend.Repository.ImportJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ImportJobService.run — the worker step that executes one queued upload and
+ * records its outcome on the import_job row. The worker pool itself is not started; run() is
+ * called directly on the test thread.
+ */
+@DisplayName("ImportJobService Tests")
+class ImportJobServiceTest {
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+    @Mock
+    private ExcelImportService excelImportService;
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private ImportJobService importJobService;
+
+    @TempDir
+    Path uploadDir;
+
+    private ImportJob job;
+    private Path upload;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        upload = Files.write(uploadDir.resolve("job-1.upload"), new byte[]{1, 2, 3});
+
+        job = new ImportJob();
+        job.setId("job-1");
+        job.setKind(ImportJob.Kind.LO_BULK);
+        job.setStatus(ImportJob.Status.QUEUED);
+        job.setFileName("marks.xlsx");
+        job.setFilePath(upload.toString());
+        job.setLosIds("LO001,LO002");
+        job.setBatch("20");
+        job.setMarkType("FINAL_EXAM");
+        job.setCreatedAt(LocalDateTime.now());
+        when(importJobRepository.findById("job-1")).thenReturn(Optional.of(job));
+        when(importJobRepository.save(any(ImportJob.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(importJobRepository.claimQueued(eq("job-1"), any(LocalDateTime.class))).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("a successful import marks the job SUCCEEDED and drops the stored upload")
+    void runRecordsSuccess() {
+        when(excelImportService.importMarksBulk(any(), aryEq(new String[]{"LO001", "LO002"}), eq("20"), eq("FINAL_EXAM"),
+                isNull(), isNull(), any(ImportProgress.class))).thenAnswer(inv -> {
+            ((ImportProgress) inv.getArgument(6)).addRows(120);
+            return "Successfully imported 120 LO marks from 2 LOs";
+        });
+
+        importJobService.run("job-1");
+
+        assertEquals(ImportJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals("Successfully imported 120 LO marks from 2 LOs", job.getMessage());
+        assertEquals(120L, job.getRowsProcessed());
+        assertNotNull(job.getStartedAt());
+        assertNotNull(job.getFinishedAt());
+        assertNull(job.getFilePath());
+        assertFalse(Files.exists(upload));
+        assertNull(job.getErrors());
+    }
+
+    @Test
+    @DisplayName("a rejected upload marks the job FAILED, keeps the row-level errors and reports no rows")
+    void runRecordsValidationErrors() {
+        when(excelImportService.importMarksBulk(any(), any(), any(), any(), any(), any(), any(ImportProgress.class)))
+            .thenAnswer(inv -> {
+                // Rows counted before the failure were rolled back with it
+                ((ImportProgress) inv.getArgument(6)).addRows(80);
+                ((ImportProgress) inv.getArgument(6)).setErrors(List.of("Row 4, Student EN001, LO001: score 120.0 out of range [0, 100]"));
+                throw new RuntimeException("Validation failed — 1 error(s)");
+            });
+
+        importJobService.run("job-1");
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals(0L, job.getRowsProcessed());
+        Map<String, Object> status = importJobService.getJobStatus(job);
+        assertEquals(List.of("Row 4, Student EN001, LO001: score 120.0 out of range [0, 100]"), status.get("errors"));
+        assertEquals(ImportJob.Status.FAILED, status.get("state"));
+        assertEquals(0L, status.get("rowsProcessed"));
+        assertFalse(Files.exists(upload));
+    }
+
+    @Test
+    @DisplayName("jobs that are no longer QUEUED are not run twice")
+    void runSkipsFinishedJobs() {
+        job.setStatus(ImportJob.Status.SUCCEEDED);
+
+        importJobService.run("job-1");
+
+        verifyNoInteractions(excelImportService);
+        verify(importJobRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("a job another worker already moved to RUNNING is left to that worker")
+    void runSkipsJobClaimedElsewhere() {
+        when(importJobRepository.claimQueued(eq("job-1"), any(LocalDateTime.class))).thenReturn(false);
+
+        importJobService.run("job-1");
+
+        verifyNoInteractions(excelImportService);
+        verify(importJobRepository, never()).save(any());
+        assertTrue(Files.exists(upload));
+    }
+
+    @Test
+    @DisplayName("a job whose upload is gone fails instead of importing an empty file")
+    void runFailsWhenUploadMissing() throws IOException {
+        Files.delete(upload);
+
+        importJobService.run("job-1");
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        verifyNoInteractions(excelImportService);
+    }
+}
@@ -8,11 +8,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -31,6 +36,12 @@ class LOPOMappingServiceTest {
     @Mock
     private LosRepository losRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private NdjsonWriter ndjsonWriter;
+
     @InjectMocks
     private LOPOMappingService lopoMappingService;
 
@@ -148,6 +159,9 @@ class LOPOMappingServiceTest {
         assertEquals("admin1", result.getReviewedBy());
         assertEquals("looks good", result.getAdminRemarks());
         assertNotNull(result.getReviewedAt());
+        // Cached PO attainment for the LO must be dropped
+        verify(eventPublisher).publishEvent(argThat((Object e) ->
+            e instanceof OutcomesChangedEvent && ((OutcomesChangedEvent) e).getLoIds().equals(List.of("LO001"))));
     }
 
     @Test
@@ -257,4 +271,36 @@ class LOPOMappingServiceTest {
 
         verify(mappingRepository, times(1)).delete(mapping);
     }
+
+    // ---- keyset listing ----
+
+    @Test
+    @DisplayName("getMappingsPage asks for one extra row and returns the last id as the next cursor")
+    void getMappingsPage_returnsNextCursorWhenMoreRows() {
+        List<OutcomeMapping> rows = new ArrayList<>();
+        for (long id = 11; id <= 13; id++) {
+            OutcomeMapping mapping = new OutcomeMapping(los1, po1, 3, "lecturer1");
+            mapping.setId(id);
+            rows.add(mapping);
+        }
+        when(mappingRepository.findFilteredAfter(eq(OutcomeMapping.ApprovalStatus.PENDING), eq("MOD1"), isNull(), isNull(),
+                eq(10L), argThat((Pageable p) -> p.getPageSize() == 3))).thenReturn(rows);
+
+        KeysetPage<OutcomeMapping> page = lopoMappingService.getMappingsPage("MOD1", "pending", "", null, 10L, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals(12L, page.nextCursor());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    @DisplayName("getMappingsPage with an unknown status returns an empty last page without querying")
+    void getMappingsPage_unknownStatusMatchesNothing() {
+        KeysetPage<OutcomeMapping> page = lopoMappingService.getMappingsPage(null, "archived", null, null, null, null);
+
+        assertTrue(page.items().isEmpty());
+        assertFalse(page.hasMore());
+        verifyNoInteractions(ndjsonWriter);
+        verify(mappingRepository, never()).findFilteredAfter(any(), any(), any(), any(), any(), any());
+    }
 }
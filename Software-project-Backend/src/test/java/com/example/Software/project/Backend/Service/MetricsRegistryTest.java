@@ -0,0 +1,65 @@
+package com.example.Software.project.Backend.Service;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MetricsRegistry — observation timing, tag filtering and the histogram
+ * percentile estimate.
+ */
+@DisplayName("MetricsRegistry Tests")
+class MetricsRegistryTest {
+
+    private MetricsRegistry metricsRegistry;
+    private ObservationRegistry observationRegistry;
+
+    @BeforeEach
+    void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(metricsRegistry);
+    }
+
+    @Test
+    @DisplayName("a stopped observation is recorded under its name and low-cardinality tags")
+    @SuppressWarnings("unchecked")
+    void observation_recordedWithTags() {
+        Observation.createNotStarted("obe.attainment", observationRegistry)
+                .lowCardinalityKeyValue("method", "getPOAttainment")
+                .observe(() -> { });
+        Observation.createNotStarted("obe.attainment", observationRegistry)
+                .lowCardinalityKeyValue("method", "getLoTrend")
+                .observe(() -> { });
+
+        assertTrue(metricsRegistry.names().contains("obe.attainment"));
+        Map<String, Object> metric = metricsRegistry.describe("obe.attainment", Map.of("method", "getLoTrend"));
+        List<Map<String, Object>> series = (List<Map<String, Object>>) metric.get("series");
+        assertEquals(1, series.size());
+        assertEquals(1L, series.get(0).get("count"));
+        assertEquals("milliseconds", metric.get("baseUnit"));
+        assertNull(metricsRegistry.describe("unknown.metric", Map.of()));
+    }
+
+    @Test
+    @DisplayName("percentiles are interpolated inside the histogram buckets and capped at the max")
+    void histogram_percentiles() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry.Histogram(MetricsRegistry.LATENCY_BUCKETS_MS);
+        for (int i = 0; i < 90; i++) histogram.record(4.0);   // (2, 5] bucket
+        for (int i = 0; i < 10; i++) histogram.record(400.0); // (250, 500] bucket
+
+        assertEquals(100, histogram.count());
+        double p50 = histogram.percentile(0.5);
+        assertTrue(p50 > 2.0 && p50 <= 5.0, "p50 was " + p50);
+        double p99 = histogram.percentile(0.99);
+        assertTrue(p99 > 250.0 && p99 <= 400.0, "p99 was " + p99);
+        assertEquals(0.0, new MetricsRegistry.Histogram(MetricsRegistry.COUNT_BUCKETS).percentile(0.5));
+    }
+}
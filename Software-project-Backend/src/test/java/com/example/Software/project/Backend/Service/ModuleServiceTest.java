@@ -0,0 +1,92 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.User;
+import com.example.Software.project.Backend.Repository.ModuleRepository;
+import com.example.Software.project.Backend.Repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ModuleService lecturer assignments — one grouped read for all lecturers and
+ * set-based join-row writes that touch only the given lecturer.
+ */
+@DisplayName("ModuleService Assignment Tests")
+class ModuleServiceTest {
+
+    @Mock
+    private ModuleRepository moduleRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private ModuleService moduleService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userRepository.findByUsername("lect1"))
+                .thenReturn(Optional.of(new User("lect1", "lect1@example.com", "hashed", "lecture")));
+    }
+
+    @Test
+    @DisplayName("getAssignedModuleIdsByLecturer groups the join rows by lecturer")
+    void getAssignedModuleIdsByLecturer_groupsRows() {
+        when(moduleRepository.findAllLecturerAssignments()).thenReturn(List.of(
+                new Object[]{"lect1", "SE101"},
+                new Object[]{"lect1", "SE102"},
+                new Object[]{"lect2", "SE101"}));
+
+        Map<String, List<String>> byLecturer = moduleService.getAssignedModuleIdsByLecturer();
+
+        assertEquals(List.of("SE101", "SE102"), byLecturer.get("lect1"));
+        assertEquals(List.of("SE101"), byLecturer.get("lect2"));
+        verify(moduleRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("setModulesForLecturer deletes rows outside the target set and inserts the rest")
+    void setModulesForLecturer_diffsWithSetStatements() throws Exception {
+        moduleService.setModulesForLecturer("lect1", List.of("SE101", "SE102", "SE101"));
+
+        verify(moduleRepository).unassignLecturerExcept("lect1", Set.of("SE101", "SE102"));
+        verify(moduleRepository).assignLecturer("lect1", Set.of("SE101", "SE102"));
+        verify(moduleRepository, never()).unassignLecturer(anyString());
+        verify(moduleRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("setModulesForLecturer with no modules clears the lecturer's assignments")
+    void setModulesForLecturer_emptyClearsAll() throws Exception {
+        moduleService.setModulesForLecturer("lect1", List.of());
+
+        verify(moduleRepository).unassignLecturer("lect1");
+        verify(moduleRepository, never()).assignLecturer(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("setModulesForLecturer rejects a user who is not a lecturer")
+    void setModulesForLecturer_rejectsNonLecturer() {
+        when(userRepository.findByUsername("admin1"))
+                .thenReturn(Optional.of(new User("admin1", "admin1@example.com", "hashed", "admin")));
+
+        Exception e = assertThrows(Exception.class,
+                () -> moduleService.setModulesForLecturer("admin1", List.of("SE101")));
+        assertEquals("admin1 is not a lecturer", e.getMessage());
+        verifyNoInteractions(moduleRepository);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 import java.util.*;
 
@@ -41,6 +42,13 @@ class POAttainmentServiceTest {
     @Mock
     private StudentRepository studentRepository;
 
+    @Spy
+    private AttainmentCache attainmentCache = new AttainmentCache();
+
+    // Parallel from the first student, so every test below also runs the fork-join path
+    @Spy
+    private ParallelCompute parallelCompute = new ParallelCompute(true, 4, 1);
+
     @InjectMocks
     private POAttainmentService poAttainmentService;
 
@@ -356,4 +364,99 @@ class POAttainmentServiceTest {
         // Legacy: 60 >= 50, so should PASS
         assertEquals(1, poCredits.get("PO1"), "Legacy behavior: 60% >= 50% threshold should pass");
     }
+
+    @Test
+    @DisplayName("Test 5: Overall PO attainment combines question-based and legacy LOs from bulk-loaded rows")
+    void testOverallPoAttainmentFromPrefetchedMatrix() {
+        // SCENARIO: PO1 maps LO001 (question-based, max 10) and LO002 (legacy percentage).
+        // EN001: 6/10 on LO001 and 70 on LO002 → achieves PO1
+        // EN002: 6/10 on LO001 but 40 on LO002 → does not achieve PO1
+
+        String batch = "20";
+        String markType = "FINAL_EXAM";
+
+        Los los2 = new Los();
+        los2.setId("LO002");
+        los2.setName("Learning Outcome 2");
+
+        OutcomeMapping mapping2 = new OutcomeMapping();
+        mapping2.setId(2L);
+        mapping2.setLearningOutcome(los2);
+        mapping2.setProgramOutcome(po1);
+        mapping2.setWeight(1);
+        mapping2.setStatus(OutcomeMapping.ApprovalStatus.APPROVED);
+
+        AssessmentItem item = new AssessmentItem();
+        item.setId(1L);
+        item.setMaxMarks(10.0);
+        item.setLos(los1);
+        item.setAssessmentTemplate(template1);
+
+        when(outcomeMappingRepository.findByStatus(OutcomeMapping.ApprovalStatus.APPROVED))
+            .thenReturn(Arrays.asList(mapping1, mapping2));
+        when(studentRepository.findByBatch(batch))
+            .thenReturn(Arrays.asList(student1, student2));
+        when(assessmentItemRepository.findByLosIdsAndAssessmentTemplate_BatchAndAssessmentTemplate_MarkType(
+                Arrays.asList("LO001", "LO002"), batch, markType, MarkType.FINAL_EXAM))
+            .thenReturn(Arrays.asList(item));
+        when(studentAssessmentScoreRepository.findScoreRowsByItemIdsAndStudentBatch(Set.of(1L), batch))
+            .thenReturn(Arrays.asList(
+                new Object[]{1L, "EN001", 6.0},
+                new Object[]{1L, "EN002", 6.0}));
+        when(studentMarkRepository.findScoreRowsByLosIdsAndMarkTypeAndBatch(Arrays.asList("LO002"), MarkType.FINAL_EXAM, batch))
+            .thenReturn(Arrays.asList(
+                new Object[]{"LO002", "EN001", 70.0},
+                new Object[]{"LO002", "EN002", 40.0}));
+
+        // EXECUTE
+        Map<String, Object> result = poAttainmentService.calculateOverallPOAttainment(batch, markType, null);
+
+        // VERIFY
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> poAttainment = (List<Map<String, Object>>) result.get("poAttainment");
+        assertEquals(1, poAttainment.size());
+        assertEquals("PO1", poAttainment.get(0).get("poCode"));
+        assertEquals(2L, poAttainment.get(0).get("totalStudents"));
+        assertEquals(1L, poAttainment.get(0).get("studentsAchieved"));
+        assertEquals(50.0, (Double) poAttainment.get(0).get("attainmentPercent"), 0.001);
+    }
+
+    @Test
+    @DisplayName("calculateStudentPOCredits keeps student order and per-student results when computed in parallel")
+    void calculateStudentPOCredits_parallelMatchesStudentOrder() {
+        String batch = "20";
+        List<String> losIds = List.of("LO001");
+        List<Student> students = new ArrayList<>();
+        List<StudentMark> marks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Student student = new Student();
+            student.setStudentId(String.format("EN%03d", i));
+            student.setStudentName("Student " + i);
+            students.add(student);
+
+            StudentMark mark = new StudentMark();
+            mark.setStudent(student);
+            mark.setLos(los1);
+            mark.setScore(i % 2 == 0 ? 80.0 : 20.0); // even students pass, odd fail
+            mark.setBatch(batch);
+            mark.setMarkType(MarkType.FINAL_EXAM);
+            marks.add(mark);
+        }
+        when(studentMarkRepository.findDistinctStudentsByLosIdsAndMarkTypeAndBatch(losIds, MarkType.FINAL_EXAM, batch))
+            .thenReturn(students);
+        when(studentMarkRepository.findByLosIdsAndMarkTypeAndBatch(losIds, MarkType.FINAL_EXAM, batch))
+            .thenReturn(marks);
+        when(outcomeMappingRepository.findByLearningOutcome_Id("LO001")).thenReturn(List.of(mapping1));
+        when(losRepository.findById("LO001")).thenReturn(Optional.of(los1));
+
+        Map<String, Object> result = poAttainmentService.calculateStudentPOCredits(losIds, "FINAL_EXAM", batch, 50);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> details = (List<Map<String, Object>>) result.get("students");
+        assertEquals(500, details.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(String.format("EN%03d", i), details.get(i).get("studentId"));
+            assertEquals(i % 2 == 0 ? 1 : 0, details.get(i).get("totalCredit"));
+        }
+    }
 }
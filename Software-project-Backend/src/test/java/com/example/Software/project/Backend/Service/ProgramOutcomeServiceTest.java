@@ -0,0 +1,119 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Model.Los;
+import com.example.Software.project.Backend.Model.Module;
+import com.example.Software.project.Backend.Model.ProgramOutcome;
+import com.example.Software.project.Backend.Repository.LosRepository;
+import com.example.Software.project.Backend.Repository.OutcomeMappingRepository;
+import com.example.Software.project.Backend.Repository.ProgramOutcomeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ProgramOutcomeService's PO writes — each one must drop the cached attainment
+ * results of the LOs mapped to the PO, since those results carry PO codes and titles. The
+ * published events are fed into a real AttainmentCache.
+ */
+@DisplayName("ProgramOutcomeService Tests")
+class ProgramOutcomeServiceTest {
+
+    @Mock
+    private ProgramOutcomeRepository poRepository;
+    @Mock
+    private OutcomeMappingRepository outcomeMappingRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private LosRepository losRepository;
+
+    @InjectMocks
+    private ProgramOutcomeService programOutcomeService;
+    @InjectMocks
+    private AttainmentCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private ProgramOutcome po;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        Module module = new Module();
+        module.setModuleId("MOD1");
+        Los lo = new Los();
+        lo.setId("LO001");
+        lo.setModule(module);
+        when(losRepository.findAllById(any())).thenReturn(List.of(lo));
+
+        po = new ProgramOutcome();
+        po.setPoId("PO1");
+        po.setTitle("Engineering Knowledge");
+        po.setIsDefault(false);
+        when(poRepository.findById("PO1")).thenReturn(Optional.of(po));
+        when(poRepository.save(any(ProgramOutcome.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(outcomeMappingRepository.findLoIdsByProgramOutcomeIds(List.of("PO1"))).thenReturn(List.of("LO001"));
+
+        doAnswer(inv -> {
+            cache.onOutcomesChanged(inv.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    // Tagged like POAttainmentService.calculateStudentPOCredits: by LO id only
+    private Map<String, Object> poCredits() {
+        return cache.get("po-credits", List.of(List.of("LO001"), "FINAL_EXAM", "20", 50, 0.0), List.of("LO001"), List.of(), () -> {
+            loads.incrementAndGet();
+            return Map.of("poList", List.of("PO1"));
+        });
+    }
+
+    @Test
+    @DisplayName("renaming a PO drops the cached PO credits of its mapped LOs")
+    void updatePO_invalidatesCachedCredits() {
+        poCredits();
+        ProgramOutcome update = new ProgramOutcome();
+        update.setTitle("Knowledge");
+
+        programOutcomeService.updatePO("PO1", update);
+        poCredits();
+
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    @DisplayName("soft delete, restore, hard delete and reorder all publish the invalidation")
+    void everyPoWrite_publishesOutcomesChanged() {
+        programOutcomeService.softDeletePO("PO1");
+        programOutcomeService.restorePO("PO1");
+        programOutcomeService.reorderPOs(List.of("PO1"));
+        programOutcomeService.hardDeletePO("PO1");
+
+        verify(eventPublisher, times(4)).publishEvent(argThat((Object e) ->
+            e instanceof OutcomesChangedEvent && ((OutcomesChangedEvent) e).getLoIds().equals(List.of("LO001"))));
+    }
+
+    @Test
+    @DisplayName("a PO with no mapped LOs publishes nothing")
+    void unmappedPo_publishesNothing() {
+        when(outcomeMappingRepository.findLoIdsByProgramOutcomeIds(List.of("PO1"))).thenReturn(List.of());
+
+        programOutcomeService.softDeletePO("PO1");
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.Software.project.Backend.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SchemaMigrationService.migrate — history bookkeeping and step selection.
+ * The JDBC layer and the Hibernate schema update are mocked.
+ */
+@DisplayName("SchemaMigrationService Tests")
+class SchemaMigrationServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private EntitySchemaIntegrator entitySchema;
+    @Mock
+    private SchemaIndexReport indexReport;
+
+    @InjectMocks
+    private SchemaMigrationService migrationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(entitySchema.isAvailable()).thenReturn(true);
+        when(entitySchema.fingerprint()).thenReturn("0123abcd");
+    }
+
+    @Test
+    @DisplayName("migrate only reads the history table when every step is recorded")
+    void migrate_upToDate_skipsIntrospection() {
+        List<String> recorded = new ArrayList<>();
+        migrationService.migrations().forEach(m -> recorded.add(m.script()));
+        when(jdbcTemplate.queryForList(startsWith("SELECT script FROM"), eq(String.class))).thenReturn(recorded);
+
+        migrationService.migrate();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verifyNoInteractions(indexReport);
+        verify(entitySchema, never()).updateSchema();
+    }
+
+    @Test
+    @DisplayName("migrate on a fresh H2 database creates the history table and records every step")
+    void migrate_freshH2_recordsAllSteps() throws SQLException {
+        when(jdbcTemplate.queryForList(startsWith("SELECT script FROM"), eq(String.class)))
+                .thenThrow(new BadSqlGrammarException("history", "SELECT", new SQLException("Table not found")));
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        when(indexReport.tableExists(anyString())).thenReturn(false);
+
+        migrationService.migrate();
+
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE schema_migration"));
+        // Legacy fixes are MySQL only and the index steps wait for the tables the entity step creates
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE INDEX"));
+        verify(entitySchema).updateSchema();
+        verify(jdbcTemplate, times(migrationService.migrations().size()))
+                .update(startsWith("INSERT INTO schema_migration"), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("migrate builds a missing index as its own step and leaves present ones alone")
+    void migrate_pendingIndexes_createsOnlyMissing() throws SQLException {
+        List<String> recorded = new ArrayList<>();
+        migrationService.migrations().forEach(m -> recorded.add(m.script()));
+        recorded.remove("V6__idx_sas_item_student");
+        recorded.remove("V7__idx_lo_po_status_lo");
+        when(jdbcTemplate.queryForList(startsWith("SELECT script FROM"), eq(String.class))).thenReturn(recorded);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(indexReport.tableExists(anyString())).thenReturn(true);
+        when(indexReport.hasIndex(argThat(spec -> spec.name().equals("idx_lo_po_status_lo")))).thenReturn(true);
+
+        migrationService.migrate();
+
+        verify(jdbcTemplate).execute("CREATE INDEX idx_sas_item_student ON student_assessment_score (assessment_item_id, student_id)");
+        verify(jdbcTemplate, times(1)).execute(startsWith("CREATE INDEX"));
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO schema_migration"), any(Object[].class));
+        verify(indexReport).reportMissingIndexes();
+        verify(entitySchema, never()).updateSchema();
+        assertEquals(10, migrationService.migrations().size());
+    }
+
+    @Test
+    @DisplayName("migrate fails startup when the entity mapping is unavailable instead of skipping table creation")
+    void migrate_entityMappingUnavailable_failsFast() {
+        when(entitySchema.isAvailable()).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> migrationService.migrate());
+        verifyNoInteractions(jdbcTemplate, indexReport);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.Software.project.Backend.Service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ScoreMatrix — interning, missing cells and the row/column aggregates.
+ */
+@DisplayName("ScoreMatrix Tests")
+class ScoreMatrixTest {
+
+    @Test
+    @DisplayName("add sums repeated scores and leaves untouched cells missing")
+    void add_sumsScoresAndTracksMissingCells() {
+        ScoreMatrix matrix = new ScoreMatrix(List.of("LO1", "LO2"));
+        matrix.add("S1", "LO1", 20.0);
+        matrix.add("S1", "LO1", 15.0);
+        matrix.add("S2", "LO2", 40.0);
+        matrix.add("S2", "LO9", 99.0);
+
+        assertEquals(2, matrix.rows());
+        assertEquals(35.0, matrix.get(matrix.rowIndex("S1"), 0), 1e-9);
+        assertFalse(matrix.has(matrix.rowIndex("S1"), 1));
+        assertFalse(matrix.has(matrix.rowIndex("S2"), 0));
+        assertEquals(-1, matrix.rowIndex("S3"));
+        assertEquals(-1, matrix.columnIndex("LO9"));
+        assertEquals(1, matrix.columnCount(0));
+        assertEquals(75.0, matrix.rowSum(0) + matrix.rowSum(1), 1e-9);
+    }
+
+    @Test
+    @DisplayName("countAtOrAbove only counts present cells, with and without gaps")
+    void countAtOrAbove_skipsMissingCells() {
+        ScoreMatrix matrix = new ScoreMatrix(List.of("LO1", "LO2"));
+        for (int s = 0; s < 200; s++) {
+            int row = matrix.row("S" + s);
+            matrix.set(row, 0, s % 100);
+            if (s % 2 == 0) matrix.set(row, 1, 0.0);
+        }
+
+        assertEquals(200, matrix.rows());
+        assertEquals(100, matrix.countAtOrAbove(0, 50.0));
+        // Missing cells hold 0.0 but must not count as passing a zero threshold
+        assertEquals(100, matrix.countAtOrAbove(1, 0.0));
+        assertEquals(2, matrix.rowCountAtOrAbove(matrix.rowIndex("S0"), 0.0));
+        assertEquals(1, matrix.rowCountAtOrAbove(matrix.rowIndex("S1"), 0.0));
+    }
+
+    @Test
+    @DisplayName("toPercent and columnPercentile work on present scores only")
+    void toPercentAndPercentile() {
+        ScoreMatrix matrix = new ScoreMatrix(List.of("LO1", "LO2"));
+        matrix.add("S1", "LO1", 10.0);
+        matrix.add("S2", "LO1", 20.0);
+        matrix.add("S3", "LO1", 30.0);
+        matrix.add("S4", "LO1", 40.0);
+
+        matrix.toPercent(0, 40.0);
+
+        assertEquals(250.0, matrix.columnSum(0), 1e-9);
+        assertEquals(62.5, matrix.columnPercentile(0, 50), 1e-9);
+        assertEquals(100.0, matrix.columnPercentile(0, 100), 1e-9);
+        assertEquals(25.0, matrix.columnPercentile(0, 0), 1e-9);
+        assertTrue(Double.isNaN(matrix.columnPercentile(1, 50)));
+    }
+}
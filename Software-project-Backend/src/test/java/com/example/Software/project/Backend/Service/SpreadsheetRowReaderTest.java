@@ -0,0 +1,155 @@
+package com.example.Software.project.Backend.Service;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SpreadsheetRowReader — the SAX-based .xlsx reader behind the mark imports and its
+ * HSSF fallback. Workbooks are built with Apache POI: XSSFWorkbook writes shared strings,
+ * SXSSFWorkbook inline strings, so both cell encodings are parsed for real.
+ */
+@DisplayName("SpreadsheetRowReader Tests")
+class SpreadsheetRowReaderTest {
+
+    // Row number -> cells, in the order the handler saw them
+    private static Map<Integer, List<String>> read(Workbook workbook) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.close();
+        Map<Integer, List<String>> rows = new LinkedHashMap<>();
+        boolean found = SpreadsheetRowReader.readSheet(new ByteArrayInputStream(out.toByteArray()), "Marks"::equals,
+                (rowNum, cells) -> rows.put(rowNum, cells));
+        assertTrue(found);
+        return rows;
+    }
+
+    // Header, then a student row with a text id, a numeric score, a boolean and a text score
+    private static Workbook marksWorkbook(Workbook workbook) {
+        Sheet sheet = workbook.createSheet("Marks");
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("Student ID");
+        header.createCell(1).setCellValue("LO001");
+        Row student = sheet.createRow(1);
+        student.createCell(0).setCellValue("EN001");
+        student.createCell(1).setCellValue(55);
+        student.createCell(2).setCellValue(true);
+        student.createCell(3).setCellValue("72.5");
+        return workbook;
+    }
+
+    @Test
+    @DisplayName("shared strings are resolved and numbers read the way Cell.toString() prints them")
+    void sharedStringsAndNumbers() throws Exception {
+        Map<Integer, List<String>> rows = read(marksWorkbook(new XSSFWorkbook()));
+
+        assertEquals(List.of("Student ID", "LO001"), rows.get(0));
+        assertEquals(List.of("EN001", "55.0", "TRUE", "72.5"), rows.get(1));
+    }
+
+    @Test
+    @DisplayName("inline strings read the same as shared strings")
+    void inlineStrings() throws Exception {
+        Map<Integer, List<String>> inline = read(marksWorkbook(new SXSSFWorkbook()));
+
+        assertEquals(read(marksWorkbook(new XSSFWorkbook())), inline);
+    }
+
+    @Test
+    @DisplayName("fractional and whole numbers keep their Double.toString form")
+    void numericCells() throws Exception {
+        Workbook workbook = new XSSFWorkbook();
+        Row row = workbook.createSheet("Marks").createRow(0);
+        row.createCell(0).setCellValue(0);
+        row.createCell(1).setCellValue(87.25);
+        row.createCell(2).setCellValue(100);
+        row.createCell(3).setCellValue(20230001);
+
+        assertEquals(List.of("0.0", "87.25", "100.0", "2.0230001E7"), read(workbook).get(0));
+    }
+
+    @Test
+    @DisplayName("column gaps are null, blank cells empty, in both .xlsx and .xls")
+    void sparseCells() throws Exception {
+        Workbook xlsx = new XSSFWorkbook();
+        Workbook xls = new HSSFWorkbook();
+        for (Workbook workbook : List.of(xlsx, xls)) {
+            Sheet sheet = workbook.createSheet("Marks");
+            Row first = sheet.createRow(0);
+            first.createCell(0).setCellValue("EN001");
+            first.createCell(1);
+            first.createCell(4).setCellValue(80);
+            // Row that starts past column A
+            sheet.createRow(1).createCell(2).setCellValue("EN002");
+        }
+
+        Map<Integer, List<String>> rows = read(xlsx);
+        assertEquals(Arrays.asList("EN001", "", null, null, "80.0"), rows.get(0));
+        assertEquals(Arrays.asList(null, null, "EN002"), rows.get(1));
+        assertEquals(rows, read(xls));
+    }
+
+    @Test
+    @DisplayName("an empty row is reported without cells and an absent row is skipped")
+    void blankRows() throws Exception {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("Marks");
+        sheet.createRow(0).createCell(0).setCellValue("EN001");
+        sheet.createRow(1);
+        sheet.createRow(3).createCell(0).setCellValue("EN002");
+
+        Map<Integer, List<String>> rows = read(workbook);
+
+        assertEquals(List.of(0, 1, 3), new ArrayList<>(rows.keySet()));
+        assertTrue(rows.get(1).isEmpty());
+        assertEquals(List.of("EN002"), rows.get(3));
+    }
+
+    @Test
+    @DisplayName("only the matching sheet is read, and a missing sheet reports false")
+    void sheetSelection() throws Exception {
+        Workbook workbook = new XSSFWorkbook();
+        workbook.createSheet("METADATA").createRow(0).createCell(0).setCellValue("batch");
+        marksWorkbook(workbook);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.close();
+
+        List<String> firstCells = new ArrayList<>();
+        assertTrue(SpreadsheetRowReader.readSheet(new ByteArrayInputStream(out.toByteArray()), "Marks"::equals,
+                (rowNum, cells) -> firstCells.add(cells.get(0))));
+        assertEquals(List.of("Student ID", "EN001"), firstCells);
+
+        assertFalse(SpreadsheetRowReader.readSheet(new ByteArrayInputStream(out.toByteArray()), "Other"::equals,
+                (rowNum, cells) -> fail("no sheet should be read")));
+    }
+
+    @Test
+    @DisplayName("a handler failure surfaces unchanged, not wrapped by the SAX parser")
+    void handlerFailurePropagates() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Workbook workbook = marksWorkbook(new XSSFWorkbook());
+        workbook.write(out);
+        workbook.close();
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () ->
+                SpreadsheetRowReader.readSheet(new ByteArrayInputStream(out.toByteArray()), "Marks"::equals,
+                        (rowNum, cells) -> { throw new IllegalArgumentException("Row " + rowNum + " rejected"); }));
+        assertEquals("Row 0 rejected", thrown.getMessage());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.Software.project.Backend.Service;
+
+import com.example.Software.project.Backend.Repository.AssessmentItemRepository;
+import com.example.Software.project.Backend.Repository.StudentMarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TrendService.getLoPassRate — the aggregation itself runs in
+ * StudentMarkRepository.findLoPassRateByCourse; this checks the chart JSON built from its rows.
+ */
+@DisplayName("TrendService Tests")
+class TrendServiceTest {
+
+    @Mock
+    private StudentMarkRepository markRepository;
+    @Mock
+    private AssessmentItemRepository assessmentItemRepository;
+
+    @InjectMocks
+    private TrendService trendService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("getLoPassRate groups LO+batch rows into one series per LO, in query order")
+    void getLoPassRate_groupsPointsPerLo() {
+        // MySQL returns COUNT as BIGINT and SUM(CASE ...) as DECIMAL
+        when(markRepository.findLoPassRateByCourse("MOD1", 50.0)).thenReturn(List.of(
+            new Object[]{"LO001", "LO 1", "21", 40L, new BigDecimal("30")},
+            new Object[]{"LO001", "LO 1", "22", 3L, new BigDecimal("2")},
+            new Object[]{"LO002", "LO 2", "21", 10L, new BigDecimal("0")}
+        ));
+
+        Map<String, List<Map<String, Object>>> result = trendService.getLoPassRate("MOD1", 50.0);
+
+        assertEquals(List.of("LO001 - LO 1", "LO002 - LO 2"), List.copyOf(result.keySet()));
+        List<Map<String, Object>> lo1 = result.get("LO001 - LO 1");
+        assertEquals(2, lo1.size());
+        assertEquals("21", lo1.get(0).get("batch"));
+        assertEquals("21nd Batch", lo1.get(0).get("year"));
+        assertEquals(40L, lo1.get(0).get("totalStudents"));
+        assertEquals(30L, lo1.get(0).get("passedStudents"));
+        assertEquals(75.0, lo1.get(0).get("passRate"));
+        assertEquals(66.7, lo1.get(1).get("passRate"));
+        assertEquals(0.0, result.get("LO002 - LO 2").get(0).get("passRate"));
+    }
+
+    @Test
+    @DisplayName("getLoPassRate never loads individual marks or items")
+    void getLoPassRate_usesSingleGroupedQuery() {
+        when(markRepository.findLoPassRateByCourse("MOD1", 60.0)).thenReturn(List.of());
+
+        assertTrue(trendService.getLoPassRate("MOD1", 60.0).isEmpty());
+
+        verify(markRepository, never()).findByLos_IdAndBatch(anyString(), anyString());
+        verifyNoInteractions(assessmentItemRepository);
+    }
+}